@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.benchmarks;
+
+/**
+ * The layout the benchmarks share: groups of 100 topics, each topic with 100 partitions, so the
+ * group and topic counts grow with the partitions like they do in a real bucket.
+ */
+public final class Layout {
+  public static final String PREFIX = "prefix";
+  public static final int PARTITIONS_PER_TOPIC = 100;
+  public static final int TOPICS_PER_GROUP = 100;
+
+  private Layout() {}
+
+  public static String group(int index) {
+    return "connect-group-" + index / (PARTITIONS_PER_TOPIC * TOPICS_PER_GROUP);
+  }
+
+  public static String topic(int index) {
+    return "orders.topic." + (index / PARTITIONS_PER_TOPIC) % TOPICS_PER_GROUP;
+  }
+
+  public static int partition(int index) {
+    return index % PARTITIONS_PER_TOPIC;
+  }
+
+  /** @return the key of the index-th partition */
+  public static String key(int index) {
+    return PREFIX + "/" + group(index) + "/" + topic(index) + "/" + partition(index);
+  }
+}
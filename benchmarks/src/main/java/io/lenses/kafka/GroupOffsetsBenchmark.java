@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import io.lenses.benchmarks.Layout;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts and prints a single group holding all the partitions. The benchmarks' logback-test.xml logs
+ * at WARN, so {@link KafkaOperations#print} measures what the partition detail costs when it is not
+ * enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class GroupOffsetsBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  int partitions;
+
+  private GroupOffsets groupOffsets;
+
+  private final KafkaOperations kafkaOperations =
+      new KafkaOperations() {
+        @Override
+        public boolean checkConnection(long timeout, TimeUnit unit) {
+          return true;
+        }
+
+        @Override
+        public void restoreGroupOffsets(
+            Iterator<GroupOffsets> offsets,
+            long timeout,
+            TimeUnit unit,
+            RestoreListener listener) {}
+
+        @Override
+        public void close() {}
+      };
+
+  @Setup
+  public void setUp() {
+    final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (int index = 0; index < partitions; index++) {
+      offsets.put(
+          new TopicPartition(Layout.topic(index) + "-" + index / 10000, Layout.partition(index)),
+          new OffsetAndMetadata(index));
+    }
+    groupOffsets = new GroupOffsets("group", offsets);
+  }
+
+  @Benchmark
+  public Object getSortedOffset() {
+    return groupOffsets.getSortedOffset();
+  }
+
+  @Benchmark
+  public void print() {
+    kafkaOperations.print(groupOffsets);
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import io.lenses.benchmarks.Layout;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Prints the retained heap per partition of a group held as a {@code HashMap<TopicPartition,
+ * OffsetAndMetadata>} and as {@link PartitionOffsets}, measured with JOL. The topic names are
+ * shared by both and counted in both.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar io.lenses.kafka.GroupOffsetsFootprint
+ * </pre>
+ */
+public class GroupOffsetsFootprint {
+  public static void main(String[] args) {
+    System.out.printf("%12s %18s %18s%n", "partitions", "HashMap B/part", "compact B/part");
+    for (int partitions : new int[] {1_000, 10_000, 100_000, 1_000_000}) {
+      final Map<TopicPartition, OffsetAndMetadata> map = new HashMap<>();
+      final PartitionOffsets.Builder builder = PartitionOffsets.builder();
+      for (int index = 0; index < partitions; index++) {
+        final String topic = Layout.topic(index) + "-" + index / 10000;
+        map.put(new TopicPartition(topic, Layout.partition(index)), new OffsetAndMetadata(index));
+        builder.add(topic, Layout.partition(index), index);
+      }
+      final PartitionOffsets compact = builder.build();
+      System.out.printf(
+          "%12d %18.1f %18.1f%n",
+          partitions,
+          (double) GraphLayout.parseInstance(map).totalSize() / partitions,
+          (double) GraphLayout.parseInstance(compact).totalSize() / partitions);
+    }
+  }
+}
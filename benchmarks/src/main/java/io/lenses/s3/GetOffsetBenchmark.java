@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+/**
+ * Reads one offset object from the in-memory {@link StubS3Client}: through {@code
+ * getObjectAsBytes}, as before, and through {@link S3ObjectStore} with {@link
+ * OffsetResponseTransformer}, which hands the offset back in a per-thread holder rather than a
+ * boxed {@code Long}. Run it with {@code -prof gc} to compare the bytes allocated per read; what
+ * {@code stream} still allocates is the request and the stub's response, not the offset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetOffsetBenchmark {
+  private static final String KEY = "prefix/group/topic/0";
+  // outside the cache of Long.valueOf, so a boxed offset would show in the allocations
+  private static final long OFFSET = 1_234_567_890L;
+  private StubS3Client s3Client;
+  private S3ObjectStore store;
+
+  @Setup
+  public void setUp() {
+    s3Client = new StubS3Client(1000, 0).putOffset(KEY, OFFSET);
+    store = new S3ObjectStore(s3Client, "bucket");
+  }
+
+  @Benchmark
+  public long bytes() {
+    return s3Client
+        .getObject(
+            GetObjectRequest.builder().bucket("bucket").key(KEY).build(),
+            ResponseTransformer.toBytes())
+        .asByteBuffer()
+        .getLong();
+  }
+
+  @Benchmark
+  public long stream() {
+    return store.readOffset(KEY);
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.benchmarks.Layout;
+import io.lenses.store.ReaderConfig;
+import io.lenses.store.Selection;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Reads a whole bucket over HTTP from the local {@link HttpS3Stub}, through the client built by
+ * {@link S3ClientBuilderHelper}: the blocking reader on the Apache or the url-connection client, or
+ * the async reader on the Netty client, across pool sizes, read concurrencies and keepalive
+ * settings; the url-connection client takes neither, its connections being kept by the JDK. It
+ * measures the SDK and HTTP client stack on loopback, to pick the engine and the pool per
+ * deployment; the S3 latency comes on top.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(
+    value = 1,
+    jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class HttpClientBenchmark {
+  @Param({"10000"})
+  int partitions;
+
+  @Param({"apache", "url-connection", "netty"})
+  String engine;
+
+  @Param({"16", "64"})
+  int concurrency;
+
+  @Param({"50", "200"})
+  int maxConnections;
+
+  @Param({"true", "false"})
+  boolean tcpKeepAlive;
+
+  private HttpS3Stub stub;
+  private S3Client s3Client;
+  private S3AsyncClient s3AsyncClient;
+
+  @Setup
+  public void setUp() throws IOException {
+    stub = new HttpS3Stub("bucket", 1000);
+    for (int index = 0; index < partitions; index++) {
+      stub.putOffset(Layout.key(index), index);
+    }
+    final S3Config config =
+        S3Config.builder()
+            .awsMode(AwsMode.CREDENTIALS)
+            .awsRegion("eu-west-1")
+            .awsCredentials("access-key", "secret-key")
+            .awsEndpoint(stub.getEndpoint())
+            .awsHttpClient(
+                new HttpClientConfig(
+                    engine.equals("url-connection")
+                        ? HttpClientType.URL_CONNECTION
+                        : HttpClientType.APACHE,
+                    maxConnections,
+                    10_000L,
+                    2_000L,
+                    30_000L,
+                    tcpKeepAlive,
+                    60_000L,
+                    true))
+            .enableVirtualHostBuckets(true)
+            .awsReadConcurrency(concurrency)
+            .awsListSplit(false)
+            .awsPrefixRateMax(0)
+            .awsReaderMode(engine.equals("netty") ? S3ReaderMode.ASYNC : S3ReaderMode.BLOCKING)
+            .awsAsyncMaxInFlight(concurrency)
+            .build();
+    if (engine.equals("netty")) {
+      s3AsyncClient = S3ClientBuilderHelper.buildAsync(config);
+    } else {
+      s3Client = S3ClientBuilderHelper.build(config);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (s3Client != null) {
+      s3Client.close();
+    }
+    if (s3AsyncClient != null) {
+      s3AsyncClient.close();
+    }
+    stub.close();
+  }
+
+  @Benchmark
+  public void read(Blackhole blackhole) {
+    final S3Location source = new S3Location("bucket", Optional.of(Layout.PREFIX));
+    if (s3AsyncClient != null) {
+      new S3AsyncAwsGroupOffsetsReader(s3AsyncClient, concurrency)
+          .read(source, Selection.all(), blackhole::consume);
+    } else {
+      new S3AwsGroupOffsetsReader(
+              s3Client,
+              ReaderConfig.builder().concurrency(concurrency).build(),
+              HedgeConfig.DEFAULT)
+          .read(source, Selection.all(), blackhole::consume);
+    }
+  }
+}
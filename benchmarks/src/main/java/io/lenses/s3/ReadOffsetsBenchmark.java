@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.benchmarks.Layout;
+import io.lenses.store.ReaderConfig;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads and aggregates a whole bucket through {@link S3AwsGroupOffsetsReader}, against the
+ * in-memory {@link StubS3Client} with no added latency: the listing, parsing and aggregation cost,
+ * without the network. With the listing split, the groups are found first and listed in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ReadOffsetsBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  int partitions;
+
+  @Param({"1", "16"})
+  int concurrency;
+
+  @Param({"false", "true"})
+  boolean splitListing;
+
+  private StubS3Client s3Client;
+
+  @Setup
+  public void setUp() {
+    s3Client = new StubS3Client(1000, 0);
+    for (int index = 0; index < partitions; index++) {
+      s3Client.putOffset(Layout.key(index), index);
+    }
+  }
+
+  @Benchmark
+  public void read(Blackhole blackhole) {
+    new S3AwsGroupOffsetsReader(
+            s3Client,
+            ReaderConfig.builder().concurrency(concurrency).splitListing(splitListing).build(),
+            HedgeConfig.DEFAULT)
+        .read(
+            new S3Location("bucket", Optional.of(Layout.PREFIX)),
+            Optional.empty(),
+            blackhole::consume);
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import io.lenses.benchmarks.Layout;
+import io.lenses.s3.S3AwsGroupOffsetsReader;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parses the keys of a whole listing, in the order the listing returns them. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class KeyParsingBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  int partitions;
+
+  private String[] keys;
+
+  @Setup
+  public void setUp() {
+    keys = new String[partitions];
+    for (int index = 0; index < partitions; index++) {
+      keys[index] = Layout.key(index);
+    }
+    Arrays.sort(keys);
+  }
+
+  @Benchmark
+  public void extractGroupTopicPartition(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(S3AwsGroupOffsetsReader.extractGroupTopicPartition(key));
+    }
+  }
+
+  @Benchmark
+  public void pooledParse(Blackhole blackhole) {
+    final OffsetKeys offsetKeys = new OffsetKeys();
+    for (String key : keys) {
+      blackhole.consume(offsetKeys.tryParse(key));
+    }
+  }
+}
@@ -10,28 +10,68 @@
  */
 package io.lenses;
 
+import io.lenses.journal.JournalConfig;
+import io.lenses.journal.RestoreJournal;
 import io.lenses.kafka.AdminClientKafkaOperations;
 import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.GroupResult;
 import io.lenses.kafka.KafkaOperations;
 import io.lenses.kafka.PreviewAdminClientKafkaOperations;
+import io.lenses.kafka.RestoreListener;
+import io.lenses.metrics.MetricsConfig;
+import io.lenses.metrics.MetricsRegistry;
+import io.lenses.metrics.MetricsServer;
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.report.OffsetsReport;
+import io.lenses.report.ProgressReporter;
+import io.lenses.report.ReportConfig;
+import io.lenses.report.RestoreResults;
 import io.lenses.s3.AwsGroupOffsetsReader;
+import io.lenses.s3.S3AsyncAwsGroupOffsetsReader;
 import io.lenses.s3.S3AwsGroupOffsetsReader;
 import io.lenses.s3.S3ClientBuilderHelper;
 import io.lenses.s3.S3Config;
+import io.lenses.snapshot.OffsetsSnapshot;
+import io.lenses.store.GroupOffsetsSorter;
+import io.lenses.store.LocalObjectStore;
+import io.lenses.store.LocalStoreConfig;
+import io.lenses.store.ObjectStoreGroupOffsetsReader;
+import io.lenses.store.OffsetsCache;
+import io.lenses.store.ReaderConfig;
+import io.lenses.store.Selection;
 import io.lenses.utils.Ascii;
+import io.lenses.utils.BlockingQueueIterator;
 import io.lenses.utils.Either;
+import io.lenses.utils.Utils;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.List;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 
 /**
  * The application will read the group offsets stored in S3. The S3 object key is structured as
  * $bucket/$prefix/${group}/${topic}/${partition} and the content represnets the long bytes of the
- * offset. The application will then restore the group offsets to the Kafka cluster.
+ * offset. The application will then restore the group offsets to the Kafka cluster. Each group is
+ * restored as soon as all its offsets have been read, while the later groups are still read.
+ *
+ * <p>The restore is journaled, and with --resume an interrupted restore continues from its journal:
+ * the groups already committed are skipped and the groups already read are not read again. A group
+ * failing does not stop the others; the restore fails at the end, and --resume retries only the
+ * groups that failed.
+ *
+ * <p>With --export-snapshot the offsets read from S3 are saved to a local snapshot file instead of
+ * being restored; with --snapshot they are restored from such a file instead of S3.
  *
  * <p>The application will receive the configuration file as arguments containing:
  *
@@ -39,14 +79,59 @@ import software.amazon.awssdk.services.s3.S3Client;
  *   <li>source=the AWS bucket and prefix, optionally, where the group offsets are restored
  *   <li>all the Kafka properties are prefixed with kafka
  *   <li>groups=an optional comma separated groups to consider
+ *   <li>include.groups, exclude.groups, include.topics, exclude.topics=optional glob or regex:
+ *       patterns selecting the groups and topics
  *   <li>aws.mode=credentials all default chain provider
  *   <li>aws.region=the target AWS region
  *   <li>aws.access.key=when using credentials mode
  *   <li>aws.secret.key=when using credentials mode
+ *   <li>aws.endpoint=an optional S3 compatible endpoint to use instead of AWS
+ *   <li>aws.http.retry.interval, aws.http.retry.max.interval=the base and the longest jittered
+ *       delay before a retry
+ *   <li>aws.rate.max, aws.rate.min, aws.rate.increase, aws.rate.decrease=the S3 request rate,
+ *       lowered when S3 throttles and raised back on success; with no max (the default) the
+ *       requests are only held back once S3 throttles
+ *   <li>aws.http.client=apache or url-connection, the HTTP client of the blocking reader
+ *   <li>aws.http.max.connections, aws.http.connection.acquisition.timeout.ms,
+ *       aws.http.connection.timeout.ms, aws.http.socket.timeout.ms, aws.http.tcp.keepalive,
+ *       aws.http.connection.max.idle.ms, aws.http.idle.connection.reaper=the S3 connection pool
+ *   <li>aws.read.concurrency=how many S3 objects are fetched in parallel
+ *   <li>aws.list.split=whether the groups are found first and listed in parallel
+ *   <li>aws.read.prefix.max.rate=the most GETs per second of a group/topic prefix, whose GETs are
+ *       taken in turn
+ *   <li>aws.hedge.enabled, aws.hedge.percentile, aws.hedge.min.delay.ms,
+ *       aws.hedge.max.ratio=whether a slow GET is sent again, after which percentile of the recent
+ *       latencies, and how many extra GETs are allowed
+ *   <li>aws.reader=blocking or async, the S3 client used to read the offsets
+ *   <li>aws.cache.file=an optional local file caching the offsets of unchanged S3 objects
+ *   <li>spill.memory.max.mb=the memory the offsets read may take before they are spilled to sorted
+ *       run files and merged back at the end of the read; 0 turns it off
+ *   <li>spill.dir=the directory of the run files
+ *   <li>local.path=an optional directory to read the offsets from instead of S3
+ *   <li>local.read.concurrency=how many files are read in parallel from the local directory
+ *   <li>restore.max.in.flight=how many groups are restored concurrently
+ *   <li>restore.group.timeout.ms=how long each group may take to restore
+ *   <li>restore.timeout.ms=how long the whole restore may take
+ *   <li>restore.coordinator.aware=whether the restore is spread across the coordinator brokers
+ *   <li>restore.broker.max.in.flight=how many groups are restored concurrently per coordinator
+ *   <li>restore.plan.batch.size=how many groups have their coordinators looked up at once
+ *   <li>restore.delta=whether only the partitions whose committed offset differs are restored
+ *   <li>restore.group.retries=how many times a group failing with a retriable error is retried
+ *   <li>restore.retry.backoff.ms, restore.retry.backoff.max.ms=the delay before a retry, doubled
+ *       for each following one up to the max
+ *   <li>metrics.port=an optional port serving the Prometheus metrics on /metrics while running
+ *   <li>metrics.summary.file=an optional file the JSON run summary is written to at exit
+ *   <li>progress.interval.ms=how often the progress is logged; 0 turns it off
+ *   <li>report.file=an optional file every restored partition offset is written to
+ *   <li>results.file=an optional JSON lines file the result of every group is written to
+ *   <li>journal.file=an optional journal of the restore, which --resume continues from
+ *   <li>journal.sync.interval.ms=how often the journal is forced to disk
  * </ul>
  */
 public class App {
   private static final Logger logger = LoggerFactory.getLogger(App.class);
+  // how many complete groups can wait for the restore before the reader is held back
+  private static final int PIPELINE_CAPACITY = 100;
 
   public static void main(String[] args) {
     Ascii.display("/ascii.txt", logger::info);
@@ -59,6 +144,11 @@ public class App {
           printUsage();
           break;
         case CONFIG_FILE_DOES_NOT_EXIST:
+        case SNAPSHOT_FILE_DOES_NOT_EXIST:
+          break;
+        case CONFLICTING_SNAPSHOT_ARGUMENTS:
+        case CONFLICTING_RESUME_ARGUMENTS:
+          printUsage();
           break;
       }
       System.exit(1);
@@ -68,23 +158,13 @@ public class App {
 
     try (InputStream inputStream = Files.newInputStream(arguments.getConfigFile().toPath())) {
       final Configuration configuration = Configuration.from(inputStream);
-      try (KafkaOperations kafkaOperations =
-          arguments.isPreview()
-              ? new PreviewAdminClientKafkaOperations()
-              : AdminClientKafkaOperations.create(configuration.getKafkaProperties())) {
-        if (!kafkaOperations.checkConnection(10, TimeUnit.SECONDS)) {
-          logger.error("Failed to connect to Kafka cluster.");
-        } else {
-          final S3Config s3Config = configuration.getS3Config();
-          try (S3Client s3Client = S3ClientBuilderHelper.build(s3Config)) {
-            final AwsGroupOffsetsReader s3Operations = new S3AwsGroupOffsetsReader(s3Client);
-            final List<GroupOffsets> offsets =
-                s3Operations.read(configuration.getSource(), configuration.getGroups());
-            logger.info("Restoring Groups offsets");
-            kafkaOperations.restoreGroupOffsets(offsets, 1, TimeUnit.MINUTES);
-            logger.info("Finished restoring Groups offsets");
-          }
-        }
+      final MetricsConfig metricsConfig = configuration.getMetricsConfig();
+      final long start = System.nanoTime();
+      try (MetricsServer ignored = startMetricsServer(metricsConfig)) {
+        run(configuration, arguments);
+      } finally {
+        RestoreMetrics.phaseDone("total", start);
+        metricsConfig.getSummaryFile().ifPresent(file -> writeSummary(Paths.get(file)));
       }
     } catch (Exception e) {
       logger.error("An error occurred. ", e);
@@ -92,7 +172,284 @@ public class App {
     }
   }
 
+  private static void run(Configuration configuration, Arguments arguments) throws Exception {
+    if (arguments.getExportSnapshot().isPresent()) {
+      exportSnapshot(configuration, arguments.getExportSnapshot().get().toPath());
+      return;
+    }
+    try (KafkaOperations kafkaOperations =
+        arguments.isPreview()
+            ? new PreviewAdminClientKafkaOperations()
+            : AdminClientKafkaOperations.create(
+                configuration.getKafkaProperties(), configuration.getRestoreConfig())) {
+      if (!kafkaOperations.checkConnection(10, TimeUnit.SECONDS)) {
+        logger.error("Failed to connect to Kafka cluster.");
+      } else {
+        logger.info("Restoring Groups offsets");
+        restore(configuration, kafkaOperations, arguments);
+        logger.info("Finished restoring Groups offsets");
+      }
+    }
+  }
+
+  /** @return the Prometheus endpoint when metrics.port is set, otherwise null */
+  private static MetricsServer startMetricsServer(MetricsConfig metricsConfig) throws IOException {
+    return metricsConfig.getPort().isPresent()
+        ? new MetricsServer(metricsConfig.getPort().get(), MetricsRegistry.global())
+        : null;
+  }
+
+  private static void writeSummary(Path file) {
+    try {
+      RestoreMetrics.writeSummary(file);
+      logger.info("Wrote the run summary to:" + file);
+    } catch (IOException e) {
+      logger.warn("Failed to write the run summary to:" + file, e);
+    }
+  }
+
+  /**
+   * Reads the groups on a background thread and restores each one as soon as it is complete, so the
+   * Kafka commits overlap the S3 reads. The bounded hand-over keeps only the groups in flight in
+   * memory. With a snapshot, the groups are read from it instead of S3.
+   */
+  private static void restore(
+      Configuration configuration, KafkaOperations kafkaOperations, Arguments arguments)
+      throws IOException {
+    final Optional<Path> snapshot = arguments.getSnapshot().map(File::toPath);
+    final BlockingQueueIterator<GroupOffsets> offsets =
+        new BlockingQueueIterator<>(PIPELINE_CAPACITY);
+    final ExecutorService reader =
+        Executors.newSingleThreadExecutor(Utils.daemonThreadFactory("offsets-reader"));
+    final ReportConfig reportConfig = configuration.getReportConfig();
+    try (RestoreJournal journal = openJournal(configuration, arguments, snapshot);
+        ProgressReporter progress = startProgress(reportConfig, true);
+        OffsetsReport report =
+            reportConfig.getReportFile().isPresent()
+                ? new OffsetsReport(Paths.get(reportConfig.getReportFile().get()))
+                : null;
+        RestoreResults results =
+            reportConfig.getResultsFile().isPresent() && !arguments.isPreview()
+                ? new RestoreResults(Paths.get(reportConfig.getResultsFile().get()))
+                : null) {
+      final Consumer<GroupOffsets> read = counted(offsets);
+      reader.submit(
+          () -> {
+            final long readStart = System.nanoTime();
+            try {
+              Selection selection = configuration.getSelection();
+              Consumer<GroupOffsets> source = read;
+              if (journal != null) {
+                // the groups read by the previous run are not read again
+                journal.readPendingGroups(read);
+                selection = selection.skipping(journal.getKnownGroups());
+                source =
+                    groupOffsets -> {
+                      journal.groupRead(groupOffsets);
+                      read.accept(groupOffsets);
+                    };
+              }
+              if (journal != null && journal.isReadComplete()) {
+                logger.info("The journal holds every group; the source is not read again.");
+              } else if (snapshot.isPresent()) {
+                logger.info("Reading Consumer Group offsets from snapshot:" + snapshot.get());
+                OffsetsSnapshot.read(snapshot.get(), selection, source);
+              } else {
+                readOffsets(configuration, selection, source);
+              }
+              if (journal != null) {
+                journal.readComplete();
+              }
+              offsets.complete();
+            } catch (Throwable t) {
+              offsets.fail(t);
+            } finally {
+              RestoreMetrics.phaseDone("read", readStart);
+              if (progress != null) {
+                progress.readDone();
+              }
+            }
+          });
+      final long restoreStart = System.nanoTime();
+      try {
+        kafkaOperations.restoreGroupOffsets(
+            offsets,
+            configuration.getRestoreConfig().getGroupTimeoutMs(),
+            TimeUnit.MILLISECONDS,
+            new RestoreListener() {
+              @Override
+              public void sending(GroupOffsets groupOffsets) {
+                kafkaOperations.print(groupOffsets);
+                if (report != null) {
+                  report.accept(groupOffsets);
+                }
+              }
+
+              @Override
+              public void completed(GroupResult result) {
+                // a failed group stays pending in the journal, so --resume retries only those
+                if (journal != null && result.isCommitted()) {
+                  journal.committed(result.getGroup());
+                }
+                if (results != null) {
+                  results.accept(result);
+                }
+              }
+            });
+      } finally {
+        RestoreMetrics.phaseDone("restore", restoreStart);
+      }
+    } finally {
+      reader.shutdownNow();
+    }
+  }
+
+  /**
+   * Starts a new journal, or reopens it with --resume. The preview commits nothing, so it is not
+   * journaled.
+   *
+   * @return the journal, or null when the preview runs or journal.file is not set
+   */
+  private static RestoreJournal openJournal(
+      Configuration configuration, Arguments arguments, Optional<Path> snapshot)
+      throws IOException {
+    final JournalConfig journalConfig = configuration.getJournalConfig();
+    if (arguments.isPreview() || !journalConfig.getFile().isPresent()) {
+      if (arguments.isResume()) {
+        throw new IllegalArgumentException("--resume needs the journal.file setting");
+      }
+      return null;
+    }
+    final Path file = Paths.get(journalConfig.getFile().get());
+    final String source = source(configuration, snapshot);
+    return arguments.isResume()
+        ? RestoreJournal.resume(file, source, journalConfig.getSyncIntervalMs())
+        : RestoreJournal.create(file, source, journalConfig.getSyncIntervalMs());
+  }
+
+  /** @return what the offsets are read from, so a journal is only resumed for the same source */
+  private static String source(Configuration configuration, Optional<Path> snapshot) {
+    if (snapshot.isPresent()) {
+      return "snapshot:" + snapshot.get().toAbsolutePath();
+    }
+    if (configuration.getLocalStoreConfig().isPresent()) {
+      return "local:"
+          + Paths.get(configuration.getLocalStoreConfig().get().getPath()).toAbsolutePath();
+    }
+    return "s3://"
+        + configuration.getSource().getBucket()
+        + "/"
+        + configuration.getSource().getPrefix().orElse("");
+  }
+
+  /** @return the progress reporter when progress.interval.ms is positive, otherwise null */
+  private static ProgressReporter startProgress(ReportConfig reportConfig, boolean restoring) {
+    return reportConfig.getProgressIntervalMs() > 0
+        ? new ProgressReporter(reportConfig.getProgressIntervalMs(), restoring)
+        : null;
+  }
+
+  /** Counts the groups read before handing them over, for the progress. */
+  private static Consumer<GroupOffsets> counted(Consumer<GroupOffsets> consumer) {
+    return groupOffsets -> {
+      RestoreMetrics.groupsRead.inc();
+      consumer.accept(groupOffsets);
+    };
+  }
+
+  /** Reads the groups from S3 and saves them to a snapshot, without restoring them. */
+  private static void exportSnapshot(Configuration configuration, Path file) throws IOException {
+    final long start = System.nanoTime();
+    // the groups come in completion order; the sorter puts them in name order within the budget
+    try (GroupOffsetsSorter groups = new GroupOffsetsSorter(configuration.getSpillConfig())) {
+      try (ProgressReporter ignored = startProgress(configuration.getReportConfig(), false)) {
+        readOffsets(configuration, configuration.getSelection(), counted(groups::add));
+      }
+      RestoreMetrics.phaseDone("read", start);
+      final long exportStart = System.nanoTime();
+      OffsetsSnapshot.write(file, groups);
+      RestoreMetrics.phaseDone("export", exportStart);
+      logger.info(
+          "Exported "
+              + groups.size()
+              + " groups to snapshot:"
+              + file
+              + " ("
+              + Files.size(file)
+              + " bytes) in "
+              + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+              + " ms");
+    }
+  }
+
+  private static void readOffsets(
+      Configuration configuration, Selection selection, Consumer<GroupOffsets> consumer) {
+    if (configuration.getLocalStoreConfig().isPresent()) {
+      final LocalStoreConfig localConfig = configuration.getLocalStoreConfig().get();
+      logger.info("Reading Consumer Group offsets from directory:" + localConfig.getPath());
+      try (LocalObjectStore store =
+          new LocalObjectStore(
+              Paths.get(localConfig.getPath()), localConfig.getReadConcurrency())) {
+        new ObjectStoreGroupOffsetsReader(
+                store,
+                ReaderConfig.builder()
+                    .concurrency(localConfig.getReadConcurrency())
+                    .spill(configuration.getSpillConfig())
+                    .build())
+            .read(Optional.empty(), selection, consumer);
+      }
+      return;
+    }
+    final S3Config s3Config = configuration.getS3Config();
+    final Optional<OffsetsCache> cache =
+        s3Config.getAwsCacheFile().map(file -> OffsetsCache.load(Paths.get(file)));
+    switch (s3Config.getAwsReaderMode()) {
+      case ASYNC:
+        try (S3AsyncClient s3Client = S3ClientBuilderHelper.buildAsync(s3Config)) {
+          final AwsGroupOffsetsReader s3Operations =
+              new S3AsyncAwsGroupOffsetsReader(
+                  s3Client,
+                  s3Config.getAwsAsyncMaxInFlight(),
+                  cache,
+                  configuration.getSpillConfig());
+          s3Operations.read(configuration.getSource(), selection, consumer);
+        }
+        break;
+      case BLOCKING:
+        try (S3Client s3Client = S3ClientBuilderHelper.build(s3Config)) {
+          final AwsGroupOffsetsReader s3Operations =
+              new S3AwsGroupOffsetsReader(
+                  s3Client,
+                  ReaderConfig.builder()
+                      .concurrency(s3Config.getAwsReadConcurrency())
+                      .cache(cache)
+                      .splitListing(s3Config.isAwsListSplit())
+                      .spill(configuration.getSpillConfig())
+                      .prefixMaxRate(s3Config.getAwsPrefixRateMax())
+                      .build(),
+                  s3Config.getAwsHedge());
+          s3Operations.read(configuration.getSource(), selection, consumer);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(
+            "Unsupported AWS reader: " + s3Config.getAwsReaderMode());
+    }
+    // a failed or stopped read leaves the previous cache in place
+    cache.ifPresent(App::saveCache);
+  }
+
+  private static void saveCache(OffsetsCache cache) {
+    try {
+      cache.save();
+    } catch (IOException e) {
+      logger.warn("Failed to save the offsets cache", e);
+    }
+  }
+
   private static void printUsage() {
-    System.out.println("Usage: --config <config-file> [--preview]");
+    System.out.println(
+        "Usage: --config <config-file> [--preview | --resume]"
+            + " [--export-snapshot <file> | --snapshot <file>]");
   }
 }
@@ -12,14 +12,35 @@ package io.lenses;
 
 import io.lenses.utils.Either;
 import java.io.File;
+import java.util.Optional;
 
 public class Arguments {
   private final File configFile;
   private final boolean preview;
+  private final Optional<File> exportSnapshot;
+  private final Optional<File> snapshot;
+  private final boolean resume;
 
   public Arguments(File configFile, boolean preview) {
+    this(configFile, preview, Optional.empty(), Optional.empty());
+  }
+
+  public Arguments(
+      File configFile, boolean preview, Optional<File> exportSnapshot, Optional<File> snapshot) {
+    this(configFile, preview, exportSnapshot, snapshot, false);
+  }
+
+  public Arguments(
+      File configFile,
+      boolean preview,
+      Optional<File> exportSnapshot,
+      Optional<File> snapshot,
+      boolean resume) {
     this.configFile = configFile;
     this.preview = preview;
+    this.exportSnapshot = exportSnapshot;
+    this.snapshot = snapshot;
+    this.resume = resume;
   }
 
   public File getConfigFile() {
@@ -30,9 +51,27 @@ public class Arguments {
     return preview;
   }
 
+  /** @return the file to save the offsets read from S3 to, instead of restoring them */
+  public Optional<File> getExportSnapshot() {
+    return exportSnapshot;
+  }
+
+  /** @return the file to restore the offsets from, instead of reading them from S3 */
+  public Optional<File> getSnapshot() {
+    return snapshot;
+  }
+
+  /** @return true to continue the restore recorded in the journal, skipping the work done */
+  public boolean isResume() {
+    return resume;
+  }
+
   public static Either<Errors, Arguments> from(String[] args) {
     String configFilePath = null;
     boolean isPreview = false;
+    String exportSnapshotPath = null;
+    String snapshotPath = null;
+    boolean isResume = false;
 
     for (int i = 0; i < args.length; i++) {
       if (args[i].equals("--config") && i + 1 < args.length) {
@@ -40,6 +79,14 @@ public class Arguments {
         i++;
       } else if (args[i].equals("--preview")) {
         isPreview = true;
+      } else if (args[i].equals("--export-snapshot") && i + 1 < args.length) {
+        exportSnapshotPath = args[i + 1];
+        i++;
+      } else if (args[i].equals("--snapshot") && i + 1 < args.length) {
+        snapshotPath = args[i + 1];
+        i++;
+      } else if (args[i].equals("--resume")) {
+        isResume = true;
       }
     }
 
@@ -53,12 +100,35 @@ public class Arguments {
       return Either.left(Errors.CONFIG_FILE_DOES_NOT_EXIST);
     }
 
-    return Either.right(new Arguments(configFile, isPreview));
+    if (exportSnapshotPath != null && snapshotPath != null) {
+      return Either.left(Errors.CONFLICTING_SNAPSHOT_ARGUMENTS);
+    }
+
+    if (isResume && (exportSnapshotPath != null || isPreview)) {
+      return Either.left(Errors.CONFLICTING_RESUME_ARGUMENTS);
+    }
+
+    final Optional<File> snapshot = Optional.ofNullable(snapshotPath).map(File::new);
+    if (snapshot.isPresent() && !snapshot.get().exists()) {
+      return Either.left(Errors.SNAPSHOT_FILE_DOES_NOT_EXIST);
+    }
+
+    return Either.right(
+        new Arguments(
+            configFile,
+            isPreview,
+            Optional.ofNullable(exportSnapshotPath).map(File::new),
+            snapshot,
+            isResume));
   }
 
   public static enum Errors {
     MISSING_CONFIG_FILE("Error: Missing --config argument."),
-    CONFIG_FILE_DOES_NOT_EXIST("Config file does not exist.");
+    CONFIG_FILE_DOES_NOT_EXIST("Config file does not exist."),
+    CONFLICTING_SNAPSHOT_ARGUMENTS("Error: --export-snapshot and --snapshot cannot be combined."),
+    CONFLICTING_RESUME_ARGUMENTS(
+        "Error: --resume cannot be combined with --export-snapshot or --preview."),
+    SNAPSHOT_FILE_DOES_NOT_EXIST("Snapshot file does not exist.");
 
     private final String message;
 
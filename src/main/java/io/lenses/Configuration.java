@@ -12,44 +12,155 @@ package io.lenses;
 
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueType;
+import io.lenses.journal.JournalConfig;
+import io.lenses.kafka.RestoreConfig;
+import io.lenses.metrics.MetricsConfig;
+import io.lenses.report.ReportConfig;
 import io.lenses.s3.S3Config;
 import io.lenses.s3.S3Location;
+import io.lenses.store.LocalStoreConfig;
+import io.lenses.store.NameFilter;
+import io.lenses.store.NamePattern;
+import io.lenses.store.Selection;
+import io.lenses.store.SpillConfig;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 
 public class Configuration {
-  private final S3Location source;
+  private final Optional<S3Location> source;
   private final Optional<String[]> groups;
 
   private final HashMap<String, String> kafkaProperties;
 
-  private final S3Config s3Config;
+  private final Optional<S3Config> s3Config;
+
+  private final Optional<LocalStoreConfig> localStoreConfig;
+
+  private final RestoreConfig restoreConfig;
+
+  private final Selection selection;
+
+  private final MetricsConfig metricsConfig;
+
+  private final ReportConfig reportConfig;
+
+  private final JournalConfig journalConfig;
+
+  private final SpillConfig spillConfig;
 
   public Configuration(
       S3Location source,
       Optional<String[]> groups,
       S3Config s3Config,
-      HashMap<String, String> kafkaProperties) {
+      HashMap<String, String> kafkaProperties,
+      RestoreConfig restoreConfig) {
+    this(
+        Optional.ofNullable(source),
+        groups,
+        Optional.ofNullable(s3Config),
+        Optional.empty(),
+        kafkaProperties,
+        restoreConfig,
+        Selection.of(groups),
+        MetricsConfig.DEFAULT,
+        ReportConfig.DEFAULT,
+        JournalConfig.DEFAULT,
+        SpillConfig.DEFAULT);
     if (source == null) throw new IllegalArgumentException("S3 source cannot be null");
     if (s3Config == null) throw new IllegalArgumentException("S3 config cannot be null");
+  }
+
+  /** Reads the offsets from a local directory instead of S3. */
+  public Configuration(
+      LocalStoreConfig localStoreConfig,
+      Optional<String[]> groups,
+      HashMap<String, String> kafkaProperties,
+      RestoreConfig restoreConfig) {
+    this(
+        Optional.empty(),
+        groups,
+        Optional.empty(),
+        Optional.ofNullable(localStoreConfig),
+        kafkaProperties,
+        restoreConfig,
+        Selection.of(groups),
+        MetricsConfig.DEFAULT,
+        ReportConfig.DEFAULT,
+        JournalConfig.DEFAULT,
+        SpillConfig.DEFAULT);
+    if (localStoreConfig == null)
+      throw new IllegalArgumentException("Local store config cannot be null");
+  }
+
+  private Configuration(
+      Optional<S3Location> source,
+      Optional<String[]> groups,
+      Optional<S3Config> s3Config,
+      Optional<LocalStoreConfig> localStoreConfig,
+      HashMap<String, String> kafkaProperties,
+      RestoreConfig restoreConfig,
+      Selection selection,
+      MetricsConfig metricsConfig,
+      ReportConfig reportConfig,
+      JournalConfig journalConfig,
+      SpillConfig spillConfig) {
     if (kafkaProperties == null)
       throw new IllegalArgumentException("Kafka properties cannot be null");
+    if (restoreConfig == null) throw new IllegalArgumentException("Restore config cannot be null");
+    if (metricsConfig == null) throw new IllegalArgumentException("Metrics config cannot be null");
+    if (reportConfig == null) throw new IllegalArgumentException("Report config cannot be null");
+    if (journalConfig == null) throw new IllegalArgumentException("Journal config cannot be null");
+    if (spillConfig == null) throw new IllegalArgumentException("Spill config cannot be null");
     this.source = source;
     this.groups = groups;
     this.kafkaProperties = kafkaProperties;
     this.s3Config = s3Config;
+    this.localStoreConfig = localStoreConfig;
+    this.restoreConfig = restoreConfig;
+    this.selection = selection;
+    this.metricsConfig = metricsConfig;
+    this.reportConfig = reportConfig;
+    this.journalConfig = journalConfig;
+    this.spillConfig = spillConfig;
   }
 
   public S3Location getSource() {
-    return source;
+    return source.orElseThrow(() -> new IllegalStateException("The source is not S3"));
   }
 
   public Optional<String[]> getGroups() {
     return groups;
   }
 
+  /** @return the groups and topics to restore: the groups setting and the include/exclude rules */
+  public Selection getSelection() {
+    return selection;
+  }
+
+  public MetricsConfig getMetricsConfig() {
+    return metricsConfig;
+  }
+
+  public ReportConfig getReportConfig() {
+    return reportConfig;
+  }
+
+  public JournalConfig getJournalConfig() {
+    return journalConfig;
+  }
+
+  /** @return how many offsets the read may hold before spilling them to disk */
+  public SpillConfig getSpillConfig() {
+    return spillConfig;
+  }
+
   public HashMap<String, String> getKafkaProperties() {
     return kafkaProperties;
   }
@@ -66,6 +177,37 @@ public class Configuration {
         .entrySet()
         .forEach(e -> kafkaProperties.put(e.getKey(), e.getValue().unwrapped().toString()));
 
+    // groups are optional, when define it's a comma separated list
+    final Optional<String[]> groups =
+        config.hasPath("groups")
+            ? Optional.of(
+                Arrays.stream(config.getString("groups").split(","))
+                    .map(String::trim)
+                    .toArray(String[]::new))
+            : Optional.empty();
+    final Selection selection = selection(config, groups);
+    final RestoreConfig restoreConfig = RestoreConfig.from(config);
+    final MetricsConfig metricsConfig = MetricsConfig.from(config);
+    final ReportConfig reportConfig = ReportConfig.from(config);
+    final JournalConfig journalConfig = JournalConfig.from(config);
+    final SpillConfig spillConfig = SpillConfig.from(config);
+
+    // a local directory replaces S3 as the source
+    if (config.hasPath("local.path")) {
+      return new Configuration(
+          Optional.empty(),
+          groups,
+          Optional.empty(),
+          Optional.of(LocalStoreConfig.from(config)),
+          kafkaProperties,
+          restoreConfig,
+          selection,
+          metricsConfig,
+          reportConfig,
+          journalConfig,
+          spillConfig);
+    }
+
     // read the source
     if (!config.hasPath("aws")) throw new IllegalArgumentException("S3 source is required");
     final Config sourceConfig = config.getConfig("aws");
@@ -78,18 +220,65 @@ public class Configuration {
             : Optional.empty();
     final S3Location source = new S3Location(bucket, prefix);
 
-    // groups are optional, when define it's a comma separated list
-    final Optional<String[]> groups =
-        config.hasPath("groups")
-            ? Optional.of(config.getString("groups").split(","))
-            : Optional.empty();
-
     // read AwsMode
     final S3Config s3Config = S3Config.from(config);
-    return new Configuration(source, groups, s3Config, kafkaProperties);
+    return new Configuration(
+        Optional.of(source),
+        groups,
+        Optional.of(s3Config),
+        Optional.empty(),
+        kafkaProperties,
+        restoreConfig,
+        selection,
+        metricsConfig,
+        reportConfig,
+        journalConfig,
+        spillConfig);
+  }
+
+  /**
+   * The exact groups setting and the include.groups, exclude.groups, include.topics and
+   * exclude.topics patterns, each a comma separated string or a list.
+   */
+  private static Selection selection(Config config, Optional<String[]> groups) {
+    final List<NamePattern> groupIncludes =
+        new ArrayList<>(Selection.of(groups).getGroups().getIncludes());
+    groupIncludes.addAll(patterns(config, "include.groups"));
+    final NameFilter groupFilter =
+        groups.isPresent() && groupIncludes.isEmpty()
+            ? NameFilter.none()
+            : new NameFilter(groupIncludes, patterns(config, "exclude.groups"));
+    final NameFilter topicFilter =
+        new NameFilter(patterns(config, "include.topics"), patterns(config, "exclude.topics"));
+    return new Selection(groupFilter, topicFilter);
+  }
+
+  private static List<NamePattern> patterns(Config config, String path) {
+    if (!config.hasPath(path)) {
+      return Collections.emptyList();
+    }
+    final List<String> values =
+        config.getValue(path).valueType() == ConfigValueType.LIST
+            ? config.getStringList(path)
+            : Arrays.asList(config.getString(path).split(","));
+    final List<NamePattern> patterns = new ArrayList<>(values.size());
+    for (String value : values) {
+      if (!value.trim().isEmpty()) {
+        patterns.add(NamePattern.parse(value));
+      }
+    }
+    return patterns;
   }
 
   public S3Config getS3Config() {
-    return s3Config;
+    return s3Config.orElseThrow(() -> new IllegalStateException("The source is not S3"));
+  }
+
+  public Optional<LocalStoreConfig> getLocalStoreConfig() {
+    return localStoreConfig;
+  }
+
+  public RestoreConfig getRestoreConfig() {
+    return restoreConfig;
   }
 }
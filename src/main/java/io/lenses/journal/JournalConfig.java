@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.journal;
+
+import com.typesafe.config.Config;
+import java.util.Optional;
+
+/**
+ * Where the restore is journaled, read from the journal.* options. The journal holds every
+ * partition offset read, so it is only written when a file is set.
+ */
+public class JournalConfig {
+  public static final JournalConfig DEFAULT = new JournalConfig(Optional.empty(), 1000);
+
+  private final Optional<String> file;
+  private final long syncIntervalMs;
+
+  /**
+   * @param file the journal file; none when empty, which rules out --resume
+   * @param syncIntervalMs how often the journal is forced to disk
+   */
+  public JournalConfig(Optional<String> file, long syncIntervalMs) {
+    if (file == null) throw new IllegalArgumentException("File cannot be null");
+    if (syncIntervalMs < 1) throw new IllegalArgumentException("Sync interval must be positive");
+    this.file = file;
+    this.syncIntervalMs = syncIntervalMs;
+  }
+
+  public Optional<String> getFile() {
+    return file;
+  }
+
+  public long getSyncIntervalMs() {
+    return syncIntervalMs;
+  }
+
+  public static JournalConfig from(Config config) {
+    // an empty file name leaves the journal off
+    final String file =
+        config.hasPath("journal.file") ? config.getString("journal.file").trim() : "";
+    final long syncIntervalMs =
+        config.hasPath("journal.sync.interval.ms")
+            ? config.getLong("journal.sync.interval.ms")
+            : DEFAULT.syncIntervalMs;
+    return new JournalConfig(file.isEmpty() ? Optional.empty() : Optional.of(file), syncIntervalMs);
+  }
+}
@@ -0,0 +1,422 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.journal;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.PartitionOffsets;
+import io.lenses.utils.Utils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of a restore, so an interrupted restore can be resumed with only the work
+ * left rather than from scratch.
+ *
+ * <p>It records every group once all its offsets have been read, every group once the cluster holds
+ * its offsets, and the end of the read. Resuming from it, the groups already committed are skipped,
+ * the groups read but not committed are restored from the journal without being read again, and the
+ * source is read again only when the read had not completed, in which case the keys of the groups
+ * already journaled are listed but not fetched.
+ *
+ * <p>The offsets of the groups read but not committed are not held on resume: only the group names
+ * are, and {@link #readPendingGroups(Consumer)} streams the offsets back from the file.
+ *
+ * <p>Each record is framed by its length and CRC32, so the record torn by a crash is found and
+ * dropped on resume. The records are buffered and forced to disk every sync interval and on close,
+ * not one by one: a record lost in a crash only means its group is read or restored again, and
+ * restoring the same offsets twice is harmless.
+ */
+public class RestoreJournal implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(RestoreJournal.class);
+  private static final int MAGIC = 0x524A4E4C;
+  private static final int VERSION = 1;
+  private static final byte HEADER = 1;
+  private static final byte GROUP_READ = 2;
+  private static final byte COMMITTED = 3;
+  private static final byte READ_COMPLETE = 4;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final DataOutputStream output;
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+  private final DataOutputStream recordOutput = new DataOutputStream(record);
+  private final CRC32 crc = new CRC32();
+  private final ScheduledExecutorService syncer;
+  private final Set<String> pendingGroups;
+  private final Set<String> committedGroups;
+  // the length of the records written by the previous runs, which hold the pending groups
+  private final long resumedLength;
+  private final boolean readComplete;
+  private boolean failed;
+  private boolean closed;
+
+  private RestoreJournal(
+      Path file,
+      FileChannel channel,
+      long syncIntervalMs,
+      Set<String> pendingGroups,
+      Set<String> committedGroups,
+      long resumedLength,
+      boolean readComplete) {
+    this.file = file;
+    this.channel = channel;
+    this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    this.pendingGroups = pendingGroups;
+    this.committedGroups = committedGroups;
+    this.resumedLength = resumedLength;
+    this.readComplete = readComplete;
+    this.syncer =
+        Executors.newSingleThreadScheduledExecutor(Utils.daemonThreadFactory("journal-sync"));
+    syncer.scheduleWithFixedDelay(
+        this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts a new journal, replacing the file.
+   *
+   * @param file the journal file
+   * @param source identifies what is restored; a resume must be for the same source
+   * @param syncIntervalMs how often the records are forced to disk
+   */
+  public static RestoreJournal create(Path file, String source, long syncIntervalMs)
+      throws IOException {
+    validate(file, source, syncIntervalMs);
+    final FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    final RestoreJournal journal =
+        new RestoreJournal(
+            file,
+            channel,
+            syncIntervalMs,
+            Collections.emptySet(),
+            Collections.emptySet(),
+            0,
+            false);
+    journal.header(source);
+    return journal;
+  }
+
+  /**
+   * Reopens a journal to resume the restore it records, and keeps appending to it.
+   *
+   * @param file the journal file
+   * @param source identifies what is restored; it must be the source the journal was started for
+   * @param syncIntervalMs how often the records are forced to disk
+   */
+  public static RestoreJournal resume(Path file, String source, long syncIntervalMs)
+      throws IOException {
+    validate(file, source, syncIntervalMs);
+    if (!Files.exists(file)) {
+      throw new IllegalArgumentException("There is no journal to resume from at:" + file);
+    }
+    final Set<String> read = new HashSet<>();
+    final Set<String> committed = new HashSet<>();
+    final boolean[] readComplete = {false};
+    // only the group names are kept; the offsets of the pending groups stay in the file
+    final long validLength =
+        scan(
+            file,
+            Long.MAX_VALUE,
+            (position, fields) -> {
+              final byte type = fields.readByte();
+              if (position == 0) {
+                if (type != HEADER || fields.readInt() != MAGIC) {
+                  throw new IllegalArgumentException("Not a restore journal:" + file);
+                }
+                final int version = fields.readInt();
+                if (version != VERSION) {
+                  throw new IllegalArgumentException("Unsupported journal version:" + version);
+                }
+                final String journalSource = fields.readUTF();
+                if (!journalSource.equals(source)) {
+                  throw new IllegalArgumentException(
+                      "The journal:"
+                          + file
+                          + " is for source:"
+                          + journalSource
+                          + ", not "
+                          + source);
+                }
+              } else if (type == GROUP_READ) {
+                read.add(fields.readUTF());
+              } else if (type == COMMITTED) {
+                committed.add(fields.readUTF());
+              } else if (type == READ_COMPLETE) {
+                readComplete[0] = true;
+              } else {
+                throw new IllegalArgumentException("Unknown journal record type:" + type);
+              }
+            });
+    if (validLength == 0) {
+      throw new IllegalArgumentException("Not a restore journal:" + file);
+    }
+    final Set<String> pending = new HashSet<>(read);
+    pending.removeAll(committed);
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+    // drop the record torn by the crash, if any, before appending
+    channel.truncate(validLength);
+    channel.position(validLength);
+    logger.info(
+        "Resuming from journal:"
+            + file
+            + ". "
+            + committed.size()
+            + " groups already committed, "
+            + pending.size()
+            + " groups read and not committed"
+            + (readComplete[0] ? ", the read is complete." : ", the read is not complete."));
+    return new RestoreJournal(
+        file,
+        channel,
+        syncIntervalMs,
+        Collections.unmodifiableSet(pending),
+        Collections.unmodifiableSet(committed),
+        validLength,
+        readComplete[0]);
+  }
+
+  private static void validate(Path file, String source, long syncIntervalMs) {
+    if (file == null) throw new IllegalArgumentException("File cannot be null");
+    if (source == null) throw new IllegalArgumentException("Source cannot be null");
+    if (syncIntervalMs < 1) throw new IllegalArgumentException("Sync interval must be positive");
+  }
+
+  /**
+   * Reads the records from the start of the file.
+   *
+   * @param length where to stop; the records past it are not read
+   * @param visitor receives the position and the fields of each record
+   * @return the length of the records read, up to the record torn by a crash if any
+   */
+  private static long scan(Path file, long length, RecordVisitor visitor) throws IOException {
+    long position = 0;
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      final CRC32 checksum = new CRC32();
+      while (position < length) {
+        final byte[] payload = nextRecord(input, checksum);
+        if (payload == null) {
+          break;
+        }
+        visitor.visit(position, new DataInputStream(new ByteArrayInputStream(payload)));
+        position += Integer.BYTES * 2 + payload.length;
+      }
+    }
+    return position;
+  }
+
+  private static GroupOffsets readGroup(String group, DataInputStream fields) throws IOException {
+    final PartitionOffsets.Builder offsets = PartitionOffsets.builder();
+    final int topics = fields.readInt();
+    for (int t = 0; t < topics; t++) {
+      final String topic = fields.readUTF();
+      final int partitions = fields.readInt();
+      for (int p = 0; p < partitions; p++) {
+        offsets.add(topic, fields.readInt(), fields.readLong());
+      }
+    }
+    return new GroupOffsets(group, offsets.build());
+  }
+
+  /** @return the next record's payload, or null at the end of the file or at a torn record */
+  private static byte[] nextRecord(DataInputStream input, CRC32 checksum) throws IOException {
+    try {
+      final int length = input.readInt();
+      final int expected = input.readInt();
+      if (length < 1) {
+        return null;
+      }
+      final byte[] payload = new byte[length];
+      input.readFully(payload);
+      checksum.reset();
+      checksum.update(payload, 0, length);
+      return (int) checksum.getValue() == expected ? payload : null;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Hands over the groups read in a previous run whose offsets were not committed, read back from
+   * the file one record at a time. A group journaled more than once is handed over once per record,
+   * as it was by the read that journaled it.
+   */
+  public void readPendingGroups(Consumer<GroupOffsets> consumer) throws IOException {
+    if (pendingGroups.isEmpty()) {
+      return;
+    }
+    scan(
+        file,
+        resumedLength,
+        (position, fields) -> {
+          if (fields.readByte() == GROUP_READ) {
+            final String group = fields.readUTF();
+            if (pendingGroups.contains(group)) {
+              consumer.accept(readGroup(group, fields));
+            }
+          }
+        });
+  }
+
+  /** @return the groups read in a previous run whose offsets were not committed */
+  public Set<String> getPendingGroups() {
+    return pendingGroups;
+  }
+
+  /** @return the groups the cluster held the offsets of in a previous run */
+  public Set<String> getCommittedGroups() {
+    return committedGroups;
+  }
+
+  /** @return the groups a previous run read or committed; they are not read again */
+  public Set<String> getKnownGroups() {
+    final Set<String> known = new HashSet<>(committedGroups);
+    known.addAll(pendingGroups);
+    return known;
+  }
+
+  /** @return true when a previous run read every group */
+  public boolean isReadComplete() {
+    return readComplete;
+  }
+
+  private void header(String source) throws IOException {
+    recordOutput.writeByte(HEADER);
+    recordOutput.writeInt(MAGIC);
+    recordOutput.writeInt(VERSION);
+    recordOutput.writeUTF(source);
+    append();
+    sync();
+  }
+
+  /** Records a group whose offsets have all been read. */
+  public synchronized void groupRead(GroupOffsets groupOffsets) {
+    if (failed || closed) {
+      return;
+    }
+    try {
+      final PartitionOffsets offsets = groupOffsets.getPartitionOffsets();
+      recordOutput.writeByte(GROUP_READ);
+      recordOutput.writeUTF(groupOffsets.getGroup());
+      recordOutput.writeInt(offsets.topicCount());
+      for (int t = 0; t < offsets.topicCount(); t++) {
+        recordOutput.writeUTF(offsets.topic(t));
+        recordOutput.writeInt(offsets.topicEnd(t) - offsets.topicStart(t));
+        for (int i = offsets.topicStart(t); i < offsets.topicEnd(t); i++) {
+          recordOutput.writeInt(offsets.partition(i));
+          recordOutput.writeLong(offsets.offset(i));
+        }
+      }
+      append();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /** Records a group whose offsets the cluster holds. */
+  public synchronized void committed(String group) {
+    if (failed || closed) {
+      return;
+    }
+    try {
+      recordOutput.writeByte(COMMITTED);
+      recordOutput.writeUTF(group);
+      append();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /** Records the end of the read: every group has been read and recorded. */
+  public synchronized void readComplete() {
+    if (failed || closed) {
+      return;
+    }
+    try {
+      recordOutput.writeByte(READ_COMPLETE);
+      append();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  private void append() throws IOException {
+    crc.reset();
+    crc.update(record.toByteArray(), 0, record.size());
+    output.writeInt(record.size());
+    output.writeInt((int) crc.getValue());
+    record.writeTo(output);
+    record.reset();
+  }
+
+  /** Forces the records appended so far to disk. */
+  public synchronized void sync() {
+    if (failed || closed) {
+      return;
+    }
+    try {
+      output.flush();
+      channel.force(false);
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  // a journal that cannot be written only loses the ability to resume, not the restore itself
+  private void fail(IOException e) {
+    failed = true;
+    record.reset();
+    logger.warn("Failed to write the journal:" + file + ". The restore goes on without it.", e);
+  }
+
+  /** Forces the journal to disk and closes it; the records made after are dropped. */
+  @Override
+  public void close() throws IOException {
+    syncer.shutdownNow();
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      sync();
+      closed = true;
+      channel.close();
+    }
+  }
+
+  private interface RecordVisitor {
+    void visit(long position, DataInputStream fields) throws IOException;
+  }
+}
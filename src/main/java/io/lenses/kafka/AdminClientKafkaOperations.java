@@ -10,24 +10,28 @@
  */
 package io.lenses.kafka;
 
-import io.lenses.utils.Tuple2;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import org.apache.kafka.clients.admin.Admin;
 import org.apache.kafka.clients.admin.AdminClient;
-import org.apache.kafka.clients.admin.AlterConsumerGroupOffsetsResult;
 import org.apache.kafka.clients.admin.DescribeClusterResult;
 
 /** A class which uses the AdminClient to store the consumer groups offsets. */
 public class AdminClientKafkaOperations implements KafkaOperations {
   private final Admin admin;
+  private final RestoreConfig restoreConfig;
 
   public AdminClientKafkaOperations(Admin adminClient) {
+    this(adminClient, RestoreConfig.DEFAULT);
+  }
+
+  public AdminClientKafkaOperations(Admin adminClient, RestoreConfig restoreConfig) {
     if (adminClient == null) throw new IllegalArgumentException("AdminClient cannot be null");
+    if (restoreConfig == null) throw new IllegalArgumentException("Restore config cannot be null");
     this.admin = adminClient;
+    this.restoreConfig = restoreConfig;
   }
 
   /**
@@ -46,32 +50,15 @@ public class AdminClientKafkaOperations implements KafkaOperations {
     }
   }
 
+  /**
+   * Restores the groups through a bounded window of requests; see {@link RestoreScheduler}.
+   *
+   * @param timeout how long each group may take
+   */
   @Override
-  public void restoreGroupOffsets(List<GroupOffsets> offsets, long timeout, TimeUnit unit) {
-    // traverse the list of GroupOffsets and call the admin client to restore the offsets
-    // capture the future and wait for it to complete
-    // if the future fails, throw an exception
-    List<Tuple2<GroupOffsets, AlterConsumerGroupOffsetsResult>> results =
-        offsets.stream()
-            .map(
-                offset -> {
-                  print(offset);
-                  AlterConsumerGroupOffsetsResult result =
-                      admin.alterConsumerGroupOffsets(offset.getGroup(), offset.getOffsets());
-                  return new Tuple2<>(offset, result);
-                })
-            .collect(Collectors.toList());
-
-    results.forEach(
-        result -> {
-          try {
-            System.out.println("Awaiting result for group:" + result._1().getGroup());
-            result._2().all().get(timeout, unit);
-          } catch (Exception e) {
-            throw new RuntimeException(
-                "Failed to restore group offsets for group:" + result._1().getGroup(), e);
-          }
-        });
+  public void restoreGroupOffsets(
+      Iterator<GroupOffsets> offsets, long timeout, TimeUnit unit, RestoreListener listener) {
+    new RestoreScheduler(admin, restoreConfig).restore(offsets, unit.toMillis(timeout), listener);
   }
 
   @Override
@@ -80,14 +67,24 @@ public class AdminClientKafkaOperations implements KafkaOperations {
   }
 
   public static AdminClientKafkaOperations create(Map<String, String> properties) {
+    return create(properties, RestoreConfig.DEFAULT);
+  }
+
+  public static AdminClientKafkaOperations create(
+      Map<String, String> properties, RestoreConfig restoreConfig) {
     final Properties props = new Properties();
     props.putAll(properties);
-    return create(props);
+    return create(props, restoreConfig);
   }
 
   public static AdminClientKafkaOperations create(Properties properties) {
+    return create(properties, RestoreConfig.DEFAULT);
+  }
+
+  public static AdminClientKafkaOperations create(
+      Properties properties, RestoreConfig restoreConfig) {
     if (properties == null) throw new IllegalArgumentException("Properties cannot be null");
     AdminClient adminClient = AdminClient.create(properties);
-    return new AdminClientKafkaOperations(adminClient);
+    return new AdminClientKafkaOperations(adminClient, restoreConfig);
   }
 }
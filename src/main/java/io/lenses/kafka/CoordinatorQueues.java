@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import io.lenses.utils.Tuple2;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The groups waiting to be restored, queued by their coordinator broker. The groups are handed out
+ * round robin across the brokers, skipping those with the maximum number of groups in flight, so a
+ * slow coordinator only holds back its own groups.
+ */
+class CoordinatorQueues {
+  static final int UNKNOWN_COORDINATOR = -1;
+
+  private final int brokerMaxInFlight;
+  private final Map<Integer, ArrayDeque<GroupOffsets>> queues = new HashMap<>();
+  private final Map<Integer, Integer> inFlight = new HashMap<>();
+  private final Map<Integer, Integer> sent = new TreeMap<>();
+  private final List<Integer> brokers = new ArrayList<>();
+  private int next;
+  private int size;
+
+  CoordinatorQueues(int brokerMaxInFlight) {
+    if (brokerMaxInFlight < 1)
+      throw new IllegalArgumentException("Broker max in flight must be at least 1");
+    this.brokerMaxInFlight = brokerMaxInFlight;
+  }
+
+  void add(int broker, GroupOffsets offsets) {
+    queues
+        .computeIfAbsent(
+            broker,
+            b -> {
+              brokers.add(b);
+              return new ArrayDeque<>();
+            })
+        .add(offsets);
+    size++;
+  }
+
+  /**
+   * Takes the next group to send and counts it as in flight.
+   *
+   * @return the coordinator and the group, or null when every broker with queued groups is at its
+   *     limit
+   */
+  Tuple2<Integer, GroupOffsets> poll() {
+    for (int i = 0; i < brokers.size(); i++) {
+      final int index = (next + i) % brokers.size();
+      final Integer broker = brokers.get(index);
+      final ArrayDeque<GroupOffsets> queue = queues.get(broker);
+      if (!queue.isEmpty() && inFlight.getOrDefault(broker, 0) < brokerMaxInFlight) {
+        next = index + 1;
+        size--;
+        inFlight.merge(broker, 1, Integer::sum);
+        sent.merge(broker, 1, Integer::sum);
+        return new Tuple2<>(broker, queue.poll());
+      }
+    }
+    return null;
+  }
+
+  void completed(int broker) {
+    inFlight.merge(broker, -1, Integer::sum);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** @return how many groups were sent to each coordinator */
+  Map<Integer, Integer> getSent() {
+    return sent;
+  }
+}
@@ -10,17 +10,23 @@
  */
 package io.lenses.kafka;
 
-import java.util.Comparator;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 
+/** The offsets of a consumer group, held as {@link PartitionOffsets}. */
 public class GroupOffsets {
   private final String group;
-  private final Map<TopicPartition, OffsetAndMetadata> offsets;
+  private final PartitionOffsets offsets;
 
   public GroupOffsets(String group, Map<TopicPartition, OffsetAndMetadata> offsets) {
+    this(group, offsets == null ? null : PartitionOffsets.of(offsets));
+  }
+
+  public GroupOffsets(String group, PartitionOffsets offsets) {
     if (group == null) throw new IllegalArgumentException("Group cannot be null");
     if (offsets == null) throw new IllegalArgumentException("Offsets cannot be null");
     this.group = group;
@@ -31,30 +37,41 @@ public class GroupOffsets {
     return group;
   }
 
-  public Map<TopicPartition, OffsetAndMetadata> getOffsets() {
+  public PartitionOffsets getPartitionOffsets() {
     return offsets;
   }
 
-  public List<Map.Entry<TopicPartition, OffsetAndMetadata>> getSortedOffset() {
-    List<Map.Entry<TopicPartition, OffsetAndMetadata>> sortedOffsets =
-        new java.util.ArrayList<>(offsets.entrySet());
-    sortedOffsets.sort(new CustomComparator());
-    return sortedOffsets;
+  /** @return a new map of the offsets, as the Admin API takes them */
+  public Map<TopicPartition, OffsetAndMetadata> getOffsets() {
+    return offsets.toMap();
+  }
+
+  /**
+   * Keeps the partitions whose offset differs from the committed one.
+   *
+   * @param committed the offsets currently committed for the group
+   * @return the partitions to restore; empty when the group is up to date
+   */
+  public GroupOffsets changedFrom(Map<TopicPartition, OffsetAndMetadata> committed) {
+    final PartitionOffsets changed =
+        offsets.filter(
+            (topic, partition, offset) -> {
+              final OffsetAndMetadata current = committed.get(new TopicPartition(topic, partition));
+              return current == null || current.offset() != offset;
+            });
+    return changed == offsets ? this : new GroupOffsets(group, changed);
   }
 
-  private static class CustomComparator
-      implements Comparator<Map.Entry<TopicPartition, OffsetAndMetadata>> {
-    @Override
-    public int compare(
-        Map.Entry<TopicPartition, OffsetAndMetadata> left,
-        Map.Entry<TopicPartition, OffsetAndMetadata> right) {
-      int topicComparison = left.getKey().topic().compareTo(right.getKey().topic());
-      if (topicComparison != 0) {
-        return topicComparison;
-      } else {
-
-        return Integer.compare(left.getKey().partition(), right.getKey().partition());
-      }
-    }
+  public List<Map.Entry<TopicPartition, OffsetAndMetadata>> getSortedOffset() {
+    final List<Map.Entry<TopicPartition, OffsetAndMetadata>> sortedOffsets =
+        new ArrayList<>(offsets.size());
+    offsets.forEach(
+        (topic, partition, offset) -> {
+          final TopicPartition topicPartition = new TopicPartition(topic, partition);
+          sortedOffsets.add(
+              new AbstractMap.SimpleImmutableEntry<>(
+                  topicPartition, offsets.offsetAndMetadata(topicPartition, offset)));
+        });
+    return sortedOffsets;
   }
 }
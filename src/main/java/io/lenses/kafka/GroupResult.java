@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import java.util.Optional;
+
+/** How the restore of one group ended. */
+public final class GroupResult {
+  public enum Status {
+    /** The offsets were committed. */
+    RESTORED,
+    /** The cluster already held the offsets; nothing was sent. */
+    UNCHANGED,
+    /** The offsets could not be committed. */
+    FAILED
+  }
+
+  private final String group;
+  private final Status status;
+  private final int partitions;
+  private final int attempts;
+  private final Optional<Throwable> error;
+  private final boolean retriable;
+
+  private GroupResult(
+      String group,
+      Status status,
+      int partitions,
+      int attempts,
+      Optional<Throwable> error,
+      boolean retriable) {
+    if (group == null) throw new IllegalArgumentException("Group cannot be null");
+    this.group = group;
+    this.status = status;
+    this.partitions = partitions;
+    this.attempts = attempts;
+    this.error = error;
+    this.retriable = retriable;
+  }
+
+  public static GroupResult restored(String group, int partitions, int attempts) {
+    return new GroupResult(group, Status.RESTORED, partitions, attempts, Optional.empty(), false);
+  }
+
+  public static GroupResult unchanged(String group) {
+    return new GroupResult(group, Status.UNCHANGED, 0, 0, Optional.empty(), false);
+  }
+
+  /**
+   * @param retriable whether the error was retriable, i.e. the group ran out of retries, rather
+   *     than failed at once
+   */
+  public static GroupResult failed(
+      String group, int partitions, int attempts, Throwable error, boolean retriable) {
+    if (error == null) throw new IllegalArgumentException("Error cannot be null");
+    return new GroupResult(
+        group, Status.FAILED, partitions, attempts, Optional.of(error), retriable);
+  }
+
+  public String getGroup() {
+    return group;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /** @return the partitions sent; 0 for an unchanged group */
+  public int getPartitions() {
+    return partitions;
+  }
+
+  /** @return how many times the group was sent */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public Optional<Throwable> getError() {
+    return error;
+  }
+
+  public boolean isRetriable() {
+    return retriable;
+  }
+
+  /** @return true when the cluster holds the offsets of the group */
+  public boolean isCommitted() {
+    return status != Status.FAILED;
+  }
+}
@@ -10,10 +10,9 @@
  */
 package io.lenses.kafka;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import org.apache.kafka.clients.consumer.OffsetAndMetadata;
-import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,23 +21,45 @@ public interface KafkaOperations extends AutoCloseable {
 
   boolean checkConnection(long timeout, TimeUnit unit);
 
-  void restoreGroupOffsets(List<GroupOffsets> offsets, long timeout, TimeUnit unit);
+  default void restoreGroupOffsets(List<GroupOffsets> offsets, long timeout, TimeUnit unit) {
+    restoreGroupOffsets(offsets.iterator(), timeout, unit);
+  }
+
+  /**
+   * Restores the groups as the iterator yields them, printing each one. The iterator may block
+   * while the next group is read, so the groups already read are committed while the later ones are
+   * still loading.
+   *
+   * @param offsets yields the groups to restore
+   * @param timeout how long to wait for each group
+   * @param unit the time unit of the timeout
+   */
+  default void restoreGroupOffsets(Iterator<GroupOffsets> offsets, long timeout, TimeUnit unit) {
+    restoreGroupOffsets(offsets, timeout, unit, this::print);
+  }
+
+  /**
+   * Restores the groups as the iterator yields them.
+   *
+   * @param offsets yields the groups to restore
+   * @param timeout how long to wait for each group
+   * @param unit the time unit of the timeout
+   * @param listener follows each group; the preview only sends them
+   */
+  void restoreGroupOffsets(
+      Iterator<GroupOffsets> offsets, long timeout, TimeUnit unit, RestoreListener listener);
 
+  /** Logs the group and its partition offsets at DEBUG; nothing is formatted otherwise. */
   default void print(GroupOffsets offset) {
-    logger.info("Restoring Group:" + offset.getGroup());
+    if (!logger.isDebugEnabled()) {
+      return;
+    }
+    logger.debug("Restoring Group:" + offset.getGroup());
     offset
-        .getSortedOffset()
+        .getPartitionOffsets()
         .forEach(
-            entry -> {
-              TopicPartition topicPartition = entry.getKey();
-              OffsetAndMetadata offsetAndMetadata = entry.getValue();
-              logger.info(
-                  "\tTopic:"
-                      + topicPartition.topic()
-                      + " Partition:"
-                      + topicPartition.partition()
-                      + " Offset:"
-                      + offsetAndMetadata.offset());
-            });
+            (topic, partition, committed) ->
+                logger.debug(
+                    "\tTopic:" + topic + " Partition:" + partition + " Offset:" + committed));
   }
 }
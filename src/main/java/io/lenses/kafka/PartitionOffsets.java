@@ -0,0 +1,338 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * The offsets of a group's partitions, held in flat primitive arrays sorted by topic and then by
+ * partition.
+ *
+ * <p>A partition costs an int and a long, plus one string and one int per topic, where a {@code
+ * HashMap<TopicPartition, OffsetAndMetadata>} spends a map entry, a {@link TopicPartition} and an
+ * {@link OffsetAndMetadata} on each. The Kafka types are only created by {@link #toMap()} and
+ * {@link #topicPartitions()}, when the offsets are handed to the Admin API.
+ *
+ * <p>The offsets read from S3 carry no commit metadata. Offsets built by {@link #of(Map)} may, and
+ * the few partitions that have metadata or a leader epoch keep their {@link OffsetAndMetadata} in a
+ * side map that {@link #toMap()} hands back unchanged.
+ *
+ * <p>Instances are immutable; see {@link Builder}.
+ */
+public final class PartitionOffsets {
+  private static final PartitionOffsets EMPTY =
+      new PartitionOffsets(
+          new String[0], new int[0], new int[0], new long[0], Collections.emptyMap());
+  private final String[] topics;
+  // the end, exclusive, of each topic's partitions; a topic starts where the previous one ends
+  private final int[] topicEnds;
+  private final int[] partitions;
+  private final long[] offsets;
+  // only the partitions whose offset has metadata or a leader epoch
+  private final Map<TopicPartition, OffsetAndMetadata> metadata;
+
+  private PartitionOffsets(
+      String[] topics,
+      int[] topicEnds,
+      int[] partitions,
+      long[] offsets,
+      Map<TopicPartition, OffsetAndMetadata> metadata) {
+    this.topics = topics;
+    this.topicEnds = topicEnds;
+    this.partitions = partitions;
+    this.offsets = offsets;
+    this.metadata = metadata;
+  }
+
+  public static PartitionOffsets empty() {
+    return EMPTY;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static PartitionOffsets of(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    final Builder builder = new Builder();
+    final Map<TopicPartition, OffsetAndMetadata> metadata = new HashMap<>();
+    offsets.forEach(
+        (topicPartition, offset) -> {
+          builder.add(topicPartition.topic(), topicPartition.partition(), offset.offset());
+          if (!offset.metadata().isEmpty() || offset.leaderEpoch().isPresent()) {
+            metadata.put(topicPartition, offset);
+          }
+        });
+    final PartitionOffsets built = builder.build();
+    if (metadata.isEmpty()) {
+      return built;
+    }
+    return new PartitionOffsets(
+        built.topics, built.topicEnds, built.partitions, built.offsets, metadata);
+  }
+
+  /** @return how many partitions there are */
+  public int size() {
+    return partitions.length;
+  }
+
+  public boolean isEmpty() {
+    return partitions.length == 0;
+  }
+
+  public int topicCount() {
+    return topics.length;
+  }
+
+  public String topic(int topicIndex) {
+    return topics[topicIndex];
+  }
+
+  /** @return the index of the first partition of the topic */
+  public int topicStart(int topicIndex) {
+    return topicIndex == 0 ? 0 : topicEnds[topicIndex - 1];
+  }
+
+  /** @return the index after the last partition of the topic */
+  public int topicEnd(int topicIndex) {
+    return topicEnds[topicIndex];
+  }
+
+  public int partition(int index) {
+    return partitions[index];
+  }
+
+  public long offset(int index) {
+    return offsets[index];
+  }
+
+  /** Visits the partitions in topic and partition order. */
+  public void forEach(Visitor visitor) {
+    for (int t = 0; t < topics.length; t++) {
+      for (int i = topicStart(t); i < topicEnds[t]; i++) {
+        visitor.accept(topics[t], partitions[i], offsets[i]);
+      }
+    }
+  }
+
+  /** @return the partitions accepted by the filter */
+  public PartitionOffsets filter(Filter filter) {
+    final boolean[] kept = new boolean[partitions.length];
+    int keptPartitions = 0;
+    int keptTopics = 0;
+    for (int t = 0; t < topics.length; t++) {
+      boolean topicKept = false;
+      for (int i = topicStart(t); i < topicEnds[t]; i++) {
+        if (filter.test(topics[t], partitions[i], offsets[i])) {
+          kept[i] = true;
+          keptPartitions++;
+          topicKept = true;
+        }
+      }
+      if (topicKept) {
+        keptTopics++;
+      }
+    }
+    if (keptPartitions == partitions.length) {
+      return this;
+    }
+    if (keptPartitions == 0) {
+      return EMPTY;
+    }
+    final String[] newTopics = new String[keptTopics];
+    final int[] newTopicEnds = new int[keptTopics];
+    final int[] newPartitions = new int[keptPartitions];
+    final long[] newOffsets = new long[keptPartitions];
+    final Map<TopicPartition, OffsetAndMetadata> newMetadata =
+        metadata.isEmpty() ? metadata : new HashMap<>();
+    int topic = 0;
+    int index = 0;
+    for (int t = 0; t < topics.length; t++) {
+      final int start = index;
+      for (int i = topicStart(t); i < topicEnds[t]; i++) {
+        if (kept[i]) {
+          newPartitions[index] = partitions[i];
+          newOffsets[index] = offsets[i];
+          index++;
+          if (!metadata.isEmpty()) {
+            final TopicPartition topicPartition = new TopicPartition(topics[t], partitions[i]);
+            final OffsetAndMetadata offset = metadata.get(topicPartition);
+            if (offset != null) {
+              newMetadata.put(topicPartition, offset);
+            }
+          }
+        }
+      }
+      if (index > start) {
+        newTopics[topic] = topics[t];
+        newTopicEnds[topic] = index;
+        topic++;
+      }
+    }
+    return new PartitionOffsets(
+        newTopics,
+        newTopicEnds,
+        newPartitions,
+        newOffsets,
+        newMetadata.isEmpty() ? Collections.emptyMap() : newMetadata);
+  }
+
+  /** @return a new Kafka map of the offsets, with the metadata they were built with */
+  public Map<TopicPartition, OffsetAndMetadata> toMap() {
+    final Map<TopicPartition, OffsetAndMetadata> map = new HashMap<>(size() * 4 / 3 + 1);
+    forEach(
+        (topic, partition, offset) -> {
+          final TopicPartition topicPartition = new TopicPartition(topic, partition);
+          map.put(topicPartition, offsetAndMetadata(topicPartition, offset));
+        });
+    return map;
+  }
+
+  /** @return the Kafka offset of the partition, with the metadata it was built with */
+  public OffsetAndMetadata offsetAndMetadata(TopicPartition topicPartition, long offset) {
+    final OffsetAndMetadata withMetadata = metadata.get(topicPartition);
+    return withMetadata != null ? withMetadata : new OffsetAndMetadata(offset);
+  }
+
+  /** @return the partitions, in topic and partition order */
+  public List<TopicPartition> topicPartitions() {
+    final List<TopicPartition> topicPartitions = new ArrayList<>(size());
+    forEach(
+        (topic, partition, offset) -> topicPartitions.add(new TopicPartition(topic, partition)));
+    return topicPartitions;
+  }
+
+  @FunctionalInterface
+  public interface Visitor {
+    void accept(String topic, int partition, long offset);
+  }
+
+  @FunctionalInterface
+  public interface Filter {
+    boolean test(String topic, int partition, long offset);
+  }
+
+  /**
+   * Collects the partitions in any order; {@link #build()} sorts them. When a partition is added
+   * more than once, the last offset added wins. Not thread-safe.
+   */
+  public static final class Builder {
+    private final Map<String, TopicBuilder> topics = new HashMap<>();
+    private TopicBuilder last;
+    private int size;
+
+    private Builder() {}
+
+    public Builder add(String topic, int partition, long offset) {
+      if (topic == null) throw new IllegalArgumentException("Topic cannot be null");
+      if (partition < 0) throw new IllegalArgumentException("Partition cannot be negative");
+      // the keys of a topic are mostly added together
+      TopicBuilder builder = last;
+      if (builder == null || !builder.topic.equals(topic)) {
+        builder = topics.computeIfAbsent(topic, TopicBuilder::new);
+        last = builder;
+      }
+      builder.add(partition, offset);
+      size++;
+      return this;
+    }
+
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    public PartitionOffsets build() {
+      if (size == 0) {
+        return EMPTY;
+      }
+      final String[] sortedTopics = topics.keySet().toArray(new String[0]);
+      Arrays.sort(sortedTopics);
+      final int[] topicEnds = new int[sortedTopics.length];
+      final int[] partitions = new int[size];
+      final long[] offsets = new long[size];
+      int index = 0;
+      for (int t = 0; t < sortedTopics.length; t++) {
+        index = topics.get(sortedTopics[t]).copyTo(partitions, offsets, index);
+        topicEnds[t] = index;
+      }
+      if (index == size) {
+        return new PartitionOffsets(
+            sortedTopics, topicEnds, partitions, offsets, Collections.emptyMap());
+      }
+      // some partitions were added more than once
+      return new PartitionOffsets(
+          sortedTopics,
+          topicEnds,
+          Arrays.copyOf(partitions, index),
+          Arrays.copyOf(offsets, index),
+          Collections.emptyMap());
+    }
+  }
+
+  private static final class TopicBuilder {
+    private final String topic;
+    private int[] partitions = new int[8];
+    private long[] offsets = new long[8];
+    private int size;
+    private boolean sorted = true;
+
+    private TopicBuilder(String topic) {
+      this.topic = topic;
+    }
+
+    private void add(int partition, long offset) {
+      if (size == partitions.length) {
+        partitions = Arrays.copyOf(partitions, size * 2);
+        offsets = Arrays.copyOf(offsets, size * 2);
+      }
+      if (size > 0 && partition <= partitions[size - 1]) {
+        sorted = false;
+      }
+      partitions[size] = partition;
+      offsets[size] = offset;
+      size++;
+    }
+
+    /** Copies the partitions in order, the last offset of a repeated partition winning. */
+    private int copyTo(int[] toPartitions, long[] toOffsets, int from) {
+      if (sorted) {
+        System.arraycopy(partitions, 0, toPartitions, from, size);
+        System.arraycopy(offsets, 0, toOffsets, from, size);
+        return from + size;
+      }
+      // the partition in the high bits and the insertion order in the low bits
+      final long[] order = new long[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = ((long) partitions[i] << 32) | i;
+      }
+      Arrays.sort(order);
+      int index = from;
+      for (int i = 0; i < size; i++) {
+        final int partition = (int) (order[i] >>> 32);
+        final long offset = offsets[(int) order[i]];
+        if (index > from && toPartitions[index - 1] == partition) {
+          toOffsets[index - 1] = offset;
+        } else {
+          toPartitions[index] = partition;
+          toOffsets[index] = offset;
+          index++;
+        }
+      }
+      return index;
+    }
+  }
+}
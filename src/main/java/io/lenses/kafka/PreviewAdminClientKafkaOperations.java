@@ -10,7 +10,7 @@
  */
 package io.lenses.kafka;
 
-import java.util.List;
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 /** A class which only previews the changes made but does not actually make them. */
@@ -21,8 +21,21 @@ public class PreviewAdminClientKafkaOperations implements KafkaOperations {
   }
 
   @Override
-  public void restoreGroupOffsets(List<GroupOffsets> offsets, long timeout, TimeUnit unit) {
-    offsets.forEach(this::print);
+  public void restoreGroupOffsets(
+      Iterator<GroupOffsets> offsets, long timeout, TimeUnit unit, RestoreListener listener) {
+    offsets.forEachRemaining(listener::sending);
+  }
+
+  /** The preview is the output, so the groups and their offsets are logged at INFO. */
+  @Override
+  public void print(GroupOffsets offset) {
+    logger.info("Restoring Group:" + offset.getGroup());
+    offset
+        .getPartitionOffsets()
+        .forEach(
+            (topic, partition, committed) ->
+                logger.info(
+                    "\tTopic:" + topic + " Partition:" + partition + " Offset:" + committed));
   }
 
   @Override
@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import com.typesafe.config.Config;
+
+/** The settings of the Kafka restore stage, read from the restore.* options. */
+public class RestoreConfig {
+  public static final RestoreConfig DEFAULT =
+      new RestoreConfig(50, 60_000L, 0L, false, 10, 100, false, 3, 500L, 10_000L);
+
+  private final int maxInFlight;
+  private final long groupTimeoutMs;
+  private final long timeoutMs;
+  private final boolean coordinatorAware;
+  private final int brokerMaxInFlight;
+  private final int planBatchSize;
+  private final boolean delta;
+  private final int retries;
+  private final long retryBackoffMs;
+  private final long retryBackoffMaxMs;
+
+  /**
+   * @param maxInFlight the maximum number of alterConsumerGroupOffsets calls in flight
+   * @param groupTimeoutMs how long a single group may take
+   * @param timeoutMs how long the whole restore may take; 0 for no limit
+   * @param coordinatorAware whether the groups are scheduled per coordinator broker
+   * @param brokerMaxInFlight the maximum number of calls in flight to a single coordinator
+   * @param planBatchSize how many groups have their coordinators looked up at once
+   * @param delta whether only the partitions whose committed offset differs are restored
+   */
+  public RestoreConfig(
+      int maxInFlight,
+      long groupTimeoutMs,
+      long timeoutMs,
+      boolean coordinatorAware,
+      int brokerMaxInFlight,
+      int planBatchSize,
+      boolean delta) {
+    this(
+        maxInFlight,
+        groupTimeoutMs,
+        timeoutMs,
+        coordinatorAware,
+        brokerMaxInFlight,
+        planBatchSize,
+        delta,
+        3,
+        500L,
+        10_000L);
+  }
+
+  /**
+   * @param maxInFlight the maximum number of alterConsumerGroupOffsets calls in flight
+   * @param groupTimeoutMs how long a single group may take
+   * @param timeoutMs how long the whole restore may take; 0 for no limit
+   * @param coordinatorAware whether the groups are scheduled per coordinator broker
+   * @param brokerMaxInFlight the maximum number of calls in flight to a single coordinator
+   * @param planBatchSize how many groups have their coordinators looked up at once
+   * @param delta whether only the partitions whose committed offset differs are restored
+   * @param retries how many times a group failing with a retriable error is sent again
+   * @param retryBackoffMs the delay before the first retry, doubled for each following one
+   * @param retryBackoffMaxMs the longest delay before a retry
+   */
+  public RestoreConfig(
+      int maxInFlight,
+      long groupTimeoutMs,
+      long timeoutMs,
+      boolean coordinatorAware,
+      int brokerMaxInFlight,
+      int planBatchSize,
+      boolean delta,
+      int retries,
+      long retryBackoffMs,
+      long retryBackoffMaxMs) {
+    if (maxInFlight < 1) throw new IllegalArgumentException("Max in flight must be at least 1");
+    if (groupTimeoutMs < 1) throw new IllegalArgumentException("Group timeout must be positive");
+    if (timeoutMs < 0) throw new IllegalArgumentException("Timeout cannot be negative");
+    if (brokerMaxInFlight < 1)
+      throw new IllegalArgumentException("Broker max in flight must be at least 1");
+    if (planBatchSize < 1) throw new IllegalArgumentException("Plan batch size must be at least 1");
+    if (retries < 0) throw new IllegalArgumentException("Retries cannot be negative");
+    if (retryBackoffMs < 0) throw new IllegalArgumentException("Retry backoff cannot be negative");
+    if (retryBackoffMaxMs < retryBackoffMs)
+      throw new IllegalArgumentException("Retry backoff max cannot be less than the retry backoff");
+    this.maxInFlight = maxInFlight;
+    this.groupTimeoutMs = groupTimeoutMs;
+    this.timeoutMs = timeoutMs;
+    this.coordinatorAware = coordinatorAware;
+    this.brokerMaxInFlight = brokerMaxInFlight;
+    this.planBatchSize = planBatchSize;
+    this.delta = delta;
+    this.retries = retries;
+    this.retryBackoffMs = retryBackoffMs;
+    this.retryBackoffMaxMs = retryBackoffMaxMs;
+  }
+
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public long getGroupTimeoutMs() {
+    return groupTimeoutMs;
+  }
+
+  public long getTimeoutMs() {
+    return timeoutMs;
+  }
+
+  public boolean isCoordinatorAware() {
+    return coordinatorAware;
+  }
+
+  public int getBrokerMaxInFlight() {
+    return brokerMaxInFlight;
+  }
+
+  public int getPlanBatchSize() {
+    return planBatchSize;
+  }
+
+  public boolean isDelta() {
+    return delta;
+  }
+
+  public int getRetries() {
+    return retries;
+  }
+
+  public long getRetryBackoffMs() {
+    return retryBackoffMs;
+  }
+
+  public long getRetryBackoffMaxMs() {
+    return retryBackoffMaxMs;
+  }
+
+  public static RestoreConfig from(Config config) {
+    final int maxInFlight =
+        config.hasPath("restore.max.in.flight")
+            ? config.getInt("restore.max.in.flight")
+            : DEFAULT.maxInFlight;
+    final long groupTimeoutMs =
+        config.hasPath("restore.group.timeout.ms")
+            ? config.getLong("restore.group.timeout.ms")
+            : DEFAULT.groupTimeoutMs;
+    final long timeoutMs =
+        config.hasPath("restore.timeout.ms")
+            ? config.getLong("restore.timeout.ms")
+            : DEFAULT.timeoutMs;
+    final boolean coordinatorAware =
+        config.hasPath("restore.coordinator.aware")
+            ? config.getBoolean("restore.coordinator.aware")
+            : DEFAULT.coordinatorAware;
+    final int brokerMaxInFlight =
+        config.hasPath("restore.broker.max.in.flight")
+            ? config.getInt("restore.broker.max.in.flight")
+            : DEFAULT.brokerMaxInFlight;
+    final int planBatchSize =
+        config.hasPath("restore.plan.batch.size")
+            ? config.getInt("restore.plan.batch.size")
+            : DEFAULT.planBatchSize;
+    final boolean delta =
+        config.hasPath("restore.delta") ? config.getBoolean("restore.delta") : DEFAULT.delta;
+    final int retries =
+        config.hasPath("restore.group.retries")
+            ? config.getInt("restore.group.retries")
+            : DEFAULT.retries;
+    final long retryBackoffMs =
+        config.hasPath("restore.retry.backoff.ms")
+            ? config.getLong("restore.retry.backoff.ms")
+            : DEFAULT.retryBackoffMs;
+    final long retryBackoffMaxMs =
+        config.hasPath("restore.retry.backoff.max.ms")
+            ? config.getLong("restore.retry.backoff.max.ms")
+            : Math.max(DEFAULT.retryBackoffMaxMs, retryBackoffMs);
+    return new RestoreConfig(
+        maxInFlight,
+        groupTimeoutMs,
+        timeoutMs,
+        coordinatorAware,
+        brokerMaxInFlight,
+        planBatchSize,
+        delta,
+        retries,
+        retryBackoffMs,
+        retryBackoffMaxMs);
+  }
+}
@@ -0,0 +1,28 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+/** Follows the groups through the restore. */
+@FunctionalInterface
+public interface RestoreListener {
+
+  /**
+   * Called for each group just before it is sent.
+   *
+   * @param groupOffsets the group, or the part of it that differs from the cluster
+   */
+  void sending(GroupOffsets groupOffsets);
+
+  /**
+   * Called once per group when it is done: restored, found already up to date, or failed for good.
+   */
+  default void completed(GroupResult result) {}
+}
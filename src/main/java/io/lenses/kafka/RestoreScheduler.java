@@ -0,0 +1,776 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.utils.BlockingQueueIterator;
+import io.lenses.utils.Tuple2;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AlterConsumerGroupOffsetsOptions;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.GroupAuthorizationException;
+import org.apache.kafka.common.errors.GroupIdNotFoundException;
+import org.apache.kafka.common.errors.GroupNotEmptyException;
+import org.apache.kafka.common.errors.InvalidGroupIdException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.TopicAuthorizationException;
+import org.apache.kafka.common.errors.UnknownMemberIdException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restores the groups through a bounded window of alterConsumerGroupOffsets calls.
+ *
+ * <p>The groups are first looked up in batches with a single describeConsumerGroups call, which the
+ * Admin client turns into batched FindCoordinator requests, and queued by their coordinator broker;
+ * see {@link CoordinatorQueues}. The lookups answer through the same queue as the restore calls, so
+ * the completions and deadlines of the groups in flight are handled while a batch is looked up. At
+ * most maxInFlight groups are sent at any time, and at most brokerMaxInFlight to any one
+ * coordinator, so the load is spread across the cluster rather than piling up on the brokers
+ * leading the busiest __consumer_offsets partitions.
+ *
+ * <p>With the delta restore, the same batch has its committed offsets fetched with one multi-group
+ * listConsumerGroupOffsets call, and only the partitions whose offset differs are sent. The groups
+ * already up to date are not sent at all.
+ *
+ * <p>Each call reports back through {@link KafkaFuture#whenComplete}, and a new group is sent as
+ * soon as one completes, so a slow group only holds its own slot. The groups are planned from those
+ * the reader has already handed over, so a slow read never holds back the completions, deadlines
+ * and retries of the groups already sent.
+ *
+ * <p>A group failing or missing its deadline does not hold the others back. A retriable failure,
+ * such as the coordinator moving or a timeout, queues the group again after an exponential backoff,
+ * up to the configured retries; any other failure, such as a group with active members or an
+ * unknown topic, fails the group at once. Each group ends up in one {@link GroupResult}, and the
+ * failed groups are thrown together once every group has completed. The overall deadline is
+ * enforced on top of the group ones.
+ *
+ * <p>The reader may hand a group over more than once, e.g. a group spilled to disk or listed from
+ * several prefixes. A later copy waits until the earlier one is restored, so the offsets of a group
+ * are committed in the order they were read, and the group is reported once, when its last copy is
+ * restored.
+ */
+class RestoreScheduler {
+  private static final Logger logger = LoggerFactory.getLogger(RestoreScheduler.class);
+  // how often the reader is looked at again while groups are in flight and the window has room
+  private static final long SOURCE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  private final Admin admin;
+  private final RestoreConfig config;
+
+  RestoreScheduler(Admin admin, RestoreConfig config) {
+    if (admin == null) throw new IllegalArgumentException("Admin cannot be null");
+    if (config == null) throw new IllegalArgumentException("Restore config cannot be null");
+    this.admin = admin;
+    this.config = config;
+  }
+
+  /**
+   * Restores the groups the iterator yields.
+   *
+   * @param offsets yields the groups to restore
+   * @param groupTimeoutMs how long each group may take
+   * @param listener follows each group
+   */
+  void restore(Iterator<GroupOffsets> offsets, long groupTimeoutMs, RestoreListener listener) {
+    if (groupTimeoutMs < 1) throw new IllegalArgumentException("Group timeout must be positive");
+    final long start = System.nanoTime();
+    final long deadline =
+        config.getTimeoutMs() > 0
+            ? start + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMs())
+            : Long.MAX_VALUE;
+    // without the coordinators every group shares one queue, and the groups are taken one by one
+    final CoordinatorQueues queues =
+        new CoordinatorQueues(
+            config.isCoordinatorAware() ? config.getBrokerMaxInFlight() : config.getMaxInFlight());
+    final int planBatchSize =
+        config.isCoordinatorAware() || config.isDelta() ? config.getPlanBatchSize() : 1;
+    // one entry per send; the deadlines share the same timeout, so the insertion order is the
+    // deadline order
+    final Map<Long, InFlight> inFlight = new LinkedHashMap<>();
+    long sends = 0;
+    // the groups queued, in flight or waiting to retry, and their copies handed over since
+    final Map<String, Copies> active = new HashMap<>();
+    final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+    // the groups waiting out their backoff, the earliest due first
+    final PriorityQueue<Retry> retries = new PriorityQueue<>();
+    final Map<String, Integer> attempts = new HashMap<>();
+    final Throughput throughput = new Throughput(start);
+    final List<GroupResult> failures = new ArrayList<>();
+    final Source source = new Source(offsets);
+    // the groups of the batches whose lookups are on the wire
+    int planning = 0;
+    try {
+      while (true) {
+        while (!retries.isEmpty() && retries.peek().dueNanos <= System.nanoTime()) {
+          final Retry retry = retries.poll();
+          queues.add(retry.broker, retry.groupOffsets);
+        }
+        while (inFlight.size() < config.getMaxInFlight()) {
+          final Tuple2<Integer, GroupOffsets> next = queues.poll();
+          if (next == null) {
+            if (queues.size() + planning >= planBatchSize) {
+              break;
+            }
+            // only the groups already read are planned; the reader is not waited for here
+            final List<GroupOffsets> batch = source.take(planBatchSize);
+            if (batch.isEmpty()) {
+              break;
+            }
+            final Batch lookups =
+                lookUp(batch, completions, Math.min(deadline, deadline(groupTimeoutMs)));
+            if (lookups == null) {
+              plan(new Batch(batch), queues, active, throughput, listener);
+            } else {
+              planning += batch.size();
+            }
+            continue;
+          }
+          final GroupOffsets groupOffsets = next._2();
+          final String group = groupOffsets.getGroup();
+          final int attempt = attempts.getOrDefault(group, 1);
+          if (attempt == 1) {
+            listener.sending(groupOffsets);
+          }
+          final long groupDeadline = Math.min(deadline, deadline(groupTimeoutMs));
+          final long send = sends++;
+          inFlight.put(
+              send,
+              new InFlight(next._1(), groupDeadline, System.nanoTime(), groupOffsets, attempt));
+          admin
+              .alterConsumerGroupOffsets(
+                  group,
+                  groupOffsets.getOffsets(),
+                  new AlterConsumerGroupOffsetsOptions().timeoutMs(timeoutMs(groupDeadline)))
+              .all()
+              .whenComplete((ignored, error) -> completions.add(new Completion(send, error)));
+        }
+        if (inFlight.isEmpty() && retries.isEmpty() && planning == 0) {
+          if (source.isDrained()) {
+            break;
+          }
+          // nothing else to do until the reader yields a group
+          if (!source.await(remaining(deadline))
+              && !source.isDrained()
+              && System.nanoTime() - deadline >= 0) {
+            throw timedOut(throughput, inFlight, retries, failures);
+          }
+          continue;
+        }
+        long wakeUp = deadline;
+        if (!inFlight.isEmpty()) {
+          wakeUp = Math.min(wakeUp, inFlight.values().iterator().next().deadline);
+        }
+        if (!retries.isEmpty()) {
+          wakeUp = Math.min(wakeUp, retries.peek().dueNanos);
+        }
+        if (!source.isDrained()
+            && inFlight.size() < config.getMaxInFlight()
+            && queues.size() + planning < planBatchSize) {
+          // the window has room: look at the reader again soon
+          wakeUp = Math.min(wakeUp, System.nanoTime() + SOURCE_POLL_NANOS);
+        }
+        final Completion completion = completions.poll(remaining(wakeUp), TimeUnit.NANOSECONDS);
+        // the deadlines are checked on every turn, so a steady stream of completions does not
+        // hold them off
+        if (System.nanoTime() - deadline >= 0) {
+          throw timedOut(throughput, inFlight, retries, failures);
+        }
+        final Iterator<InFlight> oldest = inFlight.values().iterator();
+        while (oldest.hasNext()) {
+          final InFlight timedOut = oldest.next();
+          if (System.nanoTime() - timedOut.deadline < 0) {
+            break;
+          }
+          // a late response to this attempt is ignored
+          oldest.remove();
+          queues.completed(timedOut.broker);
+          failed(
+              timedOut,
+              new TimeoutException("No response after " + groupTimeoutMs + " ms"),
+              retries,
+              attempts,
+              active,
+              failures,
+              listener);
+        }
+        if (completion == null) {
+          continue;
+        }
+        if (completion.batch != null) {
+          planning -= completion.batch.groups.size();
+          plan(completion.batch, queues, active, throughput, listener);
+          continue;
+        }
+        final InFlight completed = inFlight.remove(completion.send);
+        if (completed == null) {
+          continue;
+        }
+        final String group = completed.groupOffsets.getGroup();
+        queues.completed(completed.broker);
+        RestoreMetrics.groupAltered(group, completed.startNanos);
+        if (completion.error != null) {
+          failed(completed, completion.error, retries, attempts, active, failures, listener);
+          continue;
+        }
+        attempts.remove(group);
+        RestoreMetrics.partitionsRestored.add(completed.partitions());
+        final Copies copies = active.get(group);
+        copies.restoredPartitions += completed.partitions();
+        copies.attempts = Math.max(copies.attempts, completed.attempt);
+        if (!copies.waiting.isEmpty()) {
+          // the next copy goes to the coordinator that has just taken this one
+          queues.add(completed.broker, copies.waiting.poll());
+          continue;
+        }
+        active.remove(group);
+        RestoreMetrics.groupsRestored.inc();
+        listener.completed(GroupResult.restored(group, copies.restoredPartitions, copies.attempts));
+        throughput.completed(System.nanoTime());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while restoring the group offsets", e);
+    }
+    throughput.finished(System.nanoTime(), failures.size());
+    if (config.isCoordinatorAware()) {
+      logger.info("Groups restored per coordinator: " + queues.getSent());
+    }
+    if (!failures.isEmpty()) {
+      final StringBuilder groups = new StringBuilder();
+      for (int i = 0; i < Math.min(10, failures.size()); i++) {
+        groups.append(i == 0 ? "" : ", ").append(failures.get(i).getGroup());
+      }
+      throw new RuntimeException(
+          "Failed to restore group offsets for "
+              + failures.size()
+              + " group(s): "
+              + groups
+              + (failures.size() > 10 ? ", ..." : ""),
+          failures.get(0).getError().orElse(null));
+    }
+  }
+
+  /**
+   * Retries the attempt after a backoff when its error is retriable and the group has retries left,
+   * otherwise fails the group for good.
+   */
+  private void failed(
+      InFlight attempt,
+      Throwable error,
+      PriorityQueue<Retry> retries,
+      Map<String, Integer> attempts,
+      Map<String, Copies> active,
+      List<GroupResult> failures,
+      RestoreListener listener) {
+    final String group = attempt.groupOffsets.getGroup();
+    final Throwable cause = unwrap(error);
+    final boolean retriable = isRetriable(cause);
+    if (retriable && attempt.attempt <= config.getRetries()) {
+      final long backoffMs = backoffMs(attempt.attempt);
+      RestoreMetrics.groupRetries.inc();
+      logger.warn(
+          "Retrying group:"
+              + group
+              + " in "
+              + backoffMs
+              + " ms, attempt "
+              + attempt.attempt
+              + " failed: "
+              + cause);
+      attempts.put(group, attempt.attempt + 1);
+      retries.add(
+          new Retry(
+              System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs),
+              attempt.broker,
+              attempt.groupOffsets));
+      return;
+    }
+    attempts.remove(group);
+    // the copies read since are not sent: the group is restored again in full on --resume
+    final Copies copies = active.remove(group);
+    int partitions = attempt.partitions();
+    for (GroupOffsets waiting : copies.waiting) {
+      partitions += waiting.getPartitionOffsets().size();
+    }
+    RestoreMetrics.groupsFailed.inc();
+    logger.error(
+        "Failed to restore group offsets for group:"
+            + group
+            + " after "
+            + attempt.attempt
+            + " attempt(s): "
+            + cause);
+    final GroupResult result =
+        GroupResult.failed(group, partitions, attempt.attempt, cause, retriable);
+    failures.add(result);
+    listener.completed(result);
+  }
+
+  /** The delay before the given attempt is retried: doubling from the backoff, up to the max. */
+  long backoffMs(int attempt) {
+    final long backoff = config.getRetryBackoffMs() << Math.min(attempt - 1, 30);
+    return Math.min(backoff < 0 ? Long.MAX_VALUE : backoff, config.getRetryBackoffMaxMs());
+  }
+
+  /**
+   * The errors a later attempt can get past: the coordinator moving or loading, the broker not
+   * answering in time. A group with active members, a topic or group that does not exist, or an
+   * authorization failure stay the same, so they fail the group at once.
+   */
+  static boolean isRetriable(Throwable failure) {
+    final Throwable error = unwrap(failure);
+    if (error instanceof UnknownTopicOrPartitionException
+        || error instanceof UnknownMemberIdException
+        || error instanceof GroupNotEmptyException
+        || error instanceof GroupIdNotFoundException
+        || error instanceof InvalidGroupIdException
+        || error instanceof GroupAuthorizationException
+        || error instanceof TopicAuthorizationException) {
+      return false;
+    }
+    return error instanceof RetriableException || error instanceof TimeoutException;
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    Throwable cause = error;
+    while ((cause instanceof ExecutionException || cause instanceof CompletionException)
+        && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
+  /**
+   * Sends the lookups the batch needs: the coordinator of each group with a single
+   * describeConsumerGroups call, which the Admin client turns into batched FindCoordinator
+   * requests, and, with the delta restore, the committed offsets with a single multi-group
+   * listConsumerGroupOffsets call. The batch comes back through the completions once both have
+   * answered, so the scheduler keeps handling the groups in flight in the meantime.
+   *
+   * @return the batch being looked up, or null when it needs no lookup
+   */
+  private Batch lookUp(
+      List<GroupOffsets> batch, BlockingQueue<Completion> completions, long deadline) {
+    if (!config.isCoordinatorAware() && !config.isDelta()) {
+      return null;
+    }
+    final Map<String, KafkaFuture<ConsumerGroupDescription>> descriptions =
+        config.isCoordinatorAware() ? describe(batch, deadline) : Collections.emptyMap();
+    final Map<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> committed =
+        config.isDelta() ? listCommitted(batch, deadline) : Collections.emptyMap();
+    final Batch lookups = new Batch(batch, descriptions, committed);
+    final List<KafkaFuture<?>> futures = new ArrayList<>(descriptions.values());
+    futures.addAll(committed.values());
+    KafkaFuture.allOf(futures.toArray(new KafkaFuture<?>[0]))
+        .whenComplete((ignored, error) -> completions.add(new Completion(lookups)));
+    return lookups;
+  }
+
+  /**
+   * Queues the batch of groups by their coordinator. A group whose coordinator cannot be found is
+   * queued as {@link CoordinatorQueues#UNKNOWN_COORDINATOR}; the restore call finds it again on its
+   * own. With the delta restore, only the partitions whose committed offset differs are queued, and
+   * the groups already up to date are skipped. A group already being restored is held back until
+   * that copy is.
+   */
+  private void plan(
+      Batch batch,
+      CoordinatorQueues queues,
+      Map<String, Copies> active,
+      Throughput throughput,
+      RestoreListener listener)
+      throws InterruptedException {
+    final Map<String, Integer> coordinators = coordinators(batch.descriptions);
+    final Map<String, Map<TopicPartition, OffsetAndMetadata>> committed =
+        committed(batch.committed);
+    for (GroupOffsets groupOffsets : batch.groups) {
+      GroupOffsets toRestore = groupOffsets;
+      final Map<TopicPartition, OffsetAndMetadata> current = committed.get(groupOffsets.getGroup());
+      if (current != null) {
+        toRestore = groupOffsets.changedFrom(current);
+        throughput.unchanged(
+            groupOffsets.getPartitionOffsets().size() - toRestore.getPartitionOffsets().size(),
+            toRestore.getPartitionOffsets().isEmpty());
+        if (toRestore.getPartitionOffsets().isEmpty()) {
+          // a copy of a group being restored is reported with it
+          if (!active.containsKey(groupOffsets.getGroup())) {
+            listener.completed(GroupResult.unchanged(groupOffsets.getGroup()));
+          }
+          continue;
+        }
+      }
+      final Copies copies = active.get(groupOffsets.getGroup());
+      if (copies != null) {
+        copies.waiting.add(toRestore);
+        continue;
+      }
+      active.put(groupOffsets.getGroup(), new Copies());
+      queues.add(
+          coordinators.getOrDefault(groupOffsets.getGroup(), CoordinatorQueues.UNKNOWN_COORDINATOR),
+          toRestore);
+    }
+  }
+
+  private RuntimeException timedOut(
+      Throughput throughput,
+      Map<Long, InFlight> inFlight,
+      PriorityQueue<Retry> retries,
+      List<GroupResult> failures) {
+    return new RuntimeException(
+        "Timed out restoring the group offsets after "
+            + config.getTimeoutMs()
+            + " ms. "
+            + throughput.getCompleted()
+            + " groups restored, "
+            + inFlight.size()
+            + " in flight, "
+            + retries.size()
+            + " waiting to retry and "
+            + failures.size()
+            + " failed.");
+  }
+
+  private Map<String, KafkaFuture<ConsumerGroupDescription>> describe(
+      List<GroupOffsets> batch, long deadline) {
+    final Set<String> groups = new LinkedHashSet<>(batch.size());
+    batch.forEach(groupOffsets -> groups.add(groupOffsets.getGroup()));
+    return admin
+        .describeConsumerGroups(
+            groups, new DescribeConsumerGroupsOptions().timeoutMs(timeoutMs(deadline)))
+        .describedGroups();
+  }
+
+  /** @return the coordinator of each group whose description was found */
+  private static Map<String, Integer> coordinators(
+      Map<String, KafkaFuture<ConsumerGroupDescription>> descriptions) throws InterruptedException {
+    final Map<String, Integer> coordinators = new HashMap<>();
+    for (Map.Entry<String, KafkaFuture<ConsumerGroupDescription>> description :
+        descriptions.entrySet()) {
+      try {
+        final Node node = description.getValue().get().coordinator();
+        if (node != null && !node.isEmpty()) {
+          coordinators.put(description.getKey(), node.id());
+        }
+      } catch (ExecutionException e) {
+        logger.warn(
+            "Failed to find the coordinator for group:"
+                + description.getKey()
+                + ". "
+                + e.getMessage());
+      }
+    }
+    return coordinators;
+  }
+
+  private Map<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> listCommitted(
+      List<GroupOffsets> batch, long deadline) {
+    // a group handed over twice in the batch has the partitions of both copies fetched
+    final Map<String, Set<TopicPartition>> partitions = new HashMap<>();
+    batch.forEach(
+        groupOffsets ->
+            partitions
+                .computeIfAbsent(groupOffsets.getGroup(), g -> new HashSet<>())
+                .addAll(groupOffsets.getPartitionOffsets().topicPartitions()));
+    final Map<String, ListConsumerGroupOffsetsSpec> specs = new HashMap<>();
+    partitions.forEach(
+        (group, topicPartitions) ->
+            specs.put(group, new ListConsumerGroupOffsetsSpec().topicPartitions(topicPartitions)));
+    final ListConsumerGroupOffsetsResult result =
+        admin.listConsumerGroupOffsets(
+            specs, new ListConsumerGroupOffsetsOptions().timeoutMs(timeoutMs(deadline)));
+    final Map<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> committed =
+        new HashMap<>();
+    specs
+        .keySet()
+        .forEach(group -> committed.put(group, result.partitionsToOffsetAndMetadata(group)));
+    return committed;
+  }
+
+  /**
+   * @return the committed offsets of each group; a group whose offsets could not be fetched is left
+   *     out, and is restored in full
+   */
+  private static Map<String, Map<TopicPartition, OffsetAndMetadata>> committed(
+      Map<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> fetched)
+      throws InterruptedException {
+    final Map<String, Map<TopicPartition, OffsetAndMetadata>> committed = new HashMap<>();
+    for (Map.Entry<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> offsets :
+        fetched.entrySet()) {
+      try {
+        final Map<TopicPartition, OffsetAndMetadata> current = offsets.getValue().get();
+        committed.put(offsets.getKey(), current == null ? Collections.emptyMap() : current);
+      } catch (ExecutionException e) {
+        logger.warn(
+            "Failed to fetch the committed offsets for group:"
+                + offsets.getKey()
+                + ". Restoring all its partitions. "
+                + e.getMessage());
+      }
+    }
+    return committed;
+  }
+
+  private static long deadline(long timeoutMs) {
+    return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+  }
+
+  private static long remaining(long deadline) {
+    return deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+  }
+
+  private static int timeoutMs(long deadline) {
+    return (int)
+        Math.min(
+            Integer.MAX_VALUE,
+            Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+  }
+
+  /**
+   * An attempt of a group in flight: the coordinator it was sent to, its deadline, when it was
+   * sent, the offsets sent and which attempt it is.
+   */
+  private static class InFlight {
+    private final int broker;
+    private final long deadline;
+    private final long startNanos;
+    private final GroupOffsets groupOffsets;
+    private final int attempt;
+
+    private InFlight(
+        int broker, long deadline, long startNanos, GroupOffsets groupOffsets, int attempt) {
+      this.broker = broker;
+      this.deadline = deadline;
+      this.startNanos = startNanos;
+      this.groupOffsets = groupOffsets;
+      this.attempt = attempt;
+    }
+
+    private int partitions() {
+      return groupOffsets.getPartitionOffsets().size();
+    }
+  }
+
+  /**
+   * The groups to restore. A {@link BlockingQueueIterator} is only taken from once its next group
+   * has been read, so the scheduler keeps handling the completions, deadlines and retries while the
+   * reader is behind; any other iterator is taken from as it is.
+   */
+  private static class Source {
+    private final Iterator<GroupOffsets> offsets;
+    private final BlockingQueueIterator<GroupOffsets> pipeline;
+    private boolean drained;
+
+    private Source(Iterator<GroupOffsets> offsets) {
+      this.offsets = offsets;
+      this.pipeline =
+          offsets instanceof BlockingQueueIterator
+              ? (BlockingQueueIterator<GroupOffsets>) offsets
+              : null;
+    }
+
+    /** @return whether the iterator has yielded its last group */
+    private boolean isDrained() {
+      return drained;
+    }
+
+    /**
+     * Waits up to the timeout for the reader.
+     *
+     * @return whether a group can be taken without blocking
+     */
+    private boolean await(long timeoutNanos) throws InterruptedException {
+      if (drained || (pipeline != null && !pipeline.await(timeoutNanos, TimeUnit.NANOSECONDS))) {
+        return false;
+      }
+      if (!offsets.hasNext()) {
+        drained = true;
+        return false;
+      }
+      return true;
+    }
+
+    /** Takes up to max groups among those already read. */
+    private List<GroupOffsets> take(int max) throws InterruptedException {
+      final List<GroupOffsets> batch = new ArrayList<>(Math.min(max, 16));
+      while (batch.size() < max && await(0)) {
+        batch.add(offsets.next());
+      }
+      return batch;
+    }
+  }
+
+  /** The outcome of one send of a group, or a batch whose lookups have answered. */
+  private static class Completion {
+    private final long send;
+    private final Throwable error;
+    private final Batch batch;
+
+    private Completion(long send, Throwable error) {
+      this.send = send;
+      this.error = error;
+      this.batch = null;
+    }
+
+    private Completion(Batch batch) {
+      this.send = -1;
+      this.error = null;
+      this.batch = batch;
+    }
+  }
+
+  /**
+   * A batch of groups to plan, with the answers of its coordinator and committed offsets lookups.
+   */
+  private static class Batch {
+    private final List<GroupOffsets> groups;
+    private final Map<String, KafkaFuture<ConsumerGroupDescription>> descriptions;
+    private final Map<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> committed;
+
+    private Batch(List<GroupOffsets> groups) {
+      this(groups, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    private Batch(
+        List<GroupOffsets> groups,
+        Map<String, KafkaFuture<ConsumerGroupDescription>> descriptions,
+        Map<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> committed) {
+      this.groups = groups;
+      this.descriptions = descriptions;
+      this.committed = committed;
+    }
+  }
+
+  /**
+   * A group being restored: its copies handed over since, waiting for the current one, and what its
+   * earlier copies restored.
+   */
+  private static class Copies {
+    private final ArrayDeque<GroupOffsets> waiting = new ArrayDeque<>();
+    private int restoredPartitions;
+    private int attempts;
+  }
+
+  /** A group waiting out its backoff before it is queued again. */
+  private static class Retry implements Comparable<Retry> {
+    private final long dueNanos;
+    private final int broker;
+    private final GroupOffsets groupOffsets;
+
+    private Retry(long dueNanos, int broker, GroupOffsets groupOffsets) {
+      this.dueNanos = dueNanos;
+      this.broker = broker;
+      this.groupOffsets = groupOffsets;
+    }
+
+    @Override
+    public int compareTo(Retry other) {
+      return Long.compare(dueNanos - other.dueNanos, 0);
+    }
+  }
+
+  /**
+   * Tracks the restore rate for the final summary; the progress along the way is logged by the
+   * progress reporter. The steady-state rate is measured between the first and the last completion,
+   * leaving out the time spent waiting for the first groups to be read and sent.
+   */
+  private static class Throughput {
+    private final long start;
+    private long firstCompletion = -1;
+    private long lastCompletion = -1;
+    private int completed;
+    private int unchangedGroups;
+    private long unchangedPartitions;
+
+    private Throughput(long start) {
+      this.start = start;
+    }
+
+    private int getCompleted() {
+      return completed;
+    }
+
+    private void unchanged(int partitions, boolean group) {
+      unchangedPartitions += partitions;
+      RestoreMetrics.partitionsUnchanged.add(partitions);
+      if (group) {
+        unchangedGroups++;
+        RestoreMetrics.groupsUnchanged.inc();
+      }
+    }
+
+    private void completed(long now) {
+      completed++;
+      if (firstCompletion < 0) {
+        firstCompletion = now;
+      }
+      lastCompletion = now;
+    }
+
+    private void finished(long now, int failed) {
+      logger.info(
+          "Restored "
+              + completed
+              + " groups"
+              + (failed > 0 ? ", failed " + failed + " groups," : "")
+              + " in "
+              + TimeUnit.NANOSECONDS.toMillis(now - start)
+              + " ms. Overall: "
+              + format(rate(completed, now - start))
+              + " groups/s, steady state: "
+              + format(rate(completed - 1, lastCompletion - firstCompletion))
+              + " groups/s");
+      if (unchangedPartitions > 0) {
+        logger.info(
+            "Skipped "
+                + unchangedGroups
+                + " groups and "
+                + unchangedPartitions
+                + " partitions already up to date.");
+      }
+    }
+
+    private static double rate(int count, long nanos) {
+      return count <= 0 || nanos <= 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    private static String format(double rate) {
+      return String.format("%.1f", rate);
+    }
+  }
+}
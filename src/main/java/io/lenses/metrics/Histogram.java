@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram over fixed buckets, in seconds, from 1 ms to 60 s. The buckets are cumulative
+ * when exposed, like Prometheus expects them.
+ */
+public final class Histogram {
+  static final double[] BUCKETS = {
+    0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+  };
+  private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumNanos = new LongAdder();
+
+  Histogram() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  public void observeNanos(long nanos) {
+    final double seconds = nanos / 1e9;
+    int bucket = 0;
+    while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+      bucket++;
+    }
+    counts[bucket].increment();
+    count.increment();
+    sumNanos.add(nanos);
+  }
+
+  /** Records the time elapsed since the start, a {@link System#nanoTime()} reading. */
+  public void observeSince(long startNanos) {
+    observeNanos(System.nanoTime() - startNanos);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public double getSumSeconds() {
+    return sumNanos.sum() / 1e9;
+  }
+
+  /** @return how many observations were at most the bucket's upper bound */
+  long cumulativeCount(int bucket) {
+    long cumulative = 0;
+    for (int i = 0; i <= bucket; i++) {
+      cumulative += counts[i].sum();
+    }
+    return cumulative;
+  }
+
+  /**
+   * @param quantile between 0 and 1
+   * @return the upper bound of the bucket holding the quantile, in seconds; the quantile is at most
+   *     that
+   */
+  public double quantileUpperBound(double quantile) {
+    final long total = getCount();
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(quantile * total);
+    for (int i = 0; i < BUCKETS.length; i++) {
+      if (cumulativeCount(i) >= rank) {
+        return BUCKETS[i];
+      }
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
+  public double getMeanMillis() {
+    final long total = getCount();
+    return total == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(sumNanos.sum() / total) / 1000.0;
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import com.typesafe.config.Config;
+import java.util.Optional;
+
+/** Where the metrics are exposed, read from the metrics.* options; nothing by default. */
+public class MetricsConfig {
+  public static final MetricsConfig DEFAULT = new MetricsConfig(Optional.empty(), Optional.empty());
+
+  private final Optional<Integer> port;
+  private final Optional<String> summaryFile;
+
+  /**
+   * @param port the port of the Prometheus endpoint; none when empty
+   * @param summaryFile the JSON run summary written at exit; none when empty
+   */
+  public MetricsConfig(Optional<Integer> port, Optional<String> summaryFile) {
+    if (port == null) throw new IllegalArgumentException("Port cannot be null");
+    if (summaryFile == null) throw new IllegalArgumentException("Summary file cannot be null");
+    if (port.isPresent() && (port.get() < 0 || port.get() > 65535))
+      throw new IllegalArgumentException("Metrics port must be between 0 and 65535");
+    this.port = port;
+    this.summaryFile = summaryFile;
+  }
+
+  public Optional<Integer> getPort() {
+    return port;
+  }
+
+  public Optional<String> getSummaryFile() {
+    return summaryFile;
+  }
+
+  public static MetricsConfig from(Config config) {
+    final Optional<Integer> port =
+        config.hasPath("metrics.port")
+            ? Optional.of(config.getInt("metrics.port"))
+            : Optional.empty();
+    // an empty file name leaves the summary off
+    final String summaryFile =
+        config.hasPath("metrics.summary.file")
+            ? config.getString("metrics.summary.file").trim()
+            : "";
+    return new MetricsConfig(
+        port, summaryFile.isEmpty() ? Optional.empty() : Optional.of(summaryFile));
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import io.lenses.utils.Json;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds the named counters, gauges and histograms and writes them in the Prometheus text format or
+ * as JSON. A metric is identified by its name and an optional single label, e.g.
+ * restore_phase_seconds{phase="read"}; metrics sharing a name form one family.
+ *
+ * <p>The application records into {@link #global()}; see {@link RestoreMetrics}.
+ */
+public final class MetricsRegistry {
+  private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+  private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+  public static MetricsRegistry global() {
+    return GLOBAL;
+  }
+
+  public Counter counter(String name, String help) {
+    return counter(name, help, Optional.empty());
+  }
+
+  public Counter counter(String name, String help, String label, String value) {
+    return counter(name, help, Optional.of(label + "=\"" + value + "\""));
+  }
+
+  public Gauge gauge(String name, String help) {
+    return register(name, help, "gauge", Optional.empty(), Gauge::new);
+  }
+
+  public Gauge gauge(String name, String help, String label, String value) {
+    return register(name, help, "gauge", Optional.of(label + "=\"" + value + "\""), Gauge::new);
+  }
+
+  public Histogram histogram(String name, String help) {
+    return register(name, help, "histogram", Optional.empty(), Histogram::new);
+  }
+
+  private Counter counter(String name, String help, Optional<String> labels) {
+    return register(name, help, "counter", labels, Counter::new);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T register(
+      String name, String help, String type, Optional<String> labels, Supplier<T> factory) {
+    final Family family = families.computeIfAbsent(name, n -> new Family(help, type));
+    if (!family.type.equals(type)) {
+      throw new IllegalArgumentException("Metric:" + name + " is already a " + family.type);
+    }
+    return (T) family.metrics.computeIfAbsent(labels.orElse(""), l -> factory.get());
+  }
+
+  /** Writes the metrics in the Prometheus text exposition format, version 0.0.4. */
+  public void writePrometheus(Writer writer) throws IOException {
+    for (Map.Entry<String, Family> entry : snapshot()) {
+      final String name = entry.getKey();
+      final Family family = entry.getValue();
+      writer.write("# HELP " + name + " " + family.help + "\n");
+      writer.write("# TYPE " + name + " " + family.type + "\n");
+      for (Map.Entry<String, Object> metric : family.metricsSnapshot()) {
+        final String labels = metric.getKey();
+        final Object value = metric.getValue();
+        if (value instanceof Histogram) {
+          final Histogram histogram = (Histogram) value;
+          for (int i = 0; i < Histogram.BUCKETS.length; i++) {
+            writer.write(
+                name
+                    + "_bucket{le=\""
+                    + Histogram.BUCKETS[i]
+                    + "\"} "
+                    + histogram.cumulativeCount(i)
+                    + "\n");
+          }
+          writer.write(name + "_bucket{le=\"+Inf\"} " + histogram.getCount() + "\n");
+          writer.write(name + "_sum " + histogram.getSumSeconds() + "\n");
+          writer.write(name + "_count " + histogram.getCount() + "\n");
+        } else {
+          writer.write(
+              name + (labels.isEmpty() ? "" : "{" + labels + "}") + " " + format(value) + "\n");
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the metrics as the members of a JSON object, without the enclosing braces: counters and
+   * gauges as numbers, histograms as count, sum, mean and p50/p99 bucket bounds.
+   */
+  public void writeJsonMembers(Writer writer) throws IOException {
+    boolean first = true;
+    for (Map.Entry<String, Family> entry : snapshot()) {
+      for (Map.Entry<String, Object> metric : entry.getValue().metricsSnapshot()) {
+        if (!first) {
+          writer.write(",\n");
+        }
+        first = false;
+        final String labels = metric.getKey();
+        final String name = labels.isEmpty() ? entry.getKey() : entry.getKey() + "{" + labels + "}";
+        writer.write("  " + Json.quote(name) + ": ");
+        final Object value = metric.getValue();
+        if (value instanceof Histogram) {
+          final Histogram histogram = (Histogram) value;
+          writer.write(
+              "{\"count\": "
+                  + histogram.getCount()
+                  + ", \"sumSeconds\": "
+                  + histogram.getSumSeconds()
+                  + ", \"meanMs\": "
+                  + histogram.getMeanMillis()
+                  + ", \"p50SecondsAtMost\": "
+                  + Json.number(histogram.quantileUpperBound(0.5))
+                  + ", \"p99SecondsAtMost\": "
+                  + Json.number(histogram.quantileUpperBound(0.99))
+                  + "}");
+        } else {
+          writer.write(format(value));
+        }
+      }
+    }
+  }
+
+  private List<Map.Entry<String, Family>> snapshot() {
+    return new ArrayList<>(families.entrySet());
+  }
+
+  private static String format(Object value) {
+    if (value instanceof Counter) {
+      return Long.toString(((Counter) value).get());
+    }
+    return Json.number(((Gauge) value).get());
+  }
+
+  private static final class Family {
+    private final String help;
+    private final String type;
+    private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+    private Family(String help, String type) {
+      this.help = help;
+      this.type = type;
+    }
+
+    private List<Map.Entry<String, Object>> metricsSnapshot() {
+      return new ArrayList<>(metrics.entrySet());
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.lenses.utils.Utils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Serves the metrics in the Prometheus text format on /metrics while the restore runs. */
+public class MetricsServer implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  /**
+   * Starts the server.
+   *
+   * @param port the port to listen on; 0 picks a free one
+   * @param registry the metrics to serve
+   */
+  public MetricsServer(int port, MetricsRegistry registry) throws IOException {
+    if (registry == null) throw new IllegalArgumentException("Registry cannot be null");
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    this.executor = Executors.newSingleThreadExecutor(Utils.daemonThreadFactory("metrics-server"));
+    server.setExecutor(executor);
+    server.createContext("/metrics", exchange -> serve(exchange, registry));
+    server.start();
+    logger.info("Serving the metrics on http://localhost:" + getPort() + "/metrics");
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private static void serve(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      final StringWriter text = new StringWriter();
+      registry.writePrometheus(text);
+      final byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
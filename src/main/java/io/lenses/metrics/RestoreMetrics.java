@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import io.lenses.utils.Json;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The instruments of a restore, recorded into {@link MetricsRegistry#global()}.
+ *
+ * <p>The alter latency is a single histogram rather than one series per group, since a bucket can
+ * hold many thousands of groups; the slowest groups are kept by name for the run summary instead.
+ */
+public final class RestoreMetrics {
+  static final int SLOWEST_GROUPS = 10;
+  private static final MetricsRegistry registry = MetricsRegistry.global();
+
+  public static final Counter storeListPages =
+      registry.counter("store_list_pages_total", "Listing pages returned by the object store");
+  public static final Histogram storeListPageSeconds =
+      registry.histogram("store_list_page_seconds", "Latency of a listing page");
+  public static final Counter storeGets =
+      registry.counter("store_get_requests_total", "Objects read from the object store");
+  public static final Histogram storeGetSeconds =
+      registry.histogram("store_get_seconds", "Latency of an object read");
+  public static final Counter storeGetBytes =
+      registry.counter("store_get_bytes_total", "Bytes read from the object store");
+  public static final Counter storeGetErrors =
+      registry.counter("store_get_errors_total", "Object reads that failed");
+  public static final Counter s3Retries =
+      registry.counter("s3_retries_total", "S3 requests retried by the SDK");
+  public static final Counter s3Throttled =
+      registry.counter("s3_throttled_total", "S3 answers asking to slow down: 503 or 429");
+  public static final Gauge s3RequestRate =
+      registry.gauge("s3_request_rate", "S3 requests per second allowed by the rate limiter");
+  public static final Counter s3Hedges =
+      registry.counter("s3_hedged_requests_total", "S3 GETs sent again after the hedge delay");
+  public static final Counter s3HedgeWins =
+      registry.counter("s3_hedge_wins_total", "Hedged S3 GETs answered before the first one");
+  public static final Gauge s3HedgeDelay =
+      registry.gauge("s3_hedge_delay_seconds", "How long an S3 GET may take before it is hedged");
+  public static final Counter prefixWaits =
+      registry.counter(
+          "store_prefix_waits_total", "Times the reads waited for the per prefix rate ceiling");
+  public static final Counter groupsRead =
+      registry.counter("store_groups_read_total", "Groups read in full from the source");
+  public static final Counter keysInvalid =
+      registry.counter(
+          "store_keys_invalid_total", "Listed keys that are not group/topic/partition keys");
+  public static final Counter keysFiltered =
+      registry.counter("store_keys_filtered_total", "Listed keys left out by the selection");
+  public static final Counter keysCached =
+      registry.counter("store_keys_cached_total", "Offsets taken from the cache without a read");
+  public static final Counter spilledPartitions =
+      registry.counter(
+          "store_spilled_partitions_total", "Partition offsets spilled to disk over the budget");
+  public static final Histogram groupAlterSeconds =
+      registry.histogram("kafka_group_alter_seconds", "Latency of a group offsets alter request");
+  public static final Counter groupsRestored =
+      registry.counter("kafka_groups_restored_total", "Groups whose offsets were restored");
+  public static final Counter groupsFailed =
+      registry.counter("kafka_groups_failed_total", "Groups whose offsets could not be restored");
+  public static final Counter groupRetries =
+      registry.counter("kafka_group_retries_total", "Group restores retried after a failure");
+  public static final Counter partitionsRestored =
+      registry.counter("kafka_partitions_restored_total", "Partition offsets restored");
+  public static final Counter groupsUnchanged =
+      registry.counter("kafka_groups_unchanged_total", "Groups skipped as already up to date");
+  public static final Counter partitionsUnchanged =
+      registry.counter(
+          "kafka_partitions_unchanged_total", "Partition offsets skipped as already up to date");
+
+  private static final PriorityQueue<SlowGroup> slowest = new PriorityQueue<>();
+
+  private RestoreMetrics() {}
+
+  /** @return the gauge holding the duration of the phase: read, restore or total */
+  public static Gauge phaseSeconds(String phase) {
+    return registry.gauge(
+        "restore_phase_seconds", "Wall time spent in each phase of the restore", "phase", phase);
+  }
+
+  /** Records the phase duration since the start, a {@link System#nanoTime()} reading. */
+  public static void phaseDone(String phase, long startNanos) {
+    phaseSeconds(phase).set((System.nanoTime() - startNanos) / 1e9);
+  }
+
+  /** Records the alter latency of a group, keeping the slowest ones by name. */
+  public static void groupAltered(String group, long startNanos) {
+    final long nanos = System.nanoTime() - startNanos;
+    groupAlterSeconds.observeNanos(nanos);
+    synchronized (slowest) {
+      if (slowest.size() < SLOWEST_GROUPS) {
+        slowest.add(new SlowGroup(group, nanos));
+      } else if (slowest.peek().nanos < nanos) {
+        slowest.poll();
+        slowest.add(new SlowGroup(group, nanos));
+      }
+    }
+  }
+
+  /**
+   * Writes the run summary: every metric of the registry plus the slowest groups to alter.
+   *
+   * @param file the JSON file to write
+   */
+  public static void writeSummary(Path file) throws IOException {
+    final List<SlowGroup> groups;
+    synchronized (slowest) {
+      groups = new ArrayList<>(slowest);
+    }
+    groups.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("{\n");
+      registry.writeJsonMembers(writer);
+      writer.write(",\n  \"slowest_groups\": [");
+      for (int i = 0; i < groups.size(); i++) {
+        writer.write(
+            (i == 0 ? "\n" : ",\n")
+                + "    {\"group\": "
+                + Json.quote(groups.get(i).group)
+                + ", \"alterMs\": "
+                + groups.get(i).nanos / 1_000_000
+                + "}");
+      }
+      writer.write(groups.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+  }
+
+  private static final class SlowGroup implements Comparable<SlowGroup> {
+    private final String group;
+    private final long nanos;
+
+    private SlowGroup(String group, long nanos) {
+      this.group = group;
+      this.nanos = nanos;
+    }
+
+    @Override
+    public int compareTo(SlowGroup other) {
+      return Long.compare(nanos, other.nanos);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.report;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.PartitionOffsets;
+import io.lenses.utils.BlockingQueueIterator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes every partition offset of the groups it is given to a tab separated file: group, topic,
+ * partition and offset, one partition per line.
+ *
+ * <p>The groups are handed over to a writer thread through a bounded queue, so the caller only pays
+ * for the hand-over; the lines are formatted and written off the restore path. A full queue holds
+ * the caller back rather than buffering without bound.
+ */
+public class OffsetsReport implements Consumer<GroupOffsets>, AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(OffsetsReport.class);
+  private static final int CAPACITY = 1000;
+  private final Path file;
+  private final BlockingQueueIterator<GroupOffsets> groups = new BlockingQueueIterator<>(CAPACITY);
+  private final Thread writer;
+  private volatile IOException failure;
+  private boolean closed;
+
+  public OffsetsReport(Path file) throws IOException {
+    if (file == null) throw new IllegalArgumentException("File cannot be null");
+    this.file = file;
+    final Writer output = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    this.writer = new Thread(() -> write(output), "offsets-report");
+    writer.setDaemon(true);
+    writer.start();
+    logger.info("Writing the restored offsets to:" + file);
+  }
+
+  @Override
+  public void accept(GroupOffsets groupOffsets) {
+    groups.accept(groupOffsets);
+  }
+
+  private void write(Writer output) {
+    try (Writer out = output) {
+      out.write("group\ttopic\tpartition\toffset\n");
+      while (groups.hasNext()) {
+        final GroupOffsets groupOffsets = groups.next();
+        final String group = groupOffsets.getGroup();
+        final PartitionOffsets offsets = groupOffsets.getPartitionOffsets();
+        for (int t = 0; t < offsets.topicCount(); t++) {
+          final String topic = offsets.topic(t);
+          for (int i = offsets.topicStart(t); i < offsets.topicEnd(t); i++) {
+            out.write(group);
+            out.write('\t');
+            out.write(topic);
+            out.write('\t');
+            out.write(Integer.toString(offsets.partition(i)));
+            out.write('\t');
+            out.write(Long.toString(offsets.offset(i)));
+            out.write('\n');
+          }
+        }
+      }
+    } catch (IOException e) {
+      failure = e;
+      // keep taking the groups so the restore is not held back by a report that cannot be written
+      while (groups.hasNext()) {
+        groups.next();
+      }
+    }
+  }
+
+  /** Waits for the groups handed over to be written, and fails when the file could not be. */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    groups.complete();
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while writing the offsets report", e);
+    }
+    if (failure != null) {
+      throw new UncheckedIOException("Failed to write the offsets report:" + file, failure);
+    }
+  }
+}
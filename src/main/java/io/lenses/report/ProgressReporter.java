@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.report;
+
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.utils.Utils;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs one progress line at a fixed interval: the keys read and their rate, the bytes read, the
+ * groups read and restored, and the time left once the read is complete and the number of groups is
+ * known. It samples the {@link RestoreMetrics} counters, so the readers and the restore record
+ * nothing for it and log nothing per key or partition.
+ */
+public class ProgressReporter implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(ProgressReporter.class);
+  private final boolean restoring;
+  private final ScheduledExecutorService executor;
+  private volatile boolean readDone;
+  private long lastNanos;
+  private long lastKeys;
+  private long lastGroupsDone;
+
+  /**
+   * Starts reporting.
+   *
+   * @param intervalMs how often the progress is logged
+   * @param restoring whether the groups are restored, rather than only read
+   */
+  public ProgressReporter(long intervalMs, boolean restoring) {
+    if (intervalMs < 1) throw new IllegalArgumentException("Interval must be positive");
+    this.restoring = restoring;
+    this.lastNanos = System.nanoTime();
+    this.lastKeys = keys();
+    this.lastGroupsDone = groupsDone();
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(Utils.daemonThreadFactory("progress"));
+    executor.scheduleAtFixedRate(this::report, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /** Signals that every group has been read, so the number of groups left is known. */
+  public void readDone() {
+    readDone = true;
+  }
+
+  private void report() {
+    final long now = System.nanoTime();
+    final long keys = keys();
+    final long groupsDone = groupsDone();
+    final double seconds = (now - lastNanos) / 1e9;
+    logger.info(
+        describe(
+            keys,
+            (keys - lastKeys) / seconds,
+            RestoreMetrics.storeGetBytes.get(),
+            RestoreMetrics.groupsRead.get(),
+            restoring ? groupsDone : -1,
+            (groupsDone - lastGroupsDone) / seconds,
+            readDone));
+    lastNanos = now;
+    lastKeys = keys;
+    lastGroupsDone = groupsDone;
+  }
+
+  private static long keys() {
+    return RestoreMetrics.storeGets.get() + RestoreMetrics.keysCached.get();
+  }
+
+  private static long groupsDone() {
+    return RestoreMetrics.groupsRestored.get()
+        + RestoreMetrics.groupsFailed.get()
+        + RestoreMetrics.groupsUnchanged.get();
+  }
+
+  /**
+   * @param groupsDone the groups restored, failed or found up to date; negative when not restoring
+   * @return the progress line
+   */
+  static String describe(
+      long keys,
+      double keysPerSecond,
+      long bytes,
+      long groupsRead,
+      long groupsDone,
+      double groupsPerSecond,
+      boolean readDone) {
+    final StringBuilder line =
+        new StringBuilder("Progress: ")
+            .append(keys)
+            .append(" keys read (")
+            .append(Math.round(keysPerSecond))
+            .append(" keys/s), ")
+            .append(bytes(bytes))
+            .append(", ")
+            .append(groupsRead)
+            .append(" groups read");
+    if (groupsDone >= 0) {
+      line.append(", ").append(groupsDone).append(" restored, ETA: ");
+      final long left = groupsRead - groupsDone;
+      if (!readDone) {
+        line.append("once the read completes");
+      } else if (left <= 0) {
+        line.append("0 s");
+      } else if (groupsPerSecond <= 0) {
+        line.append("unknown");
+      } else {
+        line.append((long) Math.ceil(left / groupsPerSecond)).append(" s");
+      }
+    }
+    return line.toString();
+  }
+
+  private static String bytes(long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+    if (bytes < 1024 * 1024) {
+      return String.format("%.1f KiB", bytes / 1024.0);
+    }
+    return String.format("%.1f MiB", bytes / (1024.0 * 1024));
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
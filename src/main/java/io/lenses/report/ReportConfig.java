@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.report;
+
+import com.typesafe.config.Config;
+import java.util.Optional;
+
+/**
+ * How the progress, the restored offsets and the result of each group are reported, read from the
+ * progress.*, report.* and results.* options.
+ */
+public class ReportConfig {
+  public static final ReportConfig DEFAULT =
+      new ReportConfig(10_000, Optional.empty(), Optional.empty());
+
+  private final long progressIntervalMs;
+  private final Optional<String> reportFile;
+  private final Optional<String> resultsFile;
+
+  /**
+   * @param progressIntervalMs how often the progress is logged; 0 turns it off
+   * @param reportFile the file every restored partition offset is written to; none when empty
+   * @param resultsFile the file the result of every group is written to; none when empty
+   */
+  public ReportConfig(
+      long progressIntervalMs, Optional<String> reportFile, Optional<String> resultsFile) {
+    if (progressIntervalMs < 0)
+      throw new IllegalArgumentException("Progress interval cannot be negative");
+    if (reportFile == null) throw new IllegalArgumentException("Report file cannot be null");
+    if (resultsFile == null) throw new IllegalArgumentException("Results file cannot be null");
+    this.progressIntervalMs = progressIntervalMs;
+    this.reportFile = reportFile;
+    this.resultsFile = resultsFile;
+  }
+
+  public long getProgressIntervalMs() {
+    return progressIntervalMs;
+  }
+
+  public Optional<String> getReportFile() {
+    return reportFile;
+  }
+
+  public Optional<String> getResultsFile() {
+    return resultsFile;
+  }
+
+  public static ReportConfig from(Config config) {
+    final long progressIntervalMs =
+        config.hasPath("progress.interval.ms")
+            ? config.getLong("progress.interval.ms")
+            : DEFAULT.progressIntervalMs;
+    final Optional<String> reportFile =
+        config.hasPath("report.file")
+            ? Optional.of(config.getString("report.file"))
+            : DEFAULT.reportFile;
+    // an empty file name leaves the results off
+    final String resultsFile =
+        config.hasPath("results.file") ? config.getString("results.file").trim() : "";
+    return new ReportConfig(
+        progressIntervalMs,
+        reportFile,
+        resultsFile.isEmpty() ? Optional.empty() : Optional.of(resultsFile));
+  }
+}
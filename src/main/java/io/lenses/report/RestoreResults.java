@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.report;
+
+import io.lenses.kafka.GroupResult;
+import io.lenses.utils.Json;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes how the restore of each group ended to a JSON lines file, one object per group: group,
+ * status (restored, unchanged or failed), attempts, partitions and, for a failed group, the error
+ * and whether it was retriable.
+ *
+ * <p>There is one line per group rather than per partition, so the lines are written as the groups
+ * complete; the file is flushed when it is closed.
+ */
+public class RestoreResults implements Consumer<GroupResult>, AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(RestoreResults.class);
+  private final Path file;
+  private final BufferedWriter output;
+  private IOException failure;
+
+  public RestoreResults(Path file) throws IOException {
+    if (file == null) throw new IllegalArgumentException("File cannot be null");
+    this.file = file;
+    this.output = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    logger.info("Writing the result of each group to:" + file);
+  }
+
+  @Override
+  public synchronized void accept(GroupResult result) {
+    if (failure != null) {
+      return;
+    }
+    final StringBuilder line = new StringBuilder();
+    line.append("{\"group\":")
+        .append(Json.quote(result.getGroup()))
+        .append(",\"status\":")
+        .append(Json.quote(result.getStatus().name().toLowerCase(Locale.ROOT)))
+        .append(",\"attempts\":")
+        .append(result.getAttempts())
+        .append(",\"partitions\":")
+        .append(result.getPartitions());
+    if (result.getError().isPresent()) {
+      final Throwable error = result.getError().get();
+      line.append(",\"error\":")
+          .append(
+              Json.quote(
+                  error.getClass().getName()
+                      + (error.getMessage() == null ? "" : ": " + error.getMessage())))
+          .append(",\"retriable\":")
+          .append(result.isRetriable());
+    }
+    line.append("}\n");
+    try {
+      output.write(line.toString());
+    } catch (IOException e) {
+      // the restore goes on; the failure is reported when the file is closed
+      failure = e;
+    }
+  }
+
+  /** Flushes the results, and fails when the file could not be written. */
+  @Override
+  public synchronized void close() {
+    try {
+      output.close();
+    } catch (IOException e) {
+      if (failure == null) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw new UncheckedIOException("Failed to write the restore results:" + file, failure);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.metrics.RestoreMetrics;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket whose rate follows the S3 answers (AIMD): the rate is multiplied by the decrease
+ * factor when S3 throttles a request, and raised by the increase step for every request that
+ * succeeds, between the min and the max rates of the {@link RateLimitConfig}.
+ *
+ * <p>Without a max rate the requests go as they come, and the limiter only counts them, until S3
+ * throttles one. The rate then starts from the decreased rate of the requests sent over the last
+ * second, and has no ceiling when it grows back.
+ *
+ * <p>Every request takes a token before it is sent. When the bucket is empty the caller waits for
+ * its turn, so the requests are spread at the current rate rather than sent, throttled and retried
+ * in bursts. The throttled answers within {@link #DECREASE_INTERVAL_NANOS} of a decrease are
+ * counted as one: they answer requests sent at the rate that was already lowered.
+ */
+public class AdaptiveRateLimiter {
+  static final long DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long MEASURE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private final RateLimitConfig config;
+  private final LongSupplier clock;
+  private boolean limiting;
+  private double rate;
+  private double tokens;
+  private long refilledNanos;
+  private long decreasedNanos;
+  // the requests sent before the first throttling, to start the rate from
+  private long measuredNanos;
+  private long measuredRequests;
+  private double measuredRate;
+
+  public AdaptiveRateLimiter(RateLimitConfig config) {
+    this(config, System::nanoTime);
+  }
+
+  AdaptiveRateLimiter(RateLimitConfig config, LongSupplier clock) {
+    if (config == null) throw new IllegalArgumentException("Config cannot be null");
+    this.config = config;
+    this.clock = clock;
+    this.limiting = config.hasMaxRate();
+    this.rate = config.getMaxRate();
+    this.tokens = burst();
+    this.refilledNanos = clock.getAsLong();
+    this.decreasedNanos = refilledNanos - DECREASE_INTERVAL_NANOS;
+    this.measuredNanos = refilledNanos;
+    RestoreMetrics.s3RequestRate.set(rate);
+  }
+
+  /** Waits until a request can be sent at the current rate. */
+  public void acquire() {
+    final long waitNanos = reserve();
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting to send an S3 request", e);
+      }
+    }
+  }
+
+  /**
+   * Takes a token, going into debt when there is none left so the callers queue up in order.
+   *
+   * @return how long the caller waits before the token is there
+   */
+  synchronized long reserve() {
+    if (!limiting) {
+      measure();
+      return 0;
+    }
+    refill();
+    tokens -= 1;
+    return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /** S3 throttled a request: the rate is decreased. */
+  public synchronized void throttled() {
+    if (!limiting) {
+      limiting = true;
+      refilledNanos = clock.getAsLong();
+      rate =
+          Math.max(config.getMinRate(), measuredRate(refilledNanos) * config.getDecreaseFactor());
+      tokens = 0;
+      decreasedNanos = refilledNanos;
+      RestoreMetrics.s3RequestRate.set(rate);
+      return;
+    }
+    refill();
+    if (refilledNanos - decreasedNanos < DECREASE_INTERVAL_NANOS) {
+      return;
+    }
+    decreasedNanos = refilledNanos;
+    rate = Math.max(config.getMinRate(), rate * config.getDecreaseFactor());
+    tokens = Math.min(tokens, burst());
+    RestoreMetrics.s3RequestRate.set(rate);
+  }
+
+  /** A request succeeded: the rate is increased. */
+  public synchronized void succeeded() {
+    if (limiting && (!config.hasMaxRate() || rate < config.getMaxRate())) {
+      refill();
+      rate =
+          config.hasMaxRate()
+              ? Math.min(config.getMaxRate(), rate + config.getIncreaseStep())
+              : rate + config.getIncreaseStep();
+      RestoreMetrics.s3RequestRate.set(rate);
+    }
+  }
+
+  /** @return the requests per second currently allowed; 0 before the first throttling */
+  public synchronized double getRate() {
+    return rate;
+  }
+
+  /** Counts a request sent, and keeps the rate of the last full second. */
+  private void measure() {
+    final long now = clock.getAsLong();
+    measuredRequests++;
+    if (now - measuredNanos >= MEASURE_INTERVAL_NANOS) {
+      measuredRate =
+          measuredRequests * (double) TimeUnit.SECONDS.toNanos(1) / (now - measuredNanos);
+      measuredNanos = now;
+      measuredRequests = 0;
+    }
+  }
+
+  /** @return the rate of the last full second, or of the requests so far within the first one */
+  private double measuredRate(long now) {
+    if (measuredRate > 0) {
+      return measuredRate;
+    }
+    return measuredRequests
+        * (double) TimeUnit.SECONDS.toNanos(1)
+        / Math.max(now - measuredNanos, DECREASE_INTERVAL_NANOS);
+  }
+
+  private void refill() {
+    final long now = clock.getAsLong();
+    tokens = Math.min(burst(), tokens + (now - refilledNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+    refilledNanos = now;
+  }
+
+  // a tenth of a second worth of requests can be sent at once
+  private double burst() {
+    return Math.max(1, rate / 10);
+  }
+}
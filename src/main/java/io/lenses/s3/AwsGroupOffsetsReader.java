@@ -11,8 +11,12 @@
 package io.lenses.s3;
 
 import io.lenses.kafka.GroupOffsets;
+import io.lenses.store.Selection;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The S3 sink stores consumer groups offsets using this key:
@@ -21,5 +25,39 @@ import java.util.Optional;
  * <p>This interface is used to read the group offsets from S3.
  */
 public interface AwsGroupOffsetsReader {
-  List<GroupOffsets> read(S3Location source, Optional<String[]> groups);
+  /**
+   * Reads the offsets of all the groups and returns them sorted by group.
+   *
+   * @param source the bucket and prefix to read
+   * @param groups the groups to read, all when empty
+   * @return the group offsets sorted by group
+   */
+  default List<GroupOffsets> read(S3Location source, Optional<String[]> groups) {
+    final List<GroupOffsets> offsets = new ArrayList<>();
+    read(source, groups, offsets::add);
+    offsets.sort(Comparator.comparing(GroupOffsets::getGroup));
+    return offsets;
+  }
+
+  /**
+   * Reads the offsets and hands every group to the consumer as soon as all its objects have been
+   * read, while the later groups are still being read. The consumer is never called concurrently.
+   *
+   * @param source the bucket and prefix to read
+   * @param groups the groups to read, all when empty
+   * @param consumer receives each group once complete
+   */
+  default void read(S3Location source, Optional<String[]> groups, Consumer<GroupOffsets> consumer) {
+    read(source, Selection.of(groups), consumer);
+  }
+
+  /**
+   * Reads the offsets of the selected groups and topics, handing every group to the consumer as
+   * soon as all its objects have been read. The consumer is never called concurrently.
+   *
+   * @param source the bucket and prefix to read
+   * @param selection the groups and topics to read
+   * @param consumer receives each group once complete
+   */
+  void read(S3Location source, Selection selection, Consumer<GroupOffsets> consumer);
 }
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import com.typesafe.config.Config;
+
+/**
+ * When a slow S3 GET is sent again, read from the aws.hedge.* options; see {@link RequestHedger}.
+ */
+public class HedgeConfig {
+  public static final HedgeConfig DEFAULT = new HedgeConfig(false, 0.95, 20, 0.05);
+
+  private final boolean enabled;
+  private final double percentile;
+  private final long minDelayMs;
+  private final double maxRatio;
+
+  /**
+   * @param enabled whether the slow GETs are hedged
+   * @param percentile the percentile of the recent GET latencies a GET is hedged after
+   * @param minDelayMs the shortest wait before a hedge, whatever the latencies
+   * @param maxRatio the most hedges per GET, e.g. 0.05 for at most 5% more requests
+   */
+  public HedgeConfig(boolean enabled, double percentile, long minDelayMs, double maxRatio) {
+    if (percentile <= 0 || percentile >= 1)
+      throw new IllegalArgumentException("Hedge percentile must be between 0 and 1");
+    if (minDelayMs < 0) throw new IllegalArgumentException("Hedge min delay cannot be negative");
+    if (maxRatio <= 0 || maxRatio > 1)
+      throw new IllegalArgumentException("Hedge max ratio must be above 0 and at most 1");
+    this.enabled = enabled;
+    this.percentile = percentile;
+    this.minDelayMs = minDelayMs;
+    this.maxRatio = maxRatio;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+
+  public long getMinDelayMs() {
+    return minDelayMs;
+  }
+
+  public double getMaxRatio() {
+    return maxRatio;
+  }
+
+  public static HedgeConfig from(Config config) {
+    final boolean enabled =
+        config.hasPath("aws.hedge.enabled") ? config.getBoolean("aws.hedge.enabled") : false;
+    final double percentile =
+        config.hasPath("aws.hedge.percentile")
+            ? config.getDouble("aws.hedge.percentile")
+            : DEFAULT.percentile;
+    final long minDelayMs =
+        config.hasPath("aws.hedge.min.delay.ms")
+            ? config.getLong("aws.hedge.min.delay.ms")
+            : DEFAULT.minDelayMs;
+    final double maxRatio =
+        config.hasPath("aws.hedge.max.ratio")
+            ? config.getDouble("aws.hedge.max.ratio")
+            : DEFAULT.maxRatio;
+    return new HedgeConfig(enabled, percentile, minDelayMs, maxRatio);
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import com.typesafe.config.Config;
+
+/**
+ * The HTTP client S3 is read through and its connection pool, read from the aws.http.* options. The
+ * blocking reader runs on the Apache client, or on the JDK url-connection client, and the async
+ * reader on the Netty client; they take the same settings, but for the pool settings the
+ * url-connection client has no use for.
+ */
+public class HttpClientConfig {
+  private final HttpClientType type;
+  private final int maxConnections;
+  private final long connectionAcquisitionTimeoutMs;
+  private final long connectionTimeoutMs;
+  private final long socketTimeoutMs;
+  private final boolean tcpKeepAlive;
+  private final long connectionMaxIdleMs;
+  private final boolean idleConnectionReaper;
+
+  /**
+   * @param type the client of the blocking reader; the async reader always runs on Netty
+   * @param maxConnections the most connections open to S3, which caps the requests in flight
+   * @param connectionAcquisitionTimeoutMs how long a request waits for a connection of the pool
+   * @param connectionTimeoutMs how long opening a connection may take
+   * @param socketTimeoutMs how long a connection may wait for data; the read timeout with Netty
+   * @param tcpKeepAlive whether the connections send TCP keepalive probes
+   * @param connectionMaxIdleMs how long a connection may stay idle in the pool
+   * @param idleConnectionReaper whether the connections idle for longer are closed in the
+   *     background
+   */
+  public HttpClientConfig(
+      HttpClientType type,
+      int maxConnections,
+      long connectionAcquisitionTimeoutMs,
+      long connectionTimeoutMs,
+      long socketTimeoutMs,
+      boolean tcpKeepAlive,
+      long connectionMaxIdleMs,
+      boolean idleConnectionReaper) {
+    if (type == null) throw new IllegalArgumentException("HTTP client type cannot be null");
+    if (maxConnections < 1)
+      throw new IllegalArgumentException("Max connections must be at least 1");
+    if (connectionAcquisitionTimeoutMs < 1)
+      throw new IllegalArgumentException("Connection acquisition timeout must be positive");
+    if (connectionTimeoutMs < 1)
+      throw new IllegalArgumentException("Connection timeout must be positive");
+    if (socketTimeoutMs < 1) throw new IllegalArgumentException("Socket timeout must be positive");
+    if (connectionMaxIdleMs < 1)
+      throw new IllegalArgumentException("Connection max idle time must be positive");
+    this.type = type;
+    this.maxConnections = maxConnections;
+    this.connectionAcquisitionTimeoutMs = connectionAcquisitionTimeoutMs;
+    this.connectionTimeoutMs = connectionTimeoutMs;
+    this.socketTimeoutMs = socketTimeoutMs;
+    this.tcpKeepAlive = tcpKeepAlive;
+    this.connectionMaxIdleMs = connectionMaxIdleMs;
+    this.idleConnectionReaper = idleConnectionReaper;
+  }
+
+  /** The SDK defaults, but for the keepalive, with the given pool size. */
+  public static HttpClientConfig defaults(int maxConnections) {
+    return new HttpClientConfig(
+        HttpClientType.APACHE, maxConnections, 10_000L, 2_000L, 30_000L, true, 60_000L, true);
+  }
+
+  public HttpClientType getType() {
+    return type;
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public long getConnectionAcquisitionTimeoutMs() {
+    return connectionAcquisitionTimeoutMs;
+  }
+
+  public long getConnectionTimeoutMs() {
+    return connectionTimeoutMs;
+  }
+
+  public long getSocketTimeoutMs() {
+    return socketTimeoutMs;
+  }
+
+  public boolean isTcpKeepAlive() {
+    return tcpKeepAlive;
+  }
+
+  public long getConnectionMaxIdleMs() {
+    return connectionMaxIdleMs;
+  }
+
+  public boolean isIdleConnectionReaper() {
+    return idleConnectionReaper;
+  }
+
+  /**
+   * @param defaultMaxConnections the pool size when aws.http.max.connections is not set, large
+   *     enough for the requests the reader keeps in flight
+   */
+  public static HttpClientConfig from(Config config, int defaultMaxConnections) {
+    final HttpClientConfig defaults = defaults(defaultMaxConnections);
+    final HttpClientType type =
+        config.hasPath("aws.http.client")
+            ? HttpClientType.from(config.getString("aws.http.client"))
+            : defaults.type;
+    final int maxConnections =
+        config.hasPath("aws.http.max.connections")
+            ? config.getInt("aws.http.max.connections")
+            : defaults.maxConnections;
+    final long connectionAcquisitionTimeoutMs =
+        config.hasPath("aws.http.connection.acquisition.timeout.ms")
+            ? config.getLong("aws.http.connection.acquisition.timeout.ms")
+            : defaults.connectionAcquisitionTimeoutMs;
+    final long connectionTimeoutMs =
+        config.hasPath("aws.http.connection.timeout.ms")
+            ? config.getLong("aws.http.connection.timeout.ms")
+            : defaults.connectionTimeoutMs;
+    final long socketTimeoutMs =
+        config.hasPath("aws.http.socket.timeout.ms")
+            ? config.getLong("aws.http.socket.timeout.ms")
+            : defaults.socketTimeoutMs;
+    final boolean tcpKeepAlive =
+        config.hasPath("aws.http.tcp.keepalive")
+            ? config.getBoolean("aws.http.tcp.keepalive")
+            : defaults.tcpKeepAlive;
+    final long connectionMaxIdleMs =
+        config.hasPath("aws.http.connection.max.idle.ms")
+            ? config.getLong("aws.http.connection.max.idle.ms")
+            : defaults.connectionMaxIdleMs;
+    final boolean idleConnectionReaper =
+        config.hasPath("aws.http.idle.connection.reaper")
+            ? config.getBoolean("aws.http.idle.connection.reaper")
+            : defaults.idleConnectionReaper;
+    return new HttpClientConfig(
+        type,
+        maxConnections,
+        connectionAcquisitionTimeoutMs,
+        connectionTimeoutMs,
+        socketTimeoutMs,
+        tcpKeepAlive,
+        connectionMaxIdleMs,
+        idleConnectionReaper);
+  }
+}
@@ -0,0 +1,28 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+/** Selects the HTTP client the blocking S3Client runs on, with the aws.http.client option. */
+public enum HttpClientType {
+  /** The Apache client, with its own connection pool. */
+  APACHE,
+  /**
+   * The JDK HttpURLConnection client: fewer dependencies and a faster start, but only the
+   * connection and socket timeouts apply, and the JDK keep-alive cache (-Dhttp.maxConnections, 5
+   * per host by default) replaces the pool.
+   */
+  URL_CONNECTION;
+
+  /** @return the type named by the option, e.g. apache or url-connection */
+  public static HttpClientType from(String name) {
+    return valueOf(name.trim().replace('-', '_').toUpperCase());
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * Decodes the 8 bytes offset of a GET straight from the response stream, where {@link
+ * ResponseTransformer#toBytes()} copies the body into a new array wrapped in a {@code
+ * ResponseBytes}. The offset is returned in a per-thread {@link Offset} rather than a boxed {@code
+ * Long}, so a GET allocates nothing for it; the sync client runs the transformer on the thread
+ * sending the GET, which reads the value before its next GET.
+ *
+ * <p>An object of any other length than an offset fails with an {@link InvalidOffsetException}, and
+ * a body ending early with an {@link EOFException}; the SDK does not retry either.
+ *
+ * <p>Stateless apart from the per-thread holder, so a single instance serves all the GETs. The
+ * non-blocking client takes a new transformer per GET from {@link #async()}, which decodes the
+ * offset the same way as the body arrives.
+ */
+final class OffsetResponseTransformer
+    implements ResponseTransformer<GetObjectResponse, OffsetResponseTransformer.Offset> {
+  static final OffsetResponseTransformer INSTANCE = new OffsetResponseTransformer();
+  private static final ThreadLocal<Offset> offsets = ThreadLocal.withInitial(Offset::new);
+
+  private OffsetResponseTransformer() {}
+
+  @Override
+  public Offset transform(GetObjectResponse response, AbortableInputStream inputStream)
+      throws Exception {
+    final Long length = response.contentLength();
+    if (length != null && length != Long.BYTES) {
+      throw new InvalidOffsetException(length);
+    }
+    final Offset offset = offsets.get();
+    offset.value = read(inputStream, offset.bytes, length == null);
+    return offset;
+  }
+
+  /**
+   * Reads 8 bytes of the stream as a big-endian long.
+   *
+   * @param bytes where the bytes are read to
+   * @param toEnd whether the stream must end after them, when its length was not known
+   */
+  static long read(InputStream inputStream, byte[] bytes, boolean toEnd) throws IOException {
+    int read = 0;
+    while (read < Long.BYTES) {
+      final int count = inputStream.read(bytes, read, Long.BYTES - read);
+      if (count < 0) {
+        throw new EOFException("The offset object is shorter than 8 bytes: " + read + " byte(s)");
+      }
+      read += count;
+    }
+    if (toEnd && inputStream.read() >= 0) {
+      throw new InvalidOffsetException("The offset object is longer than 8 bytes");
+    }
+    return decode(bytes);
+  }
+
+  /** @return a transformer for one GET of the non-blocking client */
+  static AsyncResponseTransformer<GetObjectResponse, Long> async() {
+    return new AsyncOffsetTransformer();
+  }
+
+  private static long decode(byte[] bytes) {
+    long value = 0;
+    for (int index = 0; index < Long.BYTES; index++) {
+      value = (value << 8) | (bytes[index] & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Decodes the offset of one non-blocking GET as its body arrives, into 8 bytes of its own rather
+   * than the copy of the whole body {@link AsyncResponseTransformer#toBytes()} makes. The SDK calls
+   * {@link #prepare()} again when it retries the GET.
+   */
+  private static final class AsyncOffsetTransformer
+      implements AsyncResponseTransformer<GetObjectResponse, Long> {
+    private final byte[] bytes = new byte[Long.BYTES];
+    private volatile CompletableFuture<Long> future;
+    private volatile Long length;
+
+    @Override
+    public CompletableFuture<Long> prepare() {
+      future = new CompletableFuture<>();
+      return future;
+    }
+
+    @Override
+    public void onResponse(GetObjectResponse response) {
+      length = response.contentLength();
+    }
+
+    @Override
+    public void onStream(SdkPublisher<ByteBuffer> publisher) {
+      publisher.subscribe(new BodySubscriber(future, length));
+    }
+
+    @Override
+    public void exceptionOccurred(Throwable error) {
+      future.completeExceptionally(error);
+    }
+
+    /** Reads the body; the publisher signals it one call at a time. */
+    private final class BodySubscriber implements Subscriber<ByteBuffer> {
+      private final CompletableFuture<Long> result;
+      private final Long expected;
+      private Subscription subscription;
+      private int read;
+
+      private BodySubscriber(CompletableFuture<Long> result, Long expected) {
+        this.result = result;
+        this.expected = expected;
+      }
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        if (expected != null && expected != Long.BYTES) {
+          fail(new InvalidOffsetException(expected));
+          return;
+        }
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(ByteBuffer buffer) {
+        if (result.isDone()) {
+          return;
+        }
+        if (buffer.remaining() > Long.BYTES - read) {
+          fail(new InvalidOffsetException("The offset object is longer than 8 bytes"));
+          return;
+        }
+        final int count = buffer.remaining();
+        buffer.get(bytes, read, count);
+        read += count;
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        result.completeExceptionally(error);
+      }
+
+      @Override
+      public void onComplete() {
+        if (read < Long.BYTES) {
+          result.completeExceptionally(
+              new EOFException("The offset object is shorter than 8 bytes: " + read + " byte(s)"));
+        } else {
+          result.complete(decode(bytes));
+        }
+      }
+
+      private void fail(IOException error) {
+        subscription.cancel();
+        result.completeExceptionally(error);
+      }
+    }
+  }
+
+  /** The offset of the last GET of a thread. */
+  static final class Offset {
+    private final byte[] bytes = new byte[Long.BYTES];
+    private long value;
+
+    long getValue() {
+      return value;
+    }
+  }
+
+  /** The object is not the 8 bytes of an offset. */
+  static final class InvalidOffsetException extends IOException {
+    InvalidOffsetException(long length) {
+      this("The offset object is " + length + " byte(s) long, not 8");
+    }
+
+    InvalidOffsetException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import com.typesafe.config.Config;
+
+/**
+ * How the S3 request rate adapts to throttling, read from the aws.rate.* options. With a max, the
+ * rate starts there and moves between the min and the max; without one, the requests are not held
+ * back until S3 throttles one. See {@link AdaptiveRateLimiter}.
+ */
+public class RateLimitConfig {
+  public static final RateLimitConfig DEFAULT = new RateLimitConfig(0, 10, 1, 0.5);
+
+  private final double maxRate;
+  private final double minRate;
+  private final double increaseStep;
+  private final double decreaseFactor;
+
+  /**
+   * @param maxRate the most requests per second; 0 for no ceiling, the rate is then only limited
+   *     once S3 throttles a request
+   * @param minRate the fewest requests per second the throttling can bring the rate down to
+   * @param increaseStep how many requests per second are added for every request that succeeds
+   * @param decreaseFactor what the rate is multiplied by when S3 throttles a request
+   */
+  public RateLimitConfig(
+      double maxRate, double minRate, double increaseStep, double decreaseFactor) {
+    if (maxRate < 0) throw new IllegalArgumentException("Max rate cannot be negative");
+    if (minRate <= 0) throw new IllegalArgumentException("Min rate must be positive");
+    if (maxRate > 0 && minRate > maxRate)
+      throw new IllegalArgumentException("Min rate cannot be more than the max rate");
+    if (increaseStep < 0) throw new IllegalArgumentException("Increase step cannot be negative");
+    if (decreaseFactor <= 0 || decreaseFactor >= 1)
+      throw new IllegalArgumentException("Decrease factor must be between 0 and 1");
+    this.maxRate = maxRate;
+    this.minRate = minRate;
+    this.increaseStep = increaseStep;
+    this.decreaseFactor = decreaseFactor;
+  }
+
+  /** @return whether the rate is capped from the first request */
+  public boolean hasMaxRate() {
+    return maxRate > 0;
+  }
+
+  public double getMaxRate() {
+    return maxRate;
+  }
+
+  public double getMinRate() {
+    return minRate;
+  }
+
+  public double getIncreaseStep() {
+    return increaseStep;
+  }
+
+  public double getDecreaseFactor() {
+    return decreaseFactor;
+  }
+
+  public static RateLimitConfig from(Config config) {
+    final double maxRate =
+        config.hasPath("aws.rate.max") ? config.getDouble("aws.rate.max") : DEFAULT.maxRate;
+    final double minRate =
+        config.hasPath("aws.rate.min")
+            ? config.getDouble("aws.rate.min")
+            : maxRate > 0 ? Math.min(DEFAULT.minRate, maxRate) : DEFAULT.minRate;
+    final double increaseStep =
+        config.hasPath("aws.rate.increase")
+            ? config.getDouble("aws.rate.increase")
+            : DEFAULT.increaseStep;
+    final double decreaseFactor =
+        config.hasPath("aws.rate.decrease")
+            ? config.getDouble("aws.rate.decrease")
+            : DEFAULT.decreaseFactor;
+    return new RateLimitConfig(maxRate, minRate, increaseStep, decreaseFactor);
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.metrics.RestoreMetrics;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Holds every S3 request back until the {@link AdaptiveRateLimiter} lets it go, and feeds the
+ * limiter with the status of every attempt: 503 SlowDown and 429 lower the rate, a success raises
+ * it.
+ *
+ * <p>The token is taken once per request, on the thread sending it; the retries are already spaced
+ * by the jittered backoff of the retry policy.
+ */
+class RateLimitingInterceptor implements ExecutionInterceptor {
+  private final AdaptiveRateLimiter limiter;
+
+  RateLimitingInterceptor(AdaptiveRateLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  @Override
+  public void beforeExecution(
+      Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+    limiter.acquire();
+  }
+
+  @Override
+  public void afterTransmission(
+      Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+    final int status = context.httpResponse().statusCode();
+    if (status == 503 || status == 429) {
+      RestoreMetrics.s3Throttled.inc();
+      limiter.throttled();
+    } else if (context.httpResponse().isSuccessful()) {
+      limiter.succeeded();
+    }
+  }
+}
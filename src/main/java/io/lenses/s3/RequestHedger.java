@@ -0,0 +1,269 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.utils.Utils;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a request a second time when it has not answered after a percentile of the recent
+ * latencies, and takes whichever answer comes first. A few GETs out of many thousands take seconds
+ * and set the end of the read; the copy of such a GET is usually served by another S3 host in the
+ * usual time.
+ *
+ * <p>The delay follows the latencies of the last {@link #WINDOW} requests, and nothing is hedged
+ * before {@link #MIN_SAMPLES} of them have answered. The hedges are capped by a budget: every
+ * request adds the max ratio of the {@link HedgeConfig} to it, up to {@link #MAX_BUDGET}, and every
+ * hedge takes 1, so the extra requests stay within that share even when S3 is slow across the
+ * board.
+ *
+ * <p>Once a request may be hedged, both attempts run on a pool of their own, bounded to the
+ * concurrency of the reader plus the {@link #MAX_BUDGET} hedges, and the caller takes the first
+ * answer as soon as it comes: an attempt blocked reading its socket does not hold the caller back.
+ * The copy is started by a timer once the delay has passed; a request or a hedge finding the pool
+ * busy runs on the caller's thread, or is not sent. The slower attempt is then interrupted, which
+ * the SDK turns into an abort while the request waits for a connection, the rate limit or a retry
+ * backoff; an attempt blocked reading its socket is left to finish, which keeps its connection for
+ * the next request, and its answer is dropped.
+ */
+public class RequestHedger implements AutoCloseable {
+  static final int WINDOW = 1024;
+  static final int MIN_SAMPLES = 100;
+  static final double MAX_BUDGET = 10;
+  // the percentile is computed again after this many new latencies
+  private static final int REFRESH_INTERVAL = 32;
+  private final HedgeConfig config;
+  private final ScheduledThreadPoolExecutor timer;
+  private final ThreadPoolExecutor attempts;
+  private final long[] latencies = new long[WINDOW];
+  private long samples;
+  private volatile long delayNanos = Long.MAX_VALUE;
+  private double budget;
+
+  /**
+   * @param config when a request is hedged
+   * @param concurrency how many requests the caller keeps in flight
+   */
+  public RequestHedger(HedgeConfig config, int concurrency) {
+    if (config == null) throw new IllegalArgumentException("Config cannot be null");
+    if (concurrency < 1) throw new IllegalArgumentException("Concurrency must be at least 1");
+    this.config = config;
+    this.timer = new ScheduledThreadPoolExecutor(1, Utils.daemonThreadFactory("s3-hedge-timer"));
+    this.timer.setRemoveOnCancelPolicy(true);
+    this.attempts =
+        new ThreadPoolExecutor(
+            0,
+            concurrency + (int) MAX_BUDGET,
+            60,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            Utils.daemonThreadFactory("s3-hedge"));
+  }
+
+  /**
+   * Runs the request, and runs it again if it is slow.
+   *
+   * @return the first answer; the request fails when both attempts fail
+   */
+  public <T> T call(Callable<T> request) {
+    deposit();
+    final long delay = delayNanos;
+    final Hedge<T> hedge = new Hedge<>(request);
+    if (delay == Long.MAX_VALUE || !affordable() || !hedge.start()) {
+      try {
+        return timed(request);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+    final ScheduledFuture<?> scheduled = timer.schedule(hedge::send, delay, TimeUnit.NANOSECONDS);
+    try {
+      return hedge.await();
+    } finally {
+      scheduled.cancel(false);
+    }
+  }
+
+  /** @return how long a request may take before it is hedged; Long.MAX_VALUE for never */
+  long getDelayNanos() {
+    return delayNanos;
+  }
+
+  @Override
+  public void close() {
+    timer.shutdownNow();
+    attempts.shutdownNow();
+  }
+
+  private <T> T timed(Callable<T> request) throws Exception {
+    final long start = System.nanoTime();
+    final T value = request.call();
+    record(System.nanoTime() - start);
+    return value;
+  }
+
+  /**
+   * The two attempts of one request, which meet under its lock. The first answer ends the request;
+   * an attempt failing waits for the other one, if it was sent.
+   */
+  private class Hedge<T> {
+    private final Callable<T> request;
+    private Future<?> first;
+    private Future<?> second;
+    // the attempts sent that have not failed yet
+    private int running;
+    private boolean done;
+    private boolean won;
+    private T value;
+    private Throwable error;
+
+    private Hedge(Callable<T> request) {
+      this.request = request;
+    }
+
+    /** @return whether the pool took the first attempt */
+    private synchronized boolean start() {
+      try {
+        first = attempts.submit(() -> run(false));
+      } catch (RejectedExecutionException e) {
+        return false;
+      }
+      running = 1;
+      return true;
+    }
+
+    /** Sends the copy, on the timer thread, when the budget and the pool allow it. */
+    private void send() {
+      synchronized (this) {
+        if (done || !withdraw()) {
+          return;
+        }
+        try {
+          second = attempts.submit(() -> run(true));
+        } catch (RejectedExecutionException e) {
+          refund();
+          return;
+        }
+        running++;
+      }
+      RestoreMetrics.s3Hedges.inc();
+    }
+
+    private void run(boolean copy) {
+      try {
+        final T answer = timed(request);
+        synchronized (this) {
+          if (!done) {
+            done = true;
+            won = copy;
+            value = answer;
+            notifyAll();
+          }
+        }
+      } catch (Throwable t) {
+        synchronized (this) {
+          // the first attempt's error is the one reported
+          if (!copy || error == null) {
+            error = t;
+          }
+          running--;
+          if (running == 0 && !done) {
+            done = true;
+            notifyAll();
+          }
+        }
+      }
+    }
+
+    /** Waits for the first answer, or for both attempts to fail, and stops the other attempt. */
+    private T await() {
+      synchronized (this) {
+        try {
+          while (!done) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          done = true;
+          cancel(first);
+          cancel(second);
+          // the interrupt is the caller's: it is kept for the code up the stack
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while waiting for an S3 request", e);
+        }
+        if (running == 0) {
+          throw rethrow(error);
+        }
+        cancel(won ? first : second);
+      }
+      if (won) {
+        RestoreMetrics.s3HedgeWins.inc();
+      }
+      return value;
+    }
+  }
+
+  private static void cancel(Future<?> attempt) {
+    if (attempt != null) {
+      attempt.cancel(true);
+    }
+  }
+
+  private synchronized void record(long nanos) {
+    latencies[(int) (samples % WINDOW)] = nanos;
+    samples++;
+    if (samples >= MIN_SAMPLES && (samples - MIN_SAMPLES) % REFRESH_INTERVAL == 0) {
+      final long[] sorted = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW));
+      Arrays.sort(sorted);
+      final int index = (int) Math.ceil(config.getPercentile() * sorted.length) - 1;
+      delayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(config.getMinDelayMs()), sorted[index]);
+      RestoreMetrics.s3HedgeDelay.set(delayNanos / 1e9);
+    }
+  }
+
+  private synchronized void deposit() {
+    budget = Math.min(MAX_BUDGET, budget + config.getMaxRatio());
+  }
+
+  private synchronized boolean affordable() {
+    return budget >= 1;
+  }
+
+  private synchronized boolean withdraw() {
+    if (budget < 1) {
+      return false;
+    }
+    budget -= 1;
+    return true;
+  }
+
+  private synchronized void refund() {
+    budget = Math.min(MAX_BUDGET, budget + 1);
+  }
+
+  private static RuntimeException rethrow(Throwable error) {
+    if (error instanceof RuntimeException) {
+      return (RuntimeException) error;
+    }
+    if (error instanceof Error) {
+      throw (Error) error;
+    }
+    return new RuntimeException(error.getMessage(), error);
+  }
+}
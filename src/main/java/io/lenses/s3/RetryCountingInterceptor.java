@@ -0,0 +1,36 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.metrics.RestoreMetrics;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Counts the S3 retries: the SDK transmits a request once per attempt within the same execution, so
+ * every transmission after the first one is a retry.
+ */
+class RetryCountingInterceptor implements ExecutionInterceptor {
+  private static final ExecutionAttribute<Boolean> TRANSMITTED =
+      new ExecutionAttribute<>("io.lenses.s3.Transmitted");
+
+  @Override
+  public void beforeTransmission(
+      Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+    if (executionAttributes.getAttribute(TRANSMITTED) != null) {
+      RestoreMetrics.s3Retries.inc();
+    } else {
+      executionAttributes.putAttribute(TRANSMITTED, Boolean.TRUE);
+    }
+  }
+}
@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.store.GroupOffsetsAggregator;
+import io.lenses.store.ListingPlan;
+import io.lenses.store.OffsetKeys;
+import io.lenses.store.OffsetsCache;
+import io.lenses.store.Selection;
+import io.lenses.store.SpillConfig;
+import io.lenses.utils.Tuple2;
+import io.lenses.utils.Utils;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Implementation of {@link AwsGroupOffsetsReader} built on the non-blocking {@link S3AsyncClient}.
+ *
+ * <p>The listing drives the GETs: the prefixes of the {@link ListingPlan} are listed concurrently,
+ * and as soon as a ListObjectsV2 page arrives the next page of that prefix is requested, and a
+ * non-blocking GET is issued for every key of the current page. A semaphore caps the GETs in
+ * flight; the listing thread only waits when the cap is reached. No thread is held while a request
+ * is on the wire, so the in-flight count is bound by the cap and the HTTP client connection pool
+ * rather than by a worker pool.
+ *
+ * <p>The offsets are decoded as the bodies arrive, by {@link OffsetResponseTransformer#async()},
+ * and handed to a thread of the read's own, so the consumer never runs on the SDK's threads. A GET
+ * holds its permit until its offset has been handed over, which keeps the offsets waiting for that
+ * thread under the cap too. Each group is handed over as soon as the listing has moved past it and
+ * all its objects have been read; see {@link GroupOffsetsAggregator}.
+ *
+ * <p>With an {@link OffsetsCache}, the objects whose listing ETag and LastModified match the cache
+ * are not downloaded. The offsets held above the {@link SpillConfig} budget are spilled to disk.
+ */
+public class S3AsyncAwsGroupOffsetsReader implements AwsGroupOffsetsReader {
+  private static final Logger logger = LoggerFactory.getLogger(S3AsyncAwsGroupOffsetsReader.class);
+  private final S3AsyncClient s3Client;
+  private final int maxInFlight;
+  private final Optional<OffsetsCache> cache;
+  private final SpillConfig spill;
+
+  public S3AsyncAwsGroupOffsetsReader(S3AsyncClient s3Client, int maxInFlight) {
+    this(s3Client, maxInFlight, Optional.empty());
+  }
+
+  public S3AsyncAwsGroupOffsetsReader(
+      S3AsyncClient s3Client, int maxInFlight, Optional<OffsetsCache> cache) {
+    this(s3Client, maxInFlight, cache, SpillConfig.DISABLED);
+  }
+
+  /** @param spill how many offsets may be held before they are spilled to disk */
+  public S3AsyncAwsGroupOffsetsReader(
+      S3AsyncClient s3Client, int maxInFlight, Optional<OffsetsCache> cache, SpillConfig spill) {
+    if (s3Client == null) throw new IllegalArgumentException("S3 client cannot be null");
+    if (maxInFlight < 1) throw new IllegalArgumentException("Max in flight must be at least 1");
+    if (cache == null) throw new IllegalArgumentException("Cache cannot be null");
+    if (spill == null) throw new IllegalArgumentException("Spill config cannot be null");
+    this.s3Client = s3Client;
+    this.maxInFlight = maxInFlight;
+    this.cache = cache;
+    this.spill = spill;
+  }
+
+  @Override
+  public void read(S3Location source, Selection selection, Consumer<GroupOffsets> consumer) {
+    logger.info(
+        "Reading Consumer Group offsets asynchronously from bucket:"
+            + source.getBucket()
+            + " prefix:"
+            + source.getPrefix().orElse("")
+            + " with at most "
+            + maxInFlight
+            + " requests in flight");
+    final ListingPlan plan = ListingPlan.of(source.getPrefix(), selection);
+    final OffsetKeys keys = new OffsetKeys();
+    final AtomicInteger groupsCount = new AtomicInteger();
+    final GroupOffsetsAggregator aggregator =
+        new GroupOffsetsAggregator(
+            offsets -> {
+              groupsCount.incrementAndGet();
+              consumer.accept(offsets);
+            },
+            spill);
+    final Semaphore inFlight = new Semaphore(maxInFlight);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    // the offsets are handed to the aggregator, and the groups to the consumer, off the SDK threads
+    final ExecutorService handOver =
+        Executors.newSingleThreadExecutor(Utils.daemonThreadFactory("s3-async-read"));
+    // only the listing thread sends the GETs
+    final GetObjectRequest.Builder getRequest =
+        GetObjectRequest.builder().bucket(source.getBucket());
+    // the listings of all the prefixes run concurrently and hand their pages over to this thread
+    final BlockingQueue<Page> pages = new LinkedBlockingQueue<>();
+    try {
+      for (String prefix : plan.getPrefixes()) {
+        final ListObjectsV2Request.Builder requestBuilder =
+            ListObjectsV2Request.builder().bucket(source.getBucket());
+        if (!prefix.isEmpty()) {
+          requestBuilder.prefix(prefix);
+        }
+        requestPage(requestBuilder.build(), pages);
+      }
+      int activeListings = plan.getPrefixes().size();
+      while (activeListings > 0) {
+        final Page page = pages.take();
+        RestoreMetrics.storeListPages.inc();
+        RestoreMetrics.storeListPageSeconds.observeSince(page.startNanos);
+        if (page.error != null) {
+          throw new RuntimeException("Failed to list the offsets from S3", unwrap(page.error));
+        }
+        // fetch the following page while the GETs for this one are running
+        final boolean lastPage = !Boolean.TRUE.equals(page.response.isTruncated());
+        if (!lastPage) {
+          requestPage(
+              page.request
+                  .toBuilder()
+                  .continuationToken(page.response.nextContinuationToken())
+                  .build(),
+              pages);
+        }
+        final String listing = page.request.prefix() == null ? "" : page.request.prefix();
+        for (S3Object s3Object : page.response.contents()) {
+          final String key = s3Object.key();
+          final Tuple2<String, TopicPartition> groupTopicPartition = keys.tryParse(key);
+          if (groupTopicPartition == null) {
+            RestoreMetrics.keysInvalid.inc();
+            continue;
+          }
+          if (!plan.includes(groupTopicPartition._1(), groupTopicPartition._2().topic())) {
+            RestoreMetrics.keysFiltered.inc();
+            continue;
+          }
+          throwIfFailed(failure);
+          aggregator.listed(listing, groupTopicPartition._1());
+          final Long cached =
+              cache
+                  .map(
+                      c -> c.get(source.getBucket(), key, s3Object.eTag(), s3Object.lastModified()))
+                  .orElse(null);
+          if (cached != null) {
+            RestoreMetrics.keysCached.inc();
+            aggregator.read(groupTopicPartition._1(), groupTopicPartition._2(), cached);
+            continue;
+          }
+          inFlight.acquire();
+          throwIfFailed(failure);
+          if (logger.isDebugEnabled()) {
+            logger.debug("\tkey:" + key);
+          }
+          RestoreMetrics.storeGets.inc();
+          final long getStart = System.nanoTime();
+          s3Client
+              .getObject(getRequest.key(key).build(), OffsetResponseTransformer.async())
+              .whenComplete(
+                  (offset, error) -> {
+                    RestoreMetrics.storeGetSeconds.observeSince(getStart);
+                    if (error != null) {
+                      RestoreMetrics.storeGetErrors.inc();
+                      failure.compareAndSet(null, failed(key, error));
+                      inFlight.release();
+                      return;
+                    }
+                    RestoreMetrics.storeGetBytes.add(Long.BYTES);
+                    try {
+                      handOver.execute(
+                          () -> {
+                            try {
+                              cache.ifPresent(
+                                  c ->
+                                      c.put(
+                                          source.getBucket(),
+                                          key,
+                                          s3Object.eTag(),
+                                          s3Object.lastModified(),
+                                          offset));
+                              aggregator.read(
+                                  groupTopicPartition._1(), groupTopicPartition._2(), offset);
+                            } catch (Throwable t) {
+                              failure.compareAndSet(null, t);
+                            } finally {
+                              inFlight.release();
+                            }
+                          });
+                    } catch (RejectedExecutionException e) {
+                      // the read has already ended
+                      inFlight.release();
+                    }
+                  });
+        }
+        if (lastPage) {
+          aggregator.listingDone(listing);
+          activeListings--;
+        }
+      }
+      // all the permits are back once the last GET has completed
+      inFlight.acquire(maxInFlight);
+      throwIfFailed(failure);
+      aggregator.finish();
+      if (selection.isAll()) {
+        cache.ifPresent(c -> c.listed(source.getBucket(), source.getPrefix().orElse("")));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while reading the offsets from S3", e);
+    } finally {
+      handOver.shutdownNow();
+      aggregator.close();
+    }
+    logger.info(
+        "Finished reading Consumer Groups offsets S3 data. Found " + groupsCount + " groups.");
+  }
+
+  private void requestPage(ListObjectsV2Request request, BlockingQueue<Page> pages) {
+    final long start = System.nanoTime();
+    s3Client
+        .listObjectsV2(request)
+        .whenComplete((response, error) -> pages.add(new Page(request, response, error, start)));
+  }
+
+  private static void throwIfFailed(AtomicReference<Throwable> failure) {
+    final Throwable error = failure.get();
+    if (error != null) {
+      throw new RuntimeException("Failed to read the offsets from S3", unwrap(error));
+    }
+  }
+
+  /** @return the error of a GET, with the key of an object that could not be decoded */
+  private static Throwable failed(String key, Throwable error) {
+    // the SDK wraps the failure of the transformer, e.g. a truncated object, more than once
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof IOException) {
+        return new UncheckedIOException("Failed to read " + key, (IOException) cause);
+      }
+    }
+    return error;
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+  }
+
+  /**
+   * A ListObjectsV2 page, or the error returned for it, along with the request for it and when it
+   * was sent.
+   */
+  private static class Page {
+    private final ListObjectsV2Request request;
+    private final ListObjectsV2Response response;
+    private final Throwable error;
+    private final long startNanos;
+
+    private Page(
+        ListObjectsV2Request request,
+        ListObjectsV2Response response,
+        Throwable error,
+        long startNanos) {
+      this.request = request;
+      this.response = response;
+      this.error = error;
+      this.startNanos = startNanos;
+    }
+  }
+}
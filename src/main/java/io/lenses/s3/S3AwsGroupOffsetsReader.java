@@ -11,27 +11,20 @@
 package io.lenses.s3;
 
 import io.lenses.kafka.GroupOffsets;
+import io.lenses.store.ObjectStoreGroupOffsetsReader;
+import io.lenses.store.OffsetKeys;
+import io.lenses.store.OffsetsCache;
+import io.lenses.store.PrefixScheduler;
+import io.lenses.store.ReaderConfig;
+import io.lenses.store.Selection;
+import io.lenses.store.SpillConfig;
 import io.lenses.utils.Tuple2;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import java.util.function.Consumer;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
-import software.amazon.awssdk.services.s3.model.S3Object;
-import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
 
 /**
  * Implementation of {@link AwsGroupOffsetsReader} that reads the offsets from S3.
@@ -40,71 +33,53 @@ import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
  * bucket/prefix/${group}/${topic}/${partition}. The content is the 8 bytes long of the offset. The
  * implementation starts from the bucket and prefix, and then it will list all the groups, topics
  * and partitions and read the offsets.
+ *
+ * <p>The bucket is read through {@link S3ObjectStore} by the storage-neutral {@link
+ * ObjectStoreGroupOffsetsReader}, which lists only the prefixes of the requested groups, reads the
+ * objects of each page in parallel when the read concurrency allows it, hands each group over as
+ * soon as it is complete, and skips the objects found unchanged in the {@link OffsetsCache}. With
+ * the listing split, a prefix holding many groups is listed one group per worker. The offsets held
+ * above the {@link SpillConfig} budget are spilled to disk. With {@link HedgeConfig} enabled, the
+ * slow GETs are sent again; see {@link RequestHedger}. The GETs take the group/topic prefixes in
+ * turn, so that S3, which scales its request rate per prefix, is not sent a burst on one prefix
+ * after the other; see {@link PrefixScheduler}.
  */
 public class S3AwsGroupOffsetsReader implements AwsGroupOffsetsReader {
   private static final Logger logger = LoggerFactory.getLogger(S3AwsGroupOffsetsReader.class);
   private final S3Client s3Client;
+  private final ReaderConfig config;
+  private final HedgeConfig hedge;
 
   public S3AwsGroupOffsetsReader(S3Client s3Client) {
+    this(s3Client, ReaderConfig.DEFAULT, HedgeConfig.DEFAULT);
+  }
+
+  /**
+   * @param config how the objects are read; see {@link ReaderConfig}
+   * @param hedge whether, and when, a slow GET is sent again
+   */
+  public S3AwsGroupOffsetsReader(S3Client s3Client, ReaderConfig config, HedgeConfig hedge) {
+    if (s3Client == null) throw new IllegalArgumentException("S3 client cannot be null");
+    if (config == null) throw new IllegalArgumentException("Reader config cannot be null");
+    if (hedge == null) throw new IllegalArgumentException("Hedge config cannot be null");
     this.s3Client = s3Client;
+    this.config = config;
+    this.hedge = hedge;
   }
 
   @Override
-  public List<GroupOffsets> read(S3Location source, Optional<String[]> groups) {
+  public void read(S3Location source, Selection selection, Consumer<GroupOffsets> consumer) {
     logger.info(
         "Reading Consumer Group offsets from bucket:"
             + source.getBucket()
             + " prefix:"
             + source.getPrefix().orElse(""));
-    ListObjectsV2Request.Builder requestBuilder =
-        ListObjectsV2Request.builder().bucket(source.getBucket());
-    if (source.getPrefix().isPresent()) {
-      requestBuilder.prefix(source.getPrefix().get());
-    }
-    ListObjectsV2Request request = requestBuilder.build();
-    ListObjectsV2Iterable iterable = s3Client.listObjectsV2Paginator(request);
-    final Iterator<ListObjectsV2Response> iterator = iterable.iterator();
-    final Map<String, GroupOffsets> offsetsMap = new HashMap<>();
-    logger.info("Reading offsets from S3...");
-    while (iterator.hasNext()) {
-      final ListObjectsV2Response response = iterator.next();
-      for (S3Object s3Object : response.contents()) {
-        String key = s3Object.key();
-        if (!isValidKey(key)) {
-          continue;
-        }
-        logger.info("\tkey:" + key);
-        final ResponseBytes<GetObjectResponse> objResponse =
-            s3Client.getObjectAsBytes(
-                GetObjectRequest.builder().bucket(source.getBucket()).key(key).build());
-        final long offset = objResponse.asByteBuffer().getLong();
-        final Tuple2<String, TopicPartition> groupTopicPartition = extractGroupTopicPartition(key);
-        final String group = groupTopicPartition._1();
-        final OffsetAndMetadata offsetAndMetadata = new OffsetAndMetadata(offset);
-        if (groups.isPresent()) {
-          final String[] groupsArray = groups.get();
-
-          if (Arrays.asList(groupsArray).contains(group)) {
-            offsetsMap
-                .computeIfAbsent(group, k -> new GroupOffsets(group, new HashMap<>()))
-                .getOffsets()
-                .put(groupTopicPartition._2(), offsetAndMetadata);
-          }
-        } else {
-          offsetsMap
-              .computeIfAbsent(group, k -> new GroupOffsets(group, new HashMap<>()))
-              .getOffsets()
-              .put(groupTopicPartition._2(), offsetAndMetadata);
-        }
-      }
+    try (RequestHedger hedger =
+        hedge.isEnabled() ? new RequestHedger(hedge, config.getConcurrency()) : null) {
+      new ObjectStoreGroupOffsetsReader(
+              new S3ObjectStore(s3Client, source.getBucket(), Optional.ofNullable(hedger)), config)
+          .read(source.getPrefix(), selection, consumer);
     }
-    final List<GroupOffsets> groupsOffsets = new ArrayList<>(offsetsMap.values());
-    groupsOffsets.sort(Comparator.comparing(GroupOffsets::getGroup));
-    logger.info(
-        "Finished reading Consumer Groups offsets S3 data. Found "
-            + groupsOffsets.size()
-            + " groups.");
-    return groupsOffsets;
   }
 
   /**
@@ -115,32 +90,6 @@ public class S3AwsGroupOffsetsReader implements AwsGroupOffsetsReader {
    * @return a tuple of group and topic partition
    */
   public static Tuple2<String, TopicPartition> extractGroupTopicPartition(String key) {
-    final String[] parts = key.split("/");
-    // if parts is not at least 3, then the key is not valid
-    if (parts.length < 3) {
-      throw new IllegalArgumentException("Invalid S3 key:" + key);
-    }
-    final String group = parts[parts.length - 3];
-    final String topic = parts[parts.length - 2];
-    try {
-      final int partition = Integer.parseInt(parts[parts.length - 1]);
-      return new Tuple2<>(group, new TopicPartition(topic, partition));
-    } catch (NumberFormatException e) {
-      throw new IllegalArgumentException("Invalid S3 key:" + key, e);
-    }
-  }
-
-  private static boolean isValidKey(String s3Key) {
-    final String[] parts = s3Key.split("/");
-    // if parts is not at least 3, then the key is not valid
-    if (parts.length < 3) {
-      return false;
-    }
-    try {
-      Integer.parseInt(parts[parts.length - 1]);
-      return true;
-    } catch (NumberFormatException e) {
-      return false;
-    }
+    return OffsetKeys.parse(key);
   }
 }
@@ -10,6 +10,7 @@
  */
 package io.lenses.s3;
 
+import java.net.URI;
 import java.time.Duration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
@@ -17,10 +18,17 @@ import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.core.retry.RetryPolicy;
-import software.amazon.awssdk.core.retry.backoff.FixedDelayBackoffStrategy;
+import software.amazon.awssdk.core.retry.backoff.BackoffStrategy;
+import software.amazon.awssdk.core.retry.backoff.FullJitterBackoffStrategy;
 import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
 import software.amazon.awssdk.services.s3.S3Configuration;
@@ -28,37 +36,121 @@ import software.amazon.awssdk.services.s3.S3Configuration;
 public class S3ClientBuilderHelper {
   public static S3Client build(S3Config config) {
     // build the S3 client based on the configuration
-    final RetryPolicy retryPolicy =
-        RetryPolicy.builder()
-            .numRetries(config.getAwsHttpRetries())
-            .backoffStrategy(
-                FixedDelayBackoffStrategy.create(
-                    Duration.ofMillis(config.getAwsHttpRetryInterval())))
-            .build();
-
-    final ClientOverrideConfiguration overrideConfig =
-        ClientOverrideConfiguration.builder().retryPolicy(retryPolicy).build();
+    final S3ClientBuilder builder =
+        S3Client.builder()
+            .overrideConfiguration(overrideConfiguration(config))
+            .serviceConfiguration(serviceConfiguration(config))
+            .credentialsProvider(credentialsProvider(config))
+            .httpClient(httpClient(config.getAwsHttpClient()));
+    if (config.getAwsRegion().isPresent()) {
+      builder.region(Region.of(config.getAwsRegion().get()));
+    }
+    if (config.getAwsEndpoint().isPresent()) {
+      builder.endpointOverride(URI.create(config.getAwsEndpoint().get()));
+    }
+    return builder.build();
+  }
 
-    final S3Configuration s3Config =
-        S3Configuration.builder()
-            .pathStyleAccessEnabled(config.isEnableVirtualHostBuckets())
+  /**
+   * The client of the blocking S3Client. The url-connection client has no pool of its own: it only
+   * takes the connection and socket timeouts, and the JDK keeps the idle connections.
+   */
+  private static SdkHttpClient httpClient(HttpClientConfig http) {
+    switch (http.getType()) {
+      case APACHE:
+        return ApacheHttpClient.builder()
+            .maxConnections(http.getMaxConnections())
+            .connectionAcquisitionTimeout(
+                Duration.ofMillis(http.getConnectionAcquisitionTimeoutMs()))
+            .connectionTimeout(Duration.ofMillis(http.getConnectionTimeoutMs()))
+            .socketTimeout(Duration.ofMillis(http.getSocketTimeoutMs()))
+            .tcpKeepAlive(http.isTcpKeepAlive())
+            .connectionMaxIdleTime(Duration.ofMillis(http.getConnectionMaxIdleMs()))
+            .useIdleConnectionReaper(http.isIdleConnectionReaper())
+            .build();
+      case URL_CONNECTION:
+        return UrlConnectionHttpClient.builder()
+            .connectionTimeout(Duration.ofMillis(http.getConnectionTimeoutMs()))
+            .socketTimeout(Duration.ofMillis(http.getSocketTimeoutMs()))
             .build();
+      default:
+        throw new IllegalArgumentException("Unsupported HTTP client: " + http.getType());
+    }
+  }
 
-    final SdkHttpClient httpClient = ApacheHttpClient.builder().build();
+  /**
+   * Builds the non-blocking S3 client used by {@link S3AsyncAwsGroupOffsetsReader}. The Netty
+   * client runs the requests on a few event loop threads and allows as many concurrent connections
+   * as the pool size, which defaults to the configured max GETs in flight.
+   */
+  public static S3AsyncClient buildAsync(S3Config config) {
+    final SdkEventLoopGroup.Builder eventLoopGroup = SdkEventLoopGroup.builder();
+    if (config.getAwsAsyncEventLoopThreads() > 0) {
+      eventLoopGroup.numberOfThreads(config.getAwsAsyncEventLoopThreads());
+    }
+    final HttpClientConfig http = config.getAwsHttpClient();
+    final SdkAsyncHttpClient httpClient =
+        NettyNioAsyncHttpClient.builder()
+            .maxConcurrency(http.getMaxConnections())
+            .maxPendingConnectionAcquires(Math.max(10_000, config.getAwsAsyncMaxInFlight()))
+            .connectionAcquisitionTimeout(
+                Duration.ofMillis(http.getConnectionAcquisitionTimeoutMs()))
+            .connectionTimeout(Duration.ofMillis(http.getConnectionTimeoutMs()))
+            .readTimeout(Duration.ofMillis(http.getSocketTimeoutMs()))
+            .tcpKeepAlive(http.isTcpKeepAlive())
+            .connectionMaxIdleTime(Duration.ofMillis(http.getConnectionMaxIdleMs()))
+            .useIdleConnectionReaper(http.isIdleConnectionReaper())
+            .eventLoopGroupBuilder(eventLoopGroup)
+            .build();
 
-    final AwsCredentialsProvider credsProv = credentialsProvider(config);
-    final S3ClientBuilder builder =
-        S3Client.builder()
-            .overrideConfiguration(overrideConfig)
-            .serviceConfiguration(s3Config)
-            .credentialsProvider(credsProv)
+    final S3AsyncClientBuilder builder =
+        S3AsyncClient.builder()
+            .overrideConfiguration(overrideConfiguration(config))
+            .serviceConfiguration(serviceConfiguration(config))
+            .credentialsProvider(credentialsProvider(config))
             .httpClient(httpClient);
     if (config.getAwsRegion().isPresent()) {
       builder.region(Region.of(config.getAwsRegion().get()));
     }
+    if (config.getAwsEndpoint().isPresent()) {
+      builder.endpointOverride(URI.create(config.getAwsEndpoint().get()));
+    }
     return builder.build();
   }
 
+  /**
+   * The retries wait a random delay between 0 and the retry interval doubled on every attempt, up
+   * to the max interval (full jitter), so the requests throttled together are not retried together.
+   * Every request also goes through an {@link AdaptiveRateLimiter}, which only holds the requests
+   * back from the start with a max rate, and otherwise once S3 has throttled one.
+   */
+  private static ClientOverrideConfiguration overrideConfiguration(S3Config config) {
+    final BackoffStrategy backoff =
+        FullJitterBackoffStrategy.builder()
+            .baseDelay(Duration.ofMillis(config.getAwsHttpRetryInterval()))
+            .maxBackoffTime(Duration.ofMillis(config.getAwsHttpRetryMaxInterval()))
+            .build();
+    final RetryPolicy retryPolicy =
+        RetryPolicy.builder()
+            .numRetries(config.getAwsHttpRetries())
+            .backoffStrategy(backoff)
+            .throttlingBackoffStrategy(backoff)
+            .build();
+
+    return ClientOverrideConfiguration.builder()
+        .retryPolicy(retryPolicy)
+        .addExecutionInterceptor(new RetryCountingInterceptor())
+        .addExecutionInterceptor(
+            new RateLimitingInterceptor(new AdaptiveRateLimiter(config.getAwsRateLimit())))
+        .build();
+  }
+
+  private static S3Configuration serviceConfiguration(S3Config config) {
+    return S3Configuration.builder()
+        .pathStyleAccessEnabled(config.isEnableVirtualHostBuckets())
+        .build();
+  }
+
   private static AwsCredentialsProvider credentialsProvider(S3Config config) {
     switch (config.getAwsMode()) {
       case CREDENTIALS:
@@ -13,6 +13,10 @@ package io.lenses.s3;
 import com.typesafe.config.Config;
 import java.util.Optional;
 
+/**
+ * How S3 is reached and read, read from the aws.* options. It is built with {@link #builder()}, the
+ * options left unset taking the defaults of {@link #from(Config)}.
+ */
 public class S3Config {
   private final AwsMode awsMode;
   private final Optional<String> awsRegion;
@@ -22,30 +26,78 @@ public class S3Config {
 
   private final int awsHttpRetries;
   private final long awsHttpRetryInterval;
+  private final long awsHttpRetryMaxInterval;
+  private final RateLimitConfig awsRateLimit;
+
+  private final Optional<String> awsEndpoint;
+  private final HttpClientConfig awsHttpClient;
 
   private final boolean enableVirtualHostBuckets;
 
-  public S3Config(
-      AwsMode awsMode,
-      Optional<String> awsRegion,
-      Optional<String> awsAccessKey,
-      Optional<String> awsSecretKey,
-      int awsHttpRetries,
-      long awsHttpRetryInterval,
-      boolean enableVirtualHostBuckets) {
-    if (awsMode == null) throw new IllegalArgumentException("AWS mode cannot be null");
-    if (awsRegion == null) throw new IllegalArgumentException("AWS region cannot be null");
-    if (awsMode == AwsMode.CREDENTIALS
-        && (!awsAccessKey.isPresent() || !awsSecretKey.isPresent())) {
+  private final int awsReadConcurrency;
+  private final boolean awsListSplit;
+  private final double awsPrefixRateMax;
+  private final HedgeConfig awsHedge;
+
+  private final S3ReaderMode awsReaderMode;
+  private final int awsAsyncMaxInFlight;
+  private final int awsAsyncEventLoopThreads;
+
+  private final Optional<String> awsCacheFile;
+
+  private S3Config(Builder builder) {
+    if (builder.awsMode == null) throw new IllegalArgumentException("AWS mode cannot be null");
+    if (builder.awsMode == AwsMode.CREDENTIALS
+        && (!builder.awsAccessKey.isPresent() || !builder.awsSecretKey.isPresent())) {
       throw new IllegalArgumentException("AWS credentials mode requires access and secret keys");
     }
-    this.awsMode = awsMode;
-    this.awsRegion = awsRegion;
-    this.awsAccessKey = awsAccessKey;
-    this.awsSecretKey = awsSecretKey;
-    this.awsHttpRetries = awsHttpRetries;
-    this.awsHttpRetryInterval = awsHttpRetryInterval;
-    this.enableVirtualHostBuckets = enableVirtualHostBuckets;
+    if (builder.awsHttpRetryInterval < 0)
+      throw new IllegalArgumentException("AWS HTTP retry interval cannot be negative");
+    if (builder.awsHttpRetryMaxInterval < builder.awsHttpRetryInterval)
+      throw new IllegalArgumentException(
+          "AWS HTTP retry max interval cannot be less than the retry interval");
+    if (builder.awsRateLimit == null)
+      throw new IllegalArgumentException("AWS rate limit cannot be null");
+    if (builder.awsReadConcurrency < 1)
+      throw new IllegalArgumentException("AWS read concurrency must be at least 1");
+    if (builder.awsPrefixRateMax < 0)
+      throw new IllegalArgumentException("AWS prefix rate max cannot be negative");
+    if (builder.awsHedge == null)
+      throw new IllegalArgumentException("AWS hedge config cannot be null");
+    if (builder.awsReaderMode == null)
+      throw new IllegalArgumentException("AWS reader cannot be null");
+    if (builder.awsAsyncMaxInFlight < 1)
+      throw new IllegalArgumentException("AWS async max in flight must be at least 1");
+    if (builder.awsAsyncEventLoopThreads < 0)
+      throw new IllegalArgumentException("AWS async event loop threads cannot be negative");
+    this.awsMode = builder.awsMode;
+    this.awsRegion = builder.awsRegion;
+    this.awsAccessKey = builder.awsAccessKey;
+    this.awsSecretKey = builder.awsSecretKey;
+    this.awsHttpRetries = builder.awsHttpRetries;
+    this.awsHttpRetryInterval = builder.awsHttpRetryInterval;
+    this.awsHttpRetryMaxInterval = builder.awsHttpRetryMaxInterval;
+    this.awsRateLimit = builder.awsRateLimit;
+    this.awsEndpoint = builder.awsEndpoint;
+    this.enableVirtualHostBuckets = builder.enableVirtualHostBuckets;
+    this.awsReadConcurrency = builder.awsReadConcurrency;
+    this.awsListSplit = builder.awsListSplit;
+    this.awsPrefixRateMax = builder.awsPrefixRateMax;
+    this.awsHedge = builder.awsHedge;
+    this.awsReaderMode = builder.awsReaderMode;
+    this.awsAsyncMaxInFlight = builder.awsAsyncMaxInFlight;
+    this.awsAsyncEventLoopThreads = builder.awsAsyncEventLoopThreads;
+    this.awsCacheFile = builder.awsCacheFile;
+    this.awsHttpClient =
+        builder.awsHttpClient != null
+            ? builder.awsHttpClient
+            : HttpClientConfig.defaults(
+                defaultMaxConnections(
+                    awsReaderMode, awsAsyncMaxInFlight, awsReadConcurrency, awsHedge));
+  }
+
+  public static Builder builder() {
+    return new Builder();
   }
 
   public AwsMode getAwsMode() {
@@ -72,44 +124,266 @@ public class S3Config {
     return awsHttpRetryInterval;
   }
 
+  public long getAwsHttpRetryMaxInterval() {
+    return awsHttpRetryMaxInterval;
+  }
+
+  public RateLimitConfig getAwsRateLimit() {
+    return awsRateLimit;
+  }
+
+  public Optional<String> getAwsEndpoint() {
+    return awsEndpoint;
+  }
+
+  public HttpClientConfig getAwsHttpClient() {
+    return awsHttpClient;
+  }
+
   public static S3Config from(Config config) {
     final AwsMode awsMode = AwsMode.valueOf(config.getString("aws.mode").toUpperCase());
-    final String awsRegion = config.getString("aws.region");
+    final Builder builder = builder().awsMode(awsMode).awsRegion(config.getString("aws.region"));
     // if credentials mode, read the access and secret keys or throw an exception if they are
     // missing
-    if (awsMode == AwsMode.CREDENTIALS
-        && (!config.hasPath("aws.access.key") || !config.hasPath("aws.secret.key"))) {
-      throw new IllegalArgumentException("AWS credentials mode requires access and secret keys");
+    if (awsMode == AwsMode.CREDENTIALS) {
+      if (!config.hasPath("aws.access.key") || !config.hasPath("aws.secret.key")) {
+        throw new IllegalArgumentException("AWS credentials mode requires access and secret keys");
+      }
+      builder.awsCredentials(
+          config.getString("aws.access.key"), config.getString("aws.secret.key"));
     }
-    final Optional<String> awsAccessKey =
-        awsMode == AwsMode.CREDENTIALS
-            ? Optional.of(config.getString("aws.access.key"))
-            : Optional.empty();
-    final Optional<String> awsSecretKey =
-        awsMode == AwsMode.CREDENTIALS
-            ? Optional.of(config.getString("aws.secret.key"))
-            : Optional.empty();
 
     // read the http retries and interval if not default to 5 and 50L
-    final int awsHttpRetries =
-        config.hasPath("aws.http.retries") ? config.getInt("aws.http.retries") : 5;
+    if (config.hasPath("aws.http.retries")) {
+      builder.awsHttpRetries(config.getInt("aws.http.retries"));
+    }
     final long awsHttpRetryInterval =
         config.hasPath("aws.http.retry.interval") ? config.getLong("aws.http.retry.interval") : 50L;
+    // the retries wait a random delay up to the interval doubled on every attempt, capped here
+    final long awsHttpRetryMaxInterval =
+        config.hasPath("aws.http.retry.max.interval")
+            ? config.getLong("aws.http.retry.max.interval")
+            : Math.max(20_000L, awsHttpRetryInterval);
+    builder
+        .awsHttpRetryInterval(awsHttpRetryInterval)
+        .awsHttpRetryMaxInterval(awsHttpRetryMaxInterval)
+        .awsRateLimit(RateLimitConfig.from(config));
+
+    // an S3 compatible store, or a local stub, instead of the AWS endpoint of the region
+    if (config.hasPath("aws.endpoint")) {
+      builder.awsEndpoint(config.getString("aws.endpoint"));
+    }
 
-    final boolean enableVirtualHostBuckets =
+    builder.enableVirtualHostBuckets(
         config.hasPath("aws.enable.virtual.host.buckets")
-            && config.getBoolean("aws.enable.virtual.host.buckets");
-    return new S3Config(
-        awsMode,
-        Optional.of(awsRegion),
-        awsAccessKey,
-        awsSecretKey,
-        awsHttpRetries,
-        awsHttpRetryInterval,
-        enableVirtualHostBuckets);
+            && config.getBoolean("aws.enable.virtual.host.buckets"));
+
+    // how many objects are fetched at the same time; 1 keeps the sequential read
+    final int awsReadConcurrency =
+        config.hasPath("aws.read.concurrency") ? config.getInt("aws.read.concurrency") : 1;
+    // with a read concurrency, the groups are found first and each listed on its own worker
+    builder
+        .awsReadConcurrency(awsReadConcurrency)
+        .awsListSplit(!config.hasPath("aws.list.split") || config.getBoolean("aws.list.split"));
+    // the GETs take the group/topic prefixes in turn, each within this rate; 0 for no ceiling
+    if (config.hasPath("aws.read.prefix.max.rate")) {
+      builder.awsPrefixRateMax(config.getDouble("aws.read.prefix.max.rate"));
+    }
+    // a slow GET is sent again after a percentile of the recent latencies
+    final HedgeConfig awsHedge = HedgeConfig.from(config);
+    builder.awsHedge(awsHedge);
+
+    // the reader is either the blocking one or the async one; the latter caps the GETs in flight
+    // and runs them on the event loop threads (0 lets the HTTP client pick the count)
+    final S3ReaderMode awsReaderMode =
+        config.hasPath("aws.reader")
+            ? S3ReaderMode.valueOf(config.getString("aws.reader").toUpperCase())
+            : S3ReaderMode.BLOCKING;
+    final int awsAsyncMaxInFlight =
+        config.hasPath("aws.async.max.in.flight") ? config.getInt("aws.async.max.in.flight") : 1000;
+    builder.awsReaderMode(awsReaderMode).awsAsyncMaxInFlight(awsAsyncMaxInFlight);
+    if (config.hasPath("aws.async.event.loop.threads")) {
+      builder.awsAsyncEventLoopThreads(config.getInt("aws.async.event.loop.threads"));
+    }
+    builder.awsHttpClient(
+        HttpClientConfig.from(
+            config,
+            defaultMaxConnections(
+                awsReaderMode, awsAsyncMaxInFlight, awsReadConcurrency, awsHedge)));
+
+    // the offsets of unchanged objects are taken from this file instead of S3
+    if (config.hasPath("aws.cache.file")) {
+      builder.awsCacheFile(config.getString("aws.cache.file"));
+    }
+    return builder.build();
+  }
+
+  /** The pool holds a connection for every request the reader keeps in flight, and the hedges. */
+  private static int defaultMaxConnections(
+      S3ReaderMode awsReaderMode,
+      int awsAsyncMaxInFlight,
+      int awsReadConcurrency,
+      HedgeConfig awsHedge) {
+    return awsReaderMode == S3ReaderMode.ASYNC
+        ? awsAsyncMaxInFlight
+        : Math.max(
+            50, awsReadConcurrency + (awsHedge.isEnabled() ? (int) RequestHedger.MAX_BUDGET : 0));
   }
 
   public boolean isEnableVirtualHostBuckets() {
     return enableVirtualHostBuckets;
   }
+
+  public int getAwsReadConcurrency() {
+    return awsReadConcurrency;
+  }
+
+  public boolean isAwsListSplit() {
+    return awsListSplit;
+  }
+
+  public double getAwsPrefixRateMax() {
+    return awsPrefixRateMax;
+  }
+
+  public HedgeConfig getAwsHedge() {
+    return awsHedge;
+  }
+
+  public S3ReaderMode getAwsReaderMode() {
+    return awsReaderMode;
+  }
+
+  public int getAwsAsyncMaxInFlight() {
+    return awsAsyncMaxInFlight;
+  }
+
+  public int getAwsAsyncEventLoopThreads() {
+    return awsAsyncEventLoopThreads;
+  }
+
+  public Optional<String> getAwsCacheFile() {
+    return awsCacheFile;
+  }
+
+  /** Builds an {@link S3Config}; only the AWS mode has no default. */
+  public static final class Builder {
+    private AwsMode awsMode;
+    private Optional<String> awsRegion = Optional.empty();
+    private Optional<String> awsAccessKey = Optional.empty();
+    private Optional<String> awsSecretKey = Optional.empty();
+    private int awsHttpRetries = 5;
+    private long awsHttpRetryInterval = 50L;
+    private long awsHttpRetryMaxInterval = 20_000L;
+    private RateLimitConfig awsRateLimit = RateLimitConfig.DEFAULT;
+    private Optional<String> awsEndpoint = Optional.empty();
+    // sized for the reader when not set
+    private HttpClientConfig awsHttpClient;
+    private boolean enableVirtualHostBuckets;
+    private int awsReadConcurrency = 1;
+    private boolean awsListSplit = true;
+    private double awsPrefixRateMax = 5500;
+    private HedgeConfig awsHedge = HedgeConfig.DEFAULT;
+    private S3ReaderMode awsReaderMode = S3ReaderMode.BLOCKING;
+    private int awsAsyncMaxInFlight = 1000;
+    private int awsAsyncEventLoopThreads;
+    private Optional<String> awsCacheFile = Optional.empty();
+
+    private Builder() {}
+
+    public Builder awsMode(AwsMode awsMode) {
+      this.awsMode = awsMode;
+      return this;
+    }
+
+    public Builder awsRegion(String awsRegion) {
+      this.awsRegion = Optional.ofNullable(awsRegion);
+      return this;
+    }
+
+    public Builder awsCredentials(String awsAccessKey, String awsSecretKey) {
+      this.awsAccessKey = Optional.ofNullable(awsAccessKey);
+      this.awsSecretKey = Optional.ofNullable(awsSecretKey);
+      return this;
+    }
+
+    public Builder awsHttpRetries(int awsHttpRetries) {
+      this.awsHttpRetries = awsHttpRetries;
+      return this;
+    }
+
+    public Builder awsHttpRetryInterval(long awsHttpRetryInterval) {
+      this.awsHttpRetryInterval = awsHttpRetryInterval;
+      return this;
+    }
+
+    public Builder awsHttpRetryMaxInterval(long awsHttpRetryMaxInterval) {
+      this.awsHttpRetryMaxInterval = awsHttpRetryMaxInterval;
+      return this;
+    }
+
+    public Builder awsRateLimit(RateLimitConfig awsRateLimit) {
+      this.awsRateLimit = awsRateLimit;
+      return this;
+    }
+
+    public Builder awsEndpoint(String awsEndpoint) {
+      this.awsEndpoint = Optional.ofNullable(awsEndpoint);
+      return this;
+    }
+
+    public Builder awsHttpClient(HttpClientConfig awsHttpClient) {
+      this.awsHttpClient = awsHttpClient;
+      return this;
+    }
+
+    public Builder enableVirtualHostBuckets(boolean enableVirtualHostBuckets) {
+      this.enableVirtualHostBuckets = enableVirtualHostBuckets;
+      return this;
+    }
+
+    public Builder awsReadConcurrency(int awsReadConcurrency) {
+      this.awsReadConcurrency = awsReadConcurrency;
+      return this;
+    }
+
+    public Builder awsListSplit(boolean awsListSplit) {
+      this.awsListSplit = awsListSplit;
+      return this;
+    }
+
+    public Builder awsPrefixRateMax(double awsPrefixRateMax) {
+      this.awsPrefixRateMax = awsPrefixRateMax;
+      return this;
+    }
+
+    public Builder awsHedge(HedgeConfig awsHedge) {
+      this.awsHedge = awsHedge;
+      return this;
+    }
+
+    public Builder awsReaderMode(S3ReaderMode awsReaderMode) {
+      this.awsReaderMode = awsReaderMode;
+      return this;
+    }
+
+    public Builder awsAsyncMaxInFlight(int awsAsyncMaxInFlight) {
+      this.awsAsyncMaxInFlight = awsAsyncMaxInFlight;
+      return this;
+    }
+
+    public Builder awsAsyncEventLoopThreads(int awsAsyncEventLoopThreads) {
+      this.awsAsyncEventLoopThreads = awsAsyncEventLoopThreads;
+      return this;
+    }
+
+    public Builder awsCacheFile(String awsCacheFile) {
+      this.awsCacheFile = Optional.ofNullable(awsCacheFile);
+      return this;
+    }
+
+    public S3Config build() {
+      return new S3Config(this);
+    }
+  }
 }
@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import io.lenses.store.ObjectStore;
+import io.lenses.store.StoredObject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * The {@link ObjectStore} of an S3 bucket: the listing pages are the ListObjectsV2 pages, which S3
+ * returns in lexicographic key order, and each offset is read with a GET. The group prefixes are
+ * listed with a / delimiter, which returns up to 1000 of them per page.
+ *
+ * <p>The offset is decoded from the GET response stream by {@link OffsetResponseTransformer}, and
+ * the requests are built from a per-thread builder already holding the bucket. With a {@link
+ * RequestHedger}, a slow GET is sent again; the hedged GETs box their offset to hand it over.
+ */
+public class S3ObjectStore implements ObjectStore {
+  private final S3Client s3Client;
+  private final String bucket;
+  private final ThreadLocal<GetObjectRequest.Builder> getRequests;
+  private final Optional<RequestHedger> hedger;
+
+  public S3ObjectStore(S3Client s3Client, String bucket) {
+    this(s3Client, bucket, Optional.empty());
+  }
+
+  public S3ObjectStore(S3Client s3Client, String bucket, Optional<RequestHedger> hedger) {
+    if (s3Client == null) throw new IllegalArgumentException("S3 client cannot be null");
+    if (bucket == null) throw new IllegalArgumentException("Bucket cannot be null");
+    if (hedger == null) throw new IllegalArgumentException("Hedger cannot be null");
+    this.s3Client = s3Client;
+    this.bucket = bucket;
+    this.hedger = hedger;
+    this.getRequests = ThreadLocal.withInitial(() -> GetObjectRequest.builder().bucket(bucket));
+  }
+
+  @Override
+  public String name() {
+    return bucket;
+  }
+
+  @Override
+  public void list(String prefix, Consumer<List<StoredObject>> page) {
+    final ListObjectsV2Request.Builder requestBuilder =
+        ListObjectsV2Request.builder().bucket(bucket);
+    if (!prefix.isEmpty()) {
+      requestBuilder.prefix(prefix);
+    }
+    for (ListObjectsV2Response response : s3Client.listObjectsV2Paginator(requestBuilder.build())) {
+      final List<StoredObject> objects = new ArrayList<>(response.contents().size());
+      for (S3Object s3Object : response.contents()) {
+        objects.add(new StoredObject(s3Object.key(), s3Object.eTag(), s3Object.lastModified()));
+      }
+      page.accept(objects);
+    }
+  }
+
+  @Override
+  public List<String> listPrefixes(String prefix) {
+    final ListObjectsV2Request.Builder requestBuilder =
+        ListObjectsV2Request.builder().bucket(bucket).delimiter("/");
+    if (!prefix.isEmpty()) {
+      requestBuilder.prefix(prefix);
+    }
+    final List<String> prefixes = new ArrayList<>();
+    for (ListObjectsV2Response response : s3Client.listObjectsV2Paginator(requestBuilder.build())) {
+      for (CommonPrefix commonPrefix : response.commonPrefixes()) {
+        prefixes.add(commonPrefix.prefix());
+      }
+    }
+    return prefixes;
+  }
+
+  @Override
+  public long readOffset(String key) {
+    return hedger.isPresent() ? hedger.get().call(() -> getOffset(key)) : getOffset(key);
+  }
+
+  private long getOffset(String key) {
+    try {
+      return s3Client
+          .getObject(getRequests.get().key(key).build(), OffsetResponseTransformer.INSTANCE)
+          .getValue();
+    } catch (SdkClientException e) {
+      // the SDK wraps the failure of the transformer, e.g. a truncated object, more than once
+      for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof IOException) {
+          throw new UncheckedIOException("Failed to read " + key, (IOException) cause);
+        }
+      }
+      throw e;
+    }
+  }
+}
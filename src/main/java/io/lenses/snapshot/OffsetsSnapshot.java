@@ -0,0 +1,324 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.snapshot;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.PartitionOffsets;
+import io.lenses.store.GroupOffsetsSorter;
+import io.lenses.store.Selection;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A compact binary file holding the offsets of many groups, so one read from S3 can feed any number
+ * of restores and previews.
+ *
+ * <p>The layout is columnar. After the header (magic, version, the group, entry and string counts,
+ * and the byte length of each column but the string table) come:
+ *
+ * <ul>
+ *   <li>the string table: every group and topic name once, as varint length and UTF-8 bytes
+ *   <li>the groups column: the string id of each group, in group order
+ *   <li>the sizes column: how many partitions each group has
+ *   <li>the topics column: for each run of partitions of the same topic, the topic string id and
+ *       the length of the run
+ *   <li>the partitions column: each partition, as the delta from the previous partition of the same
+ *       group and topic
+ *   <li>the offsets column: each offset, as the delta from the previous offset of the same group
+ *       and topic
+ * </ul>
+ *
+ * <p>The entries are sorted by group, topic and partition, so the deltas are small. All the numbers
+ * are zig-zag varints. Reading memory-maps the file and walks the columns side by side in a single
+ * pass.
+ */
+public class OffsetsSnapshot {
+  private static final int MAGIC = 0x4F534E50;
+  private static final int VERSION = 1;
+  private static final int COLUMNS = 6;
+  private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + COLUMNS * 4;
+
+  private OffsetsSnapshot() {}
+
+  /**
+   * Writes the groups to the file. The file is written next to the target and moved in place, so a
+   * failed write leaves the previous snapshot untouched.
+   *
+   * @param file the snapshot file
+   * @param groups the groups to store
+   */
+  public static void write(Path file, Collection<GroupOffsets> groups) throws IOException {
+    final List<GroupOffsets> sorted = new ArrayList<>(groups);
+    sorted.sort((left, right) -> left.getGroup().compareTo(right.getGroup()));
+    final Columns columns = new Columns();
+    sorted.forEach(columns::add);
+    columns.write(file);
+  }
+
+  /**
+   * Writes the groups of the sorter to the file, taken from it in name order. Only the encoded
+   * columns are held while writing, a few bytes per partition, so the groups themselves stay within
+   * the budget of the sorter.
+   *
+   * @param file the snapshot file
+   * @param groups the groups to store
+   */
+  public static void write(Path file, GroupOffsetsSorter groups) throws IOException {
+    final Columns columns = new Columns();
+    groups.sorted(columns::add);
+    columns.write(file);
+  }
+
+  /**
+   * Reads the groups from the file.
+   *
+   * @param file the snapshot file
+   * @param groups the groups to read; all of them when empty
+   * @param consumer receives each group, in group order
+   * @return how many groups were read
+   */
+  public static int read(Path file, Optional<String[]> groups, Consumer<GroupOffsets> consumer)
+      throws IOException {
+    return read(file, Selection.of(groups), consumer);
+  }
+
+  /**
+   * Reads the selected groups and topics from the file.
+   *
+   * @param file the snapshot file
+   * @param selection the groups and topics to read
+   * @param consumer receives each group with selected topics, in group order
+   * @return how many groups were read
+   */
+  public static int read(Path file, Selection selection, Consumer<GroupOffsets> consumer)
+      throws IOException {
+    final MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("Not an offsets snapshot: " + file);
+      }
+      final int groupCount = buffer.getInt();
+      buffer.getInt(); // the entry count
+      final int stringCount = buffer.getInt();
+      final int[] columnSizes = new int[COLUMNS - 1];
+      for (int i = 0; i < columnSizes.length; i++) {
+        columnSizes[i] = buffer.getInt();
+      }
+      final String[] strings = new String[stringCount];
+      for (int i = 0; i < stringCount; i++) {
+        final byte[] bytes = new byte[(int) readVarint(buffer)];
+        buffer.get(bytes);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      final ByteBuffer groupIds = slice(buffer, columnSizes[0]);
+      final ByteBuffer sizes = slice(buffer, columnSizes[1]);
+      final ByteBuffer topics = slice(buffer, columnSizes[2]);
+      final ByteBuffer partitions = slice(buffer, columnSizes[3]);
+      final ByteBuffer offsets = slice(buffer, columnSizes[4]);
+
+      int read = 0;
+      for (int g = 0; g < groupCount; g++) {
+        final String group = strings[(int) readVarint(groupIds)];
+        final int size = (int) readVarint(sizes);
+        final boolean included = selection.includesGroup(group);
+        final PartitionOffsets.Builder groupOffsets = included ? PartitionOffsets.builder() : null;
+        int e = 0;
+        while (e < size) {
+          final String topic = strings[(int) readVarint(topics)];
+          final int run = (int) readVarint(topics);
+          final boolean topicIncluded = included && selection.includesTopic(topic);
+          int partition = 0;
+          long offset = 0;
+          for (int r = 0; r < run; r++, e++) {
+            partition += (int) readVarint(partitions);
+            offset += readVarint(offsets);
+            if (topicIncluded) {
+              groupOffsets.add(topic, partition, offset);
+            }
+          }
+        }
+        // a group left without partitions by the topic filter has nothing to restore
+        if (included && (size == 0 || !groupOffsets.isEmpty())) {
+          consumer.accept(new GroupOffsets(group, groupOffsets.build()));
+          read++;
+        }
+      }
+      return read;
+    } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupted offsets snapshot: " + file, e);
+    }
+  }
+
+  private static int id(String value, Map<String, Integer> ids, VarintBuffer strings) {
+    final Integer id = ids.get(value);
+    if (id != null) {
+      return id;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    strings.put(bytes.length);
+    strings.put(bytes);
+    ids.put(value, ids.size());
+    return ids.size() - 1;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int size) {
+    final ByteBuffer slice = buffer.slice();
+    slice.limit(size);
+    buffer.position(buffer.position() + size);
+    return slice;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  static long readVarint(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (shift > 63) {
+        throw new BufferUnderflowException();
+      }
+      b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    // zig-zag decoding
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /** The columns of a snapshot, encoded as the groups are added in name order. */
+  private static final class Columns {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final VarintBuffer strings = new VarintBuffer();
+    private final VarintBuffer groupIds = new VarintBuffer();
+    private final VarintBuffer sizes = new VarintBuffer();
+    private final VarintBuffer topics = new VarintBuffer();
+    private final VarintBuffer partitions = new VarintBuffer();
+    private final VarintBuffer offsets = new VarintBuffer();
+    private int groupCount;
+    private long entries;
+
+    private void add(GroupOffsets group) {
+      groupIds.put(id(group.getGroup(), ids, strings));
+      final PartitionOffsets groupOffsets = group.getPartitionOffsets();
+      sizes.put(groupOffsets.size());
+      for (int t = 0; t < groupOffsets.topicCount(); t++) {
+        // a topic run: its id and how many partitions it spans
+        topics.put(id(groupOffsets.topic(t), ids, strings));
+        topics.put(groupOffsets.topicEnd(t) - groupOffsets.topicStart(t));
+        int previousPartition = 0;
+        long previousOffset = 0;
+        for (int i = groupOffsets.topicStart(t); i < groupOffsets.topicEnd(t); i++) {
+          partitions.put(groupOffsets.partition(i) - previousPartition);
+          offsets.put(groupOffsets.offset(i) - previousOffset);
+          previousPartition = groupOffsets.partition(i);
+          previousOffset = groupOffsets.offset(i);
+          entries++;
+        }
+      }
+      groupCount++;
+    }
+
+    /**
+     * Writes the file next to the target and moves it in place, so a failed write leaves the
+     * previous snapshot untouched.
+     */
+    private void write(Path file) throws IOException {
+      final VarintBuffer[] columns = {strings, groupIds, sizes, topics, partitions, offsets};
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(VERSION).putInt(groupCount).putInt((int) entries);
+      // the string count leads the string table
+      header.putInt(ids.size());
+      for (int i = 1; i < COLUMNS; i++) {
+        header.putInt(columns[i].size());
+      }
+      header.flip();
+      final Path parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (FileChannel channel =
+          FileChannel.open(
+              temp,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        writeFully(channel, header);
+        for (VarintBuffer column : columns) {
+          writeFully(channel, column.asByteBuffer());
+        }
+        channel.force(true);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /** A growable byte buffer writing zig-zag varints. */
+  static class VarintBuffer {
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    void put(long value) {
+      // zig-zag encoding keeps the small negative deltas short
+      long zigZag = (value << 1) ^ (value >> 63);
+      ensure(10);
+      while ((zigZag & ~0x7FL) != 0) {
+        bytes[size++] = (byte) ((zigZag & 0x7F) | 0x80);
+        zigZag >>>= 7;
+      }
+      bytes[size++] = (byte) zigZag;
+    }
+
+    void put(byte[] value) {
+      ensure(value.length);
+      System.arraycopy(value, 0, bytes, size, value.length);
+      size += value.length;
+    }
+
+    int size() {
+      return size;
+    }
+
+    ByteBuffer asByteBuffer() {
+      return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    private void ensure(int extra) {
+      if (size + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+      }
+    }
+  }
+}
@@ -0,0 +1,374 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.PartitionOffsets;
+import io.lenses.metrics.RestoreMetrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the offsets read from an {@link ObjectStore} by group and hands every group over as
+ * soon as it is complete.
+ *
+ * <p>The stores list the keys in order, so all the group/topic/partition keys of a group come back
+ * together. Once a listing moves past a group (or ends) the group is sealed: no more keys will be
+ * listed for it. A sealed group is complete when the GETs for all its keys have returned, at which
+ * point it is passed to the consumer and dropped from memory. Only the groups with reads in flight
+ * are held.
+ *
+ * <p>With a {@link SpillConfig} budget, the offsets held above the budget are written to a sorted
+ * run file (see {@link SpillRuns}) and dropped from memory. A group with offsets on disk is no
+ * longer handed over when complete: {@link #finish()} merges the runs back once the read is done
+ * and hands over those groups one at a time. A bucket holding more partitions than the heap can
+ * take is then read within the budget, but the spilled groups lose the streaming: their restore
+ * only starts once the whole read is done. The offsets to spill are swapped out under the lock and
+ * written outside it, one run at a time, so the other threads keep reading while a run is written.
+ *
+ * <p>All methods are thread-safe and the consumer is never called concurrently. It is called
+ * outside the lock guarding the groups, so a consumer blocked on a full hand-over holds back the
+ * thread that completed the group but not the reads of the other threads.
+ */
+public class GroupOffsetsAggregator implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(GroupOffsetsAggregator.class);
+  private final Consumer<GroupOffsets> consumer;
+  private final SpillConfig spill;
+  private final Map<String, GroupState> groups = new HashMap<>();
+  private final Map<String, String> currentGroupByListing = new HashMap<>();
+  private final Set<String> completedGroups = new HashSet<>();
+  // the groups with offsets in the runs; they are handed over by finish()
+  private final Set<String> spilledGroups = new HashSet<>();
+  // the complete groups not yet passed to the consumer, in the order they completed
+  private final Queue<GroupOffsets> completed = new ArrayDeque<>();
+  // held while calling the consumer, so it is called by one thread at a time and in order
+  private final Object consumerLock = new Object();
+  private SpillRuns runs;
+  private long heldPartitions;
+  // whether a run is being written; no other spill starts meanwhile, so the runs keep their order
+  private boolean spilling;
+
+  public GroupOffsetsAggregator(Consumer<GroupOffsets> consumer) {
+    this(consumer, SpillConfig.DISABLED);
+  }
+
+  /** @param spill how many offsets may be held before they are spilled to disk */
+  public GroupOffsetsAggregator(Consumer<GroupOffsets> consumer, SpillConfig spill) {
+    if (consumer == null) throw new IllegalArgumentException("Consumer cannot be null");
+    if (spill == null) throw new IllegalArgumentException("Spill config cannot be null");
+    this.consumer = consumer;
+    this.spill = spill;
+  }
+
+  /**
+   * Records a key listed for the given group, ahead of its GET.
+   *
+   * @param listing identifies the listing the key came from, e.g. its prefix
+   * @param group the group of the key
+   */
+  public void listed(String listing, String group) {
+    synchronized (this) {
+      doListed(listing, group);
+    }
+    handOver();
+  }
+
+  private void doListed(String listing, String group) {
+    final String current = currentGroupByListing.put(listing, group);
+    if (current != null && !current.equals(group)) {
+      seal(current);
+    }
+    GroupState state = groups.get(group);
+    if (state == null) {
+      if (completedGroups.contains(group)) {
+        logger.warn(
+            "The keys of group:"
+                + group
+                + " are not listed together. Its offsets are restored in more than one batch.");
+      }
+      state = new GroupState(group);
+      groups.put(group, state);
+    }
+    state.pending++;
+  }
+
+  /** Records the offset read for a key previously passed to {@link #listed(String, String)}. */
+  public void read(String group, TopicPartition topicPartition, long offset) {
+    final List<GroupOffsets> run;
+    synchronized (this) {
+      run = doRead(group, topicPartition, offset);
+    }
+    if (run != null) {
+      writeRun(run);
+    }
+    handOver();
+  }
+
+  /** @return the offsets swapped out to be spilled, or null */
+  private List<GroupOffsets> doRead(String group, TopicPartition topicPartition, long offset) {
+    final GroupState state = groups.get(group);
+    if (state == null) {
+      throw new IllegalStateException("Group:" + group + " was not listed");
+    }
+    state.offsets.add(topicPartition.topic(), topicPartition.partition(), offset);
+    state.held++;
+    state.pending--;
+    heldPartitions++;
+    emitIfComplete(state);
+    if (spill.isEnabled() && heldPartitions > spill.getMaxHeldPartitions() && !spilling) {
+      return swapOut();
+    }
+    return null;
+  }
+
+  /** Records the end of a listing; its last group is sealed. */
+  public void listingDone(String listing) {
+    synchronized (this) {
+      final String current = currentGroupByListing.remove(listing);
+      if (current != null) {
+        seal(current);
+      }
+    }
+    handOver();
+  }
+
+  /**
+   * Hands over the groups spilled to disk, merged back from the runs. Called once every key has
+   * been listed and read; nothing is done when nothing was spilled.
+   */
+  public void finish() {
+    handOver();
+    synchronized (consumerLock) {
+      final SpillRuns merging;
+      final List<GroupOffsets> last;
+      synchronized (this) {
+        awaitSpill();
+        if (runs == null) {
+          return;
+        }
+        // the spilled groups still in memory join the runs, so each group is merged from one place
+        last = swapOut();
+        merging = runs;
+      }
+      writeRun(last);
+      final long start = System.nanoTime();
+      final int[] merged = {0};
+      try {
+        merging.merge(
+            offsets -> {
+              merged[0]++;
+              synchronized (this) {
+                completedGroups.add(offsets.getGroup());
+              }
+              if (!offsets.getPartitionOffsets().isEmpty()) {
+                consumer.accept(offsets);
+              }
+            });
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to merge the spilled offsets", e);
+      }
+      logger.info(
+          "Merged "
+              + merged[0]
+              + " spilled group(s) from "
+              + merging.size()
+              + " run(s) in "
+              + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+              + " ms");
+      synchronized (this) {
+        spilledGroups.clear();
+      }
+      close();
+    }
+  }
+
+  /** Deletes the run files, if any, once a merge in progress is done with them. */
+  @Override
+  public void close() {
+    synchronized (consumerLock) {
+      synchronized (this) {
+        awaitSpill();
+        if (runs != null) {
+          runs.close();
+          runs = null;
+        }
+      }
+    }
+  }
+
+  /** Returns the groups listed but not yet handed over. */
+  public synchronized List<String> pendingGroups() {
+    return new ArrayList<>(groups.keySet());
+  }
+
+  private void seal(String group) {
+    final GroupState state = groups.get(group);
+    if (state != null) {
+      state.sealed = true;
+      emitIfComplete(state);
+    }
+  }
+
+  private void emitIfComplete(GroupState state) {
+    if (state.sealed && state.pending == 0 && !state.deferred) {
+      if (spilledGroups.contains(state.group)) {
+        // the rest of its offsets are on disk; it is handed over by finish()
+        state.deferred = true;
+        return;
+      }
+      groups.remove(state.group);
+      heldPartitions -= state.held;
+      completedGroups.add(state.group);
+      if (!state.offsets.isEmpty()) {
+        completed.add(new GroupOffsets(state.group, state.offsets.build()));
+      }
+    }
+  }
+
+  /**
+   * Passes the complete groups to the consumer, outside the lock guarding the groups. A thread with
+   * nothing to hand over does not wait for the one calling the consumer.
+   */
+  private void handOver() {
+    if (!hasCompleted()) {
+      return;
+    }
+    synchronized (consumerLock) {
+      GroupOffsets groupOffsets;
+      while ((groupOffsets = nextCompleted()) != null) {
+        consumer.accept(groupOffsets);
+      }
+    }
+  }
+
+  private synchronized boolean hasCompleted() {
+    return !completed.isEmpty();
+  }
+
+  private synchronized GroupOffsets nextCompleted() {
+    return completed.poll();
+  }
+
+  /**
+   * Takes the offsets held out of the groups, for a new run, and drops the complete groups among
+   * them. The run is then written by {@link #writeRun(List)}, outside the lock.
+   *
+   * @return the groups of the run, sorted by name
+   */
+  private List<GroupOffsets> swapOut() {
+    final List<GroupState> spilled = new ArrayList<>();
+    for (GroupState state : groups.values()) {
+      if (state.held > 0 || state.deferred) {
+        spilled.add(state);
+      }
+    }
+    spilled.sort(Comparator.comparing(state -> state.group));
+    final List<GroupOffsets> run = new ArrayList<>(spilled.size());
+    for (GroupState state : spilled) {
+      if (state.held > 0) {
+        run.add(new GroupOffsets(state.group, state.offsets.build()));
+      }
+      spilledGroups.add(state.group);
+      state.offsets = PartitionOffsets.builder();
+      heldPartitions -= state.held;
+      state.held = 0;
+      if (state.deferred) {
+        groups.remove(state.group);
+      }
+    }
+    if (runs == null) {
+      runs = new SpillRuns(spill.getDirectory());
+    }
+    spilling = true;
+    return run;
+  }
+
+  /** Writes the offsets swapped out by {@link #swapOut()} to a new run. */
+  private void writeRun(List<GroupOffsets> run) {
+    final SpillRuns target;
+    synchronized (this) {
+      target = runs;
+    }
+    try {
+      if (!run.isEmpty()) {
+        long partitions = 0;
+        for (GroupOffsets groupOffsets : run) {
+          partitions += groupOffsets.getPartitionOffsets().size();
+        }
+        final long start = System.nanoTime();
+        final Path file = target.write(run);
+        RestoreMetrics.spilledPartitions.add(partitions);
+        logger.info(
+            "Spilled "
+                + partitions
+                + " partition offsets of "
+                + run.size()
+                + " group(s) to:"
+                + file
+                + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to spill the offsets to:" + spill.getDirectory(), e);
+    } finally {
+      synchronized (this) {
+        spilling = false;
+        notifyAll();
+      }
+    }
+  }
+
+  /** Waits for the run being written, if any. Called holding the lock. */
+  private void awaitSpill() {
+    boolean interrupted = false;
+    while (spilling) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class GroupState {
+    private final String group;
+    private PartitionOffsets.Builder offsets = PartitionOffsets.builder();
+    // the partition offsets held in memory
+    private int held;
+    private int pending;
+    private boolean sealed;
+    // complete, but waiting for finish() since part of its offsets is on disk
+    private boolean deferred;
+
+    private GroupState(String group) {
+      this.group = group;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.PartitionOffsets;
+import io.lenses.metrics.RestoreMetrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Takes groups in any order and hands them back in name order, within a {@link SpillConfig} budget:
+ * the groups held above the budget are written to a sorted run file (see {@link SpillRuns}) and
+ * merged back when the groups are handed over.
+ *
+ * <p>A group added more than once is handed over once, and a partition added more than once keeps
+ * the offset added last. {@link #add(GroupOffsets)} is thread-safe.
+ */
+public class GroupOffsetsSorter implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(GroupOffsetsSorter.class);
+  private static final Comparator<GroupOffsets> BY_GROUP =
+      Comparator.comparing(GroupOffsets::getGroup);
+  private final SpillConfig spill;
+  private final List<GroupOffsets> held = new ArrayList<>();
+  private long heldPartitions;
+  private int added;
+  private SpillRuns runs;
+
+  /** @param spill how many offsets may be held before they are spilled to disk */
+  public GroupOffsetsSorter(SpillConfig spill) {
+    if (spill == null) throw new IllegalArgumentException("Spill config cannot be null");
+    this.spill = spill;
+  }
+
+  public synchronized void add(GroupOffsets groupOffsets) {
+    held.add(groupOffsets);
+    heldPartitions += groupOffsets.getPartitionOffsets().size();
+    added++;
+    if (spill.isEnabled() && heldPartitions > spill.getMaxHeldPartitions()) {
+      spill();
+    }
+  }
+
+  /** @return how many groups were added */
+  public synchronized int size() {
+    return added;
+  }
+
+  /**
+   * Hands over the groups added, in name order.
+   *
+   * @param consumer receives every group once
+   */
+  public synchronized void sorted(Consumer<GroupOffsets> consumer) throws IOException {
+    if (runs != null) {
+      spill();
+      runs.merge(consumer);
+      return;
+    }
+    // the sort is stable, so the offsets of a group added twice are merged in the order added
+    held.sort(BY_GROUP);
+    int i = 0;
+    while (i < held.size()) {
+      final GroupOffsets first = held.get(i++);
+      if (i == held.size() || !held.get(i).getGroup().equals(first.getGroup())) {
+        consumer.accept(first);
+        continue;
+      }
+      final PartitionOffsets.Builder builder = PartitionOffsets.builder();
+      first.getPartitionOffsets().forEach(builder::add);
+      while (i < held.size() && held.get(i).getGroup().equals(first.getGroup())) {
+        held.get(i++).getPartitionOffsets().forEach(builder::add);
+      }
+      consumer.accept(new GroupOffsets(first.getGroup(), builder.build()));
+    }
+  }
+
+  /** Deletes the run files, if any. */
+  @Override
+  public synchronized void close() {
+    if (runs != null) {
+      runs.close();
+      runs = null;
+    }
+  }
+
+  /** Writes the groups held to a new run. */
+  private void spill() {
+    if (held.isEmpty()) {
+      return;
+    }
+    held.sort(BY_GROUP);
+    if (runs == null) {
+      runs = new SpillRuns(spill.getDirectory());
+    }
+    try {
+      logger.info(
+          "Spilled "
+              + heldPartitions
+              + " partition offsets of "
+              + held.size()
+              + " group(s) to:"
+              + runs.write(held));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to spill the offsets to:" + spill.getDirectory(), e);
+    }
+    RestoreMetrics.spilledPartitions.add(heldPartitions);
+    held.clear();
+    heldPartitions = 0;
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Describes what a reader lists: the key prefixes and the groups and topics to keep.
+ *
+ * <p>Without group includes the whole prefix is listed. With them, every exact group gets its own
+ * listing prefix, prefix/${group}/, and every group pattern lists from its literal prefix, e.g.
+ * prefix/payments- for payments-*, so the objects of the other groups are mostly never listed. The
+ * listed keys are then matched against the {@link Selection} before any of them is fetched.
+ *
+ * <p>The listings that span several groups, the whole prefix or a group pattern, can be split into
+ * one listing per group with {@link #splitByGroup(Function)}, so they are listed in parallel.
+ */
+public class ListingPlan {
+  private final List<String> prefixes;
+  private final Selection selection;
+  // prefix/, the path the groups are found under
+  private final String basePrefix;
+  // the prefixes listing more than one group
+  private final Set<String> spanning;
+
+  private ListingPlan(
+      List<String> prefixes, Selection selection, String basePrefix, Set<String> spanning) {
+    this.prefixes = prefixes;
+    this.selection = selection;
+    this.basePrefix = basePrefix;
+    this.spanning = spanning;
+  }
+
+  /** The prefixes to list; an empty prefix lists the whole store. */
+  public List<String> getPrefixes() {
+    return prefixes;
+  }
+
+  /** Returns true when the objects of the given group should be read. */
+  public boolean includesGroup(String group) {
+    return selection.includesGroup(group);
+  }
+
+  /** Returns true when the object of the given group and topic should be read. */
+  public boolean includes(String group, String topic) {
+    return selection.includes(group, topic);
+  }
+
+  /**
+   * Replaces every listing spanning several groups by one listing per group, prefix/${group}/. The
+   * groups are found with a listing cut at the / following the group, e.g. ListObjectsV2 with a /
+   * delimiter, which returns one entry per group instead of one per partition; the groups left out
+   * by the selection are dropped before they are listed.
+   *
+   * @param groupPrefixes lists the prefixes one level below the one given; see {@link
+   *     ObjectStore#listPrefixes(String)}
+   * @return the plan listing each group on its own
+   */
+  public ListingPlan splitByGroup(Function<String, List<String>> groupPrefixes) {
+    final List<String> split = new ArrayList<>();
+    for (String prefix : prefixes) {
+      if (!spanning.contains(prefix)) {
+        split.add(prefix);
+        continue;
+      }
+      // the root prefix may not end with the / the group prefixes are found under
+      final String parent = prefix.length() < basePrefix.length() ? basePrefix : prefix;
+      for (String groupPrefix : groupPrefixes.apply(parent)) {
+        if (groupPrefix.length() > basePrefix.length() + 1
+            && groupPrefix.startsWith(basePrefix)
+            && groupPrefix.endsWith("/")
+            && selection.includesGroup(
+                groupPrefix.substring(basePrefix.length(), groupPrefix.length() - 1))) {
+          split.add(groupPrefix);
+        }
+      }
+    }
+    return new ListingPlan(
+        Collections.unmodifiableList(split), selection, basePrefix, Collections.emptySet());
+  }
+
+  public static ListingPlan of(Optional<String> prefix, Optional<String[]> groups) {
+    return of(prefix, Selection.of(groups));
+  }
+
+  public static ListingPlan of(Optional<String> prefix, Selection selection) {
+    final String rootPrefix = prefix.orElse("");
+    final String basePrefix =
+        rootPrefix.isEmpty() || rootPrefix.endsWith("/") ? rootPrefix : rootPrefix + "/";
+    final NameFilter groups = selection.getGroups();
+    if (groups.acceptsNone()) {
+      return new ListingPlan(
+          Collections.emptyList(), selection, basePrefix, Collections.emptySet());
+    }
+    if (groups.getIncludes().isEmpty()) {
+      return whole(rootPrefix, selection, basePrefix);
+    }
+    final Set<String> candidates = new TreeSet<>();
+    for (NamePattern include : groups.getIncludes()) {
+      if (include.isLiteral()) {
+        candidates.add(basePrefix + include.getLiteralPrefix() + "/");
+      } else if (include.getLiteralPrefix().isEmpty()) {
+        // the pattern can match any group
+        return whole(rootPrefix, selection, basePrefix);
+      } else {
+        candidates.add(basePrefix + include.getLiteralPrefix());
+      }
+    }
+    // a prefix covered by a shorter one would list its keys twice; the sorted order puts the
+    // shorter one first
+    final List<String> prefixes = new ArrayList<>(candidates.size());
+    final Set<String> spanning = new HashSet<>();
+    for (String candidate : candidates) {
+      if (prefixes.isEmpty() || !candidate.startsWith(prefixes.get(prefixes.size() - 1))) {
+        prefixes.add(candidate);
+        // only an exact group prefix ends with /
+        if (!candidate.endsWith("/")) {
+          spanning.add(candidate);
+        }
+      }
+    }
+    return new ListingPlan(Collections.unmodifiableList(prefixes), selection, basePrefix, spanning);
+  }
+
+  private static ListingPlan whole(String rootPrefix, Selection selection, String basePrefix) {
+    return new ListingPlan(
+        Collections.singletonList(rootPrefix),
+        selection,
+        basePrefix,
+        Collections.singleton(rootPrefix));
+  }
+}
@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The {@link ObjectStore} of a local directory holding the same
+ * prefix/${group}/${topic}/${partition} layout as the bucket, e.g. a copy of it on a local disk.
+ *
+ * <p>A prefix is matched like a key prefix: prefix/payments- lists the directories
+ * prefix/payments-*. The entries it matches, typically the groups, are walked in parallel on a
+ * dedicated pool, a batch at a time, and their files are handed over in key order. An offset is
+ * read with a single positional read into a per-thread buffer.
+ */
+public class LocalObjectStore implements ObjectStore, AutoCloseable {
+  private static final int PAGE_SIZE = 1000;
+  private final Path root;
+  private final ForkJoinPool pool;
+  private final int batchSize;
+  private final ThreadLocal<ByteBuffer> buffers =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(Long.BYTES));
+
+  /**
+   * @param root the directory the keys are relative to
+   * @param parallelism how many directories are walked at the same time
+   */
+  public LocalObjectStore(Path root, int parallelism) {
+    if (root == null) throw new IllegalArgumentException("Root cannot be null");
+    if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+    this.root = root.toAbsolutePath().normalize();
+    this.pool = new ForkJoinPool(parallelism);
+    // a few directories per worker keep them busy while bounding the keys held in memory
+    this.batchSize = parallelism * 4;
+  }
+
+  @Override
+  public String name() {
+    return root.toString();
+  }
+
+  @Override
+  public void list(String prefix, Consumer<List<StoredObject>> page) {
+    // the prefix may end within a name, e.g. prefix/payments- for the groups payments-*
+    final int slash = prefix.lastIndexOf('/');
+    final Path directory = slash < 0 ? root : root.resolve(prefix.substring(0, slash));
+    final String namePrefix = prefix.substring(slash + 1);
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    final List<Path> entries;
+    try (Stream<Path> stream = Files.list(directory)) {
+      entries =
+          stream
+              .filter(path -> path.getFileName().toString().startsWith(namePrefix))
+              // a directory sorts as the keys under it, its name followed by /
+              .sorted(
+                  Comparator.comparing(
+                      (Path path) -> Files.isDirectory(path) ? key(path) + "/" : key(path)))
+              .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to list " + directory, e);
+    }
+    for (int from = 0; from < entries.size(); from += batchSize) {
+      final List<Path> batch = entries.subList(from, Math.min(entries.size(), from + batchSize));
+      final List<List<StoredObject>> walked;
+      try {
+        walked =
+            pool.submit(() -> batch.parallelStream().map(this::walk).collect(Collectors.toList()))
+                .get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while listing " + directory, e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new RuntimeException("Failed to list " + directory, e.getCause());
+      }
+      for (List<StoredObject> objects : walked) {
+        for (int start = 0; start < objects.size(); start += PAGE_SIZE) {
+          page.accept(objects.subList(start, Math.min(objects.size(), start + PAGE_SIZE)));
+        }
+      }
+    }
+  }
+
+  @Override
+  public List<String> listPrefixes(String prefix) {
+    final int slash = prefix.lastIndexOf('/');
+    final Path directory = slash < 0 ? root : root.resolve(prefix.substring(0, slash));
+    final String namePrefix = prefix.substring(slash + 1);
+    if (!Files.isDirectory(directory)) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> stream = Files.list(directory)) {
+      return stream
+          .filter(path -> path.getFileName().toString().startsWith(namePrefix))
+          .filter(Files::isDirectory)
+          .map(path -> key(path) + "/")
+          .sorted()
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to list " + directory, e);
+    }
+  }
+
+  @Override
+  public long readOffset(String key) {
+    final ByteBuffer buffer = buffers.get();
+    buffer.clear();
+    try (FileChannel channel = FileChannel.open(root.resolve(key), StandardOpenOption.READ)) {
+      if (channel.size() > Long.BYTES) {
+        throw new IOException("The offset object is longer than 8 bytes: " + key);
+      }
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, buffer.position()) < 0) {
+          throw new EOFException("The offset object is shorter than 8 bytes: " + key);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + key, e);
+    }
+    buffer.flip();
+    return buffer.getLong();
+  }
+
+  @Override
+  public void close() {
+    pool.shutdownNow();
+  }
+
+  /** Lists the files under the path, sorted by key. */
+  private List<StoredObject> walk(Path path) {
+    final List<StoredObject> objects = new ArrayList<>();
+    try {
+      Files.walkFileTree(
+          path,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+              if (attributes.isRegularFile()) {
+                objects.add(
+                    new StoredObject(key(file), null, attributes.lastModifiedTime().toInstant()));
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to list " + path, e);
+    }
+    objects.sort(Comparator.comparing(StoredObject::getKey));
+    return objects;
+  }
+
+  private String key(Path path) {
+    final Path relative = root.relativize(path);
+    final StringBuilder key = new StringBuilder();
+    for (Path name : relative) {
+      if (key.length() > 0) {
+        key.append('/');
+      }
+      key.append(name);
+    }
+    return key.toString();
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import com.typesafe.config.Config;
+
+/** The settings of the local filesystem source, read from the local.* options. */
+public class LocalStoreConfig {
+  private final String path;
+  private final int readConcurrency;
+
+  /**
+   * @param path the directory holding the group/topic/partition layout
+   * @param readConcurrency how many files are read, and directories walked, in parallel
+   */
+  public LocalStoreConfig(String path, int readConcurrency) {
+    if (path == null) throw new IllegalArgumentException("Local path cannot be null");
+    if (readConcurrency < 1)
+      throw new IllegalArgumentException("Local read concurrency must be at least 1");
+    this.path = path;
+    this.readConcurrency = readConcurrency;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public int getReadConcurrency() {
+    return readConcurrency;
+  }
+
+  public static LocalStoreConfig from(Config config) {
+    final int readConcurrency =
+        config.hasPath("local.read.concurrency")
+            ? config.getInt("local.read.concurrency")
+            : Runtime.getRuntime().availableProcessors();
+    return new LocalStoreConfig(config.getString("local.path"), readConcurrency);
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Include and exclude {@link NamePattern}s for group or topic names. A name is accepted when it
+ * matches an include, or when there are none, and matches no exclude.
+ */
+public final class NameFilter {
+  private static final NameFilter ALL =
+      new NameFilter(Collections.emptyList(), Collections.emptyList());
+  private static final NameFilter NONE =
+      new NameFilter(Collections.emptyList(), Collections.emptyList(), true);
+  private final List<NamePattern> includes;
+  private final List<NamePattern> excludes;
+  private final boolean none;
+
+  public NameFilter(List<NamePattern> includes, List<NamePattern> excludes) {
+    this(includes, excludes, false);
+  }
+
+  private NameFilter(List<NamePattern> includes, List<NamePattern> excludes, boolean none) {
+    if (includes == null) throw new IllegalArgumentException("Includes cannot be null");
+    if (excludes == null) throw new IllegalArgumentException("Excludes cannot be null");
+    this.includes = Collections.unmodifiableList(new ArrayList<>(includes));
+    this.excludes = Collections.unmodifiableList(new ArrayList<>(excludes));
+    this.none = none;
+  }
+
+  /** @return a filter accepting every name */
+  public static NameFilter all() {
+    return ALL;
+  }
+
+  /** @return a filter accepting no name */
+  public static NameFilter none() {
+    return NONE;
+  }
+
+  public boolean accepts(String name) {
+    if (none) {
+      return false;
+    }
+    if (!includes.isEmpty()) {
+      boolean included = false;
+      for (NamePattern include : includes) {
+        if (include.matches(name)) {
+          included = true;
+          break;
+        }
+      }
+      if (!included) {
+        return false;
+      }
+    }
+    for (NamePattern exclude : excludes) {
+      if (exclude.matches(name)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean acceptsAll() {
+    return !none && includes.isEmpty() && excludes.isEmpty();
+  }
+
+  public boolean acceptsNone() {
+    return none;
+  }
+
+  public List<NamePattern> getIncludes() {
+    return includes;
+  }
+
+  public List<NamePattern> getExcludes() {
+    return excludes;
+  }
+}
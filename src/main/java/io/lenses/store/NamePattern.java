@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A group or topic name pattern: a glob where {@code *} matches any run of characters and {@code ?}
+ * a single one, or a regular expression when written {@code regex:<expression>}. The whole name has
+ * to match.
+ *
+ * <p>The literal prefix is the text every matching name starts with; it narrows the listing.
+ */
+public final class NamePattern {
+  private static final String REGEX = "regex:";
+  private final String source;
+  private final Pattern pattern;
+  private final String literalPrefix;
+  private final boolean literal;
+
+  private NamePattern(String source, Pattern pattern, String literalPrefix, boolean literal) {
+    this.source = source;
+    this.pattern = pattern;
+    this.literalPrefix = literalPrefix;
+    this.literal = literal;
+  }
+
+  /** A pattern matching the name and nothing else, whatever characters it holds. */
+  public static NamePattern literal(String name) {
+    if (name == null || name.isEmpty())
+      throw new IllegalArgumentException("Name cannot be null or empty");
+    return new NamePattern(name, Pattern.compile(Pattern.quote(name)), name, true);
+  }
+
+  public static NamePattern parse(String text) {
+    if (text == null || text.trim().isEmpty())
+      throw new IllegalArgumentException("Pattern cannot be null or empty");
+    final String trimmed = text.trim();
+    if (trimmed.startsWith(REGEX)) {
+      final String expression = trimmed.substring(REGEX.length());
+      try {
+        return new NamePattern(
+            trimmed, Pattern.compile(expression), regexLiteralPrefix(expression), false);
+      } catch (PatternSyntaxException e) {
+        throw new IllegalArgumentException("Invalid pattern:" + trimmed, e);
+      }
+    }
+    final int wildcard = firstWildcard(trimmed);
+    if (wildcard < 0) {
+      return literal(trimmed);
+    }
+    final StringBuilder regex = new StringBuilder();
+    int literalStart = 0;
+    for (int i = 0; i < trimmed.length(); i++) {
+      final char c = trimmed.charAt(i);
+      if (c == '*' || c == '?') {
+        if (i > literalStart) {
+          regex.append(Pattern.quote(trimmed.substring(literalStart, i)));
+        }
+        regex.append(c == '*' ? ".*" : ".");
+        literalStart = i + 1;
+      }
+    }
+    if (literalStart < trimmed.length()) {
+      regex.append(Pattern.quote(trimmed.substring(literalStart)));
+    }
+    return new NamePattern(
+        trimmed, Pattern.compile(regex.toString()), trimmed.substring(0, wildcard), false);
+  }
+
+  public boolean matches(String name) {
+    return literal ? source.equals(name) : pattern.matcher(name).matches();
+  }
+
+  /** @return the text all the matching names start with; empty when they can start with anything */
+  public String getLiteralPrefix() {
+    return literalPrefix;
+  }
+
+  /** @return true when the pattern matches a single name */
+  public boolean isLiteral() {
+    return literal;
+  }
+
+  @Override
+  public String toString() {
+    return source;
+  }
+
+  private static int firstWildcard(String glob) {
+    for (int i = 0; i < glob.length(); i++) {
+      if (glob.charAt(i) == '*' || glob.charAt(i) == '?') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The leading plain characters of the expression. It stops at the first metacharacter and drops
+   * the character a quantifier applies to; an alternation anywhere can match names that share no
+   * prefix.
+   */
+  private static String regexLiteralPrefix(String expression) {
+    if (expression.indexOf('|') >= 0) {
+      return "";
+    }
+    final int start = expression.startsWith("^") ? 1 : 0;
+    int end = start;
+    while (end < expression.length() && "\\.[]{}()*+?^$|".indexOf(expression.charAt(end)) < 0) {
+      end++;
+    }
+    if (end < expression.length() && "*?{".indexOf(expression.charAt(end)) >= 0 && end > start) {
+      end--;
+    }
+    return expression.substring(start, end);
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The storage the group offsets are read from. The offsets are stored one object per partition,
+ * under keys like prefix/${group}/${topic}/${partition}, each holding the 8 bytes long of the
+ * offset.
+ *
+ * <p>Implementations must be thread-safe: the keys of different prefixes are listed and the objects
+ * read from several threads at once.
+ */
+public interface ObjectStore {
+
+  /** @return a name identifying the store, e.g. its bucket, used to key the {@link OffsetsCache} */
+  String name();
+
+  /**
+   * Lists the objects whose key starts with the prefix, in key order, handing them over page by
+   * page. The keys of a group must come back together.
+   *
+   * @param prefix the key prefix; empty for the whole store
+   * @param page receives each page of objects
+   */
+  void list(String prefix, Consumer<List<StoredObject>> page);
+
+  /**
+   * Lists the prefixes one level below the given one: the keys starting with it, cut after the next
+   * /, once each, like a ListObjectsV2 with a / delimiter. Under prefix/ they are the group
+   * prefixes, prefix/${group}/.
+   *
+   * @param prefix the key prefix; empty for the whole store
+   * @return the prefixes, each ending with /, in key order
+   */
+  List<String> listPrefixes(String prefix);
+
+  /**
+   * Reads the offset stored in the object.
+   *
+   * @param key the object key
+   * @return the 8 bytes long held by the object
+   */
+  long readOffset(String key);
+}
@@ -0,0 +1,261 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.utils.Tuple2;
+import io.lenses.utils.Utils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the group offsets from any {@link ObjectStore}: it lists the keys of the {@link
+ * ListingPlan}, reads the offset of every key and aggregates them into groups.
+ *
+ * <p>When the read concurrency is greater than 1, the objects of each listing page are read in
+ * parallel by a pool of that many workers, and the prefixes of the plan are listed in parallel. The
+ * results are merged into a thread-safe per group aggregation, so the output is the same as the
+ * sequential read. The workers take the reads of the group/topic prefixes in turn, each prefix
+ * within an optional rate ceiling; see {@link PrefixScheduler}.
+ *
+ * <p>With the listing split, the listings spanning several groups are replaced by one listing per
+ * group, found with a / delimiter listing (see {@link ListingPlan#splitByGroup}); the groups are
+ * then listed by as many workers as the read concurrency, and merged into the same aggregation. A
+ * bucket holding millions of keys under one prefix is no longer listed a page after the other.
+ *
+ * <p>Each group is handed over as soon as the listing has moved past it and all its objects have
+ * been read; see {@link GroupOffsetsAggregator}. With an {@link OffsetsCache}, the objects whose
+ * listing ETag and LastModified match the cache are not read. Above the {@link SpillConfig} budget,
+ * the offsets are spilled to disk and the spilled groups are handed over at the end of the read.
+ */
+public class ObjectStoreGroupOffsetsReader {
+  private static final Logger logger = LoggerFactory.getLogger(ObjectStoreGroupOffsetsReader.class);
+  private final ObjectStore store;
+  private final int concurrency;
+  private final Optional<OffsetsCache> cache;
+  private final boolean splitListing;
+  private final SpillConfig spill;
+  private final double prefixMaxRate;
+
+  /** @param config how the objects are read; see {@link ReaderConfig} */
+  public ObjectStoreGroupOffsetsReader(ObjectStore store, ReaderConfig config) {
+    if (store == null) throw new IllegalArgumentException("Store cannot be null");
+    if (config == null) throw new IllegalArgumentException("Reader config cannot be null");
+    this.store = store;
+    this.concurrency = config.getConcurrency();
+    this.cache = config.getCache();
+    this.splitListing = config.isSplitListing();
+    this.spill = config.getSpill();
+    this.prefixMaxRate = config.getPrefixMaxRate();
+  }
+
+  /**
+   * Reads the offsets under the prefix.
+   *
+   * @param prefix the key prefix the groups are stored under
+   * @param groups the groups to read; all of them when empty
+   * @param consumer receives each group once all its offsets are read
+   */
+  public void read(
+      Optional<String> prefix, Optional<String[]> groups, Consumer<GroupOffsets> consumer) {
+    read(prefix, Selection.of(groups), consumer);
+  }
+
+  /**
+   * Reads the offsets of the selected groups and topics under the prefix.
+   *
+   * @param prefix the key prefix the groups are stored under
+   * @param selection the groups and topics to read
+   * @param consumer receives each group once all its offsets are read
+   */
+  public void read(Optional<String> prefix, Selection selection, Consumer<GroupOffsets> consumer) {
+    final ListingPlan plan = plan(prefix, selection);
+    final AtomicInteger groupsCount = new AtomicInteger();
+    final GroupOffsetsAggregator aggregator =
+        new GroupOffsetsAggregator(
+            offsets -> {
+              groupsCount.incrementAndGet();
+              consumer.accept(offsets);
+            },
+            spill);
+    final PrefixScheduler scheduler =
+        concurrency > 1 ? new PrefixScheduler(concurrency, prefixMaxRate) : null;
+    // the listings get their own pool; they wait on the reads submitted to the scheduler
+    final ExecutorService listExecutor =
+        concurrency > 1 && plan.getPrefixes().size() > 1
+            ? Executors.newFixedThreadPool(
+                Math.min(concurrency, plan.getPrefixes().size()),
+                Utils.daemonThreadFactory("store-lister"))
+            : null;
+    logger.info(
+        "Reading offsets from "
+            + store.name()
+            + " using "
+            + concurrency
+            + " worker(s) over "
+            + plan.getPrefixes().size()
+            + " listing prefix(es)...");
+    try {
+      if (listExecutor == null) {
+        final OffsetKeys keys = new OffsetKeys();
+        for (String listing : plan.getPrefixes()) {
+          readPrefix(listing, plan, keys, aggregator, scheduler);
+        }
+      } else {
+        // every lister parses with its own pools
+        final ThreadLocal<OffsetKeys> listerKeys = ThreadLocal.withInitial(OffsetKeys::new);
+        final List<Future<?>> listings = new ArrayList<>(plan.getPrefixes().size());
+        for (String listing : plan.getPrefixes()) {
+          listings.add(
+              listExecutor.submit(
+                  () -> readPrefix(listing, plan, listerKeys.get(), aggregator, scheduler)));
+        }
+        awaitAll(listings);
+      }
+      aggregator.finish();
+      if (selection.isAll()) {
+        cache.ifPresent(c -> c.listed(store.name(), prefix.orElse("")));
+      }
+    } finally {
+      aggregator.close();
+      if (listExecutor != null) {
+        listExecutor.shutdownNow();
+      }
+      if (scheduler != null) {
+        scheduler.close();
+      }
+    }
+    logger.info("Finished reading Consumer Groups offsets data. Found " + groupsCount + " groups.");
+  }
+
+  private ListingPlan plan(Optional<String> prefix, Selection selection) {
+    final ListingPlan plan = ListingPlan.of(prefix, selection);
+    if (!splitListing || concurrency == 1) {
+      return plan;
+    }
+    final long start = System.nanoTime();
+    final ListingPlan split = plan.splitByGroup(store::listPrefixes);
+    logger.info(
+        "Found "
+            + split.getPrefixes().size()
+            + " group prefix(es) to list in parallel in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            + " ms");
+    return split;
+  }
+
+  private void readPrefix(
+      String prefix,
+      ListingPlan plan,
+      OffsetKeys keys,
+      GroupOffsetsAggregator aggregator,
+      PrefixScheduler scheduler) {
+    // a page takes from the end of the previous one, or the start of the listing, until it arrives
+    final long[] pageStart = {System.nanoTime()};
+    store.list(
+        prefix,
+        page -> {
+          RestoreMetrics.storeListPages.inc();
+          RestoreMetrics.storeListPageSeconds.observeSince(pageStart[0]);
+          final List<Future<?>> futures = new ArrayList<>(page.size());
+          for (StoredObject object : page) {
+            final String key = object.getKey();
+            final Tuple2<String, TopicPartition> groupTopicPartition = keys.tryParse(key);
+            if (groupTopicPartition == null) {
+              RestoreMetrics.keysInvalid.inc();
+              continue;
+            }
+            if (!plan.includes(groupTopicPartition._1(), groupTopicPartition._2().topic())) {
+              RestoreMetrics.keysFiltered.inc();
+              continue;
+            }
+            aggregator.listed(prefix, groupTopicPartition._1());
+            final Long cached =
+                cache
+                    .map(c -> c.get(store.name(), key, object.getETag(), object.getLastModified()))
+                    .orElse(null);
+            if (cached != null) {
+              RestoreMetrics.keysCached.inc();
+              aggregator.read(groupTopicPartition._1(), groupTopicPartition._2(), cached);
+              continue;
+            }
+            final Runnable task =
+                () -> {
+                  if (logger.isDebugEnabled()) {
+                    logger.debug("\tkey:" + key);
+                  }
+                  final long offset = readOffset(key);
+                  cache.ifPresent(
+                      c ->
+                          c.put(
+                              store.name(),
+                              key,
+                              object.getETag(),
+                              object.getLastModified(),
+                              offset));
+                  aggregator.read(groupTopicPartition._1(), groupTopicPartition._2(), offset);
+                };
+            if (scheduler == null) {
+              task.run();
+            } else {
+              futures.add(scheduler.submit(PrefixScheduler.prefixOf(key), task));
+            }
+          }
+          awaitAll(futures);
+          pageStart[0] = System.nanoTime();
+        });
+    aggregator.listingDone(prefix);
+  }
+
+  private long readOffset(String key) {
+    final long start = System.nanoTime();
+    RestoreMetrics.storeGets.inc();
+    try {
+      final long offset = store.readOffset(key);
+      RestoreMetrics.storeGetBytes.add(Long.BYTES);
+      return offset;
+    } catch (RuntimeException e) {
+      RestoreMetrics.storeGetErrors.inc();
+      throw e;
+    } finally {
+      RestoreMetrics.storeGetSeconds.observeSince(start);
+    }
+  }
+
+  private static void awaitAll(List<Future<?>> futures) {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while reading the offsets", e);
+    } catch (ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException("Failed to read the offsets", e.getCause());
+    }
+  }
+}
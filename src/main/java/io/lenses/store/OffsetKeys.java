@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import io.lenses.utils.Tuple2;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Parses the keys the offsets are stored under: ../${group}/${topic}/${partition}.
+ *
+ * <p>A key is scanned once, backwards from its end: the partition digits are parsed in place and
+ * the topic and group are the two segments before them. An instance pools what it returns, so the
+ * keys of a listing share one string per distinct group and topic, and one {@link TopicPartition}
+ * per distinct topic and partition, rather than holding a copy for each key. An instance is not
+ * thread-safe: each listing thread parses with its own, so the parallel listings do not contend on
+ * the pools.
+ */
+public final class OffsetKeys {
+  // partitions above this are rare enough not to be worth a slot in the per-topic arrays
+  private static final int MAX_POOLED_PARTITION = 1 << 16;
+  private final StringPool groups = new StringPool();
+  private final StringPool topics = new StringPool();
+  private final Map<String, TopicPartition[]> partitions = new IdentityHashMap<>();
+
+  /**
+   * Extracts the group and topic partition from the key, reusing the instances returned for the
+   * previous keys.
+   *
+   * @param key the object key
+   * @return a tuple of group and topic partition, or null when the key is not an offset key
+   */
+  public Tuple2<String, TopicPartition> tryParse(String key) {
+    final int partitionStart = partitionStart(key);
+    if (partitionStart < 0) {
+      return null;
+    }
+    final int partition = partition(key, partitionStart);
+    final int topicEnd = partitionStart - 1;
+    final int topicStart = key.lastIndexOf('/', topicEnd - 1) + 1;
+    if (partition < 0 || topicStart == 0 || topicStart == topicEnd) {
+      return null;
+    }
+    final int groupEnd = topicStart - 1;
+    final int groupStart = key.lastIndexOf('/', groupEnd - 1) + 1;
+    if (groupStart == groupEnd) {
+      return null;
+    }
+    final String group = groups.intern(key, groupStart, groupEnd);
+    final String topic = topics.intern(key, topicStart, topicEnd);
+    return new Tuple2<>(group, topicPartition(topic, partition));
+  }
+
+  private TopicPartition topicPartition(String topic, int partition) {
+    if (partition > MAX_POOLED_PARTITION) {
+      return new TopicPartition(topic, partition);
+    }
+    TopicPartition[] pooled = partitions.get(topic);
+    if (pooled == null || pooled.length <= partition) {
+      final TopicPartition[] grown =
+          new TopicPartition[Math.max(partition + 1, pooled == null ? 16 : pooled.length * 2)];
+      if (pooled != null) {
+        System.arraycopy(pooled, 0, grown, 0, pooled.length);
+      }
+      pooled = grown;
+      partitions.put(topic, pooled);
+    }
+    TopicPartition topicPartition = pooled[partition];
+    if (topicPartition == null) {
+      topicPartition = new TopicPartition(topic, partition);
+      pooled[partition] = topicPartition;
+    }
+    return topicPartition;
+  }
+
+  /**
+   * Extracts the group, topic and partition from the key.
+   *
+   * @param key the object key
+   * @return a tuple of group and topic partition
+   */
+  public static Tuple2<String, TopicPartition> parse(String key) {
+    final int partitionStart = partitionStart(key);
+    final int partition = partitionStart < 0 ? -1 : partition(key, partitionStart);
+    final int topicEnd = partitionStart - 1;
+    final int topicStart = partition < 0 ? 0 : key.lastIndexOf('/', topicEnd - 1) + 1;
+    if (topicStart == 0 || topicStart == topicEnd) {
+      throw new IllegalArgumentException("Invalid S3 key:" + key);
+    }
+    final int groupEnd = topicStart - 1;
+    final int groupStart = key.lastIndexOf('/', groupEnd - 1) + 1;
+    if (groupStart == groupEnd) {
+      throw new IllegalArgumentException("Invalid S3 key:" + key);
+    }
+    return new Tuple2<>(
+        key.substring(groupStart, groupEnd),
+        new TopicPartition(key.substring(topicStart, topicEnd), partition));
+  }
+
+  /** @return true when the key has a group, a topic and a numeric partition */
+  public static boolean isValid(String key) {
+    final int partitionStart = partitionStart(key);
+    if (partitionStart < 0 || partition(key, partitionStart) < 0) {
+      return false;
+    }
+    final int topicEnd = partitionStart - 1;
+    final int topicStart = key.lastIndexOf('/', topicEnd - 1) + 1;
+    return topicStart > 0
+        && topicStart < topicEnd
+        && key.lastIndexOf('/', topicStart - 2) + 1 < topicStart - 1;
+  }
+
+  /** @return the index of the trailing digits when a '/' precedes them, otherwise -1 */
+  private static int partitionStart(String key) {
+    int index = key.length();
+    while (index > 0 && isDigit(key.charAt(index - 1))) {
+      index--;
+    }
+    return index == key.length() || index < 2 || key.charAt(index - 1) != '/' ? -1 : index;
+  }
+
+  /** @return the partition in the digits from start to the end of the key, or -1 on overflow */
+  private static int partition(String key, int start) {
+    long partition = 0;
+    for (int index = start; index < key.length(); index++) {
+      partition = partition * 10 + (key.charAt(index) - '0');
+      if (partition > Integer.MAX_VALUE) {
+        return -1;
+      }
+    }
+    return (int) partition;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * An open-addressing set of strings looked up by a region of another string, so a hit costs no
+   * allocation.
+   */
+  static final class StringPool {
+    private String[] table = new String[64];
+    private int size;
+    // the keys are listed in order, so a name usually repeats the previous one
+    private String last;
+
+    String intern(String source, int start, int end) {
+      final int length = end - start;
+      if (last != null && last.length() == length && last.regionMatches(0, source, start, length)) {
+        return last;
+      }
+      int hash = 0;
+      for (int index = start; index < end; index++) {
+        hash = 31 * hash + source.charAt(index);
+      }
+      final int mask = table.length - 1;
+      int slot = spread(hash) & mask;
+      String pooled;
+      while ((pooled = table[slot]) != null) {
+        if (pooled.length() == length && pooled.regionMatches(0, source, start, length)) {
+          last = pooled;
+          return pooled;
+        }
+        slot = (slot + 1) & mask;
+      }
+      pooled = source.substring(start, end);
+      table[slot] = pooled;
+      last = pooled;
+      if (++size * 2 > table.length) {
+        resize();
+      }
+      return pooled;
+    }
+
+    int size() {
+      return size;
+    }
+
+    private void resize() {
+      final String[] old = table;
+      table = new String[old.length * 2];
+      final int mask = table.length - 1;
+      for (String pooled : old) {
+        if (pooled != null) {
+          // the hash is the one of String, which the string caches
+          int slot = spread(pooled.hashCode()) & mask;
+          while (table[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          table[slot] = pooled;
+        }
+      }
+    }
+
+    // the hashes of names differing in their last characters are close to each other; without
+    // the multiplication they fill runs of adjacent slots and the probes get long
+    private static int spread(int hash) {
+      final int mixed = hash * 0x9E3779B9;
+      return mixed ^ (mixed >>> 16);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local cache of the offsets read from an object store, validated against the ETag and
+ * LastModified returned by the listing. An object whose listing entry matches the cached one is not
+ * downloaded again, so a repeated restore over unchanged objects only costs the listing calls.
+ *
+ * <p>The cache lives in a single memory-mapped file made of a header (magic, version, entry count)
+ * followed by the entries: the store/key and the ETag as length-prefixed UTF-8, then the
+ * LastModified epoch milliseconds and the offset. The file is rewritten as a whole on {@link
+ * #save()} and swapped in with an atomic move, so an interrupted run leaves the previous cache in
+ * place.
+ *
+ * <p>The entries under a prefix the run listed in full, but did not find there, are the objects
+ * deleted since and are dropped on save rather than kept forever. The entries of the groups a run
+ * did not select, or under a prefix it did not list, are kept.
+ */
+public class OffsetsCache {
+  private static final Logger logger = LoggerFactory.getLogger(OffsetsCache.class);
+  private static final int MAGIC = 0x4F464643;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 12;
+  private static final long NO_LAST_MODIFIED = -1L;
+
+  private final Path file;
+  private final Map<String, Entry> entries;
+  // the store/prefix listed in full by this run
+  private final Set<String> listed = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  private OffsetsCache(Path file, Map<String, Entry> entries) {
+    this.file = file;
+    this.entries = entries;
+  }
+
+  /**
+   * Loads the cache from the file. A missing or unreadable file gives an empty cache.
+   *
+   * @param file the cache file
+   * @return the cache
+   */
+  public static OffsetsCache load(Path file) {
+    if (file == null) throw new IllegalArgumentException("Cache file cannot be null");
+    final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    if (Files.exists(file)) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        final MappedByteBuffer buffer =
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+          throw new IOException("Not an offsets cache file");
+        }
+        final int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+          final String key = readString(buffer);
+          final String eTag = readString(buffer);
+          entries.put(key, new Entry(eTag, buffer.getLong(), buffer.getLong(), false));
+        }
+        logger.info("Loaded " + count + " cached offsets from " + file);
+      } catch (IOException | BufferUnderflowException e) {
+        logger.warn("Ignoring the offsets cache " + file + ". " + e);
+        entries.clear();
+      }
+    }
+    return new OffsetsCache(file, entries);
+  }
+
+  /**
+   * Returns the cached offset of the object, when the ETag and LastModified of the listing match
+   * the cached ones.
+   *
+   * @return the offset, or null when the object has to be downloaded
+   */
+  public Long get(String store, String key, String eTag, Instant lastModified) {
+    final Entry entry = entries.get(store + "/" + key);
+    if (entry != null
+        && eTag != null
+        && entry.eTag.equals(eTag)
+        && entry.lastModified == toMillis(lastModified)) {
+      hits.incrementAndGet();
+      entry.seen = true;
+      return entry.offset;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  public void put(String store, String key, String eTag, Instant lastModified, long offset) {
+    if (eTag == null) {
+      return;
+    }
+    entries.put(store + "/" + key, new Entry(eTag, toMillis(lastModified), offset, true));
+  }
+
+  /**
+   * Notes that every object under the prefix was listed, so that the entries under it the run did
+   * not find are dropped on save.
+   *
+   * @param store the store the prefix was listed from
+   * @param prefix the key prefix; empty for the whole store
+   */
+  public void listed(String store, String prefix) {
+    listed.add(store + "/" + prefix);
+  }
+
+  public int getHits() {
+    return hits.get();
+  }
+
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Writes the entries to the file, but the ones under a prefix listed in full that the run did not
+   * find there.
+   */
+  public void save() throws IOException {
+    final List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.size());
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      if (entry.getValue().seen || !isListed(entry.getKey())) {
+        snapshot.add(entry);
+      }
+    }
+    final int pruned = entries.size() - snapshot.size();
+    final List<byte[]> keys = new ArrayList<>(snapshot.size());
+    final List<byte[]> eTags = new ArrayList<>(snapshot.size());
+    long size = HEADER_SIZE;
+    for (Map.Entry<String, Entry> entry : snapshot) {
+      final byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      final byte[] eTag = entry.getValue().eTag.getBytes(StandardCharsets.UTF_8);
+      keys.add(key);
+      eTags.add(eTag);
+      size += 2 + key.length + 2 + eTag.length + 16;
+    }
+    final Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(snapshot.size());
+      for (int i = 0; i < snapshot.size(); i++) {
+        final Entry entry = snapshot.get(i).getValue();
+        writeString(buffer, keys.get(i));
+        writeString(buffer, eTags.get(i));
+        buffer.putLong(entry.lastModified).putLong(entry.offset);
+      }
+      buffer.force();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    logger.info(
+        "Saved "
+            + snapshot.size()
+            + " cached offsets to "
+            + file
+            + ", dropped "
+            + pruned
+            + " not listed. This run: "
+            + hits
+            + " hits, "
+            + misses
+            + " misses.");
+  }
+
+  private boolean isListed(String key) {
+    for (String prefix : listed) {
+      if (key.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    final byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(ByteBuffer buffer, byte[] bytes) {
+    buffer.putShort((short) bytes.length).put(bytes);
+  }
+
+  private static long toMillis(Instant instant) {
+    return instant == null ? NO_LAST_MODIFIED : instant.toEpochMilli();
+  }
+
+  /** The cached state of one object. */
+  private static class Entry {
+    private final String eTag;
+    private final long lastModified;
+    private final long offset;
+    // whether this run listed the object unchanged or read it
+    private volatile boolean seen;
+
+    private Entry(String eTag, long lastModified, long offset, boolean seen) {
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+      this.offset = offset;
+      this.seen = seen;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.utils.Utils;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the object reads on a pool of workers, taking the queued reads of the key prefixes in turn
+ * rather than in the order they were listed.
+ *
+ * <p>The listing returns the keys of a group/topic prefix together, so a plain queue sends a burst
+ * of reads to one prefix after the other. S3 scales its request rate per prefix: a burst on a
+ * single prefix is throttled long before the bucket is busy. Here every prefix has its own queue
+ * and the workers go round the prefixes with reads waiting, one read each. With a rate ceiling, the
+ * reads of a prefix are also spaced out, and a worker moves on to the next prefix rather than wait
+ * on a busy one.
+ */
+public class PrefixScheduler implements AutoCloseable {
+  // the prefixes kept for their spacing once their queue is empty, before the stale ones are pruned
+  private static final int PRUNE_SIZE = 10_000;
+  private final long intervalNanos;
+  private final ExecutorService workers;
+  private final Map<String, PrefixQueue> queues = new HashMap<>();
+  // the prefixes with reads waiting, in turn
+  private final ArrayDeque<PrefixQueue> turns = new ArrayDeque<>();
+  private int pruneSize = PRUNE_SIZE;
+  private boolean closed;
+
+  /**
+   * @param threads how many reads run at the same time
+   * @param maxRatePerPrefix the most reads per second of a single prefix; 0 for no limit
+   */
+  public PrefixScheduler(int threads, double maxRatePerPrefix) {
+    if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1");
+    if (maxRatePerPrefix < 0)
+      throw new IllegalArgumentException("Max rate per prefix cannot be negative");
+    this.intervalNanos =
+        maxRatePerPrefix == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / maxRatePerPrefix);
+    this.workers = Executors.newFixedThreadPool(threads, Utils.daemonThreadFactory("store-reader"));
+    for (int i = 0; i < threads; i++) {
+      workers.execute(this::work);
+    }
+  }
+
+  /**
+   * Queues a read behind the other reads of its prefix.
+   *
+   * @param prefix the key prefix of the read, e.g. group/topic/
+   */
+  public Future<?> submit(String prefix, Runnable task) {
+    final FutureTask<Void> future = new FutureTask<>(task, null);
+    synchronized (this) {
+      if (closed) throw new RejectedExecutionException("The scheduler is closed");
+      if (queues.size() >= pruneSize) {
+        prune();
+      }
+      final PrefixQueue queue = queues.computeIfAbsent(prefix, PrefixQueue::new);
+      if (queue.tasks.isEmpty()) {
+        turns.addLast(queue);
+      }
+      queue.tasks.addLast(future);
+      notify();
+    }
+    return future;
+  }
+
+  /** @return the prefix of the key: everything up to its last / */
+  public static String prefixOf(String key) {
+    return key.substring(0, key.lastIndexOf('/') + 1);
+  }
+
+  /** Stops the workers; the reads still queued are cancelled. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      for (PrefixQueue queue : turns) {
+        queue.tasks.forEach(task -> task.cancel(false));
+      }
+      turns.clear();
+      queues.clear();
+      notifyAll();
+    }
+    workers.shutdownNow();
+  }
+
+  private void work() {
+    try {
+      FutureTask<?> task;
+      while ((task = take()) != null) {
+        task.run();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** @return the next read, taking the prefixes in turn; null once closed */
+  private synchronized FutureTask<?> take() throws InterruptedException {
+    boolean waited = false;
+    while (!closed) {
+      final long now = System.nanoTime();
+      long waitNanos = Long.MAX_VALUE;
+      for (int i = turns.size(); i > 0; i--) {
+        final PrefixQueue queue = turns.pollFirst();
+        if (intervalNanos == 0 || queue.nextNanos - now <= 0) {
+          final FutureTask<?> task = queue.tasks.pollFirst();
+          queue.nextNanos = Math.max(queue.nextNanos, now) + intervalNanos;
+          if (queue.tasks.isEmpty()) {
+            // kept for its spacing when there is a ceiling
+            if (intervalNanos == 0) {
+              queues.remove(queue.prefix);
+            }
+          } else {
+            turns.addLast(queue);
+          }
+          return task;
+        }
+        waitNanos = Math.min(waitNanos, queue.nextNanos - now);
+        turns.addLast(queue);
+      }
+      if (waitNanos == Long.MAX_VALUE) {
+        wait();
+      } else {
+        if (!waited) {
+          RestoreMetrics.prefixWaits.inc();
+          waited = true;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+      }
+    }
+    return null;
+  }
+
+  /** Drops the prefixes with no read waiting whose spacing is over. */
+  private void prune() {
+    final long now = System.nanoTime();
+    queues.values().removeIf(queue -> queue.tasks.isEmpty() && queue.nextNanos - now <= 0);
+    pruneSize = Math.max(PRUNE_SIZE, queues.size() * 2);
+  }
+
+  private static final class PrefixQueue {
+    private final String prefix;
+    private final ArrayDeque<FutureTask<?>> tasks = new ArrayDeque<>();
+    private long nextNanos;
+
+    private PrefixQueue(String prefix) {
+      this.prefix = prefix;
+      this.nextNanos = System.nanoTime();
+    }
+  }
+}
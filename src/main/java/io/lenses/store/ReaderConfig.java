@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.util.Optional;
+
+/**
+ * How the offsets are read from an object store: the read concurrency, the listing split, the
+ * cache, the spill budget and the per-prefix rate. It is built with {@link #builder()} from the
+ * aws.* or local.* options; {@link #DEFAULT} reads one object at a time with none of them.
+ */
+public class ReaderConfig {
+  public static final ReaderConfig DEFAULT = builder().build();
+
+  private final int concurrency;
+  private final Optional<OffsetsCache> cache;
+  private final boolean splitListing;
+  private final SpillConfig spill;
+  private final double prefixMaxRate;
+
+  private ReaderConfig(Builder builder) {
+    if (builder.concurrency < 1)
+      throw new IllegalArgumentException("Concurrency must be at least 1");
+    if (builder.cache == null) throw new IllegalArgumentException("Cache cannot be null");
+    if (builder.spill == null) throw new IllegalArgumentException("Spill config cannot be null");
+    if (builder.prefixMaxRate < 0)
+      throw new IllegalArgumentException("Prefix max rate cannot be negative");
+    this.concurrency = builder.concurrency;
+    this.cache = builder.cache;
+    this.splitListing = builder.splitListing;
+    this.spill = builder.spill;
+    this.prefixMaxRate = builder.prefixMaxRate;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** @return how many objects are read in parallel */
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  /** @return the cache of the offsets of the unchanged objects */
+  public Optional<OffsetsCache> getCache() {
+    return cache;
+  }
+
+  /**
+   * @return whether the groups are found first and listed in parallel, when the concurrency is
+   *     greater than 1
+   */
+  public boolean isSplitListing() {
+    return splitListing;
+  }
+
+  /** @return how many offsets may be held before they are spilled to disk */
+  public SpillConfig getSpill() {
+    return spill;
+  }
+
+  /** @return the most reads per second of a group/topic prefix; 0 for no limit */
+  public double getPrefixMaxRate() {
+    return prefixMaxRate;
+  }
+
+  /** Builds a {@link ReaderConfig}; the options left unset are those of {@link #DEFAULT}. */
+  public static final class Builder {
+    private int concurrency = 1;
+    private Optional<OffsetsCache> cache = Optional.empty();
+    private boolean splitListing;
+    private SpillConfig spill = SpillConfig.DISABLED;
+    private double prefixMaxRate;
+
+    private Builder() {}
+
+    public Builder concurrency(int concurrency) {
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    public Builder cache(Optional<OffsetsCache> cache) {
+      this.cache = cache;
+      return this;
+    }
+
+    public Builder splitListing(boolean splitListing) {
+      this.splitListing = splitListing;
+      return this;
+    }
+
+    public Builder spill(SpillConfig spill) {
+      this.spill = spill;
+      return this;
+    }
+
+    public Builder prefixMaxRate(double prefixMaxRate) {
+      this.prefixMaxRate = prefixMaxRate;
+      return this;
+    }
+
+    public ReaderConfig build() {
+      return new ReaderConfig(this);
+    }
+  }
+}
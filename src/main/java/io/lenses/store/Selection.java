@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/** The groups and topics to restore. */
+public final class Selection {
+  private static final Selection ALL = new Selection(NameFilter.all(), NameFilter.all());
+  private final NameFilter groups;
+  private final NameFilter topics;
+  private final Set<String> skippedGroups;
+
+  public Selection(NameFilter groups, NameFilter topics) {
+    this(groups, topics, Collections.emptySet());
+  }
+
+  private Selection(NameFilter groups, NameFilter topics, Set<String> skippedGroups) {
+    if (groups == null) throw new IllegalArgumentException("Groups filter cannot be null");
+    if (topics == null) throw new IllegalArgumentException("Topics filter cannot be null");
+    this.groups = groups;
+    this.topics = topics;
+    this.skippedGroups = skippedGroups;
+  }
+
+  public static Selection all() {
+    return ALL;
+  }
+
+  /**
+   * @param groups the exact names of the groups to read, all of them when empty
+   * @return the selection of those groups and all their topics
+   */
+  public static Selection of(Optional<String[]> groups) {
+    if (!groups.isPresent()) {
+      return ALL;
+    }
+    final List<NamePattern> includes = new ArrayList<>();
+    for (String group : groups.get()) {
+      if (!group.isEmpty()) {
+        includes.add(NamePattern.literal(group));
+      }
+    }
+    if (includes.isEmpty()) {
+      return new Selection(NameFilter.none(), NameFilter.all());
+    }
+    return new Selection(new NameFilter(includes, new ArrayList<>()), NameFilter.all());
+  }
+
+  /**
+   * @param groups exact group names to leave out, e.g. the groups a resumed restore already has;
+   *     their keys are still listed but never read
+   * @return this selection without those groups
+   */
+  public Selection skipping(Set<String> groups) {
+    if (groups.isEmpty()) {
+      return this;
+    }
+    final Set<String> skipped = new HashSet<>(skippedGroups);
+    skipped.addAll(groups);
+    return new Selection(this.groups, topics, Collections.unmodifiableSet(skipped));
+  }
+
+  public NameFilter getGroups() {
+    return groups;
+  }
+
+  public NameFilter getTopics() {
+    return topics;
+  }
+
+  /** @return whether every group and topic is read, none being left out */
+  public boolean isAll() {
+    return skippedGroups.isEmpty() && groups.acceptsAll() && topics.acceptsAll();
+  }
+
+  public boolean includesGroup(String group) {
+    return !skippedGroups.contains(group) && groups.accepts(group);
+  }
+
+  public boolean includesTopic(String topic) {
+    return topics.accepts(topic);
+  }
+
+  public boolean includes(String group, String topic) {
+    return includesGroup(group) && topics.accepts(topic);
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import com.typesafe.config.Config;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * How many offsets the aggregation of the read may hold in memory before it spills them to disk,
+ * read from the spill.* options.
+ */
+public class SpillConfig {
+  // an int and a long per partition, plus the slack of the growing arrays
+  static final int BYTES_PER_PARTITION = 24;
+  public static final SpillConfig DEFAULT =
+      new SpillConfig(0, Paths.get(System.getProperty("java.io.tmpdir")));
+  public static final SpillConfig DISABLED = new SpillConfig(0, DEFAULT.directory);
+
+  private final long memoryMaxMb;
+  private final Path directory;
+
+  /**
+   * @param memoryMaxMb the memory the offsets held may take before they are spilled; 0 for no limit
+   * @param directory where the run files are written
+   */
+  public SpillConfig(long memoryMaxMb, Path directory) {
+    if (memoryMaxMb < 0) throw new IllegalArgumentException("Spill memory cannot be negative");
+    if (directory == null) throw new IllegalArgumentException("Spill directory cannot be null");
+    this.memoryMaxMb = memoryMaxMb;
+    this.directory = directory;
+  }
+
+  public long getMemoryMaxMb() {
+    return memoryMaxMb;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public boolean isEnabled() {
+    return memoryMaxMb > 0;
+  }
+
+  /** @return how many partition offsets fit the memory budget */
+  public long getMaxHeldPartitions() {
+    return Math.max(1, memoryMaxMb * 1024 * 1024 / BYTES_PER_PARTITION);
+  }
+
+  public static SpillConfig from(Config config) {
+    final long memoryMaxMb =
+        config.hasPath("spill.memory.max.mb")
+            ? config.getLong("spill.memory.max.mb")
+            : DEFAULT.memoryMaxMb;
+    final Path directory =
+        config.hasPath("spill.dir") ? Paths.get(config.getString("spill.dir")) : DEFAULT.directory;
+    return new SpillConfig(memoryMaxMb, directory);
+  }
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.PartitionOffsets;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The run files written when the {@link GroupOffsetsAggregator} or the {@link GroupOffsetsSorter}
+ * goes over its memory budget. Each run holds the groups sorted by name, every group with its
+ * partitions sorted by topic and partition. {@link #merge(Consumer)} reads all the runs side by
+ * side and hands each group over once, so only one group per run is held at a time.
+ */
+final class SpillRuns implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(SpillRuns.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private final Path directory;
+  private final List<Path> files = new ArrayList<>();
+
+  SpillRuns(Path directory) {
+    if (directory == null) throw new IllegalArgumentException("Directory cannot be null");
+    this.directory = directory;
+  }
+
+  /**
+   * Writes a run.
+   *
+   * @param groups the groups, sorted by name
+   * @return the run file
+   */
+  Path write(List<GroupOffsets> groups) throws IOException {
+    Files.createDirectories(directory);
+    final Path file = Files.createTempFile(directory, "offsets-run-", ".bin");
+    files.add(file);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+      for (GroupOffsets group : groups) {
+        final PartitionOffsets offsets = group.getPartitionOffsets();
+        out.writeBoolean(true);
+        out.writeUTF(group.getGroup());
+        out.writeInt(offsets.topicCount());
+        for (int t = 0; t < offsets.topicCount(); t++) {
+          out.writeUTF(offsets.topic(t));
+          out.writeInt(offsets.topicEnd(t) - offsets.topicStart(t));
+          for (int i = offsets.topicStart(t); i < offsets.topicEnd(t); i++) {
+            out.writeInt(offsets.partition(i));
+            out.writeLong(offsets.offset(i));
+          }
+        }
+      }
+      out.writeBoolean(false);
+    }
+    return file;
+  }
+
+  /** @return how many runs were written */
+  int size() {
+    return files.size();
+  }
+
+  /**
+   * Merges the runs by group. A partition found in several runs keeps the offset of the latest run.
+   *
+   * @param consumer receives every group once, in name order
+   */
+  void merge(Consumer<GroupOffsets> consumer) throws IOException {
+    final List<Run> runs = new ArrayList<>(files.size());
+    // the runs of a group are taken in the order they were written, so the latest offset wins
+    final PriorityQueue<Run> queue =
+        new PriorityQueue<>(
+            Comparator.comparing((Run run) -> run.group).thenComparingInt(run -> run.index));
+    try {
+      for (int i = 0; i < files.size(); i++) {
+        final Run run = new Run(i, files.get(i));
+        runs.add(run);
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+      while (!queue.isEmpty()) {
+        final String group = queue.peek().group;
+        final PartitionOffsets.Builder builder = PartitionOffsets.builder();
+        while (!queue.isEmpty() && queue.peek().group.equals(group)) {
+          final Run run = queue.poll();
+          run.offsets.forEach(builder::add);
+          if (run.next()) {
+            queue.add(run);
+          }
+        }
+        consumer.accept(new GroupOffsets(group, builder.build()));
+      }
+    } finally {
+      for (Run run : runs) {
+        run.in.close();
+      }
+    }
+  }
+
+  /** Deletes the run files. */
+  @Override
+  public void close() {
+    for (Path file : files) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        logger.warn("Failed to delete the spill run:" + file, e);
+      }
+    }
+    files.clear();
+  }
+
+  /** A run being read, positioned on its current group. */
+  private static final class Run {
+    private final int index;
+    private final DataInputStream in;
+    private String group;
+    private PartitionOffsets offsets;
+
+    private Run(int index, Path file) throws IOException {
+      this.index = index;
+      this.in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+    }
+
+    /** @return whether a group was read; false at the end of the run */
+    private boolean next() throws IOException {
+      if (!in.readBoolean()) {
+        group = null;
+        offsets = null;
+        return false;
+      }
+      group = in.readUTF();
+      final PartitionOffsets.Builder builder = PartitionOffsets.builder();
+      final int topics = in.readInt();
+      for (int t = 0; t < topics; t++) {
+        final String topic = in.readUTF();
+        final int partitions = in.readInt();
+        for (int i = 0; i < partitions; i++) {
+          builder.add(topic, in.readInt(), in.readLong());
+        }
+      }
+      offsets = builder.build();
+      return true;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import java.time.Instant;
+
+/** An object returned by an {@link ObjectStore} listing. */
+public class StoredObject {
+  private final String key;
+  private final String eTag;
+  private final Instant lastModified;
+
+  /**
+   * @param key the object key
+   * @param eTag the version of the content, if the store has one; null otherwise
+   * @param lastModified when the object was last written; null when unknown
+   */
+  public StoredObject(String key, String eTag, Instant lastModified) {
+    if (key == null) throw new IllegalArgumentException("Key cannot be null");
+    this.key = key;
+    this.eTag = eTag;
+    this.lastModified = lastModified;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getETag() {
+    return eTag;
+  }
+
+  public Instant getLastModified() {
+    return lastModified;
+  }
+}
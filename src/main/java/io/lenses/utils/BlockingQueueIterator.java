@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A bounded hand-over between a producer thread and a consumer thread. The producer calls {@link
+ * #accept(Object)} and finally {@link #complete()} or {@link #fail(Throwable)}; the consumer
+ * iterates. A full queue blocks the producer, so the consumer's pace bounds the elements held. A
+ * consumer with other work to do can {@link #await(long, TimeUnit)} the next element for a while
+ * rather than block in {@link #hasNext()}.
+ *
+ * @param <T> the element type
+ */
+public class BlockingQueueIterator<T> implements Iterator<T>, Consumer<T> {
+  private static final Object END = new Object();
+  private final BlockingQueue<Object> queue;
+  private volatile Throwable failure;
+  private Object next;
+
+  public BlockingQueueIterator(int capacity) {
+    if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1");
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  @Override
+  public void accept(T element) {
+    if (element == null) throw new IllegalArgumentException("Element cannot be null");
+    put(element);
+  }
+
+  /** Signals that the producer has no more elements. */
+  public void complete() {
+    put(END);
+  }
+
+  /** Signals that the producer failed; the consumer gets the error once it has drained the rest. */
+  public void fail(Throwable error) {
+    failure = error;
+    put(END);
+  }
+
+  /**
+   * Waits up to the timeout for the next element, or the end of the elements.
+   *
+   * @return whether {@link #hasNext()} now answers without blocking
+   */
+  public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+    if (next == null) {
+      next = queue.poll(timeout, unit);
+    }
+    return next != null;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for the next element", e);
+      }
+    }
+    if (next == END) {
+      if (failure != null) {
+        throw new RuntimeException(failure.getMessage(), failure);
+      }
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final T element = (T) next;
+    next = null;
+    return element;
+  }
+
+  private void put(Object element) {
+    try {
+      queue.put(element);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while handing over the element", e);
+    }
+  }
+}
@@ -14,6 +14,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Utils {
   public static String readAll(InputStream inputStream) throws IOException {
@@ -27,4 +29,20 @@ public class Utils {
 
     return result.toString(StandardCharsets.UTF_8.name());
   }
+
+  /**
+   * Creates a thread factory for daemon threads named ${prefix}-${index}, so worker pools never
+   * keep the JVM alive.
+   *
+   * @param prefix the thread name prefix
+   * @return the thread factory
+   */
+  public static ThreadFactory daemonThreadFactory(String prefix) {
+    final AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      final Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
 }
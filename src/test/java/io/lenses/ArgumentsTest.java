@@ -88,4 +88,78 @@ class ArgumentsTest {
             },
             errors -> fail("Should not return errors"));
   }
+
+  @Test
+  void returnsTheSnapshotArguments() throws IOException {
+    File configFile = new File("config.txt");
+    configFile.deleteOnExit();
+    configFile.createNewFile();
+    Arguments.from(
+            new String[] {
+              "--config", configFile.getAbsolutePath(), "--export-snapshot", "offsets.snapshot"
+            })
+        .ifRightOrElse(
+            arguments -> {
+              assertEquals("offsets.snapshot", arguments.getExportSnapshot().get().getPath());
+              assertFalse(arguments.getSnapshot().isPresent());
+            },
+            errors -> fail("Should not return errors"));
+    Arguments.from(
+            new String[] {"--config", configFile.getAbsolutePath(), "--snapshot", "config.txt"})
+        .ifRightOrElse(
+            arguments -> {
+              assertEquals("config.txt", arguments.getSnapshot().get().getPath());
+              assertFalse(arguments.getExportSnapshot().isPresent());
+            },
+            errors -> fail("Should not return errors"));
+  }
+
+  @Test
+  void returnsAnErrorWhenTheSnapshotDoesNotExist() throws IOException {
+    File configFile = new File("config.txt");
+    configFile.deleteOnExit();
+    configFile.createNewFile();
+    Arguments.from(
+            new String[] {"--config", configFile.getAbsolutePath(), "--snapshot", "missing.snap"})
+        .ifRightOrElse(
+            arguments -> fail("Should not return arguments"),
+            errors -> assertEquals(errors, Arguments.Errors.SNAPSHOT_FILE_DOES_NOT_EXIST));
+    Arguments.from(
+            new String[] {
+              "--config",
+              configFile.getAbsolutePath(),
+              "--snapshot",
+              "config.txt",
+              "--export-snapshot",
+              "offsets.snapshot"
+            })
+        .ifRightOrElse(
+            arguments -> fail("Should not return arguments"),
+            errors -> assertEquals(errors, Arguments.Errors.CONFLICTING_SNAPSHOT_ARGUMENTS));
+  }
+
+  @Test
+  void returnsTheResumeFlag() throws IOException {
+    File configFile = new File("config.txt");
+    configFile.deleteOnExit();
+    configFile.createNewFile();
+    Arguments.from(new String[] {"--config", configFile.getAbsolutePath(), "--resume"})
+        .ifRightOrElse(
+            arguments -> {
+              assertTrue(arguments.isResume());
+              assertFalse(arguments.isPreview());
+            },
+            errors -> fail("Should not return errors"));
+    Arguments.from(new String[] {"--config", configFile.getAbsolutePath(), "--resume", "--preview"})
+        .ifRightOrElse(
+            arguments -> fail("Should not return arguments"),
+            errors -> assertEquals(errors, Arguments.Errors.CONFLICTING_RESUME_ARGUMENTS));
+    Arguments.from(
+            new String[] {
+              "--config", configFile.getAbsolutePath(), "--export-snapshot", "x", "--resume"
+            })
+        .ifRightOrElse(
+            arguments -> fail("Should not return arguments"),
+            errors -> assertEquals(errors, Arguments.Errors.CONFLICTING_RESUME_ARGUMENTS));
+  }
 }
@@ -12,8 +12,21 @@ package io.lenses;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.lenses.journal.JournalConfig;
+import io.lenses.metrics.MetricsConfig;
+import io.lenses.report.ReportConfig;
 import io.lenses.s3.AwsMode;
+import io.lenses.s3.HedgeConfig;
+import io.lenses.s3.HttpClientConfig;
+import io.lenses.s3.HttpClientType;
+import io.lenses.s3.RateLimitConfig;
+import io.lenses.s3.S3Config;
+import io.lenses.s3.S3ReaderMode;
+import io.lenses.store.Selection;
+import io.lenses.store.SpillConfig;
 import java.io.ByteArrayInputStream;
+import java.nio.file.Paths;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 
 class ConfigurationTest {
@@ -120,6 +133,30 @@ class ConfigurationTest {
         configuration.getKafkaProperties().get("sasl.jaas.config"));
   }
 
+  @Test
+  void buildsTheS3ConfigWithTheDefaultsOfTheOptions() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n";
+    final S3Config read =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes())).getS3Config();
+
+    final S3Config built =
+        S3Config.builder().awsMode(AwsMode.DEFAULT).awsRegion("eu-west-1").build();
+    assertEquals(read.getAwsRegion(), built.getAwsRegion());
+    assertEquals(read.getAwsHttpRetries(), built.getAwsHttpRetries());
+    assertEquals(read.getAwsHttpRetryMaxInterval(), built.getAwsHttpRetryMaxInterval());
+    assertEquals(read.getAwsPrefixRateMax(), built.getAwsPrefixRateMax());
+    assertEquals(read.isAwsListSplit(), built.isAwsListSplit());
+    assertEquals(
+        read.getAwsHttpClient().getMaxConnections(), built.getAwsHttpClient().getMaxConnections());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> S3Config.builder().awsMode(AwsMode.CREDENTIALS).awsRegion("eu-west-1").build());
+  }
+
   @Test
   void hasEmptyGroupsWhenTheGroupSettingIsNotSpecified() {
     final String hocon =
@@ -187,4 +224,349 @@ class ConfigurationTest {
         IllegalArgumentException.class,
         () -> Configuration.from(new ByteArrayInputStream(hocon.getBytes())));
   }
+
+  @Test
+  void readsTheS3ReaderSettings() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n"
+            + "aws.read.concurrency=32\n"
+            + "aws.list.split=false\n"
+            + "aws.read.prefix.max.rate=3500\n"
+            + "aws.hedge.enabled=true\n"
+            + "aws.hedge.percentile=0.99\n"
+            + "aws.hedge.min.delay.ms=50\n"
+            + "aws.hedge.max.ratio=0.1\n"
+            + "aws.reader=async\n"
+            + "aws.async.max.in.flight=20000\n"
+            + "aws.async.event.loop.threads=4\n"
+            + "aws.cache.file=/tmp/offsets.cache\n"
+            + "aws.endpoint=\"http://localhost:9000\"\n"
+            + "aws.http.retry.max.interval=5000\n"
+            + "aws.rate.max=2000\n"
+            + "aws.rate.min=50\n"
+            + "aws.rate.increase=2\n"
+            + "aws.rate.decrease=0.7\n"
+            + "aws.http.client=url-connection\n"
+            + "aws.http.max.connections=300\n"
+            + "aws.http.connection.acquisition.timeout.ms=1000\n"
+            + "aws.http.connection.timeout.ms=500\n"
+            + "aws.http.socket.timeout.ms=4000\n"
+            + "aws.http.tcp.keepalive=false\n"
+            + "aws.http.connection.max.idle.ms=7000\n"
+            + "aws.http.idle.connection.reaper=false\n";
+
+    final Configuration configuration =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()));
+    assertEquals(32, configuration.getS3Config().getAwsReadConcurrency());
+    assertFalse(configuration.getS3Config().isAwsListSplit());
+    assertEquals(3500, configuration.getS3Config().getAwsPrefixRateMax());
+    final HedgeConfig hedge = configuration.getS3Config().getAwsHedge();
+    assertTrue(hedge.isEnabled());
+    assertEquals(0.99, hedge.getPercentile());
+    assertEquals(50, hedge.getMinDelayMs());
+    assertEquals(0.1, hedge.getMaxRatio());
+    assertEquals(S3ReaderMode.ASYNC, configuration.getS3Config().getAwsReaderMode());
+    assertEquals(20000, configuration.getS3Config().getAwsAsyncMaxInFlight());
+    assertEquals(4, configuration.getS3Config().getAwsAsyncEventLoopThreads());
+    assertEquals("/tmp/offsets.cache", configuration.getS3Config().getAwsCacheFile().get());
+    assertEquals("http://localhost:9000", configuration.getS3Config().getAwsEndpoint().get());
+    assertEquals(5000, configuration.getS3Config().getAwsHttpRetryMaxInterval());
+    final RateLimitConfig rateLimit = configuration.getS3Config().getAwsRateLimit();
+    assertEquals(2000, rateLimit.getMaxRate());
+    assertEquals(50, rateLimit.getMinRate());
+    assertEquals(2, rateLimit.getIncreaseStep());
+    assertEquals(0.7, rateLimit.getDecreaseFactor());
+    final HttpClientConfig http = configuration.getS3Config().getAwsHttpClient();
+    assertEquals(HttpClientType.URL_CONNECTION, http.getType());
+    assertEquals(300, http.getMaxConnections());
+    assertEquals(1000, http.getConnectionAcquisitionTimeoutMs());
+    assertEquals(500, http.getConnectionTimeoutMs());
+    assertEquals(4000, http.getSocketTimeoutMs());
+    assertFalse(http.isTcpKeepAlive());
+    assertEquals(7000, http.getConnectionMaxIdleMs());
+    assertFalse(http.isIdleConnectionReaper());
+  }
+
+  @Test
+  void defaultsToTheSequentialBlockingReader() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n";
+
+    final Configuration configuration =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()));
+    assertEquals(1, configuration.getS3Config().getAwsReadConcurrency());
+    assertTrue(configuration.getS3Config().isAwsListSplit());
+    assertEquals(5500, configuration.getS3Config().getAwsPrefixRateMax());
+    assertFalse(configuration.getS3Config().getAwsHedge().isEnabled());
+    assertEquals(S3ReaderMode.BLOCKING, configuration.getS3Config().getAwsReaderMode());
+    assertFalse(configuration.getS3Config().getAwsCacheFile().isPresent());
+    assertFalse(configuration.getS3Config().getAwsEndpoint().isPresent());
+    assertEquals(20000, configuration.getS3Config().getAwsHttpRetryMaxInterval());
+    // no ceiling until S3 throttles
+    assertFalse(configuration.getS3Config().getAwsRateLimit().hasMaxRate());
+    assertEquals(50, configuration.getS3Config().getAwsHttpClient().getMaxConnections());
+    assertTrue(configuration.getS3Config().getAwsHttpClient().isTcpKeepAlive());
+    assertEquals(HttpClientType.APACHE, configuration.getS3Config().getAwsHttpClient().getType());
+  }
+
+  @Test
+  void sizesThePoolForTheRequestsInFlight() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n"
+            + "aws.read.concurrency=128\n";
+    assertEquals(
+        128,
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()))
+            .getS3Config()
+            .getAwsHttpClient()
+            .getMaxConnections());
+    assertEquals(
+        1000,
+        Configuration.from(new ByteArrayInputStream((hocon + "aws.reader=async\n").getBytes()))
+            .getS3Config()
+            .getAwsHttpClient()
+            .getMaxConnections());
+    // and the hedges in flight
+    assertEquals(
+        138,
+        Configuration.from(
+                new ByteArrayInputStream((hocon + "aws.hedge.enabled=true\n").getBytes()))
+            .getS3Config()
+            .getAwsHttpClient()
+            .getMaxConnections());
+  }
+
+  @Test
+  void readsTheRestoreSettings() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n"
+            + "restore.max.in.flight=200\n"
+            + "restore.group.timeout.ms=5000\n"
+            + "restore.timeout.ms=600000\n"
+            + "restore.coordinator.aware=true\n"
+            + "restore.broker.max.in.flight=5\n"
+            + "restore.plan.batch.size=500\n"
+            + "restore.delta=true\n"
+            + "restore.group.retries=5\n"
+            + "restore.retry.backoff.ms=200\n"
+            + "restore.retry.backoff.max.ms=3000\n";
+
+    final Configuration configuration =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()));
+    assertEquals(200, configuration.getRestoreConfig().getMaxInFlight());
+    assertEquals(5000, configuration.getRestoreConfig().getGroupTimeoutMs());
+    assertEquals(600000, configuration.getRestoreConfig().getTimeoutMs());
+    assertTrue(configuration.getRestoreConfig().isCoordinatorAware());
+    assertEquals(5, configuration.getRestoreConfig().getBrokerMaxInFlight());
+    assertEquals(500, configuration.getRestoreConfig().getPlanBatchSize());
+    assertTrue(configuration.getRestoreConfig().isDelta());
+    assertEquals(5, configuration.getRestoreConfig().getRetries());
+    assertEquals(200, configuration.getRestoreConfig().getRetryBackoffMs());
+    assertEquals(3000, configuration.getRestoreConfig().getRetryBackoffMaxMs());
+  }
+
+  @Test
+  void defaultsTheRestoreSettings() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n";
+
+    final Configuration configuration =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()));
+    assertEquals(50, configuration.getRestoreConfig().getMaxInFlight());
+    assertEquals(60000, configuration.getRestoreConfig().getGroupTimeoutMs());
+    assertEquals(0, configuration.getRestoreConfig().getTimeoutMs());
+    assertFalse(configuration.getRestoreConfig().isCoordinatorAware());
+    assertEquals(10, configuration.getRestoreConfig().getBrokerMaxInFlight());
+    assertEquals(100, configuration.getRestoreConfig().getPlanBatchSize());
+    assertFalse(configuration.getRestoreConfig().isDelta());
+    assertEquals(3, configuration.getRestoreConfig().getRetries());
+    assertEquals(500, configuration.getRestoreConfig().getRetryBackoffMs());
+    assertEquals(10000, configuration.getRestoreConfig().getRetryBackoffMaxMs());
+  }
+
+  @Test
+  void readsTheLocalStoreWithoutTheAwsSettings() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "local.path=/data/offsets\n"
+            + "local.read.concurrency=16\n"
+            + "groups=group1\n";
+
+    final Configuration configuration =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()));
+    assertTrue(configuration.getLocalStoreConfig().isPresent());
+    assertEquals("/data/offsets", configuration.getLocalStoreConfig().get().getPath());
+    assertEquals(16, configuration.getLocalStoreConfig().get().getReadConcurrency());
+    assertArrayEquals(new String[] {"group1"}, configuration.getGroups().get());
+    assertThrows(IllegalStateException.class, configuration::getS3Config);
+  }
+
+  @Test
+  void readsTheGroupAndTopicPatterns() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n"
+            + "groups=audit\n"
+            + "include.groups=\"payments-*, regex:orders-\\\\d+\"\n"
+            + "exclude.groups=[\"*-test\"]\n"
+            + "exclude.topics=\"*-internal\"\n";
+
+    final Configuration configuration =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()));
+    final Selection selection = configuration.getSelection();
+    assertTrue(selection.includesGroup("audit"));
+    assertTrue(selection.includesGroup("payments-eu"));
+    assertTrue(selection.includesGroup("orders-1"));
+    assertFalse(selection.includesGroup("payments-test"));
+    assertFalse(selection.includesGroup("billing"));
+    assertTrue(selection.includesTopic("events"));
+    assertFalse(selection.includesTopic("events-internal"));
+  }
+
+  @Test
+  void selectsEverythingWithoutGroupsOrPatterns() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "aws.bucket=io.lenses\n"
+            + "aws.mode=default\n"
+            + "aws.region=eu-west-1\n";
+
+    final Selection selection =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes())).getSelection();
+    assertTrue(selection.getGroups().acceptsAll());
+    assertTrue(selection.getTopics().acceptsAll());
+  }
+
+  @Test
+  void readsTheMetricsSettings() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "local.path=/data/offsets\n"
+            + "metrics.port=9404\n"
+            + "metrics.summary.file=\"\"\n";
+
+    final MetricsConfig metrics =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes())).getMetricsConfig();
+    assertEquals(Optional.of(9404), metrics.getPort());
+    assertFalse(metrics.getSummaryFile().isPresent());
+  }
+
+  @Test
+  void exposesNoMetricsByDefault() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n" + "local.path=/data/offsets\n";
+
+    final MetricsConfig metrics =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes())).getMetricsConfig();
+    assertFalse(metrics.getPort().isPresent());
+    assertFalse(metrics.getSummaryFile().isPresent());
+    assertEquals(
+        Optional.of("/tmp/summary.json"),
+        Configuration.from(
+                new ByteArrayInputStream(
+                    (hocon + "metrics.summary.file=/tmp/summary.json\n").getBytes()))
+            .getMetricsConfig()
+            .getSummaryFile());
+  }
+
+  @Test
+  void journalsOnlyWithAFile() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n" + "local.path=/data/offsets\n";
+
+    assertFalse(
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()))
+            .getJournalConfig()
+            .getFile()
+            .isPresent());
+    final JournalConfig journal =
+        Configuration.from(
+                new ByteArrayInputStream(
+                    (hocon + "journal.file=/tmp/restore.journal\n").getBytes()))
+            .getJournalConfig();
+    assertEquals(Optional.of("/tmp/restore.journal"), journal.getFile());
+  }
+
+  @Test
+  void readsTheReportSettings() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "local.path=/data/offsets\n"
+            + "progress.interval.ms=0\n"
+            + "report.file=/tmp/restored.tsv\n"
+            + "results.file=/tmp/results.jsonl\n";
+
+    final ReportConfig report =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes())).getReportConfig();
+    assertEquals(0, report.getProgressIntervalMs());
+    assertEquals(Optional.of("/tmp/restored.tsv"), report.getReportFile());
+    assertEquals(Optional.of("/tmp/results.jsonl"), report.getResultsFile());
+  }
+
+  @Test
+  void readsTheSpillSettings() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n"
+            + "local.path=/data/offsets\n"
+            + "spill.memory.max.mb=64\n"
+            + "spill.dir=/data/spill\n";
+
+    final SpillConfig spill =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes())).getSpillConfig();
+    assertEquals(64, spill.getMemoryMaxMb());
+    assertEquals(64L * 1024 * 1024 / 24, spill.getMaxHeldPartitions());
+    assertEquals(Paths.get("/data/spill"), spill.getDirectory());
+  }
+
+  @Test
+  void doesNotSpillByDefault() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n" + "local.path=/data/offsets\n";
+
+    final SpillConfig spill =
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes())).getSpillConfig();
+    assertFalse(spill.isEnabled());
+    assertEquals(0, spill.getMemoryMaxMb());
+    assertTrue(new SpillConfig(256, spill.getDirectory()).isEnabled());
+  }
+
+  @Test
+  void writesTheResultsOnlyWithAFile() {
+    final String hocon =
+        "kafka.bootstrap.servers=\"localhost:9092\"\n" + "local.path=/data/offsets\n";
+
+    assertEquals(
+        Optional.empty(),
+        Configuration.from(new ByteArrayInputStream(hocon.getBytes()))
+            .getReportConfig()
+            .getResultsFile());
+    assertEquals(
+        Optional.empty(),
+        Configuration.from(new ByteArrayInputStream((hocon + "results.file=\"\"\n").getBytes()))
+            .getReportConfig()
+            .getResultsFile());
+    assertEquals(
+        Optional.of("/tmp/results.jsonl"),
+        Configuration.from(
+                new ByteArrayInputStream((hocon + "results.file=/tmp/results.jsonl\n").getBytes()))
+            .getReportConfig()
+            .getResultsFile());
+  }
 }
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.kafka.GroupOffsets;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RestoreJournalTest {
+  private static final String SOURCE = "s3://bucket/prefix";
+
+  @Test
+  void resumesWithTheGroupsReadAndNotCommitted(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("restore.journal");
+    try (RestoreJournal journal = RestoreJournal.create(file, SOURCE, 1000)) {
+      journal.groupRead(group("group1", 10));
+      journal.groupRead(group("group2", 20));
+      journal.committed("group1");
+      journal.groupRead(group("group3", 30));
+    }
+
+    try (RestoreJournal journal = RestoreJournal.resume(file, SOURCE, 1000)) {
+      assertEquals(Collections.singleton("group1"), journal.getCommittedGroups());
+      final List<GroupOffsets> pending = pending(journal);
+      assertEquals(2, pending.size());
+      assertEquals("group2", pending.get(0).getGroup());
+      assertEquals(group("group2", 20).getOffsets(), pending.get(0).getOffsets());
+      assertEquals("group3", pending.get(1).getGroup());
+      assertEquals(new HashSet<>(Arrays.asList("group2", "group3")), journal.getPendingGroups());
+      assertEquals(
+          new HashSet<>(Arrays.asList("group1", "group2", "group3")), journal.getKnownGroups());
+      assertFalse(journal.isReadComplete());
+      journal.committed("group2");
+      journal.readComplete();
+    }
+
+    try (RestoreJournal journal = RestoreJournal.resume(file, SOURCE, 1000)) {
+      assertEquals(new HashSet<>(Arrays.asList("group1", "group2")), journal.getCommittedGroups());
+      assertEquals(1, pending(journal).size());
+      assertTrue(journal.isReadComplete());
+    }
+  }
+
+  @Test
+  void dropsTheRecordTornByACrash(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("restore.journal");
+    try (RestoreJournal journal = RestoreJournal.create(file, SOURCE, 1000)) {
+      journal.groupRead(group("group1", 10));
+      journal.groupRead(group("group2", 20));
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 5);
+    }
+
+    try (RestoreJournal journal = RestoreJournal.resume(file, SOURCE, 1000)) {
+      final List<GroupOffsets> pending = pending(journal);
+      assertEquals(1, pending.size());
+      assertEquals("group1", pending.get(0).getGroup());
+      journal.groupRead(group("group2", 21));
+      // the records appended by this run are not pending yet
+      assertEquals(1, pending(journal).size());
+    }
+    try (RestoreJournal journal = RestoreJournal.resume(file, SOURCE, 1000)) {
+      final List<GroupOffsets> pending = pending(journal);
+      assertEquals(2, pending.size());
+      assertEquals(group("group2", 21).getOffsets(), pending.get(1).getOffsets());
+    }
+  }
+
+  @Test
+  void refusesAJournalOfAnotherSource(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("restore.journal");
+    RestoreJournal.create(file, SOURCE, 1000).close();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> RestoreJournal.resume(file, "s3://other/prefix", 1000));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> RestoreJournal.resume(dir.resolve("missing.journal"), SOURCE, 1000));
+  }
+
+  private static List<GroupOffsets> pending(RestoreJournal journal) throws IOException {
+    final List<GroupOffsets> pending = new ArrayList<>();
+    journal.readPendingGroups(pending::add);
+    return pending;
+  }
+
+  private static GroupOffsets group(String group, long offset) {
+    final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    offsets.put(new TopicPartition("topic1", 0), new OffsetAndMetadata(offset));
+    offsets.put(new TopicPartition("topic1", 1), new OffsetAndMetadata(offset + 1));
+    offsets.put(new TopicPartition("topic2", 0), new OffsetAndMetadata(offset + 2));
+    return new GroupOffsets(group, offsets);
+  }
+}
@@ -12,6 +12,11 @@ package io.lenses.kafka;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -19,12 +24,22 @@ import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AlterConsumerGroupOffsetsOptions;
 import org.apache.kafka.clients.admin.AlterConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
 import org.apache.kafka.clients.admin.DescribeClusterResult;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.ConsumerGroupState;
 import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.internals.KafkaFutureImpl;
 import org.junit.jupiter.api.Test;
@@ -77,29 +92,66 @@ class AdminClientKafkaOperationsTest {
     when(mock2.all()).thenReturn(KafkaFuture.completedFuture(null));
 
     when(admin.alterConsumerGroupOffsets(
-            "group",
-            Collections.singletonMap(
-                new TopicPartition("topic", 0), new OffsetAndMetadata(0L, "metadata"))))
+            eq("group"),
+            eq(
+                Collections.singletonMap(
+                    new TopicPartition("topic", 0), new OffsetAndMetadata(0L, "metadata"))),
+            any(AlterConsumerGroupOffsetsOptions.class)))
         .thenReturn(mock1);
 
     when(admin.alterConsumerGroupOffsets(
-            "group2",
-            Collections.singletonMap(
-                new TopicPartition("topic2", 0), new OffsetAndMetadata(0L, "metadata"))))
+            eq("group2"),
+            eq(
+                Collections.singletonMap(
+                    new TopicPartition("topic2", 0), new OffsetAndMetadata(0L, "metadata"))),
+            any(AlterConsumerGroupOffsetsOptions.class)))
         .thenReturn(mock2);
+    final KafkaFutureImpl<ConsumerGroupDescription> description1 = new KafkaFutureImpl<>();
+    description1.complete(
+        new ConsumerGroupDescription(
+            "group",
+            false,
+            Collections.emptyList(),
+            "",
+            ConsumerGroupState.DEAD,
+            new Node(1, "localhost", 9092)));
+    final KafkaFutureImpl<ConsumerGroupDescription> description2 = new KafkaFutureImpl<>();
+    description2.complete(
+        new ConsumerGroupDescription(
+            "group2",
+            false,
+            Collections.emptyList(),
+            "",
+            ConsumerGroupState.DEAD,
+            new Node(2, "localhost", 9093)));
+    final Map<String, KafkaFuture<ConsumerGroupDescription>> descriptions = new HashMap<>();
+    descriptions.put("group", description1);
+    descriptions.put("group2", description2);
+    when(admin.describeConsumerGroups(anyCollection(), any(DescribeConsumerGroupsOptions.class)))
+        .thenReturn(new DescribeConsumerGroupsResult(descriptions));
+    // nothing is committed on the target cluster yet
+    final ListConsumerGroupOffsetsResult committed = mock(ListConsumerGroupOffsetsResult.class);
+    when(committed.partitionsToOffsetAndMetadata(anyString()))
+        .thenReturn(KafkaFuture.completedFuture(Collections.emptyMap()));
+    when(admin.listConsumerGroupOffsets(anyMap(), any(ListConsumerGroupOffsetsOptions.class)))
+        .thenReturn(committed);
     ops.restoreGroupOffsets(offsets, 1, TimeUnit.SECONDS);
 
     // check the calls were made once
     verify(admin, times(1))
         .alterConsumerGroupOffsets(
-            "group",
-            Collections.singletonMap(
-                new TopicPartition("topic", 0), new OffsetAndMetadata(0L, "metadata")));
+            eq("group"),
+            eq(
+                Collections.singletonMap(
+                    new TopicPartition("topic", 0), new OffsetAndMetadata(0L, "metadata"))),
+            any(AlterConsumerGroupOffsetsOptions.class));
 
     verify(admin, times(1))
         .alterConsumerGroupOffsets(
-            "group2",
-            Collections.singletonMap(
-                new TopicPartition("topic2", 0), new OffsetAndMetadata(0L, "metadata")));
+            eq("group2"),
+            eq(
+                Collections.singletonMap(
+                    new TopicPartition("topic2", 0), new OffsetAndMetadata(0L, "metadata"))),
+            any(AlterConsumerGroupOffsetsOptions.class));
   }
 }
@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.lenses.utils.Tuple2;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class CoordinatorQueuesTest {
+  @Test
+  void handsOutTheGroupsRoundRobinAcrossTheBrokers() {
+    final CoordinatorQueues queues = new CoordinatorQueues(10);
+    queues.add(1, group("a1"));
+    queues.add(1, group("a2"));
+    queues.add(1, group("a3"));
+    queues.add(2, group("b1"));
+    queues.add(3, group("c1"));
+
+    assertEquals("a1", queues.poll()._2().getGroup());
+    assertEquals("b1", queues.poll()._2().getGroup());
+    assertEquals("c1", queues.poll()._2().getGroup());
+    assertEquals("a2", queues.poll()._2().getGroup());
+    assertEquals("a3", queues.poll()._2().getGroup());
+    assertNull(queues.poll());
+    assertEquals(0, queues.size());
+  }
+
+  @Test
+  void skipsTheBrokersAtTheirLimit() {
+    final CoordinatorQueues queues = new CoordinatorQueues(1);
+    queues.add(1, group("a1"));
+    queues.add(1, group("a2"));
+    queues.add(2, group("b1"));
+
+    final Tuple2<Integer, GroupOffsets> first = queues.poll();
+    assertEquals(1, first._1());
+    assertEquals("b1", queues.poll()._2().getGroup());
+    // broker 1 has a group in flight already
+    assertNull(queues.poll());
+    assertEquals(1, queues.size());
+
+    queues.completed(first._1());
+    assertEquals("a2", queues.poll()._2().getGroup());
+    assertEquals(2, queues.getSent().get(1));
+    assertEquals(1, queues.getSent().get(2));
+  }
+
+  private static GroupOffsets group(String group) {
+    return new GroupOffsets(group, Collections.emptyMap());
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+class PartitionOffsetsTest {
+
+  @Test
+  void sortsThePartitionsByTopicAndPartition() {
+    final PartitionOffsets offsets =
+        PartitionOffsets.builder()
+            .add("topic2", 0, 20)
+            .add("topic1", 10, 110)
+            .add("topic1", 2, 12)
+            .add("topic1", 1, 11)
+            .build();
+
+    assertEquals(4, offsets.size());
+    assertEquals(2, offsets.topicCount());
+    assertEquals(
+        Arrays.asList("topic1/1=11", "topic1/2=12", "topic1/10=110", "topic2/0=20"),
+        entries(offsets));
+    assertEquals(0, offsets.topicStart(0));
+    assertEquals(3, offsets.topicEnd(0));
+    assertEquals(3, offsets.topicStart(1));
+    assertEquals(4, offsets.topicEnd(1));
+  }
+
+  @Test
+  void keepsTheLastOffsetAddedForAPartition() {
+    final PartitionOffsets offsets =
+        PartitionOffsets.builder()
+            .add("topic", 1, 1)
+            .add("topic", 0, 0)
+            .add("topic", 1, 100)
+            .build();
+
+    assertEquals(Arrays.asList("topic/0=0", "topic/1=100"), entries(offsets));
+  }
+
+  @Test
+  void convertsToAndFromTheKafkaMap() {
+    final Map<TopicPartition, OffsetAndMetadata> map = new HashMap<>();
+    for (int partition = 0; partition < 100; partition++) {
+      map.put(
+          new TopicPartition("topic" + partition % 3, partition), new OffsetAndMetadata(partition));
+    }
+
+    final PartitionOffsets offsets = PartitionOffsets.of(map);
+
+    assertEquals(map, offsets.toMap());
+    assertEquals(100, offsets.topicPartitions().size());
+    assertEquals(new TopicPartition("topic0", 0), offsets.topicPartitions().get(0));
+    assertTrue(PartitionOffsets.of(new HashMap<>()).isEmpty());
+  }
+
+  @Test
+  void keepsTheCommitMetadataAndLeaderEpoch() {
+    final Map<TopicPartition, OffsetAndMetadata> map = new HashMap<>();
+    map.put(new TopicPartition("topic", 0), new OffsetAndMetadata(10, "metadata"));
+    map.put(new TopicPartition("topic", 1), new OffsetAndMetadata(11, Optional.of(3), ""));
+    map.put(new TopicPartition("topic", 2), new OffsetAndMetadata(12));
+
+    final PartitionOffsets offsets = PartitionOffsets.of(map);
+
+    assertEquals(map, offsets.toMap());
+    final PartitionOffsets filtered = offsets.filter((topic, partition, offset) -> partition > 0);
+    assertEquals(
+        Collections.singletonMap(
+            new TopicPartition("topic", 1), new OffsetAndMetadata(11, Optional.of(3), "")),
+        filtered.filter((topic, partition, offset) -> partition == 1).toMap());
+    assertEquals(new OffsetAndMetadata(12), filtered.toMap().get(new TopicPartition("topic", 2)));
+  }
+
+  @Test
+  void filtersThePartitions() {
+    final PartitionOffsets offsets =
+        PartitionOffsets.builder()
+            .add("topic1", 0, 0)
+            .add("topic1", 1, 1)
+            .add("topic2", 0, 2)
+            .add("topic3", 0, 3)
+            .build();
+
+    final PartitionOffsets filtered =
+        offsets.filter((topic, partition, offset) -> offset % 2 == 1 || topic.equals("topic3"));
+
+    assertEquals(Arrays.asList("topic1/1=1", "topic3/0=3"), entries(filtered));
+    assertSame(offsets, offsets.filter((topic, partition, offset) -> true));
+    assertTrue(offsets.filter((topic, partition, offset) -> false).isEmpty());
+  }
+
+  private static List<String> entries(PartitionOffsets offsets) {
+    final List<String> entries = new ArrayList<>();
+    offsets.forEach(
+        (topic, partition, offset) -> entries.add(topic + "/" + partition + "=" + offset));
+    return entries;
+  }
+}
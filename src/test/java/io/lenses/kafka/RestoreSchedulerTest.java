@@ -0,0 +1,698 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.lenses.utils.BlockingQueueIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AlterConsumerGroupOffsetsOptions;
+import org.apache.kafka.clients.admin.AlterConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsResult;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.CoordinatorNotAvailableException;
+import org.apache.kafka.common.errors.GroupAuthorizationException;
+import org.apache.kafka.common.errors.GroupNotEmptyException;
+import org.apache.kafka.common.errors.NotCoordinatorException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RestoreSchedulerTest {
+  private final ScheduledExecutorService broker = Executors.newSingleThreadScheduledExecutor();
+
+  @AfterEach
+  void shutdown() {
+    broker.shutdownNow();
+  }
+
+  @Test
+  void keepsAtMostTheWindowOfGroupsInFlight() {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final Set<String> restored = ConcurrentHashMap.newKeySet();
+    final Admin admin =
+        admin(
+            group -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(
+                  () -> {
+                    inFlight.decrementAndGet();
+                    restored.add(group);
+                    future.complete(null);
+                  },
+                  5,
+                  TimeUnit.MILLISECONDS);
+              return future;
+            });
+
+    new RestoreScheduler(admin, config(4, 0)).restore(groups(40).iterator(), 1000, offsets -> {});
+
+    assertEquals(40, restored.size());
+    assertEquals(4, maxInFlight.get());
+  }
+
+  @Test
+  void reportsEachGroupAsCommittedOnceRestored() {
+    final Set<String> restored = ConcurrentHashMap.newKeySet();
+    final Admin admin =
+        admin(
+            group -> {
+              restored.add(group);
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(() -> future.complete(null), 2, TimeUnit.MILLISECONDS);
+              return future;
+            });
+    final Set<String> sent = ConcurrentHashMap.newKeySet();
+    final Set<String> committed = ConcurrentHashMap.newKeySet();
+
+    new RestoreScheduler(admin, config(4, 0))
+        .restore(
+            groups(12).iterator(),
+            1000,
+            new RestoreListener() {
+              @Override
+              public void sending(GroupOffsets groupOffsets) {
+                sent.add(groupOffsets.getGroup());
+              }
+
+              @Override
+              public void completed(GroupResult result) {
+                assertTrue(sent.contains(result.getGroup()));
+                assertEquals(GroupResult.Status.RESTORED, result.getStatus());
+                assertEquals(1, result.getAttempts());
+                committed.add(result.getGroup());
+              }
+            });
+
+    assertEquals(restored, committed);
+    assertEquals(12, committed.size());
+  }
+
+  @Test
+  void failsTheGroupMissingItsDeadlineOnceItsRetriesAreSpent() {
+    final AtomicInteger group3Attempts = new AtomicInteger();
+    final Admin admin =
+        admin(
+            group -> {
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              if (group.equals("group-3")) {
+                group3Attempts.incrementAndGet();
+              } else {
+                future.complete(null);
+              }
+              return future;
+            });
+    final Map<String, GroupResult> results = new ConcurrentHashMap<>();
+
+    final RuntimeException e =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                new RestoreScheduler(admin, retrying(2, 2))
+                    .restore(
+                        groups(10).iterator(),
+                        50,
+                        new RestoreListener() {
+                          @Override
+                          public void sending(GroupOffsets groupOffsets) {}
+
+                          @Override
+                          public void completed(GroupResult result) {
+                            results.put(result.getGroup(), result);
+                          }
+                        }));
+    assertEquals("Failed to restore group offsets for 1 group(s): group-3", e.getMessage());
+    assertInstanceOf(TimeoutException.class, e.getCause());
+    assertEquals(3, group3Attempts.get());
+    assertEquals(10, results.size());
+    final GroupResult failed = results.get("group-3");
+    assertEquals(GroupResult.Status.FAILED, failed.getStatus());
+    assertEquals(3, failed.getAttempts());
+    assertTrue(failed.isRetriable());
+    results.remove("group-3");
+    results.values().forEach(result -> assertTrue(result.isCommitted()));
+  }
+
+  @Test
+  void failsWhenTheOverallDeadlineIsReached() {
+    final Admin admin =
+        admin(
+            group -> {
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(() -> future.complete(null), 50, TimeUnit.MILLISECONDS);
+              return future;
+            });
+
+    final RuntimeException e =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                new RestoreScheduler(admin, config(1, 200))
+                    .restore(groups(20).iterator(), 1000, o -> {}));
+    assertTrue(e.getMessage().startsWith("Timed out restoring the group offsets after 200 ms"));
+  }
+
+  @Test
+  void restoresTheOtherGroupsWhenOneFailsForGood() {
+    final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    final AtomicInteger inFlight = new AtomicInteger();
+    final Admin admin =
+        admin(
+            group -> {
+              sent.add(group);
+              inFlight.incrementAndGet();
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(
+                  () -> {
+                    inFlight.decrementAndGet();
+                    if (group.equals("group-0")) {
+                      future.completeExceptionally(new GroupNotEmptyException("active"));
+                    } else {
+                      future.complete(null);
+                    }
+                  },
+                  group.equals("group-0") ? 0 : 5,
+                  TimeUnit.MILLISECONDS);
+              return future;
+            });
+
+    final RuntimeException e =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                new RestoreScheduler(admin, retrying(3, 3))
+                    .restore(groups(10).iterator(), 1000, o -> {}));
+    assertEquals("Failed to restore group offsets for 1 group(s): group-0", e.getMessage());
+    assertInstanceOf(GroupNotEmptyException.class, e.getCause());
+    // a fatal error is not retried, and the other groups are all sent
+    assertEquals(10, sent.size());
+    assertEquals(0, inFlight.get());
+  }
+
+  @Test
+  void retriesTheGroupFailingWithARetriableError() {
+    final AtomicInteger attempts = new AtomicInteger();
+    final Admin admin =
+        admin(
+            group -> {
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              if (group.equals("group-1") && attempts.incrementAndGet() < 3) {
+                future.completeExceptionally(new CoordinatorNotAvailableException("moving"));
+              } else {
+                future.complete(null);
+              }
+              return future;
+            });
+    final Map<String, GroupResult> results = new ConcurrentHashMap<>();
+
+    new RestoreScheduler(admin, retrying(2, 3))
+        .restore(
+            groups(4).iterator(),
+            1000,
+            new RestoreListener() {
+              @Override
+              public void sending(GroupOffsets groupOffsets) {}
+
+              @Override
+              public void completed(GroupResult result) {
+                results.put(result.getGroup(), result);
+              }
+            });
+
+    assertEquals(3, attempts.get());
+    assertEquals(4, results.size());
+    assertEquals(GroupResult.Status.RESTORED, results.get("group-1").getStatus());
+    assertEquals(3, results.get("group-1").getAttempts());
+    assertEquals(1, results.get("group-0").getAttempts());
+  }
+
+  @Test
+  void classifiesTheErrors() {
+    assertTrue(RestoreScheduler.isRetriable(new CoordinatorNotAvailableException("")));
+    assertTrue(RestoreScheduler.isRetriable(new TimeoutException()));
+    assertTrue(
+        RestoreScheduler.isRetriable(new ExecutionException(new NotCoordinatorException("moved"))));
+    assertFalse(RestoreScheduler.isRetriable(new GroupNotEmptyException("active")));
+    assertFalse(RestoreScheduler.isRetriable(new UnknownTopicOrPartitionException("gone")));
+    assertFalse(RestoreScheduler.isRetriable(new GroupAuthorizationException("denied")));
+    assertFalse(RestoreScheduler.isRetriable(new IllegalStateException("boom")));
+  }
+
+  @Test
+  void doublesTheBackoffUpToTheMax() {
+    final RestoreScheduler scheduler =
+        new RestoreScheduler(
+            mock(Admin.class), new RestoreConfig(1, 60_000, 0, false, 1, 1, false, 5, 100, 350));
+    assertEquals(100, scheduler.backoffMs(1));
+    assertEquals(200, scheduler.backoffMs(2));
+    assertEquals(350, scheduler.backoffMs(3));
+    assertEquals(350, scheduler.backoffMs(40));
+  }
+
+  @Test
+  void spreadsTheGroupsAcrossTheirCoordinators() {
+    final Map<Integer, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    final Map<Integer, Integer> maxInFlight = new ConcurrentHashMap<>();
+    final Set<String> restored = ConcurrentHashMap.newKeySet();
+    final Admin admin =
+        admin(
+            group -> {
+              final int id = coordinator(group);
+              maxInFlight.merge(
+                  id,
+                  inFlight.computeIfAbsent(id, b -> new AtomicInteger()).incrementAndGet(),
+                  Math::max);
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(
+                  () -> {
+                    inFlight.get(id).decrementAndGet();
+                    restored.add(group);
+                    future.complete(null);
+                  },
+                  // broker 0 is the hot coordinator
+                  id == 0 ? 20 : 2,
+                  TimeUnit.MILLISECONDS);
+              return future;
+            });
+    describing(admin, group -> KafkaFuture.completedFuture(description(group)));
+
+    new RestoreScheduler(admin, new RestoreConfig(6, 60_000, 0, true, 2, 10, false))
+        .restore(groups(30).iterator(), 1000, offsets -> {});
+
+    assertEquals(30, restored.size());
+    assertEquals(3, maxInFlight.size());
+    maxInFlight.values().forEach(max -> assertTrue(max <= 2));
+    // the coordinators are looked up in batches
+    verify(admin, times(3))
+        .describeConsumerGroups(anyCollection(), any(DescribeConsumerGroupsOptions.class));
+  }
+
+  @Test
+  void restoresTheGroupsWhoseCoordinatorIsNotFound() {
+    final Set<String> restored = ConcurrentHashMap.newKeySet();
+    final Admin admin =
+        admin(
+            group -> {
+              restored.add(group);
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              future.complete(null);
+              return future;
+            });
+    describing(
+        admin,
+        group -> {
+          final KafkaFutureImpl<ConsumerGroupDescription> future = new KafkaFutureImpl<>();
+          if (group.equals("group-1")) {
+            future.completeExceptionally(new IllegalStateException("no coordinator"));
+          } else {
+            future.complete(description(group));
+          }
+          return future;
+        });
+
+    new RestoreScheduler(admin, new RestoreConfig(4, 60_000, 0, true, 1, 5, false))
+        .restore(groups(5).iterator(), 1000, offsets -> {});
+
+    assertEquals(5, restored.size());
+  }
+
+  @Test
+  void restoresOnlyThePartitionsWhoseCommittedOffsetDiffers() {
+    final Admin admin =
+        admin(
+            group -> {
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              future.complete(null);
+              return future;
+            });
+    final Map<String, Map<TopicPartition, OffsetAndMetadata>> committed = new HashMap<>();
+    committed.put("up-to-date", offsets(1, 2));
+    committed.put("changed", offsets(5, 3));
+    committed.put("new", Collections.emptyMap());
+    committing(
+        admin,
+        group -> {
+          final KafkaFutureImpl<Map<TopicPartition, OffsetAndMetadata>> future =
+              new KafkaFutureImpl<>();
+          if (committed.containsKey(group)) {
+            future.complete(committed.get(group));
+          } else {
+            future.completeExceptionally(new IllegalStateException("unavailable"));
+          }
+          return future;
+        });
+    final List<GroupOffsets> groups =
+        Arrays.asList(
+            new GroupOffsets("up-to-date", offsets(1, 2)),
+            new GroupOffsets("changed", offsets(5, 6)),
+            new GroupOffsets("new", offsets(7, 8)),
+            new GroupOffsets("unavailable", offsets(9, 10)));
+
+    new RestoreScheduler(admin, new RestoreConfig(4, 60_000, 0, false, 1, 10, true))
+        .restore(groups.iterator(), 1000, offsets -> {});
+
+    verify(admin, never())
+        .alterConsumerGroupOffsets(
+            eq("up-to-date"), anyMap(), any(AlterConsumerGroupOffsetsOptions.class));
+    verify(admin)
+        .alterConsumerGroupOffsets(
+            eq("changed"),
+            eq(Collections.singletonMap(new TopicPartition("topic", 1), new OffsetAndMetadata(6))),
+            any(AlterConsumerGroupOffsetsOptions.class));
+    verify(admin)
+        .alterConsumerGroupOffsets(
+            eq("new"), eq(offsets(7, 8)), any(AlterConsumerGroupOffsetsOptions.class));
+    verify(admin)
+        .alterConsumerGroupOffsets(
+            eq("unavailable"), eq(offsets(9, 10)), any(AlterConsumerGroupOffsetsOptions.class));
+    // the committed offsets of the whole batch are fetched at once
+    verify(admin, times(1))
+        .listConsumerGroupOffsets(anyMap(), any(ListConsumerGroupOffsetsOptions.class));
+  }
+
+  @Test
+  void restoresTheGroupsReadWithoutWaitingForAFullBatch() throws InterruptedException {
+    final CountDownLatch firstRestored = new CountDownLatch(1);
+    final Admin admin =
+        admin(
+            group -> {
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(() -> future.complete(null), 2, TimeUnit.MILLISECONDS);
+              return future;
+            });
+    describing(admin, group -> KafkaFuture.completedFuture(description(group)));
+    committing(admin, group -> KafkaFuture.completedFuture(Collections.emptyMap()));
+    final List<GroupOffsets> groups = groups(2);
+    final BlockingQueueIterator<GroupOffsets> offsets = new BlockingQueueIterator<>(10);
+    final AtomicBoolean restoredBeforeTheNextRead = new AtomicBoolean();
+    final Thread reader =
+        new Thread(
+            () -> {
+              offsets.accept(groups.get(0));
+              try {
+                // the reader holds the rest until the first group is restored
+                restoredBeforeTheNextRead.set(firstRestored.await(5, TimeUnit.SECONDS));
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              offsets.accept(groups.get(1));
+              offsets.complete();
+            });
+    reader.start();
+    final Set<String> committed = ConcurrentHashMap.newKeySet();
+
+    new RestoreScheduler(admin, new RestoreConfig(4, 60_000, 0, true, 2, 100, true))
+        .restore(
+            offsets,
+            1000,
+            new RestoreListener() {
+              @Override
+              public void sending(GroupOffsets groupOffsets) {}
+
+              @Override
+              public void completed(GroupResult result) {
+                committed.add(result.getGroup());
+                firstRestored.countDown();
+              }
+            });
+    reader.join();
+
+    assertTrue(restoredBeforeTheNextRead.get());
+    assertEquals(2, committed.size());
+  }
+
+  @Test
+  void restoresTheCopiesOfAGroupHandedOverTwiceOneAfterTheOther() {
+    final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    final Admin admin = mock(Admin.class);
+    when(admin.alterConsumerGroupOffsets(
+            anyString(), anyMap(), any(AlterConsumerGroupOffsetsOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              final Map<TopicPartition, OffsetAndMetadata> offsets = invocation.getArgument(1);
+              final String call = invocation.getArgument(0) + " " + offsets.keySet();
+              events.add("send " + call);
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(
+                  () -> {
+                    events.add("done " + call);
+                    future.complete(null);
+                  },
+                  20,
+                  TimeUnit.MILLISECONDS);
+              final AlterConsumerGroupOffsetsResult result =
+                  mock(AlterConsumerGroupOffsetsResult.class);
+              when(result.all()).thenReturn(future);
+              return result;
+            });
+    final List<GroupOffsets> groups =
+        Arrays.asList(
+            new GroupOffsets(
+                "group-a",
+                Collections.singletonMap(new TopicPartition("topic", 0), new OffsetAndMetadata(1))),
+            new GroupOffsets(
+                "group-b",
+                Collections.singletonMap(new TopicPartition("topic", 0), new OffsetAndMetadata(1))),
+            new GroupOffsets(
+                "group-a",
+                Collections.singletonMap(
+                    new TopicPartition("topic", 1), new OffsetAndMetadata(2))));
+    final List<GroupResult> results = Collections.synchronizedList(new ArrayList<>());
+
+    new RestoreScheduler(admin, config(4, 0))
+        .restore(
+            groups.iterator(),
+            1000,
+            new RestoreListener() {
+              @Override
+              public void sending(GroupOffsets groupOffsets) {}
+
+              @Override
+              public void completed(GroupResult result) {
+                events.add("completed " + result.getGroup());
+                results.add(result);
+              }
+            });
+
+    assertTrue(
+        events.indexOf("done group-a [topic-0]") < events.indexOf("send group-a [topic-1]"),
+        events.toString());
+    assertTrue(
+        events.indexOf("done group-a [topic-1]") < events.indexOf("completed group-a"),
+        events.toString());
+    assertEquals(2, results.size());
+    final GroupResult groupA =
+        results.stream().filter(result -> result.getGroup().equals("group-a")).findFirst().get();
+    assertEquals(GroupResult.Status.RESTORED, groupA.getStatus());
+    assertEquals(2, groupA.getPartitions());
+  }
+
+  @Test
+  void handlesTheGroupsInFlightWhileABatchIsLookedUp() {
+    final KafkaFutureImpl<ConsumerGroupDescription> lateDescription = new KafkaFutureImpl<>();
+    final Admin admin =
+        admin(
+            group -> {
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              broker.schedule(() -> future.complete(null), 2, TimeUnit.MILLISECONDS);
+              return future;
+            });
+    // the coordinator of group-1 is only found once group-0 is restored
+    describing(
+        admin,
+        group ->
+            group.equals("group-1")
+                ? lateDescription
+                : KafkaFuture.completedFuture(description(group)));
+    final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+
+    final long start = System.nanoTime();
+    new RestoreScheduler(admin, new RestoreConfig(4, 60_000, 0, true, 2, 1, false))
+        .restore(
+            groups(2).iterator(),
+            5_000,
+            new RestoreListener() {
+              @Override
+              public void sending(GroupOffsets groupOffsets) {}
+
+              @Override
+              public void completed(GroupResult result) {
+                completed.add(result.getGroup());
+                if (result.getGroup().equals("group-0")) {
+                  lateDescription.complete(description("group-1"));
+                }
+              }
+            });
+
+    assertEquals(Arrays.asList("group-0", "group-1"), completed);
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+  }
+
+  @Test
+  void failsTheGroupMissingItsDeadlineWhileTheOthersKeepCompleting() {
+    final Admin admin =
+        admin(
+            group -> {
+              final KafkaFutureImpl<Void> future = new KafkaFutureImpl<>();
+              if (!group.equals("group-0")) {
+                // every call takes a moment and is answered at once: a completion is always queued
+                try {
+                  Thread.sleep(2);
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+                future.complete(null);
+              }
+              return future;
+            });
+    final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+
+    assertThrows(
+        RuntimeException.class,
+        () ->
+            new RestoreScheduler(admin, retrying(2, 0))
+                .restore(
+                    groups(80).iterator(),
+                    50,
+                    new RestoreListener() {
+                      @Override
+                      public void sending(GroupOffsets groupOffsets) {}
+
+                      @Override
+                      public void completed(GroupResult result) {
+                        completed.add(result.getGroup());
+                      }
+                    }));
+
+    assertEquals(80, completed.size());
+    // group-0 fails at its deadline, well before the others are all restored
+    assertTrue(completed.indexOf("group-0") < 60, completed.toString());
+  }
+
+  private static Admin admin(Function<String, KafkaFutureImpl<Void>> response) {
+    final Admin admin = mock(Admin.class);
+    when(admin.alterConsumerGroupOffsets(
+            anyString(), anyMap(), any(AlterConsumerGroupOffsetsOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              final AlterConsumerGroupOffsetsResult result =
+                  mock(AlterConsumerGroupOffsetsResult.class);
+              when(result.all()).thenReturn(response.apply(invocation.getArgument(0)));
+              return result;
+            });
+    return admin;
+  }
+
+  private static void describing(
+      Admin admin, Function<String, KafkaFuture<ConsumerGroupDescription>> description) {
+    when(admin.describeConsumerGroups(anyCollection(), any(DescribeConsumerGroupsOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              final Collection<String> groups = invocation.getArgument(0);
+              final Map<String, KafkaFuture<ConsumerGroupDescription>> descriptions =
+                  new HashMap<>();
+              groups.forEach(group -> descriptions.put(group, description.apply(group)));
+              return new DescribeConsumerGroupsResult(descriptions);
+            });
+  }
+
+  private static void committing(
+      Admin admin, Function<String, KafkaFuture<Map<TopicPartition, OffsetAndMetadata>>> offsets) {
+    final ListConsumerGroupOffsetsResult result = mock(ListConsumerGroupOffsetsResult.class);
+    when(result.partitionsToOffsetAndMetadata(anyString()))
+        .thenAnswer(invocation -> offsets.apply(invocation.getArgument(0)));
+    when(admin.listConsumerGroupOffsets(anyMap(), any(ListConsumerGroupOffsetsOptions.class)))
+        .thenReturn(result);
+  }
+
+  private static Map<TopicPartition, OffsetAndMetadata> offsets(long first, long second) {
+    final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    offsets.put(new TopicPartition("topic", 0), new OffsetAndMetadata(first));
+    offsets.put(new TopicPartition("topic", 1), new OffsetAndMetadata(second));
+    return offsets;
+  }
+
+  private static int coordinator(String group) {
+    return Integer.parseInt(group.substring("group-".length())) % 3;
+  }
+
+  private static ConsumerGroupDescription description(String group) {
+    return new ConsumerGroupDescription(
+        group,
+        false,
+        Collections.emptyList(),
+        "",
+        ConsumerGroupState.DEAD,
+        new Node(coordinator(group), "broker-" + coordinator(group), 9092));
+  }
+
+  private static RestoreConfig config(int maxInFlight, long timeoutMs) {
+    return new RestoreConfig(maxInFlight, 60_000, timeoutMs, false, 1, 1, false);
+  }
+
+  private static RestoreConfig retrying(int maxInFlight, int retries) {
+    return new RestoreConfig(maxInFlight, 60_000, 0, false, 1, 1, false, retries, 1, 4);
+  }
+
+  private static List<GroupOffsets> groups(int count) {
+    final List<GroupOffsets> groups = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      groups.add(
+          new GroupOffsets(
+              "group-" + i,
+              Collections.singletonMap(new TopicPartition("topic", 0), new OffsetAndMetadata(i))));
+    }
+    return groups;
+  }
+}
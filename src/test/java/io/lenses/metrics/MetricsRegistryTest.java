@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+  @Test
+  void writesCountersAndGaugesInThePrometheusFormat() throws IOException {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("store_get_requests_total", "Objects read").add(3);
+    registry.gauge("restore_phase_seconds", "Phase time", "phase", "read").set(1.5);
+    registry.gauge("restore_phase_seconds", "Phase time", "phase", "restore").set(2);
+
+    final StringWriter text = new StringWriter();
+    registry.writePrometheus(text);
+    assertEquals(
+        "# HELP restore_phase_seconds Phase time\n"
+            + "# TYPE restore_phase_seconds gauge\n"
+            + "restore_phase_seconds{phase=\"read\"} 1.5\n"
+            + "restore_phase_seconds{phase=\"restore\"} 2\n"
+            + "# HELP store_get_requests_total Objects read\n"
+            + "# TYPE store_get_requests_total counter\n"
+            + "store_get_requests_total 3\n",
+        text.toString());
+  }
+
+  @Test
+  void writesTheHistogramBucketsCumulatively() throws IOException {
+    final MetricsRegistry registry = new MetricsRegistry();
+    final Histogram histogram = registry.histogram("store_get_seconds", "GET latency");
+    histogram.observeNanos(TimeUnit.MILLISECONDS.toNanos(3));
+    histogram.observeNanos(TimeUnit.MILLISECONDS.toNanos(3));
+    histogram.observeNanos(TimeUnit.SECONDS.toNanos(2));
+
+    final StringWriter text = new StringWriter();
+    registry.writePrometheus(text);
+    final String exposed = text.toString();
+    assertTrue(exposed.contains("store_get_seconds_bucket{le=\"0.0025\"} 0\n"), exposed);
+    assertTrue(exposed.contains("store_get_seconds_bucket{le=\"0.005\"} 2\n"), exposed);
+    assertTrue(exposed.contains("store_get_seconds_bucket{le=\"1.0\"} 2\n"), exposed);
+    assertTrue(exposed.contains("store_get_seconds_bucket{le=\"2.5\"} 3\n"), exposed);
+    assertTrue(exposed.contains("store_get_seconds_bucket{le=\"+Inf\"} 3\n"), exposed);
+    assertTrue(exposed.contains("store_get_seconds_sum 2.006\n"), exposed);
+    assertTrue(exposed.contains("store_get_seconds_count 3\n"), exposed);
+    assertEquals(0.005, histogram.quantileUpperBound(0.5));
+    assertEquals(2.5, histogram.quantileUpperBound(0.99));
+  }
+
+  @Test
+  void writesTheMetricsAsJsonMembers() throws IOException {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("kafka_groups_restored_total", "Groups restored").inc();
+    registry.gauge("restore_phase_seconds", "Phase time", "phase", "total").set(Double.NaN);
+    registry.histogram("kafka_group_alter_seconds", "Alter latency");
+
+    final StringWriter json = new StringWriter();
+    registry.writeJsonMembers(json);
+    assertEquals(
+        "  \"kafka_group_alter_seconds\": {\"count\": 0, \"sumSeconds\": 0.0, \"meanMs\": 0.0,"
+            + " \"p50SecondsAtMost\": 0, \"p99SecondsAtMost\": 0},\n"
+            + "  \"kafka_groups_restored_total\": 1,\n"
+            + "  \"restore_phase_seconds{phase=\\\"total\\\"}\": null",
+        json.toString());
+  }
+
+  @Test
+  void returnsTheSameMetricForTheSameNameAndLabel() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    assertSame(registry.counter("a_total", "A"), registry.counter("a_total", "A"));
+    assertSame(registry.gauge("b", "B", "l", "x"), registry.gauge("b", "B", "l", "x"));
+    assertThrows(IllegalArgumentException.class, () -> registry.histogram("a_total", "A"));
+  }
+}
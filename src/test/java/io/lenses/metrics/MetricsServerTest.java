@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class MetricsServerTest {
+
+  @Test
+  void servesTheMetricsOverHttp() throws IOException {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("store_list_pages_total", "Listing pages").add(7);
+    try (MetricsServer server = new MetricsServer(0, registry)) {
+      final HttpURLConnection connection =
+          (HttpURLConnection)
+              new URL("http://localhost:" + server.getPort() + "/metrics").openConnection();
+      try {
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+        final String body = read(connection.getInputStream());
+        assertTrue(body.contains("# TYPE store_list_pages_total counter\n"), body);
+        assertTrue(body.contains("store_list_pages_total 7\n"), body);
+      } finally {
+        connection.disconnect();
+      }
+    }
+  }
+
+  private static String read(InputStream input) throws IOException {
+    try (InputStream in = input) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
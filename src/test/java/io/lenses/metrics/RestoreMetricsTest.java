@@ -0,0 +1,45 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RestoreMetricsTest {
+
+  @Test
+  void writesTheSlowestGroupsToTheSummary(@TempDir Path dir) throws IOException {
+    final long now = System.nanoTime();
+    for (int i = 0; i < RestoreMetrics.SLOWEST_GROUPS + 5; i++) {
+      RestoreMetrics.groupAltered("summary-group-" + i, now - TimeUnit.SECONDS.toNanos(100 + i));
+    }
+    RestoreMetrics.phaseDone("total", now);
+
+    final Path file = dir.resolve("summary.json");
+    RestoreMetrics.writeSummary(file);
+    final String summary = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    assertTrue(summary.startsWith("{\n"), summary);
+    assertTrue(summary.endsWith("]\n}\n"), summary);
+    assertTrue(summary.contains("\"kafka_group_alter_seconds\": {\"count\": "), summary);
+    assertTrue(summary.contains("\"restore_phase_seconds{phase=\\\"total\\\"}\": "), summary);
+    // the slowest first, and only the slowest ones
+    assertTrue(
+        summary.indexOf("\"summary-group-14\"") < summary.indexOf("\"summary-group-5\""), summary);
+    assertTrue(!summary.contains("\"summary-group-4\""), summary);
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.report;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.lenses.kafka.GroupOffsets;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffsetsReportTest {
+
+  @Test
+  void writesEveryPartitionOffset(@TempDir Path dir) throws IOException {
+    final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    offsets.put(new TopicPartition("topic2", 0), new OffsetAndMetadata(7L));
+    offsets.put(new TopicPartition("topic1", 1), new OffsetAndMetadata(20L));
+    offsets.put(new TopicPartition("topic1", 0), new OffsetAndMetadata(10L));
+
+    final Path file = dir.resolve("report.tsv");
+    try (OffsetsReport report = new OffsetsReport(file)) {
+      report.accept(new GroupOffsets("group1", offsets));
+      report.accept(
+          new GroupOffsets(
+              "group2",
+              Collections.singletonMap(
+                  new TopicPartition("topic3", 4), new OffsetAndMetadata(1L))));
+    }
+    assertEquals(
+        Arrays.asList(
+            "group\ttopic\tpartition\toffset",
+            "group1\ttopic1\t0\t10",
+            "group1\ttopic1\t1\t20",
+            "group1\ttopic2\t0\t7",
+            "group2\ttopic3\t4\t1"),
+        Files.readAllLines(file, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.report;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ProgressReporterTest {
+
+  @Test
+  void describesTheReadOnly() {
+    assertEquals(
+        "Progress: 12000 keys read (2400 keys/s), 93.8 KiB, 40 groups read",
+        ProgressReporter.describe(12000, 2400, 96000, 40, -1, 0, false));
+  }
+
+  @Test
+  void leavesTheTimeLeftOpenUntilTheReadCompletes() {
+    assertEquals(
+        "Progress: 500 keys read (100 keys/s), 3.9 KiB, 40 groups read, 10 restored,"
+            + " ETA: once the read completes",
+        ProgressReporter.describe(500, 100, 4000, 40, 10, 5, false));
+  }
+
+  @Test
+  void estimatesTheTimeLeftFromTheRestoreRate() {
+    assertEquals(
+        "Progress: 500 keys read (0 keys/s), 1.0 MiB, 40 groups read, 10 restored, ETA: 6 s",
+        ProgressReporter.describe(500, 0, 1024 * 1024, 40, 10, 5, true));
+    assertEquals(
+        "Progress: 500 keys read (0 keys/s), 10 B, 40 groups read, 40 restored, ETA: 0 s",
+        ProgressReporter.describe(500, 0, 10, 40, 40, 0, true));
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.report;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.lenses.kafka.GroupResult;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.apache.kafka.common.errors.GroupNotEmptyException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RestoreResultsTest {
+
+  @Test
+  void writesOneLinePerGroup(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("results.jsonl");
+    try (RestoreResults results = new RestoreResults(file)) {
+      results.accept(GroupResult.restored("group1", 3, 2));
+      results.accept(GroupResult.unchanged("group2"));
+      results.accept(
+          GroupResult.failed("group\"3", 1, 1, new GroupNotEmptyException("has members"), false));
+    }
+    assertEquals(
+        Arrays.asList(
+            "{\"group\":\"group1\",\"status\":\"restored\",\"attempts\":2,\"partitions\":3}",
+            "{\"group\":\"group2\",\"status\":\"unchanged\",\"attempts\":0,\"partitions\":0}",
+            "{\"group\":\"group\\\"3\",\"status\":\"failed\",\"attempts\":1,\"partitions\":1,"
+                + "\"error\":\"org.apache.kafka.common.errors.GroupNotEmptyException: has members\","
+                + "\"retriable\":false}"),
+        Files.readAllLines(file, StandardCharsets.UTF_8));
+  }
+}
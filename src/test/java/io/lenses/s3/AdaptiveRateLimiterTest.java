@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveRateLimiterTest {
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void spreadsTheRequestsAtTheRate() {
+    final AdaptiveRateLimiter limiter =
+        new AdaptiveRateLimiter(new RateLimitConfig(100, 1, 1, 0.5), now::get);
+
+    // a tenth of a second worth of requests goes at once, the next ones wait for their turn
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, limiter.reserve());
+    }
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(10), limiter.reserve());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(20), limiter.reserve());
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(10), limiter.reserve());
+  }
+
+  @Test
+  void halvesTheRateWhenThrottledAndRaisesItBackOnSuccess() {
+    final AdaptiveRateLimiter limiter =
+        new AdaptiveRateLimiter(new RateLimitConfig(100, 10, 5, 0.5), now::get);
+
+    limiter.throttled();
+    assertEquals(50, limiter.getRate());
+    // the answers to the requests sent before the decrease count as one
+    limiter.throttled();
+    assertEquals(50, limiter.getRate());
+    now.addAndGet(AdaptiveRateLimiter.DECREASE_INTERVAL_NANOS);
+    limiter.throttled();
+    assertEquals(25, limiter.getRate());
+    for (int i = 0; i < 3; i++) {
+      now.addAndGet(AdaptiveRateLimiter.DECREASE_INTERVAL_NANOS);
+      limiter.throttled();
+    }
+    assertEquals(10, limiter.getRate());
+
+    limiter.succeeded();
+    assertEquals(15, limiter.getRate());
+    for (int i = 0; i < 100; i++) {
+      limiter.succeeded();
+    }
+    assertEquals(100, limiter.getRate());
+  }
+
+  @Test
+  void startsLimitingWithoutAMaxOnceThrottled() {
+    final AdaptiveRateLimiter limiter =
+        new AdaptiveRateLimiter(new RateLimitConfig(0, 10, 5, 0.5), now::get);
+
+    // 400 requests over a second go as they come
+    for (int i = 0; i < 400; i++) {
+      assertEquals(0, limiter.reserve());
+      now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1) * 10 / 4);
+    }
+    assertEquals(0, limiter.getRate());
+
+    limiter.throttled();
+    assertEquals(200, limiter.getRate());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(5), limiter.reserve());
+    // without a max, the rate grows back with no ceiling
+    for (int i = 0; i < 100; i++) {
+      limiter.succeeded();
+    }
+    assertEquals(700, limiter.getRate());
+  }
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local HTTP server answering the ListObjectsV2 and GetObject requests of a single bucket held in
+ * memory, with path-style addressing: the S3 clients reach it through aws.endpoint, so the whole
+ * SDK and HTTP client stack is exercised without AWS. It can answer 503 SlowDown to the first
+ * requests to simulate throttling, and hold back the body of the next GETs after their headers to
+ * simulate a slow S3 host.
+ */
+class HttpS3Stub implements AutoCloseable {
+  private static final String SLOW_DOWN =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+          + "<Error><Code>SlowDown</Code><Message>Please reduce your request rate.</Message>"
+          + "<RequestId>1</RequestId><HostId>1</HostId></Error>";
+  private final String bucket;
+  private final int pageSize;
+  private final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger throttled = new AtomicInteger();
+  private final AtomicInteger delayed = new AtomicInteger();
+  private volatile long bodyDelayMs;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final HttpServer server;
+
+  static {
+    // the headers and the body are written apart: without it, Nagle and the delayed ACKs hold
+    // every answer back for tens of milliseconds
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  HttpS3Stub(String bucket, int pageSize) throws IOException {
+    this.bucket = bucket;
+    this.pageSize = pageSize;
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+    server.createContext("/" + bucket, this::answer);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  HttpS3Stub putOffset(String key, long offset) {
+    objects.put(key, ByteBuffer.allocate(8).putLong(offset).array());
+    return this;
+  }
+
+  HttpS3Stub putObject(String key, byte[] content) {
+    objects.put(key, content);
+    return this;
+  }
+
+  /** The next requests are answered 503 SlowDown. */
+  HttpS3Stub throttle(int count) {
+    throttled.set(count);
+    return this;
+  }
+
+  /** The next GETs send their headers at once and their body after the delay. */
+  HttpS3Stub delayBody(int count, long delayMs) {
+    bodyDelayMs = delayMs;
+    delayed.set(count);
+    return this;
+  }
+
+  String getEndpoint() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  int getRequests() {
+    return requests.get();
+  }
+
+  private void answer(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try (OutputStream out = exchange.getResponseBody()) {
+      if (throttled.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+        send(exchange, out, 503, "application/xml", SLOW_DOWN.getBytes(StandardCharsets.UTF_8));
+        return;
+      }
+      final String path = exchange.getRequestURI().getPath();
+      final String key =
+          path.length() > bucket.length() + 2 ? path.substring(bucket.length() + 2) : "";
+      if (key.isEmpty()) {
+        send(exchange, out, 200, "application/xml", list(query(exchange)));
+        return;
+      }
+      final byte[] content = objects.get(key);
+      if (content == null) {
+        send(
+            exchange,
+            out,
+            404,
+            "application/xml",
+            "<Error><Code>NoSuchKey</Code></Error>".getBytes(StandardCharsets.UTF_8));
+      } else if (delayed.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, content.length);
+        out.flush();
+        try {
+          Thread.sleep(bodyDelayMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        out.write(content);
+      } else {
+        send(exchange, out, 200, "application/octet-stream", content);
+      }
+    }
+  }
+
+  private byte[] list(Map<String, String> query) {
+    final String prefix = query.getOrDefault("prefix", "");
+    final String token = query.get("continuation-token");
+    final StringBuilder xml =
+        new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><ListBucketResult>");
+    int count = 0;
+    String last = null;
+    boolean truncated = false;
+    for (Map.Entry<String, byte[]> entry :
+        objects.tailMap(token == null ? prefix : token, token == null).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      if (count == pageSize) {
+        truncated = true;
+        break;
+      }
+      xml.append("<Contents><Key>")
+          .append(escape(entry.getKey()))
+          .append("</Key><LastModified>2024-01-01T00:00:00.000Z</LastModified><ETag>&quot;")
+          .append(Integer.toHexString(Arrays.hashCode(entry.getValue())))
+          .append("&quot;</ETag><Size>")
+          .append(entry.getValue().length)
+          .append("</Size></Contents>");
+      last = entry.getKey();
+      count++;
+    }
+    xml.append("<Name>")
+        .append(bucket)
+        .append("</Name><KeyCount>")
+        .append(count)
+        .append("</KeyCount><IsTruncated>")
+        .append(truncated)
+        .append("</IsTruncated>");
+    if (truncated) {
+      xml.append("<NextContinuationToken>").append(escape(last)).append("</NextContinuationToken>");
+    }
+    return xml.append("</ListBucketResult>").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static Map<String, String> query(HttpExchange exchange)
+      throws UnsupportedEncodingException {
+    final Map<String, String> query = new HashMap<>();
+    final String raw = exchange.getRequestURI().getRawQuery();
+    if (raw != null) {
+      for (String parameter : raw.split("&")) {
+        final int equals = parameter.indexOf('=');
+        if (equals > 0) {
+          query.put(
+              URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+              URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+        }
+      }
+    }
+    return query;
+  }
+
+  private static String escape(String value) {
+    return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+
+  private static void send(
+      HttpExchange exchange, OutputStream out, int status, String contentType, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, body.length);
+    out.write(body);
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.metrics.RestoreMetrics;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class RequestHedgerTest {
+
+  @Test
+  void hedgesASlowRequestAndTakesTheFirstAnswer() {
+    final long hedges = RestoreMetrics.s3Hedges.get();
+    final long wins = RestoreMetrics.s3HedgeWins.get();
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 20, 1), 4)) {
+      warmUp(hedger);
+      assertEquals(TimeUnit.MILLISECONDS.toNanos(20), hedger.getDelayNanos());
+
+      final AtomicInteger attempts = new AtomicInteger();
+      final long start = System.nanoTime();
+      final String answer =
+          hedger.call(() -> attempts.incrementAndGet() == 1 ? slow("first", 5000) : "hedge");
+
+      assertEquals("hedge", answer);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+      assertFalse(Thread.currentThread().isInterrupted());
+      assertEquals(2, attempts.get());
+      assertEquals(1, RestoreMetrics.s3Hedges.get() - hedges);
+      assertEquals(1, RestoreMetrics.s3HedgeWins.get() - wins);
+    }
+  }
+
+  @Test
+  void hedgesNothingBeforeItHasTheLatencies() {
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 1, 1), 4)) {
+      for (int i = 0; i < RequestHedger.MIN_SAMPLES - 1; i++) {
+        hedger.call(() -> "fast");
+      }
+      assertEquals(Long.MAX_VALUE, hedger.getDelayNanos());
+
+      final AtomicInteger attempts = new AtomicInteger();
+      assertEquals("first", hedger.call(() -> slow("first", 50 + attempts.incrementAndGet())));
+      assertEquals(1, attempts.get());
+    }
+  }
+
+  @Test
+  void capsTheHedgesToTheMaxRatio() {
+    final long hedges = RestoreMetrics.s3Hedges.get();
+    // the warm up earns 1.5 hedges at 1.5%
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 20, 0.015), 4)) {
+      warmUp(hedger);
+      final AtomicInteger attempts = new AtomicInteger();
+      for (int i = 0; i < 3; i++) {
+        hedger.call(() -> slow("answer", 100 + attempts.incrementAndGet()));
+      }
+      assertEquals(4, attempts.get());
+      assertEquals(1, RestoreMetrics.s3Hedges.get() - hedges);
+    }
+  }
+
+  @Test
+  void failsOnceBothAttemptsFail() {
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 20, 1), 4)) {
+      warmUp(hedger);
+      final AtomicInteger attempts = new AtomicInteger();
+      final IllegalStateException error =
+          assertThrows(
+              IllegalStateException.class,
+              () ->
+                  hedger.call(
+                      () -> {
+                        if (attempts.incrementAndGet() == 1) {
+                          slow("first", 100);
+                        }
+                        throw new IllegalStateException("Failed");
+                      }));
+      assertEquals("Failed", error.getMessage());
+      assertEquals(2, attempts.get());
+    }
+  }
+
+  @Test
+  void runsTheRequestOnTheCallerThreadUntilItCanBeHedged() {
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 20, 1), 4)) {
+      final Thread caller = Thread.currentThread();
+      assertEquals(caller, hedger.call(Thread::currentThread));
+    }
+  }
+
+  @Test
+  void keepsTheInterruptOfTheCallerWaitingForTheAttempts() throws InterruptedException {
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 20, 1), 4)) {
+      warmUp(hedger);
+      final AtomicReference<Throwable> error = new AtomicReference<>();
+      final AtomicBoolean interrupted = new AtomicBoolean();
+      final Thread caller =
+          new Thread(
+              () -> {
+                try {
+                  hedger.call(() -> slow("slow", 5000));
+                } catch (RuntimeException e) {
+                  error.set(e);
+                  interrupted.set(Thread.currentThread().isInterrupted());
+                }
+              });
+      caller.start();
+      Thread.sleep(100);
+      caller.interrupt();
+      caller.join(TimeUnit.SECONDS.toMillis(2));
+
+      assertFalse(caller.isAlive());
+      assertInstanceOf(InterruptedException.class, error.get().getCause());
+      assertTrue(interrupted.get());
+    }
+  }
+
+  @Test
+  void takesTheFirstAttemptWhenItAnswersAfterAFailedHedge() {
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 20, 1), 4)) {
+      warmUp(hedger);
+      final AtomicInteger attempts = new AtomicInteger();
+      final String answer =
+          hedger.call(
+              () -> {
+                if (attempts.incrementAndGet() == 1) {
+                  return slow("first", 100);
+                }
+                throw new IllegalStateException("Failed");
+              });
+      assertEquals("first", answer);
+      assertEquals(2, attempts.get());
+    }
+  }
+
+  private static void warmUp(RequestHedger hedger) {
+    for (int i = 0; i < RequestHedger.MIN_SAMPLES; i++) {
+      hedger.call(() -> "fast");
+    }
+  }
+
+  private static String slow(String answer, long millis) throws InterruptedException {
+    Thread.sleep(millis);
+    return answer;
+  }
+}
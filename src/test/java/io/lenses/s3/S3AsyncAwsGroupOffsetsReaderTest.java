@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.store.OffsetsCache;
+import io.lenses.store.Selection;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class S3AsyncAwsGroupOffsetsReaderTest {
+
+  @Test
+  void readsTheSameOffsetsAsTheBlockingReader() {
+    final StubS3Client objects = new StubS3Client(3, 0);
+    for (int group = 0; group < 5; group++) {
+      for (int partition = 0; partition < 4; partition++) {
+        objects.putOffset("prefix/group" + group + "/topic/" + partition, group * 100 + partition);
+      }
+    }
+    objects.putObject("prefix/group0/topic/not-a-partition", new byte[8]);
+    final S3Location source = new S3Location("bucket", Optional.of("prefix"));
+
+    final List<GroupOffsets> expected =
+        new S3AwsGroupOffsetsReader(objects).read(source, Optional.empty());
+    try (StubS3AsyncClient s3Client = new StubS3AsyncClient(objects, 1)) {
+      final List<GroupOffsets> actual =
+          new S3AsyncAwsGroupOffsetsReader(s3Client, 8).read(source, Optional.empty());
+
+      assertEquals(5, actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getGroup(), actual.get(i).getGroup());
+        assertEquals(expected.get(i).getOffsets(), actual.get(i).getOffsets());
+      }
+      assertEquals(
+          new OffsetAndMetadata(403L),
+          actual.get(4).getOffsets().get(new TopicPartition("topic", 3)));
+    }
+  }
+
+  @Test
+  void keepsTheGetsInFlightUnderTheCap() {
+    final StubS3Client objects = new StubS3Client(1000, 0);
+    for (int partition = 0; partition < 5000; partition++) {
+      objects.putOffset("group/topic/" + partition, partition);
+    }
+    final S3Location source = new S3Location("bucket", Optional.empty());
+    try (StubS3AsyncClient s3Client = new StubS3AsyncClient(objects, 20)) {
+      final long start = System.nanoTime();
+      final List<GroupOffsets> offsets =
+          new S3AsyncAwsGroupOffsetsReader(s3Client, 1000)
+              .read(source, Optional.of(new String[] {"group"}));
+      final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+      assertEquals(5000, offsets.get(0).getOffsets().size());
+      assertTrue(s3Client.getMaxInFlight() <= 1000);
+      assertTrue(s3Client.getMaxInFlight() > 100);
+      // sequentially this would be 5000 * 20ms = 100s
+      assertTrue(elapsedMillis < 10_000, "Took " + elapsedMillis + "ms");
+    }
+  }
+
+  @Test
+  void handsTheGroupsOverOffTheClientThreads() {
+    final StubS3Client objects = new StubS3Client(5, 0);
+    for (int group = 0; group < 20; group++) {
+      for (int partition = 0; partition < 3; partition++) {
+        objects.putOffset("group" + group + "/topic/" + partition, partition);
+      }
+    }
+    final Set<String> threads = ConcurrentHashMap.newKeySet();
+    try (StubS3AsyncClient s3Client = new StubS3AsyncClient(objects, 1)) {
+      new S3AsyncAwsGroupOffsetsReader(s3Client, 8)
+          .read(
+              new S3Location("bucket", Optional.empty()),
+              Selection.all(),
+              offsets -> threads.add(Thread.currentThread().getName()));
+    }
+
+    assertFalse(threads.isEmpty());
+    assertFalse(threads.contains(StubS3AsyncClient.THREAD_NAME), threads::toString);
+  }
+
+  @Test
+  void failsWhenAnObjectCannotBeRead() {
+    final StubS3Client objects =
+        new StubS3Client(1000, 0).putOffset("group/topic/0", 1L).failGet("group/topic/0");
+    try (StubS3AsyncClient s3Client = new StubS3AsyncClient(objects, 0)) {
+      final RuntimeException exception =
+          assertThrows(
+              RuntimeException.class,
+              () ->
+                  new S3AsyncAwsGroupOffsetsReader(s3Client, 4)
+                      .read(new S3Location("bucket", Optional.empty()), Optional.empty()));
+      assertTrue(exception.getCause() instanceof S3Exception);
+    }
+  }
+
+  @Test
+  void failsWithTheKeyOfAnObjectThatIsNotAnOffset() {
+    final StubS3Client objects = new StubS3Client(1000, 0).putObject("group/topic/0", new byte[9]);
+    try (StubS3AsyncClient s3Client = new StubS3AsyncClient(objects, 0)) {
+      final RuntimeException exception =
+          assertThrows(
+              RuntimeException.class,
+              () ->
+                  new S3AsyncAwsGroupOffsetsReader(s3Client, 4)
+                      .read(new S3Location("bucket", Optional.empty()), Optional.empty()));
+      assertEquals("Failed to read group/topic/0", exception.getCause().getMessage());
+      assertTrue(
+          exception.getCause().getCause()
+              instanceof OffsetResponseTransformer.InvalidOffsetException);
+    }
+  }
+
+  @Test
+  void listsAndFetchesOnlyTheObjectsOfTheRequestedGroups() {
+    final StubS3Client objects = new StubS3Client(1, 0);
+    for (int group = 0; group < 50; group++) {
+      objects.putOffset("group" + group + "/topic/0", group);
+      objects.putOffset("group" + group + "/topic/1", group);
+    }
+    try (StubS3AsyncClient s3Client = new StubS3AsyncClient(objects, 1)) {
+      final List<GroupOffsets> offsets =
+          new S3AsyncAwsGroupOffsetsReader(s3Client, 8)
+              .read(
+                  new S3Location("bucket", Optional.empty()),
+                  Optional.of(new String[] {"group4", "group42"}));
+
+      assertEquals(2, offsets.size());
+      assertEquals(2, offsets.get(0).getOffsets().size());
+      assertEquals(2, offsets.get(1).getOffsets().size());
+      // one object per page: two pages for each of the two groups
+      assertEquals(4, objects.getListRequests());
+      assertEquals(4, objects.getGetRequests());
+    }
+  }
+
+  @Test
+  void skipsTheObjectsWhoseETagMatchesTheCache(@TempDir Path dir) throws IOException {
+    final StubS3Client objects = new StubS3Client(1000, 0);
+    for (int partition = 0; partition < 50; partition++) {
+      objects.putOffset("group/topic/" + partition, partition);
+    }
+    final S3Location source = new S3Location("bucket", Optional.empty());
+    final Path file = dir.resolve("offsets.cache");
+    try (StubS3AsyncClient s3Client = new StubS3AsyncClient(objects, 0)) {
+      final OffsetsCache first = OffsetsCache.load(file);
+      new S3AsyncAwsGroupOffsetsReader(s3Client, 8, Optional.of(first))
+          .read(source, Optional.empty());
+      first.save();
+
+      final OffsetsCache second = OffsetsCache.load(file);
+      final List<GroupOffsets> offsets =
+          new S3AsyncAwsGroupOffsetsReader(s3Client, 8, Optional.of(second))
+              .read(source, Optional.empty());
+
+      assertEquals(50, objects.getGetRequests());
+      assertEquals(50, second.getHits());
+      assertEquals(50, offsets.get(0).getOffsets().size());
+    }
+  }
+}
@@ -12,10 +12,29 @@ package io.lenses.s3;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.store.NameFilter;
+import io.lenses.store.NamePattern;
+import io.lenses.store.OffsetsCache;
+import io.lenses.store.ReaderConfig;
+import io.lenses.store.Selection;
 import io.lenses.utils.Tuple2;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.S3Client;
 
 class S3AwsGroupOffsetsReaderTest {
 
@@ -65,4 +84,336 @@ class S3AwsGroupOffsetsReaderTest {
     assertEquals("topic", result._2().topic());
     assertEquals(0, result._2().partition());
   }
+
+  @Test
+  void readsTheGroupsOffsetsSortedByGroup() {
+    final StubS3Client s3Client =
+        new StubS3Client(2, 0)
+            .putOffset("prefix/group2/topic/0", 20L)
+            .putOffset("prefix/group1/topic/1", 11L)
+            .putOffset("prefix/group1/topic/0", 10L)
+            .putOffset("prefix/group1/other/0", 5L)
+            .putObject("prefix/group1/topic/not-a-partition", new byte[8]);
+
+    final List<GroupOffsets> offsets =
+        reader(s3Client, ReaderConfig.builder().concurrency(4))
+            .read(new S3Location("bucket", Optional.of("prefix")), Optional.empty());
+
+    assertEquals(2, offsets.size());
+    assertEquals("group1", offsets.get(0).getGroup());
+    assertEquals(3, offsets.get(0).getOffsets().size());
+    assertEquals(
+        new OffsetAndMetadata(11L),
+        offsets.get(0).getOffsets().get(new TopicPartition("topic", 1)));
+    assertEquals("group2", offsets.get(1).getGroup());
+    assertEquals(
+        new OffsetAndMetadata(20L),
+        offsets.get(1).getOffsets().get(new TopicPartition("topic", 0)));
+  }
+
+  @Test
+  void readsOnlyTheRequestedGroups() {
+    final StubS3Client s3Client =
+        new StubS3Client(1000, 0)
+            .putOffset("group1/topic/0", 10L)
+            .putOffset("group2/topic/0", 20L)
+            .putOffset("group3/topic/0", 30L);
+
+    final List<GroupOffsets> offsets =
+        reader(s3Client, ReaderConfig.builder().concurrency(2))
+            .read(
+                new S3Location("bucket", Optional.empty()),
+                Optional.of(new String[] {"group1", "group3"}));
+
+    assertEquals(2, offsets.size());
+    assertEquals("group1", offsets.get(0).getGroup());
+    assertEquals("group3", offsets.get(1).getGroup());
+  }
+
+  @Test
+  void parallelReadIsFasterThanTheSequentialRead() {
+    final StubS3Client s3Client = new StubS3Client(100, 5);
+    for (int group = 0; group < 10; group++) {
+      for (int partition = 0; partition < 40; partition++) {
+        s3Client.putOffset("group" + group + "/topic/" + partition, partition);
+      }
+    }
+    final S3Location source = new S3Location("bucket", Optional.empty());
+
+    long start = System.nanoTime();
+    final List<GroupOffsets> sequential =
+        reader(s3Client, ReaderConfig.builder().concurrency(1)).read(source, Optional.empty());
+    final long sequentialNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    final List<GroupOffsets> parallel =
+        reader(s3Client, ReaderConfig.builder().concurrency(16)).read(source, Optional.empty());
+    final long parallelNanos = System.nanoTime() - start;
+
+    assertEquals(sequential.size(), parallel.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      assertEquals(sequential.get(i).getGroup(), parallel.get(i).getGroup());
+      assertEquals(sequential.get(i).getOffsets(), parallel.get(i).getOffsets());
+    }
+    // 400 GETs at 5ms each: ~2s sequentially and ~130ms with 16 workers
+    assertTrue(
+        parallelNanos * 4 < sequentialNanos,
+        "Parallel read took "
+            + parallelNanos / 1_000_000
+            + "ms, sequential took "
+            + sequentialNanos / 1_000_000
+            + "ms");
+  }
+
+  @Test
+  void listsAndFetchesOnlyTheObjectsOfTheRequestedGroups() {
+    final StubS3Client s3Client = new StubS3Client(1000, 0);
+    for (int group = 0; group < 50; group++) {
+      s3Client.putOffset("prefix/group" + group + "/topic/0", group);
+      s3Client.putOffset("prefix/group" + group + "/topic/1", group);
+    }
+
+    final List<GroupOffsets> offsets =
+        reader(s3Client, ReaderConfig.builder().concurrency(4))
+            .read(
+                new S3Location("bucket", Optional.of("prefix")),
+                Optional.of(new String[] {"group4", "group7", "group42"}));
+
+    assertEquals(3, offsets.size());
+    assertEquals("group4", offsets.get(0).getGroup());
+    assertEquals("group42", offsets.get(1).getGroup());
+    assertEquals("group7", offsets.get(2).getGroup());
+    assertEquals(3, s3Client.getListRequests());
+    assertEquals(6, s3Client.getGetRequests());
+  }
+
+  @Test
+  void listsAndFetchesOnlyTheGroupsAndTopicsMatchingThePatterns() {
+    final StubS3Client s3Client = new StubS3Client(1000, 0);
+    for (int group = 0; group < 40; group++) {
+      final String name = (group < 10 ? "payments-" : "orders-") + group;
+      s3Client.putOffset("prefix/" + name + "/events/0", group);
+      s3Client.putOffset("prefix/" + name + "/events-internal/0", group);
+    }
+
+    final Selection selection =
+        new Selection(
+            new NameFilter(
+                Arrays.asList(NamePattern.parse("payments-*")),
+                Arrays.asList(NamePattern.parse("regex:payments-[3-4]"))),
+            new NameFilter(new ArrayList<>(), Arrays.asList(NamePattern.parse("*-internal"))));
+    final List<GroupOffsets> offsets = new ArrayList<>();
+    reader(s3Client, ReaderConfig.builder().concurrency(4))
+        .read(new S3Location("bucket", Optional.of("prefix")), selection, offsets::add);
+
+    assertEquals(8, offsets.size());
+    for (GroupOffsets groupOffsets : offsets) {
+      assertTrue(groupOffsets.getGroup().startsWith("payments-"));
+      assertEquals(
+          Arrays.asList(new TopicPartition("events", 0)),
+          groupOffsets.getPartitionOffsets().topicPartitions());
+    }
+    // a single listing from prefix/payments- and a GET for each selected object only
+    assertEquals(1, s3Client.getListRequests());
+    assertEquals(8, s3Client.getGetRequests());
+  }
+
+  @Test
+  void listsEachGroupOnItsOwnWorker() {
+    final StubS3Client s3Client = new StubS3Client(2, 0).listLatency(5);
+    for (int group = 0; group < 20; group++) {
+      for (int partition = 0; partition < 4; partition++) {
+        s3Client.putOffset("prefix/group" + group + "/topic/" + partition, group * 10 + partition);
+      }
+    }
+    s3Client.putOffset("prefix/not-a-group", 0);
+    final S3Location source = new S3Location("bucket", Optional.of("prefix"));
+    final List<GroupOffsets> sequential =
+        reader(s3Client, ReaderConfig.builder().concurrency(8)).read(source, Optional.empty());
+    final int wholeListing = s3Client.getListRequests();
+
+    final List<GroupOffsets> split = new ArrayList<>();
+    reader(s3Client, ReaderConfig.builder().concurrency(8).splitListing(true))
+        .read(source, Selection.all(), split::add);
+    split.sort(Comparator.comparing(GroupOffsets::getGroup));
+
+    assertEquals(20, split.size());
+    for (int i = 0; i < split.size(); i++) {
+      assertEquals(sequential.get(i).getGroup(), split.get(i).getGroup());
+      assertEquals(sequential.get(i).getOffsets(), split.get(i).getOffsets());
+    }
+    // 81 keys, 2 a page; then the 20 group prefixes and the stray key, and 2 pages for each group
+    assertEquals(41, wholeListing);
+    assertEquals(41 + 11 + 20 * 2, s3Client.getListRequests());
+    assertTrue(s3Client.getMaxListsInFlight() >= 4, "" + s3Client.getMaxListsInFlight());
+  }
+
+  @Test
+  void listsOnlyTheGroupsSelectedOnceSplit() {
+    final StubS3Client s3Client = new StubS3Client(1000, 0);
+    for (int group = 0; group < 10; group++) {
+      s3Client.putOffset("group" + group + "/topic/0", group);
+    }
+    final Selection selection =
+        new Selection(
+            new NameFilter(new ArrayList<>(), Arrays.asList(NamePattern.parse("regex:group[0-6]"))),
+            NameFilter.all());
+
+    final List<GroupOffsets> offsets = new ArrayList<>();
+    reader(s3Client, ReaderConfig.builder().concurrency(4).splitListing(true))
+        .read(new S3Location("bucket", Optional.empty()), selection, offsets::add);
+
+    assertEquals(3, offsets.size());
+    // the group prefixes, then group7, group8 and group9
+    assertEquals(4, s3Client.getListRequests());
+    assertEquals(3, s3Client.getGetRequests());
+  }
+
+  @Test
+  void streamsEachGroupBeforeTheLaterGroupsAreRead() {
+    final StubS3Client s3Client = new StubS3Client(2, 0);
+    for (int group = 0; group < 5; group++) {
+      for (int partition = 0; partition < 3; partition++) {
+        s3Client.putOffset("group" + group + "/topic/" + partition, partition);
+      }
+    }
+    final List<Integer> getsSeenByTheConsumer = new ArrayList<>();
+    final List<String> groups = new ArrayList<>();
+
+    reader(s3Client, ReaderConfig.builder().concurrency(1))
+        .read(
+            new S3Location("bucket", Optional.empty()),
+            Optional.empty(),
+            offsets -> {
+              groups.add(offsets.getGroup());
+              getsSeenByTheConsumer.add(s3Client.getGetRequests());
+            });
+
+    assertEquals(Arrays.asList("group0", "group1", "group2", "group3", "group4"), groups);
+    // group0 is handed over right after the first key of group1 is listed
+    assertTrue(getsSeenByTheConsumer.get(0) < 15);
+    assertEquals(15, (int) getsSeenByTheConsumer.get(4));
+  }
+
+  @Test
+  void hedgesTheStragglerGet() {
+    final long wins = RestoreMetrics.s3HedgeWins.get();
+    final StubS3Client s3Client = new StubS3Client(1000, 0);
+    for (int group = 0; group < 2; group++) {
+      for (int partition = 0; partition < 100; partition++) {
+        s3Client.putOffset("group" + group + "/topic/" + partition, partition);
+      }
+    }
+    // the last key read
+    s3Client.slowGet("group1/topic/99", 5000);
+    final List<GroupOffsets> groups = new ArrayList<>();
+
+    final long start = System.nanoTime();
+    new S3AwsGroupOffsetsReader(
+            s3Client, ReaderConfig.DEFAULT, new HedgeConfig(true, 0.95, 20, 0.05))
+        .read(new S3Location("bucket", Optional.empty()), Selection.all(), groups::add);
+
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+    assertEquals(201, s3Client.getGetRequests());
+    assertEquals(1, RestoreMetrics.s3HedgeWins.get() - wins);
+    assertEquals(2, groups.size());
+    assertEquals(
+        new OffsetAndMetadata(99), groups.get(1).getOffsets().get(new TopicPartition("topic", 99)));
+  }
+
+  @Test
+  void skipsTheObjectsWhoseETagMatchesTheCache(@TempDir Path dir) throws IOException {
+    final StubS3Client s3Client = new StubS3Client(1000, 0);
+    for (int group = 0; group < 10; group++) {
+      for (int partition = 0; partition < 10; partition++) {
+        s3Client.putOffset("group" + group + "/topic/" + partition, partition);
+      }
+    }
+    final S3Location source = new S3Location("bucket", Optional.empty());
+    final Path file = dir.resolve("offsets.cache");
+
+    final OffsetsCache first = OffsetsCache.load(file);
+    final List<GroupOffsets> expected =
+        reader(s3Client, ReaderConfig.builder().concurrency(4).cache(Optional.of(first)))
+            .read(source, Optional.empty());
+    first.save();
+    assertEquals(100, s3Client.getGetRequests());
+
+    // one object changed since the first run
+    s3Client.putOffset("group3/topic/7", 1234);
+    final List<GroupOffsets> actual =
+        reader(
+                s3Client,
+                ReaderConfig.builder().concurrency(4).cache(Optional.of(OffsetsCache.load(file))))
+            .read(source, Optional.empty());
+
+    assertEquals(101, s3Client.getGetRequests());
+    assertEquals(2, s3Client.getListRequests());
+    assertEquals(expected.size(), actual.size());
+    assertEquals(
+        new OffsetAndMetadata(1234L),
+        actual.get(3).getOffsets().get(new TopicPartition("topic", 7)));
+    assertEquals(expected.get(9).getOffsets(), actual.get(9).getOffsets());
+  }
+
+  @Test
+  void keepsTheCachedOffsetsWhenTheListingFails(@TempDir Path dir) throws IOException {
+    final StubS3Client s3Client = new StubS3Client(10, 0);
+    for (int group = 0; group < 10; group++) {
+      for (int partition = 0; partition < 10; partition++) {
+        s3Client.putOffset("group" + group + "/topic/" + partition, partition);
+      }
+    }
+    final S3Location source = new S3Location("bucket", Optional.empty());
+    final Path file = dir.resolve("offsets.cache");
+    final OffsetsCache first = OffsetsCache.load(file);
+    reader(s3Client, ReaderConfig.builder().cache(Optional.of(first)))
+        .read(source, Optional.empty());
+    first.save();
+
+    s3Client.failListAfter(3);
+    final OffsetsCache second = OffsetsCache.load(file);
+    assertThrows(
+        RuntimeException.class,
+        () ->
+            reader(s3Client, ReaderConfig.builder().cache(Optional.of(second)))
+                .read(source, Optional.empty()));
+    second.save();
+
+    final OffsetsCache third = OffsetsCache.load(file);
+    for (int group = 0; group < 10; group++) {
+      assertEquals(
+          9L,
+          third.get(
+              "bucket",
+              "group" + group + "/topic/9",
+              s3Client.eTag("group" + group + "/topic/9"),
+              StubS3Client.LAST_MODIFIED));
+    }
+  }
+
+  @Test
+  void keepsTheCachedOffsetsOfTheGroupsNotSelected(@TempDir Path dir) throws IOException {
+    final StubS3Client s3Client = new StubS3Client(1000, 0);
+    s3Client.putOffset("group1/topic/0", 1).putOffset("group2/topic/0", 2);
+    final S3Location source = new S3Location("bucket", Optional.empty());
+    final Path file = dir.resolve("offsets.cache");
+    final OffsetsCache first = OffsetsCache.load(file);
+    reader(s3Client, ReaderConfig.builder().cache(Optional.of(first)))
+        .read(source, Optional.empty());
+    first.save();
+
+    final OffsetsCache second = OffsetsCache.load(file);
+    reader(s3Client, ReaderConfig.builder().cache(Optional.of(second)))
+        .read(source, Optional.of(new String[] {"group1"}));
+    second.save();
+
+    reader(s3Client, ReaderConfig.builder().cache(Optional.of(OffsetsCache.load(file))))
+        .read(source, Optional.empty());
+    assertEquals(2, s3Client.getGetRequests());
+  }
+
+  private static S3AwsGroupOffsetsReader reader(S3Client s3Client, ReaderConfig.Builder config) {
+    return new S3AwsGroupOffsetsReader(s3Client, config.build(), HedgeConfig.DEFAULT);
+  }
 }
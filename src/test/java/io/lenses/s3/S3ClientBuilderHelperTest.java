@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.metrics.RestoreMetrics;
+import io.lenses.store.ReaderConfig;
+import io.lenses.store.Selection;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+class S3ClientBuilderHelperTest {
+  private static final int THROTTLED = 3;
+  private HttpS3Stub stub;
+
+  @BeforeEach
+  void startStub() throws IOException {
+    stub = new HttpS3Stub("bucket", 4);
+    for (int i = 0; i < 5; i++) {
+      stub.putOffset("" + i, i);
+    }
+  }
+
+  @AfterEach
+  void stopStub() {
+    stub.close();
+  }
+
+  @Test
+  void retriesTheThrottledRequestsAndLowersTheRate() {
+    final long throttled = RestoreMetrics.s3Throttled.get();
+    final long retries = RestoreMetrics.s3Retries.get();
+    stub.throttle(THROTTLED);
+    try (S3Client s3Client = S3ClientBuilderHelper.build(config())) {
+      for (int i = 0; i < 5; i++) {
+        final byte[] bytes =
+            s3Client
+                .getObjectAsBytes(GetObjectRequest.builder().bucket("bucket").key("" + i).build())
+                .asByteArray();
+        assertEquals(i, ByteBuffer.wrap(bytes).getLong());
+      }
+    }
+    assertThrottled(throttled, retries);
+  }
+
+  @Test
+  void retriesTheThrottledRequestsOfTheAsyncClient() {
+    final long throttled = RestoreMetrics.s3Throttled.get();
+    final long retries = RestoreMetrics.s3Retries.get();
+    stub.throttle(THROTTLED);
+    try (S3AsyncClient s3Client = S3ClientBuilderHelper.buildAsync(config())) {
+      for (int i = 0; i < 5; i++) {
+        final byte[] bytes =
+            s3Client
+                .getObject(
+                    GetObjectRequest.builder().bucket("bucket").key("" + i).build(),
+                    AsyncResponseTransformer.toBytes())
+                .join()
+                .asByteArray();
+        assertEquals(i, ByteBuffer.wrap(bytes).getLong());
+      }
+    }
+    assertThrottled(throttled, retries);
+  }
+
+  @Test
+  void readsABucketThroughEitherClient() throws IOException {
+    try (HttpS3Stub bucket = new HttpS3Stub("bucket", 3)) {
+      for (int group = 0; group < 3; group++) {
+        for (int partition = 0; partition < 4; partition++) {
+          bucket.putOffset("prefix/group" + group + "/topic/" + partition, group * 10 + partition);
+        }
+      }
+      final S3Location source = new S3Location("bucket", Optional.of("prefix"));
+      final Map<String, Map<TopicPartition, OffsetAndMetadata>> blocking =
+          new ConcurrentHashMap<>();
+      try (S3Client s3Client = S3ClientBuilderHelper.build(config(bucket.getEndpoint()))) {
+        new S3AwsGroupOffsetsReader(
+                s3Client, ReaderConfig.builder().concurrency(4).build(), HedgeConfig.DEFAULT)
+            .read(
+                source,
+                Selection.all(),
+                offsets -> blocking.put(offsets.getGroup(), offsets.getOffsets()));
+      }
+      final Map<String, Map<TopicPartition, OffsetAndMetadata>> async = new ConcurrentHashMap<>();
+      try (S3AsyncClient s3Client =
+          S3ClientBuilderHelper.buildAsync(config(bucket.getEndpoint()))) {
+        new S3AsyncAwsGroupOffsetsReader(s3Client, 4)
+            .read(
+                source,
+                Selection.all(),
+                offsets -> async.put(offsets.getGroup(), offsets.getOffsets()));
+      }
+      assertEquals(3, blocking.size());
+      assertEquals(blocking, async);
+      assertEquals(
+          new OffsetAndMetadata(23), blocking.get("group2").get(new TopicPartition("topic", 3)));
+    }
+  }
+
+  private void assertThrottled(long throttled, long retries) {
+    assertEquals(5 + THROTTLED, stub.getRequests());
+    assertEquals(THROTTLED, RestoreMetrics.s3Throttled.get() - throttled);
+    assertEquals(THROTTLED, RestoreMetrics.s3Retries.get() - retries);
+    // lowered for the throttled burst, then raised by a request per second for each success
+    assertTrue(RestoreMetrics.s3RequestRate.get() < 1000);
+  }
+
+  private S3Config config() {
+    return config(stub.getEndpoint());
+  }
+
+  static S3Config config(String endpoint) {
+    return S3Config.builder()
+        .awsMode(AwsMode.CREDENTIALS)
+        .awsRegion("eu-west-1")
+        .awsCredentials("access-key", "secret-key")
+        .awsHttpRetryInterval(1)
+        .awsHttpRetryMaxInterval(10)
+        .awsRateLimit(new RateLimitConfig(1000, 10, 1, 0.5))
+        .awsEndpoint(endpoint)
+        .awsHttpClient(HttpClientConfig.defaults(10))
+        .enableVirtualHostBuckets(true)
+        .awsListSplit(false)
+        .awsPrefixRateMax(0)
+        .awsAsyncMaxInFlight(10)
+        .awsAsyncEventLoopThreads(1)
+        .build();
+  }
+}
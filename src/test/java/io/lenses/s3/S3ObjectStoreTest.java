@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.metrics.RestoreMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+class S3ObjectStoreTest {
+  private HttpS3Stub stub;
+  private S3Client s3Client;
+
+  @BeforeEach
+  void start() throws IOException {
+    stub = new HttpS3Stub("bucket", 10);
+    s3Client = S3ClientBuilderHelper.build(S3ClientBuilderHelperTest.config(stub.getEndpoint()));
+  }
+
+  @AfterEach
+  void stop() {
+    s3Client.close();
+    stub.close();
+  }
+
+  @Test
+  void readsTheOffsetsOfTheBucket() {
+    stub.putOffset("group1/topic1/0", 42).putOffset("group1/topic1/1", Long.MAX_VALUE);
+    final S3ObjectStore store = new S3ObjectStore(s3Client, "bucket");
+
+    assertEquals(42, store.readOffset("group1/topic1/0"));
+    assertEquals(Long.MAX_VALUE, store.readOffset("group1/topic1/1"));
+    assertEquals(42, store.readOffset("group1/topic1/0"));
+  }
+
+  @Test
+  void takesTheHedgeOfAGetWhoseBodyIsSlow() {
+    stub.putOffset("group1/topic1/0", 42);
+    final long wins = RestoreMetrics.s3HedgeWins.get();
+    try (RequestHedger hedger = new RequestHedger(new HedgeConfig(true, 0.95, 50, 1), 1)) {
+      final S3ObjectStore store = new S3ObjectStore(s3Client, "bucket", Optional.of(hedger));
+      for (int i = 0; i < RequestHedger.MIN_SAMPLES; i++) {
+        store.readOffset("group1/topic1/0");
+      }
+      stub.delayBody(1, 5000);
+
+      final long start = System.nanoTime();
+      assertEquals(42, store.readOffset("group1/topic1/0"));
+
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+      assertEquals(1, RestoreMetrics.s3HedgeWins.get() - wins);
+    }
+  }
+
+  @Test
+  void failsWithoutRetryingAnObjectShorterThanAnOffset() {
+    stub.putObject("group1/topic1/0", new byte[] {1, 2, 3});
+    final S3ObjectStore store = new S3ObjectStore(s3Client, "bucket");
+
+    final UncheckedIOException error =
+        assertThrows(UncheckedIOException.class, () -> store.readOffset("group1/topic1/0"));
+    assertEquals("Failed to read group1/topic1/0", error.getMessage());
+    assertInstanceOf(OffsetResponseTransformer.InvalidOffsetException.class, error.getCause());
+    assertEquals(1, stub.getRequests());
+  }
+
+  @Test
+  void failsOnAnObjectLongerThanAnOffset() {
+    stub.putObject("group1/topic1/0", new byte[9]);
+    final S3ObjectStore store = new S3ObjectStore(s3Client, "bucket");
+
+    final UncheckedIOException error =
+        assertThrows(UncheckedIOException.class, () -> store.readOffset("group1/topic1/0"));
+    assertEquals("The offset object is 9 byte(s) long, not 8", error.getCause().getMessage());
+  }
+
+  @Test
+  void failsOnAStreamEndingBeforeTheOffsetOrGoingPastIt() throws IOException {
+    final byte[] bytes = new byte[Long.BYTES];
+    assertThrows(
+        EOFException.class,
+        () -> OffsetResponseTransformer.read(new ByteArrayInputStream(new byte[3]), bytes, true));
+    assertThrows(
+        OffsetResponseTransformer.InvalidOffsetException.class,
+        () -> OffsetResponseTransformer.read(new ByteArrayInputStream(new byte[9]), bytes, true));
+    assertEquals(
+        Long.MIN_VALUE,
+        OffsetResponseTransformer.read(
+            new ByteArrayInputStream(ByteBuffer.allocate(8).putLong(Long.MIN_VALUE).array()),
+            bytes,
+            true));
+  }
+
+  @Test
+  void decodesTheOffsetOfANonBlockingGetAsTheBodyArrives() {
+    final byte[] offset = ByteBuffer.allocate(8).putLong(1234567890123L).array();
+    assertEquals(
+        1234567890123L,
+        asyncOffset(null, Arrays.copyOfRange(offset, 0, 3), Arrays.copyOfRange(offset, 3, 8))
+            .join());
+
+    final CompletionException shorter =
+        assertThrows(CompletionException.class, () -> asyncOffset(null, new byte[7]).join());
+    assertInstanceOf(EOFException.class, shorter.getCause());
+    final CompletionException longer =
+        assertThrows(
+            CompletionException.class, () -> asyncOffset(null, offset, new byte[1]).join());
+    assertInstanceOf(OffsetResponseTransformer.InvalidOffsetException.class, longer.getCause());
+    final CompletionException length =
+        assertThrows(CompletionException.class, () -> asyncOffset(9L, new byte[9]).join());
+    assertEquals("The offset object is 9 byte(s) long, not 8", length.getCause().getMessage());
+  }
+
+  /** Runs the non-blocking transformer over a body arriving in the given chunks. */
+  private static CompletableFuture<Long> asyncOffset(Long contentLength, byte[]... chunks) {
+    final AsyncResponseTransformer<GetObjectResponse, Long> transformer =
+        OffsetResponseTransformer.async();
+    final CompletableFuture<Long> result = transformer.prepare();
+    transformer.onResponse(GetObjectResponse.builder().contentLength(contentLength).build());
+    transformer.onStream(
+        subscriber ->
+            subscriber.onSubscribe(
+                new Subscription() {
+                  private int next;
+                  private boolean cancelled;
+
+                  @Override
+                  public void request(long count) {
+                    while (!cancelled && next < chunks.length) {
+                      subscriber.onNext(ByteBuffer.wrap(chunks[next++]));
+                    }
+                    if (!cancelled) {
+                      subscriber.onComplete();
+                    }
+                  }
+
+                  @Override
+                  public void cancel() {
+                    cancelled = true;
+                  }
+                }));
+    return result;
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+/**
+ * An in-process {@link S3AsyncClient} over the objects of a {@link StubS3Client}. GETs complete on
+ * a single scheduler thread after the configured latency, so no thread is held while a request is
+ * in flight, and the highest number of GETs in flight is recorded.
+ */
+class StubS3AsyncClient implements S3AsyncClient {
+  private final StubS3Client objects;
+  private final long getLatencyMillis;
+  static final String THREAD_NAME = "stub-s3-async";
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, THREAD_NAME));
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  StubS3AsyncClient(StubS3Client objects, long getLatencyMillis) {
+    this.objects = objects;
+    this.getLatencyMillis = getLatencyMillis;
+  }
+
+  int getMaxInFlight() {
+    return maxInFlight.get();
+  }
+
+  @Override
+  public CompletableFuture<ListObjectsV2Response> listObjectsV2(ListObjectsV2Request request) {
+    return CompletableFuture.supplyAsync(() -> objects.listObjectsV2(request), scheduler);
+  }
+
+  @Override
+  public <ReturnT> CompletableFuture<ReturnT> getObject(
+      GetObjectRequest request, AsyncResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+    final int current = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(current, Math::max);
+    final CompletableFuture<ReturnT> result = transformer.prepare();
+    scheduler.schedule(
+        () -> {
+          inFlight.decrementAndGet();
+          try {
+            final ResponseBytes<GetObjectResponse> bytes =
+                objects.getObject(request, ResponseTransformer.toBytes());
+            transformer.onResponse(bytes.response());
+            transformer.onStream(AsyncRequestBody.fromBytes(bytes.asByteArray()));
+          } catch (Exception e) {
+            transformer.exceptionOccurred(e);
+          }
+        },
+        getLatencyMillis,
+        TimeUnit.MILLISECONDS);
+    return result;
+  }
+
+  @Override
+  public String serviceName() {
+    return "s3";
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+}
@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.s3;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import software.amazon.awssdk.core.exception.NonRetryableException;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * An in-process {@link S3Client} holding the objects of a single bucket in memory. It pages the
+ * ListObjectsV2 results like S3 does, rolls the keys up into common prefixes with a delimiter, and
+ * can add a fixed latency to every GET and listing page to simulate the network round trip, and a
+ * longer one to the first GET of a key to simulate a straggler.
+ */
+class StubS3Client implements S3Client {
+  static final Instant LAST_MODIFIED = Instant.parse("2024-01-01T00:00:00Z");
+  private final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+  private final int pageSize;
+  private final long getLatencyMillis;
+  private final AtomicInteger listRequests = new AtomicInteger();
+  private final AtomicInteger getRequests = new AtomicInteger();
+  private final AtomicInteger listsInFlight = new AtomicInteger();
+  private final AtomicInteger maxListsInFlight = new AtomicInteger();
+  private volatile long listLatencyMillis;
+  private final Set<String> failingKeys = ConcurrentHashMap.newKeySet();
+  private final Map<String, Long> slowKeys = new ConcurrentHashMap<>();
+  private final AtomicInteger pagesBeforeFailure = new AtomicInteger(Integer.MAX_VALUE);
+
+  StubS3Client(int pageSize, long getLatencyMillis) {
+    this.pageSize = pageSize;
+    this.getLatencyMillis = getLatencyMillis;
+  }
+
+  StubS3Client putOffset(String key, long offset) {
+    objects.put(key, ByteBuffer.allocate(8).putLong(offset).array());
+    return this;
+  }
+
+  StubS3Client putObject(String key, byte[] content) {
+    objects.put(key, content);
+    return this;
+  }
+
+  StubS3Client listLatency(long millis) {
+    this.listLatencyMillis = millis;
+    return this;
+  }
+
+  /** The first GET of the key takes that long, on top of the GET latency. */
+  StubS3Client slowGet(String key, long millis) {
+    slowKeys.put(key, millis);
+    return this;
+  }
+
+  StubS3Client failGet(String key) {
+    failingKeys.add(key);
+    return this;
+  }
+
+  /** The listing pages requested after that many more fail. */
+  StubS3Client failListAfter(int pages) {
+    pagesBeforeFailure.set(pages);
+    return this;
+  }
+
+  /** @return the ETag the listing gives the object */
+  String eTag(String key) {
+    return eTag(objects.get(key));
+  }
+
+  private static String eTag(byte[] content) {
+    return "\"" + Integer.toHexString(Arrays.hashCode(content)) + "\"";
+  }
+
+  int getListRequests() {
+    return listRequests.get();
+  }
+
+  int getGetRequests() {
+    return getRequests.get();
+  }
+
+  /** @return the most listing pages requested at the same time */
+  int getMaxListsInFlight() {
+    return maxListsInFlight.get();
+  }
+
+  @Override
+  public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+    listRequests.incrementAndGet();
+    maxListsInFlight.accumulateAndGet(listsInFlight.incrementAndGet(), Math::max);
+    try {
+      sleep(listLatencyMillis);
+      if (pagesBeforeFailure.getAndDecrement() <= 0) {
+        throw S3Exception.builder().statusCode(500).message("Failed to list").build();
+      }
+      return list(request);
+    } finally {
+      listsInFlight.decrementAndGet();
+    }
+  }
+
+  private ListObjectsV2Response list(ListObjectsV2Request request) {
+    final String prefix = request.prefix() == null ? "" : request.prefix();
+    final int maxKeys =
+        request.maxKeys() == null ? pageSize : Math.min(pageSize, request.maxKeys());
+    String from = prefix;
+    boolean inclusive = true;
+    if (request.continuationToken() != null) {
+      from = request.continuationToken();
+      inclusive = false;
+    } else if (request.startAfter() != null && request.startAfter().compareTo(prefix) >= 0) {
+      from = request.startAfter();
+      inclusive = false;
+    }
+    final String delimiter = request.delimiter();
+    final List<S3Object> contents = new ArrayList<>();
+    final List<CommonPrefix> commonPrefixes = new ArrayList<>();
+    // the keys under a common prefix already returned are skipped, also when a page ended on it
+    String rolledUp =
+        delimiter != null
+                && request.continuationToken() != null
+                && request.continuationToken().endsWith(delimiter)
+            ? request.continuationToken()
+            : null;
+    String last = null;
+    boolean truncated = false;
+    for (Map.Entry<String, byte[]> entry : objects.tailMap(from, inclusive).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      if (rolledUp != null && entry.getKey().startsWith(rolledUp)) {
+        continue;
+      }
+      if (contents.size() + commonPrefixes.size() == maxKeys) {
+        truncated = true;
+        break;
+      }
+      final int cut = delimiter == null ? -1 : entry.getKey().indexOf(delimiter, prefix.length());
+      if (cut >= 0) {
+        rolledUp = entry.getKey().substring(0, cut + delimiter.length());
+        commonPrefixes.add(CommonPrefix.builder().prefix(rolledUp).build());
+        last = rolledUp;
+        continue;
+      }
+      contents.add(
+          S3Object.builder()
+              .key(entry.getKey())
+              .size((long) entry.getValue().length)
+              .eTag(eTag(entry.getValue()))
+              .lastModified(LAST_MODIFIED)
+              .build());
+      last = entry.getKey();
+    }
+    return ListObjectsV2Response.builder()
+        .contents(contents)
+        .commonPrefixes(commonPrefixes)
+        .keyCount(contents.size() + commonPrefixes.size())
+        .isTruncated(truncated)
+        .nextContinuationToken(truncated ? last : null)
+        .build();
+  }
+
+  @Override
+  public <ReturnT> ReturnT getObject(
+      GetObjectRequest request, ResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+    getRequests.incrementAndGet();
+    if (failingKeys.contains(request.key())) {
+      throw S3Exception.builder().statusCode(500).message("Failed:" + request.key()).build();
+    }
+    final byte[] content = objects.get(request.key());
+    if (content == null) {
+      throw NoSuchKeyException.builder().message("No such key:" + request.key()).build();
+    }
+    final Long slow = slowKeys.remove(request.key());
+    sleep(getLatencyMillis + (slow == null ? 0 : slow));
+    final GetObjectResponse response =
+        GetObjectResponse.builder().contentLength((long) content.length).build();
+    try {
+      return transformer.transform(
+          response, AbortableInputStream.create(new ByteArrayInputStream(content)));
+    } catch (Exception e) {
+      // as the SDK does with the failures of the transformer
+      throw NonRetryableException.builder().cause(e).build();
+    }
+  }
+
+  private static void sleep(long millis) {
+    if (millis > 0) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Override
+  public String serviceName() {
+    return "s3";
+  }
+
+  @Override
+  public void close() {}
+}
@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.store.GroupOffsetsSorter;
+import io.lenses.store.SpillConfig;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffsetsSnapshotTest {
+
+  @Test
+  void readsBackTheGroupsItWrote(@TempDir Path dir) throws IOException {
+    final Map<TopicPartition, OffsetAndMetadata> first = new HashMap<>();
+    first.put(new TopicPartition("orders", 0), new OffsetAndMetadata(1000));
+    first.put(new TopicPartition("orders", 5), new OffsetAndMetadata(3));
+    first.put(new TopicPartition("payments", 2), new OffsetAndMetadata(Long.MAX_VALUE));
+    final Map<TopicPartition, OffsetAndMetadata> second = new HashMap<>();
+    second.put(new TopicPartition("orders", 1), new OffsetAndMetadata(0));
+    second.put(new TopicPartition("ünïcode", 0), new OffsetAndMetadata(42));
+    final Path file = dir.resolve("offsets.snapshot");
+
+    OffsetsSnapshot.write(
+        file,
+        Arrays.asList(
+            new GroupOffsets("group-b", second),
+            new GroupOffsets("group-a", first),
+            new GroupOffsets("group-c", new HashMap<>())));
+
+    final List<GroupOffsets> groups = new ArrayList<>();
+    assertEquals(3, OffsetsSnapshot.read(file, Optional.empty(), groups::add));
+    assertEquals("group-a", groups.get(0).getGroup());
+    assertEquals(first, groups.get(0).getOffsets());
+    assertEquals("group-b", groups.get(1).getGroup());
+    assertEquals(second, groups.get(1).getOffsets());
+    assertTrue(groups.get(2).getOffsets().isEmpty());
+  }
+
+  @Test
+  void readsOnlyTheRequestedGroups(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.snapshot");
+    OffsetsSnapshot.write(file, groups(10, 20));
+
+    final List<GroupOffsets> groups = new ArrayList<>();
+    OffsetsSnapshot.read(file, Optional.of(new String[] {"group7", "group2"}), groups::add);
+
+    assertEquals(2, groups.size());
+    assertEquals("group2", groups.get(0).getGroup());
+    assertEquals("group7", groups.get(1).getGroup());
+    assertEquals(20, groups.get(1).getOffsets().size());
+    assertEquals(
+        new OffsetAndMetadata(7_000_019L),
+        groups.get(1).getOffsets().get(new TopicPartition("topic", 19)));
+  }
+
+  @Test
+  void storesEachPartitionInAFewBytes(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.snapshot");
+    OffsetsSnapshot.write(file, groups(100, 10_000));
+
+    final int[] partitions = new int[1];
+    OffsetsSnapshot.read(
+        file, Optional.empty(), group -> partitions[0] += group.getOffsets().size());
+
+    assertEquals(1_000_000, partitions[0]);
+    // a one byte partition delta and a one byte offset delta, plus the header and the tables
+    assertTrue(Files.size(file) < 2 * 1_000_000 + 10_000, "Snapshot size:" + Files.size(file));
+  }
+
+  @Test
+  void writesTheGroupsOfASorter(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.snapshot");
+    try (GroupOffsetsSorter sorter = new GroupOffsetsSorter(new SpillConfig(1, dir))) {
+      final List<GroupOffsets> groups = groups(3, 30000);
+      Collections.reverse(groups);
+      groups.forEach(sorter::add);
+      OffsetsSnapshot.write(file, sorter);
+    }
+
+    final List<GroupOffsets> groups = new ArrayList<>();
+    assertEquals(3, OffsetsSnapshot.read(file, Optional.empty(), groups::add));
+    assertEquals("group0", groups.get(0).getGroup());
+    assertEquals(30000, groups.get(2).getOffsets().size());
+  }
+
+  @Test
+  void failsOnAFileThatIsNotASnapshot(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.snapshot");
+    Files.write(file, ByteBuffer.allocate(64).putInt(42).array());
+
+    assertThrows(IOException.class, () -> OffsetsSnapshot.read(file, Optional.empty(), g -> {}));
+  }
+
+  @Test
+  void encodesTheVarintsAsZigZag() {
+    final OffsetsSnapshot.VarintBuffer buffer = new OffsetsSnapshot.VarintBuffer();
+    final long[] values = {0, 1, -1, 63, -64, 64, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE};
+    for (long value : values) {
+      buffer.put(value);
+    }
+    // the small values fit in one byte
+    final ByteBuffer bytes = buffer.asByteBuffer();
+    for (long value : values) {
+      assertEquals(value, OffsetsSnapshot.readVarint(bytes));
+    }
+    assertEquals(0, bytes.remaining());
+  }
+
+  private static List<GroupOffsets> groups(int groups, int partitions) {
+    final List<GroupOffsets> result = new ArrayList<>(groups);
+    for (int group = 0; group < groups; group++) {
+      final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+      for (int partition = 0; partition < partitions; partition++) {
+        offsets.put(
+            new TopicPartition("topic", partition),
+            new OffsetAndMetadata(group * 1_000_000L + partition));
+      }
+      result.add(new GroupOffsets("group" + group, offsets));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.kafka.GroupOffsets;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GroupOffsetsAggregatorTest {
+  // over half of the partitions a 1 MB budget holds
+  private static final int PARTITIONS = 30000;
+
+  @TempDir Path spillDir;
+
+  @Test
+  void handsTheGroupOverOnceTheListingMovesPastItAndItsReadsAreDone() {
+    final List<GroupOffsets> emitted = new ArrayList<>();
+    final GroupOffsetsAggregator aggregator = new GroupOffsetsAggregator(emitted::add);
+
+    aggregator.listed("", "group1");
+    aggregator.listed("", "group1");
+    aggregator.read("group1", new TopicPartition("topic", 0), 1L);
+    aggregator.read("group1", new TopicPartition("topic", 1), 2L);
+    // the listing may still return keys of group1
+    assertTrue(emitted.isEmpty());
+
+    aggregator.listed("", "group2");
+    assertEquals(1, emitted.size());
+    assertEquals("group1", emitted.get(0).getGroup());
+    assertEquals(2, emitted.get(0).getOffsets().size());
+    assertEquals(Collections.singletonList("group2"), aggregator.pendingGroups());
+  }
+
+  @Test
+  void waitsForTheReadsInFlightOfASealedGroup() {
+    final List<GroupOffsets> emitted = new ArrayList<>();
+    final GroupOffsetsAggregator aggregator = new GroupOffsetsAggregator(emitted::add);
+
+    aggregator.listed("", "group1");
+    aggregator.listed("", "group1");
+    aggregator.listed("", "group2");
+    aggregator.read("group1", new TopicPartition("topic", 0), 1L);
+    assertTrue(emitted.isEmpty());
+
+    aggregator.read("group1", new TopicPartition("topic", 1), 2L);
+    assertEquals(1, emitted.size());
+
+    aggregator.read("group2", new TopicPartition("topic", 0), 3L);
+    assertEquals(1, emitted.size());
+    aggregator.listingDone("");
+    assertEquals(2, emitted.size());
+    assertEquals("group2", emitted.get(1).getGroup());
+    assertTrue(aggregator.pendingGroups().isEmpty());
+  }
+
+  @Test
+  void tracksEachListingSeparately() {
+    final List<GroupOffsets> emitted = new ArrayList<>();
+    final GroupOffsetsAggregator aggregator = new GroupOffsetsAggregator(emitted::add);
+
+    aggregator.listed("group1/", "group1");
+    aggregator.listed("group2/", "group2");
+    aggregator.read("group1", new TopicPartition("topic", 0), 1L);
+    aggregator.read("group2", new TopicPartition("topic", 0), 1L);
+    assertTrue(emitted.isEmpty());
+
+    aggregator.listingDone("group2/");
+    assertEquals(1, emitted.size());
+    assertEquals("group2", emitted.get(0).getGroup());
+  }
+
+  @Test
+  void spillsOverTheBudgetAndHandsTheSpilledGroupsOverAtTheEnd() throws IOException {
+    final List<GroupOffsets> emitted = new ArrayList<>();
+    final GroupOffsetsAggregator aggregator =
+        new GroupOffsetsAggregator(emitted::add, new SpillConfig(1, spillDir));
+
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      aggregator.listed("", "group1");
+    }
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      aggregator.listed("", "group2");
+    }
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      aggregator.read("group2", new TopicPartition("topic", partition), partition);
+    }
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      aggregator.read("group1", new TopicPartition("topic", partition), partition + 1);
+    }
+    aggregator.listingDone("");
+    // both groups have offsets on disk
+    assertTrue(emitted.isEmpty());
+    assertEquals(1, runFiles());
+
+    aggregator.finish();
+    assertEquals(2, emitted.size());
+    assertEquals("group1", emitted.get(0).getGroup());
+    assertEquals(PARTITIONS, emitted.get(0).getPartitionOffsets().size());
+    assertEquals(
+        PARTITIONS, emitted.get(0).getOffsets().get(new TopicPartition("topic", 29999)).offset());
+    assertEquals("group2", emitted.get(1).getGroup());
+    assertEquals(PARTITIONS, emitted.get(1).getPartitionOffsets().size());
+    assertEquals(0, emitted.get(1).getOffsets().get(new TopicPartition("topic", 0)).offset());
+    assertTrue(aggregator.pendingGroups().isEmpty());
+    assertEquals(0, runFiles());
+  }
+
+  @Test
+  void handsTheGroupsOverAsSoonAsCompleteWithinTheBudget() throws IOException {
+    final List<GroupOffsets> emitted = new ArrayList<>();
+    final GroupOffsetsAggregator aggregator =
+        new GroupOffsetsAggregator(emitted::add, new SpillConfig(1, spillDir));
+
+    for (int round = 0; round < 3; round++) {
+      final String group = "group" + round;
+      for (int partition = 0; partition < PARTITIONS; partition++) {
+        aggregator.listed("", group);
+        aggregator.read(group, new TopicPartition("topic", partition), partition);
+      }
+    }
+    aggregator.listingDone("");
+    aggregator.finish();
+
+    assertEquals(3, emitted.size());
+    assertEquals(0, runFiles());
+  }
+
+  @Test
+  void readsWhileTheConsumerIsBusy() throws InterruptedException {
+    final CountDownLatch handingOver = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<GroupOffsets> emitted = Collections.synchronizedList(new ArrayList<>());
+    final GroupOffsetsAggregator aggregator =
+        new GroupOffsetsAggregator(
+            groupOffsets -> {
+              handingOver.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              emitted.add(groupOffsets);
+            });
+    aggregator.listed("a", "group1");
+    aggregator.read("group1", new TopicPartition("topic", 0), 1);
+    final Thread sealing = new Thread(() -> aggregator.listingDone("a"));
+    sealing.start();
+    assertTrue(handingOver.await(10, TimeUnit.SECONDS));
+
+    // the other listing goes on while group1 is with the consumer
+    aggregator.listed("b", "group2");
+    aggregator.read("group2", new TopicPartition("topic", 0), 2);
+    assertEquals(Collections.singletonList("group2"), aggregator.pendingGroups());
+
+    release.countDown();
+    sealing.join();
+    aggregator.listingDone("b");
+    assertEquals(2, emitted.size());
+    assertEquals("group2", emitted.get(1).getGroup());
+  }
+
+  @Test
+  void spillsWhileTheOtherThreadsRead() throws InterruptedException, IOException {
+    final List<GroupOffsets> emitted = Collections.synchronizedList(new ArrayList<>());
+    final GroupOffsetsAggregator aggregator =
+        new GroupOffsetsAggregator(emitted::add, new SpillConfig(1, spillDir));
+    final List<Thread> readers = new ArrayList<>();
+    for (int reader = 0; reader < 4; reader++) {
+      final String listing = "listing" + reader;
+      readers.add(
+          new Thread(
+              () -> {
+                for (int group = 0; group < 5; group++) {
+                  final String name = listing + "-group" + group;
+                  for (int partition = 0; partition < PARTITIONS / 5; partition++) {
+                    aggregator.listed(listing, name);
+                    aggregator.read(name, new TopicPartition("topic", partition), partition);
+                  }
+                }
+                aggregator.listingDone(listing);
+              }));
+    }
+    readers.forEach(Thread::start);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    aggregator.finish();
+
+    assertEquals(20, emitted.size());
+    for (GroupOffsets groupOffsets : emitted) {
+      assertEquals(PARTITIONS / 5, groupOffsets.getPartitionOffsets().size());
+    }
+    assertTrue(aggregator.pendingGroups().isEmpty());
+    assertEquals(0, runFiles());
+  }
+
+  private long runFiles() throws IOException {
+    try (Stream<Path> files = Files.list(spillDir)) {
+      return files.count();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.lenses.kafka.GroupOffsets;
+import io.lenses.kafka.PartitionOffsets;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GroupOffsetsSorterTest {
+  // over half of the partitions a 1 MB budget holds
+  private static final int PARTITIONS = 30000;
+
+  @TempDir Path spillDir;
+
+  @Test
+  void handsTheGroupsBackInNameOrder() throws IOException {
+    final List<GroupOffsets> sorted = new ArrayList<>();
+    try (GroupOffsetsSorter sorter = new GroupOffsetsSorter(SpillConfig.DISABLED)) {
+      sorter.add(group("group3", 1, 30));
+      sorter.add(group("group1", 1, 10));
+      sorter.add(group("group2", 1, 20));
+      sorter.add(group("group1", 2, 11));
+      sorter.sorted(sorted::add);
+      assertEquals(4, sorter.size());
+    }
+
+    assertEquals(3, sorted.size());
+    assertEquals("group1", sorted.get(0).getGroup());
+    assertEquals(2, sorted.get(0).getPartitionOffsets().size());
+    assertEquals(11, sorted.get(0).getOffsets().get(new TopicPartition("topic", 1)).offset());
+    assertEquals("group2", sorted.get(1).getGroup());
+    assertEquals("group3", sorted.get(2).getGroup());
+  }
+
+  @Test
+  void spillsOverTheBudgetAndMergesTheRuns() throws IOException {
+    final List<GroupOffsets> sorted = new ArrayList<>();
+    try (GroupOffsetsSorter sorter = new GroupOffsetsSorter(new SpillConfig(1, spillDir))) {
+      sorter.add(group("group2", PARTITIONS, 0));
+      sorter.add(group("group1", PARTITIONS, 1));
+      sorter.add(group("group0", 1, 2));
+      assertEquals(1, runFiles());
+
+      sorter.sorted(sorted::add);
+    }
+
+    assertEquals(3, sorted.size());
+    assertEquals("group0", sorted.get(0).getGroup());
+    assertEquals("group1", sorted.get(1).getGroup());
+    assertEquals(PARTITIONS, sorted.get(1).getPartitionOffsets().size());
+    assertEquals("group2", sorted.get(2).getGroup());
+    assertEquals(0, runFiles());
+  }
+
+  private static GroupOffsets group(String group, int partitions, long offset) {
+    final PartitionOffsets.Builder offsets = PartitionOffsets.builder();
+    for (int partition = 0; partition < partitions; partition++) {
+      offsets.add("topic", partition, offset);
+    }
+    return new GroupOffsets(group, offsets.build());
+  }
+
+  private long runFiles() throws IOException {
+    try (Stream<Path> files = Files.list(spillDir)) {
+      return files.count();
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ListingPlanTest {
+
+  @Test
+  void listsTheWholePrefixWhenNoGroupsAreGiven() {
+    final ListingPlan plan = ListingPlan.of(Optional.of("prefix"), Optional.empty());
+    assertEquals(Collections.singletonList("prefix"), plan.getPrefixes());
+    assertTrue(plan.includesGroup("any"));
+  }
+
+  @Test
+  void listsOnePrefixPerGroup() {
+    final ListingPlan plan =
+        ListingPlan.of(
+            Optional.of("prefix"), Optional.of(new String[] {"group1", "group2", "group1", ""}));
+    assertEquals(Arrays.asList("prefix/group1/", "prefix/group2/"), plan.getPrefixes());
+    assertTrue(plan.includesGroup("group2"));
+    assertFalse(plan.includesGroup("group3"));
+  }
+
+  @Test
+  void doesNotAddASeparatorToAnEmptyOrTerminatedPrefix() {
+    assertEquals(
+        Collections.singletonList("group/"),
+        ListingPlan.of(Optional.empty(), Optional.of(new String[] {"group"})).getPrefixes());
+    assertEquals(
+        Collections.singletonList("prefix/group/"),
+        ListingPlan.of(Optional.of("prefix/"), Optional.of(new String[] {"group"})).getPrefixes());
+  }
+
+  @Test
+  void listsFromTheLiteralPrefixOfThePatterns() {
+    final ListingPlan plan =
+        ListingPlan.of(
+            Optional.of("prefix"),
+            new Selection(
+                new NameFilter(
+                    Arrays.asList(
+                        NamePattern.parse("payments-*"),
+                        NamePattern.parse("payments-eu-*"),
+                        NamePattern.parse("regex:orders-\\d+"),
+                        NamePattern.literal("payments-eu-1"),
+                        NamePattern.literal("audit")),
+                    new ArrayList<>()),
+                NameFilter.all()));
+    // the prefixes covered by a shorter one are not listed twice
+    assertEquals(
+        Arrays.asList("prefix/audit/", "prefix/orders-", "prefix/payments-"), plan.getPrefixes());
+    assertTrue(plan.includes("orders-12", "topic"));
+    assertFalse(plan.includes("orders-x", "topic"));
+  }
+
+  @Test
+  void listsTheWholePrefixWhenAPatternHasNoLiteralPrefix() {
+    final ListingPlan plan =
+        ListingPlan.of(
+            Optional.of("prefix"),
+            new Selection(
+                new NameFilter(
+                    Arrays.asList(NamePattern.parse("group1"), NamePattern.parse("*-eu")),
+                    new ArrayList<>()),
+                NameFilter.all()));
+    assertEquals(Collections.singletonList("prefix"), plan.getPrefixes());
+  }
+
+  @Test
+  void splitsTheWholePrefixIntoOneListingPerGroup() {
+    final Selection selection =
+        new Selection(
+            new NameFilter(new ArrayList<>(), Arrays.asList(NamePattern.parse("internal-*"))),
+            NameFilter.all());
+    final List<String> discovered = new ArrayList<>();
+    final ListingPlan plan =
+        ListingPlan.of(Optional.of("prefix"), selection)
+            .splitByGroup(
+                prefix -> {
+                  discovered.add(prefix);
+                  return Arrays.asList("prefix/group1/", "prefix/group2/", "prefix/internal-1/");
+                });
+    // the groups are found under prefix/, the excluded ones are not listed
+    assertEquals(Collections.singletonList("prefix/"), discovered);
+    assertEquals(Arrays.asList("prefix/group1/", "prefix/group2/"), plan.getPrefixes());
+  }
+
+  @Test
+  void splitsOnlyTheListingsOfThePatterns() {
+    final ListingPlan plan =
+        ListingPlan.of(
+                Optional.empty(),
+                new Selection(
+                    new NameFilter(
+                        Arrays.asList(
+                            NamePattern.parse("payments-*"), NamePattern.literal("audit")),
+                        new ArrayList<>()),
+                    NameFilter.all()))
+            .splitByGroup(
+                prefix -> {
+                  assertEquals("payments-", prefix);
+                  return Arrays.asList("payments-eu/", "payments-us/");
+                });
+    assertEquals(Arrays.asList("audit/", "payments-eu/", "payments-us/"), plan.getPrefixes());
+  }
+
+  @Test
+  void listsNothingForAnEmptyListOfGroups() {
+    final ListingPlan plan = ListingPlan.of(Optional.of("prefix"), Optional.of(new String[] {""}));
+    assertTrue(plan.getPrefixes().isEmpty());
+    assertFalse(plan.includesGroup("group"));
+  }
+
+  @Test
+  void skipsTheGivenGroupsWithoutChangingThePrefixes() {
+    final Selection selection =
+        Selection.of(Optional.of(new String[] {"group1", "group2"}))
+            .skipping(new HashSet<>(Collections.singletonList("group1")));
+    final ListingPlan plan = ListingPlan.of(Optional.of("prefix"), selection);
+    assertEquals(Arrays.asList("prefix/group1/", "prefix/group2/"), plan.getPrefixes());
+    assertFalse(plan.includes("group1", "topic"));
+    assertTrue(plan.includes("group2", "topic"));
+  }
+}
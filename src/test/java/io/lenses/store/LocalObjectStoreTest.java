@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalObjectStoreTest {
+  @TempDir Path root;
+
+  @Test
+  void listsTheFilesUnderThePrefixInKeyOrder() throws IOException {
+    write("prefix/group2/topic1/0", 1);
+    write("prefix/group1/topic2/0", 2);
+    write("prefix/group1/topic1/1", 3);
+    write("prefix/group1/topic1/0", 4);
+    write("other/group1/topic1/0", 5);
+
+    try (LocalObjectStore store = new LocalObjectStore(root, 2)) {
+      assertEquals(
+          Arrays.asList(
+              "prefix/group1/topic1/0",
+              "prefix/group1/topic1/1",
+              "prefix/group1/topic2/0",
+              "prefix/group2/topic1/0"),
+          keys(store, "prefix"));
+      assertEquals(Arrays.asList("prefix/group2/topic1/0"), keys(store, "prefix/group2/"));
+    }
+  }
+
+  @Test
+  void listsTheGroupPrefixes() throws IOException {
+    write("prefix/payments-2/topic1/0", 1);
+    write("prefix/payments-1/topic1/0", 2);
+    write("prefix/orders/topic1/0", 3);
+    write("prefix/stray", 4);
+
+    try (LocalObjectStore store = new LocalObjectStore(root, 1)) {
+      assertEquals(
+          Arrays.asList("prefix/orders/", "prefix/payments-1/", "prefix/payments-2/"),
+          store.listPrefixes("prefix/"));
+      assertEquals(
+          Arrays.asList("prefix/payments-1/", "prefix/payments-2/"),
+          store.listPrefixes("prefix/payments-"));
+      assertEquals(Arrays.asList("prefix/"), store.listPrefixes(""));
+      assertTrue(store.listPrefixes("missing/").isEmpty());
+    }
+  }
+
+  @Test
+  void listsTheKeysStartingWithAPrefixEndingWithinAName() throws IOException {
+    write("prefix/payments-2/topic1/0", 1);
+    write("prefix/payments-1/topic1/0", 2);
+    write("prefix/payments-1-eu/topic1/0", 3);
+    write("prefix/orders/topic1/0", 4);
+
+    try (LocalObjectStore store = new LocalObjectStore(root, 2)) {
+      assertEquals(
+          Arrays.asList(
+              "prefix/payments-1-eu/topic1/0",
+              "prefix/payments-1/topic1/0",
+              "prefix/payments-2/topic1/0"),
+          keys(store, "prefix/payments-"));
+      assertEquals(
+          Arrays.asList("prefix/payments-1/topic1/0"), keys(store, "prefix/payments-1/topic1/0"));
+    }
+  }
+
+  @Test
+  void listsNothingWhenThePrefixDoesNotExist() throws IOException {
+    write("prefix/group1/topic1/0", 1);
+
+    try (LocalObjectStore store = new LocalObjectStore(root, 1)) {
+      assertTrue(keys(store, "missing").isEmpty());
+    }
+  }
+
+  @Test
+  void pagesTheListingOfALargeDirectory() throws IOException {
+    for (int partition = 0; partition < 2500; partition++) {
+      write("group1/topic1/" + partition, partition);
+    }
+
+    try (LocalObjectStore store = new LocalObjectStore(root, 4)) {
+      final List<Integer> pageSizes = new ArrayList<>();
+      store.list("", page -> pageSizes.add(page.size()));
+      assertEquals(Arrays.asList(1000, 1000, 500), pageSizes);
+    }
+  }
+
+  @Test
+  void readsTheOffset() throws IOException {
+    write("group1/topic1/0", 123456789L);
+
+    try (LocalObjectStore store = new LocalObjectStore(root, 1)) {
+      assertEquals(123456789L, store.readOffset("group1/topic1/0"));
+    }
+  }
+
+  @Test
+  void failsToReadAnObjectThatIsNotAnOffset() throws IOException {
+    Files.createDirectories(root.resolve("group1/topic1"));
+    Files.write(root.resolve("group1/topic1/0"), new byte[] {1, 2, 3});
+    Files.write(root.resolve("group1/topic1/1"), new byte[9]);
+
+    try (LocalObjectStore store = new LocalObjectStore(root, 1)) {
+      assertThrows(UncheckedIOException.class, () -> store.readOffset("group1/topic1/0"));
+      assertThrows(UncheckedIOException.class, () -> store.readOffset("group1/topic1/1"));
+    }
+  }
+
+  private static List<String> keys(LocalObjectStore store, String prefix) {
+    final List<String> keys = new ArrayList<>();
+    store.list(
+        prefix,
+        page -> keys.addAll(page.stream().map(StoredObject::getKey).collect(Collectors.toList())));
+    return keys;
+  }
+
+  private void write(String key, long offset) throws IOException {
+    final Path file = root.resolve(key);
+    Files.createDirectories(file.getParent());
+    Files.write(file, ByteBuffer.allocate(8).putLong(offset).array());
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class NamePatternTest {
+
+  @Test
+  void matchesAGlob() {
+    final NamePattern pattern = NamePattern.parse("payments-?-*.v1");
+    assertTrue(pattern.matches("payments-a-.v1"));
+    assertTrue(pattern.matches("payments-a-eu.v1"));
+    assertFalse(pattern.matches("payments-ab-eu.v1"));
+    assertFalse(pattern.matches("payments-a-eu-v1"));
+    assertEquals("payments-", pattern.getLiteralPrefix());
+    assertFalse(pattern.isLiteral());
+  }
+
+  @Test
+  void treatsAGlobWithoutWildcardsAsALiteral() {
+    final NamePattern pattern = NamePattern.parse(" group.1 ");
+    assertTrue(pattern.isLiteral());
+    assertTrue(pattern.matches("group.1"));
+    assertFalse(pattern.matches("groupx1"));
+    assertEquals("group.1", pattern.getLiteralPrefix());
+  }
+
+  @Test
+  void matchesTheWholeNameWithARegex() {
+    final NamePattern pattern = NamePattern.parse("regex:orders-\\d+");
+    assertTrue(pattern.matches("orders-12"));
+    assertFalse(pattern.matches("orders-12-eu"));
+    assertEquals("orders-", pattern.getLiteralPrefix());
+  }
+
+  @Test
+  void stopsTheRegexPrefixBeforeAnOptionalCharacter() {
+    assertEquals("order", NamePattern.parse("regex:^orders?-.*").getLiteralPrefix());
+    assertEquals("a", NamePattern.parse("regex:ab{0,2}").getLiteralPrefix());
+    assertEquals("", NamePattern.parse("regex:orders|payments").getLiteralPrefix());
+    assertEquals("", NamePattern.parse("regex:.*-eu").getLiteralPrefix());
+  }
+
+  @Test
+  void rejectsAnInvalidRegex() {
+    final IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> NamePattern.parse("regex:orders-("));
+    assertEquals("Invalid pattern:regex:orders-(", exception.getMessage());
+  }
+
+  @Test
+  void filtersWithIncludesAndExcludes() {
+    final NameFilter filter =
+        new NameFilter(
+            Arrays.asList(NamePattern.parse("payments-*"), NamePattern.parse("audit")),
+            Arrays.asList(NamePattern.parse("*-test")));
+    assertTrue(filter.accepts("payments-eu"));
+    assertTrue(filter.accepts("audit"));
+    assertFalse(filter.accepts("payments-test"));
+    assertFalse(filter.accepts("orders"));
+    assertTrue(NameFilter.all().accepts("anything"));
+    assertFalse(NameFilter.none().accepts("anything"));
+  }
+}
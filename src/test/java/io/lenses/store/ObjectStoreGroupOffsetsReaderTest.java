@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lenses.kafka.GroupOffsets;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ObjectStoreGroupOffsetsReaderTest {
+  @TempDir Path root;
+
+  @Test
+  void readsTheGroupsFromALocalDirectory() throws IOException {
+    write("prefix/group1/topic1/0", 10);
+    write("prefix/group1/topic1/1", 11);
+    write("prefix/group2/topic2/0", 20);
+    write("prefix/not-an-offset", 0);
+
+    final List<GroupOffsets> groups = new ArrayList<>();
+    try (LocalObjectStore store = new LocalObjectStore(root, 2)) {
+      new ObjectStoreGroupOffsetsReader(store, ReaderConfig.builder().concurrency(2).build())
+          .read(Optional.of("prefix"), Optional.empty(), groups::add);
+    }
+
+    assertEquals(2, groups.size());
+    assertEquals("group1", groups.get(0).getGroup());
+    assertEquals(2, groups.get(0).getOffsets().size());
+    assertEquals(11, groups.get(0).getOffsets().get(new TopicPartition("topic1", 1)).offset());
+    assertEquals("group2", groups.get(1).getGroup());
+    assertEquals(20, groups.get(1).getOffsets().get(new TopicPartition("topic2", 0)).offset());
+  }
+
+  @Test
+  void readsOnlyTheRequestedGroups() throws IOException {
+    write("group1/topic1/0", 10);
+    write("group10/topic1/0", 100);
+    write("group2/topic1/0", 20);
+
+    final List<GroupOffsets> groups = new ArrayList<>();
+    try (LocalObjectStore store = new LocalObjectStore(root, 1)) {
+      new ObjectStoreGroupOffsetsReader(store, ReaderConfig.DEFAULT)
+          .read(Optional.empty(), Optional.of(new String[] {"group1"}), groups::add);
+    }
+
+    assertEquals(1, groups.size());
+    assertEquals("group1", groups.get(0).getGroup());
+    assertEquals(10, groups.get(0).getOffsets().get(new TopicPartition("topic1", 0)).offset());
+  }
+
+  @Test
+  void readsTheGroupsMatchingAPattern() throws IOException {
+    write("payments-1/topic1/0", 10);
+    write("payments-2/topic1/0", 20);
+    write("orders/topic1/0", 30);
+
+    final List<GroupOffsets> groups = new ArrayList<>();
+    try (LocalObjectStore store = new LocalObjectStore(root, 1)) {
+      new ObjectStoreGroupOffsetsReader(store, ReaderConfig.DEFAULT)
+          .read(
+              Optional.empty(),
+              new Selection(
+                  new NameFilter(
+                      Collections.singletonList(NamePattern.parse("payments-*")),
+                      Collections.emptyList()),
+                  NameFilter.all()),
+              groups::add);
+    }
+
+    assertEquals(2, groups.size());
+    assertEquals("payments-1", groups.get(0).getGroup());
+    assertEquals("payments-2", groups.get(1).getGroup());
+  }
+
+  private void write(String key, long offset) throws IOException {
+    final Path file = root.resolve(key);
+    Files.createDirectories(file.getParent());
+    Files.write(file, ByteBuffer.allocate(8).putLong(offset).array());
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lenses.utils.Tuple2;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+class OffsetKeysTest {
+
+  @Test
+  void parsesTheGroupTopicAndPartitionFromTheEndOfTheKey() {
+    final Tuple2<String, TopicPartition> parsed =
+        new OffsetKeys().tryParse("prefix1/prefix2/group/topic/2147483647");
+    assertEquals("group", parsed._1());
+    assertEquals(new TopicPartition("topic", Integer.MAX_VALUE), parsed._2());
+  }
+
+  @Test
+  void returnsNullForTheKeysThatAreNotOffsets() {
+    final OffsetKeys keys = new OffsetKeys();
+    for (String key :
+        new String[] {
+          "",
+          "0",
+          "topic/0",
+          "/topic/0",
+          "group//0",
+          "group/topic/",
+          "group/topic/abc",
+          "group/topic/1a",
+          "group/topic/-1",
+          "group/topic/2147483648",
+          "group/topic/0/"
+        }) {
+      assertNull(keys.tryParse(key), key);
+      assertFalse(OffsetKeys.isValid(key), key);
+      assertThrows(IllegalArgumentException.class, () -> OffsetKeys.parse(key), key);
+    }
+  }
+
+  @Test
+  void agreesWithTheStaticParser() {
+    final OffsetKeys keys = new OffsetKeys();
+    for (String key : new String[] {"g/t/0", "p/g/t/10", "a/b/c/d/e/007"}) {
+      assertTrue(OffsetKeys.isValid(key), key);
+      assertEquals(OffsetKeys.parse(key)._1(), keys.tryParse(key)._1());
+      assertEquals(OffsetKeys.parse(key)._2(), keys.tryParse(key)._2());
+    }
+  }
+
+  @Test
+  void sharesTheInstancesOfTheSameGroupsAndTopics() {
+    final OffsetKeys keys = new OffsetKeys();
+    final int groups = 200;
+    final int topics = 500;
+    Tuple2<String, TopicPartition> first = null;
+    for (int group = 0; group < groups; group++) {
+      for (int topic = 0; topic < topics; topic++) {
+        final Tuple2<String, TopicPartition> parsed =
+            keys.tryParse("prefix/group" + group + "/topic" + topic + "/" + (group % 10));
+        if (group == 0 && topic == 0) {
+          first = parsed;
+        }
+        if (group == 10 && topic == 0) {
+          assertSame(first._2(), parsed._2());
+          assertSame(first._2().topic(), parsed._2().topic());
+        }
+      }
+    }
+    assertSame(first._1(), keys.tryParse("group0/topic1/3")._1());
+    assertSame(first._2(), keys.tryParse("other/group0/topic0/0")._2());
+  }
+
+  @Test
+  void poolsTheRegionsOfAString() {
+    final OffsetKeys.StringPool pool = new OffsetKeys.StringPool();
+    for (int index = 0; index < 1000; index++) {
+      pool.intern("x/topic" + (index % 500) + "/y", 2, 2 + ("topic" + (index % 500)).length());
+    }
+    assertEquals(500, pool.size());
+    final String topic = pool.intern("topic42", 0, 7);
+    assertEquals("topic42", topic);
+    assertSame(topic, pool.intern("a/topic42", 2, 9));
+  }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffsetsCacheTest {
+  private static final Instant MODIFIED = Instant.parse("2024-01-01T00:00:00Z");
+
+  @Test
+  void returnsTheSavedOffsetsWhenTheETagAndLastModifiedMatch(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.cache");
+    final OffsetsCache cache = OffsetsCache.load(file);
+    cache.put("bucket", "group/topic/0", "\"etag0\"", MODIFIED, 42L);
+    cache.put("bucket", "group/tópic/1", "\"etag1\"", null, Long.MAX_VALUE);
+    cache.save();
+
+    final OffsetsCache loaded = OffsetsCache.load(file);
+    assertEquals(42L, loaded.get("bucket", "group/topic/0", "\"etag0\"", MODIFIED));
+    assertEquals(Long.MAX_VALUE, loaded.get("bucket", "group/tópic/1", "\"etag1\"", null));
+    assertEquals(2, loaded.getHits());
+  }
+
+  @Test
+  void missesWhenTheObjectChanged(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.cache");
+    final OffsetsCache cache = OffsetsCache.load(file);
+    cache.put("bucket", "group/topic/0", "\"etag0\"", MODIFIED, 42L);
+    cache.save();
+
+    final OffsetsCache loaded = OffsetsCache.load(file);
+    assertNull(loaded.get("bucket", "group/topic/0", "\"etag1\"", MODIFIED));
+    assertNull(loaded.get("bucket", "group/topic/0", "\"etag0\"", MODIFIED.plusSeconds(1)));
+    assertNull(loaded.get("other", "group/topic/0", "\"etag0\"", MODIFIED));
+    assertNull(loaded.get("bucket", "group/topic/0", null, MODIFIED));
+    assertEquals(4, loaded.getMisses());
+  }
+
+  @Test
+  void dropsTheEntriesNotListedByTheRun(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.cache");
+    final OffsetsCache cache = OffsetsCache.load(file);
+    cache.put("bucket", "group/topic/0", "\"etag0\"", MODIFIED, 42L);
+    cache.put("bucket", "deleted/topic/0", "\"etag1\"", MODIFIED, 7L);
+    cache.put("bucket", "changed/topic/0", "\"etag2\"", MODIFIED, 9L);
+    cache.save();
+
+    final OffsetsCache second = OffsetsCache.load(file);
+    assertEquals(42L, second.get("bucket", "group/topic/0", "\"etag0\"", MODIFIED));
+    assertNull(second.get("bucket", "changed/topic/0", "\"etag3\"", MODIFIED));
+    second.put("bucket", "changed/topic/0", "\"etag3\"", MODIFIED, 10L);
+    second.listed("bucket", "");
+    second.save();
+
+    final OffsetsCache third = OffsetsCache.load(file);
+    assertEquals(42L, third.get("bucket", "group/topic/0", "\"etag0\"", MODIFIED));
+    assertEquals(10L, third.get("bucket", "changed/topic/0", "\"etag3\"", MODIFIED));
+    assertNull(third.get("bucket", "deleted/topic/0", "\"etag1\"", MODIFIED));
+  }
+
+  @Test
+  void keepsTheEntriesOutsideThePrefixesListed(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.cache");
+    final OffsetsCache cache = OffsetsCache.load(file);
+    cache.put("bucket", "prefix/group/topic/0", "\"etag0\"", MODIFIED, 42L);
+    cache.put("bucket", "prefix/deleted/topic/0", "\"etag1\"", MODIFIED, 7L);
+    cache.put("bucket", "other/group/topic/0", "\"etag2\"", MODIFIED, 9L);
+    cache.put("other", "prefix/group/topic/0", "\"etag3\"", MODIFIED, 3L);
+    cache.save();
+
+    final OffsetsCache second = OffsetsCache.load(file);
+    assertEquals(42L, second.get("bucket", "prefix/group/topic/0", "\"etag0\"", MODIFIED));
+    second.listed("bucket", "prefix/");
+    second.save();
+
+    final OffsetsCache third = OffsetsCache.load(file);
+    assertEquals(42L, third.get("bucket", "prefix/group/topic/0", "\"etag0\"", MODIFIED));
+    assertNull(third.get("bucket", "prefix/deleted/topic/0", "\"etag1\"", MODIFIED));
+    assertEquals(9L, third.get("bucket", "other/group/topic/0", "\"etag2\"", MODIFIED));
+    assertEquals(3L, third.get("other", "prefix/group/topic/0", "\"etag3\"", MODIFIED));
+  }
+
+  @Test
+  void startsEmptyWhenTheFileIsNotACache(@TempDir Path dir) throws IOException {
+    final Path file = dir.resolve("offsets.cache");
+    Files.write(file, "not a cache".getBytes(StandardCharsets.UTF_8));
+
+    final OffsetsCache cache = OffsetsCache.load(file);
+    assertNull(cache.get("bucket", "group/topic/0", "\"etag0\"", MODIFIED));
+
+    cache.put("bucket", "group/topic/0", "\"etag0\"", MODIFIED, 7L);
+    cache.save();
+    assertEquals(7L, OffsetsCache.load(file).get("bucket", "group/topic/0", "\"etag0\"", MODIFIED));
+  }
+}
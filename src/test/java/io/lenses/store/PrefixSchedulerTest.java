@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.lenses.metrics.RestoreMetrics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PrefixSchedulerTest {
+
+  @Test
+  void takesThePrefixesInTurn() throws Exception {
+    final List<String> order = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch release = new CountDownLatch(1);
+    try (PrefixScheduler scheduler = new PrefixScheduler(1, 0)) {
+      // holds the single worker while the reads are queued
+      scheduler.submit("held/", () -> await(release));
+      final List<Future<?>> futures = new ArrayList<>();
+      for (String key :
+          Arrays.asList("g/a/0", "g/a/1", "g/a/2", "g/b/0", "g/b/1", "g/c/0", "h/a/0")) {
+        futures.add(scheduler.submit(PrefixScheduler.prefixOf(key), () -> order.add(key)));
+      }
+      release.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+
+    assertEquals(
+        Arrays.asList("g/a/0", "g/b/0", "g/c/0", "h/a/0", "g/a/1", "g/b/1", "g/a/2"), order);
+  }
+
+  @Test
+  void spacesTheReadsOfAPrefixWithoutHoldingTheOthers() throws Exception {
+    final long waits = RestoreMetrics.prefixWaits.get();
+    final List<Long> hot = Collections.synchronizedList(new ArrayList<>());
+    final List<Long> others = Collections.synchronizedList(new ArrayList<>());
+    final long start = System.nanoTime();
+    try (PrefixScheduler scheduler = new PrefixScheduler(2, 20)) {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        futures.add(scheduler.submit("group/hot/", () -> hot.add(System.nanoTime() - start)));
+      }
+      for (int i = 0; i < 5; i++) {
+        futures.add(
+            scheduler.submit("group/topic" + i + "/", () -> others.add(System.nanoTime() - start)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+
+    // 20 per second: a read every 50 ms
+    assertTrue(Collections.max(hot) >= TimeUnit.MILLISECONDS.toNanos(195));
+    assertTrue(Collections.max(others) < TimeUnit.MILLISECONDS.toNanos(150));
+    assertTrue(RestoreMetrics.prefixWaits.get() > waits);
+  }
+
+  @Test
+  void prefixesTheKeyUpToItsLastSlash() {
+    assertEquals("prefix/group/topic/", PrefixScheduler.prefixOf("prefix/group/topic/0"));
+    assertEquals("", PrefixScheduler.prefixOf("key"));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at: http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package io.lenses.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BlockingQueueIteratorTest {
+
+  @Test
+  void handsTheElementsOverFromAnotherThread() throws InterruptedException {
+    final BlockingQueueIterator<Integer> iterator = new BlockingQueueIterator<>(2);
+    final Thread producer =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 100; i++) {
+                iterator.accept(i);
+              }
+              iterator.complete();
+            });
+    producer.start();
+
+    final List<Integer> consumed = new ArrayList<>();
+    iterator.forEachRemaining(consumed::add);
+    producer.join();
+
+    assertEquals(100, consumed.size());
+    assertEquals(99, consumed.get(99));
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  void rethrowsTheProducerFailureAfterTheElementsBeforeIt() {
+    final BlockingQueueIterator<String> iterator = new BlockingQueueIterator<>(10);
+    iterator.accept("first");
+    iterator.fail(new IllegalStateException("boom"));
+
+    assertTrue(iterator.hasNext());
+    assertEquals("first", iterator.next());
+    final RuntimeException exception = assertThrows(RuntimeException.class, iterator::hasNext);
+    assertEquals("boom", exception.getCause().getMessage());
+  }
+
+  @Test
+  void awaitsTheNextElementWithoutBlocking() throws InterruptedException {
+    final BlockingQueueIterator<String> iterator = new BlockingQueueIterator<>(10);
+
+    assertFalse(iterator.await(0, TimeUnit.MILLISECONDS));
+    iterator.accept("first");
+    assertTrue(iterator.await(0, TimeUnit.MILLISECONDS));
+    assertEquals("first", iterator.next());
+    iterator.complete();
+    assertTrue(iterator.await(10, TimeUnit.MILLISECONDS));
+    assertFalse(iterator.hasNext());
+  }
+}